@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses {@code --name=value} command-line options shared by all benchmarks.
+ * <p>
+ * Common options: {@code --warmup=3 --iterations=5 --time-ms=500 --out=results.json}.
+ * Sizes accept the suffixes {@code K}, {@code M} and {@code B} (e.g. {@code --sizes=1K,1M,1B}).
+ */
+public final class BenchmarkArgs {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Parses the given arguments.
+     *
+     * @param args arguments of the form {@code --name=value}
+     * @throws IllegalArgumentException if an argument has another form
+     */
+    public BenchmarkArgs(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    /**
+     * Returns the value of an option, or {@code defaultValue} if it was not given.
+     */
+    public String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Returns a comma-separated list of integers (with optional K/M/B suffixes).
+     */
+    public List<Integer> ints(String name, String defaultValue) {
+        List<Integer> result = new ArrayList<>();
+        for (String part : get(name, defaultValue).split(",")) {
+            long value = parseSize(part.trim());
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(name + " value too large: " + part);
+            }
+            result.add((int) value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the harness options given by {@code --warmup}, {@code --iterations} and {@code --time-ms}.
+     */
+    public BenchmarkHarness.Options options() {
+        return new BenchmarkHarness.Options(
+                Integer.parseInt(get("warmup", "3")),
+                Integer.parseInt(get("iterations", "5")),
+                Duration.ofMillis(Long.parseLong(get("time-ms", "500"))));
+    }
+
+    /**
+     * Parses a number such as {@code 1000}, {@code 1K}, {@code 16M} or {@code 1B} (decimal multiples).
+     */
+    static long parseSize(String text) {
+        String s = text.toUpperCase(Locale.ROOT).replace("_", "");
+        long multiplier = switch (s.charAt(s.length() - 1)) {
+            case 'K' -> 1_000L;
+            case 'M' -> 1_000_000L;
+            case 'B', 'G' -> 1_000_000_000L;
+            default -> 1L;
+        };
+        String digits = multiplier == 1L ? s : s.substring(0, s.length() - 1);
+        return Long.parseLong(digits) * multiplier;
+    }
+}
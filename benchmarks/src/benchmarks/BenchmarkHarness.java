@@ -0,0 +1,193 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A small JMH-style harness for average-time benchmarks.
+ * <p>
+ * Timing a single run with {@code System.currentTimeMillis()}, as {@code StreamParallelExample} does,
+ * mostly measures class loading, interpretation and JIT compilation. This harness instead:
+ * <ul>
+ *   <li>runs warm-up iterations whose timings are discarded, so the code under test is compiled first;</li>
+ *   <li>repeats the operation for a fixed time per iteration, and reports the mean time per operation
+ *       over several measured iterations with the half-width of its 99.9% confidence interval, like JMH's
+ *       score error;</li>
+ *   <li>passes every result to the {@link Blackhole}, so the JIT cannot optimize the work away.</li>
+ * </ul>
+ * Results can be exported as JSON in the same shape as JMH's {@code -rf json} output,
+ * so runs of different versions can be compared with the usual JMH tooling.
+ */
+public final class BenchmarkHarness {
+
+    /**
+     * How long and how often to run each benchmark.
+     *
+     * @param warmupIterations iterations run before measuring
+     * @param measurementIterations iterations that are measured
+     * @param iterationTime minimum duration of one iteration
+     */
+    public record Options(int warmupIterations, int measurementIterations, Duration iterationTime) {
+        public Options {
+            if (warmupIterations < 0 || measurementIterations < 1) {
+                throw new IllegalArgumentException("Need at least one measured iteration");
+            }
+        }
+    }
+
+    /**
+     * The outcome of one benchmark with one set of parameters.
+     *
+     * @param benchmark the benchmark name
+     * @param params the parameter values, e.g. {@code size=1000000}
+     * @param meanNanosPerOp the mean time per operation over the measured iterations
+     * @param stdevNanosPerOp the standard deviation of the per-iteration means
+     * @param errorNanosPerOp the half-width of the 99.9% confidence interval of the mean, from Student's t
+     *                        distribution; 0 with a single measured iteration
+     * @param operations the number of operations run during measurement
+     */
+    public record Result(String benchmark, Map<String, String> params,
+                         double meanNanosPerOp, double stdevNanosPerOp, double errorNanosPerOp,
+                         long operations) {
+    }
+
+    // Two-sided 99.9% quantiles of Student's t distribution (t at 0.9995) for 1 to 30 degrees of freedom
+    private static final double[] T_QUANTILES = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+    // The same quantile of the standard normal distribution
+    private static final double Z_QUANTILE = 3.2905;
+
+    private final Options options;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Creates a harness with the given options.
+     *
+     * @param options iteration counts and duration
+     */
+    public BenchmarkHarness(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Benchmarks {@code operation}, prints a one-line summary and records the result.
+     *
+     * @param benchmark the benchmark name
+     * @param params the parameter values, shown in the report
+     * @param operation the work to measure; its result is consumed by the {@link Blackhole}
+     * @return the result
+     */
+    public Result run(String benchmark, Map<String, String> params, LongSupplier operation) {
+        for (int i = 0; i < options.warmupIterations(); i++) {
+            iteration(operation);
+        }
+        double[] means = new double[options.measurementIterations()];
+        long operations = 0;
+        for (int i = 0; i < means.length; i++) {
+            long[] timing = iteration(operation);
+            means[i] = (double) timing[0] / timing[1];
+            operations += timing[1];
+        }
+        double mean = 0;
+        for (double m : means) mean += m;
+        mean /= means.length;
+        double variance = 0;
+        for (double m : means) variance += (m - mean) * (m - mean);
+        double stdev = means.length > 1 ? Math.sqrt(variance / (means.length - 1)) : 0.0;
+        double error = means.length > 1 ? tQuantile(means.length - 1) * stdev / Math.sqrt(means.length) : 0.0;
+
+        Result result = new Result(benchmark, new LinkedHashMap<>(params), mean, stdev, error, operations);
+        results.add(result);
+        System.out.printf("%-28s %-32s %16.1f ± %-14.1f ns/op%n", benchmark, params, mean, error);
+        return result;
+    }
+
+    /**
+     * Returns the two-sided 99.9% quantile of Student's t distribution: from the table up to 30 degrees of
+     * freedom, above that from the Cornish-Fisher expansion around the normal quantile, which is within 0.001.
+     */
+    static double tQuantile(int degreesOfFreedom) {
+        if (degreesOfFreedom <= T_QUANTILES.length) return T_QUANTILES[degreesOfFreedom - 1];
+        double z = Z_QUANTILE;
+        double z2 = z * z;
+        double v = degreesOfFreedom;
+        return z + z * (z2 + 1) / (4 * v)
+                + z * ((5 * z2 + 16) * z2 + 3) / (96 * v * v)
+                + z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384 * v * v * v);
+    }
+
+    /**
+     * Runs {@code operation} until the iteration time has passed (at least once).
+     *
+     * @return elapsed nanoseconds and the number of operations
+     */
+    private long[] iteration(LongSupplier operation) {
+        long budget = options.iterationTime().toNanos();
+        long start = System.nanoTime();
+        long elapsed;
+        long ops = 0;
+        do {
+            Blackhole.consume(operation.getAsLong());
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budget);
+        return new long[]{elapsed, ops};
+    }
+
+    /**
+     * Returns all results recorded so far.
+     */
+    public List<Result> results() {
+        return List.copyOf(results);
+    }
+
+    /**
+     * Writes all results recorded so far as a JMH-compatible JSON array.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.write("  {\n");
+                out.write("    \"benchmark\": " + quote(r.benchmark()) + ",\n");
+                out.write("    \"mode\": \"avgt\",\n");
+                out.write("    \"jvm\": " + quote(System.getProperty("java.vm.name")) + ",\n");
+                out.write("    \"jdkVersion\": " + quote(System.getProperty("java.version")) + ",\n");
+                out.write("    \"warmupIterations\": " + options.warmupIterations() + ",\n");
+                out.write("    \"measurementIterations\": " + options.measurementIterations() + ",\n");
+                out.write("    \"measurementTime\": " + quote(options.iterationTime().toMillis() + " ms") + ",\n");
+                out.write("    \"params\": {");
+                int p = 0;
+                for (Map.Entry<String, String> e : r.params().entrySet()) {
+                    out.write((p++ > 0 ? ", " : " ") + quote(e.getKey()) + ": " + quote(e.getValue()));
+                }
+                out.write(" },\n");
+                out.write("    \"primaryMetric\": {\n");
+                out.write("      \"score\": " + r.meanNanosPerOp() + ",\n");
+                out.write("      \"scoreError\": " + r.errorNanosPerOp() + ",\n");
+                out.write("      \"scoreUnit\": \"ns/op\"\n");
+                out.write("    }\n");
+                out.write(i < results.size() - 1 ? "  },\n" : "  }\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+/**
+ * Consumes benchmark results so the JIT compiler cannot eliminate the work that produced them.
+ * <p>
+ * If a benchmark computes a sum and never uses it, HotSpot may legally remove the whole loop
+ * ("dead-code elimination") and the benchmark would measure nothing. Every result is therefore
+ * folded into a volatile field, which the JIT must assume somebody else can read.
+ */
+public final class Blackhole {
+
+    private static volatile long sink;
+
+    private Blackhole() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Consumes a result.
+     *
+     * @param value the value to consume
+     */
+    public static void consume(long value) {
+        sink ^= value;
+    }
+
+    /**
+     * Consumes a result.
+     *
+     * @param value the value to consume
+     */
+    public static void consume(double value) {
+        consume(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Returns the combined value of everything consumed so far (printing it keeps it observable).
+     */
+    public static long checksum() {
+        return sink;
+    }
+}
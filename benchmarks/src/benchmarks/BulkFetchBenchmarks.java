@@ -0,0 +1,174 @@
+package benchmarks;
+
+import modernfeatures.java18.fetch.BulkFetcher;
+import modernfeatures.java18.fetch.StandInServer;
+import modernfeatures.java18.server.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link BulkFetcher} with the naive bulk fetch, {@code sendAsync} for every request followed by
+ * {@code CompletableFuture.allOf}, against a local {@link StandInServer} that takes {@code --delay-ms} per
+ * request and answers with {@code --body-bytes}.
+ * <p>
+ * For each way and request count, the total time, the latency of the requests from send to complete
+ * response (p50, p99, max), the failures, the most requests the server had in flight and the peak heap
+ * in use are printed. The naive way sends everything at once, so every request waits behind all the
+ * others and every body is held until the last one arrives; the fetcher keeps {@code --concurrency} in
+ * flight and its consumer drops each body after reading its length.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.BulkFetchBenchmarks \
+ *        --requests=1K,5K --concurrency=100 --delay-ms=20 --body-bytes=16384
+ * </pre>
+ * Client and server share the process, so the naive way needs two file descriptors per request
+ * ({@code ulimit -n}), and the heap includes the server's.
+ */
+public class BulkFetchBenchmarks {
+
+    /**
+     * Runs both ways at every request count and prints one line per run.
+     *
+     * @param args {@code --requests}, {@code --concurrency}, {@code --delay-ms}, {@code --body-bytes},
+     *             {@code --timeout}
+     * @throws Exception if the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> requestCounts = options.ints("requests", "1K,5K");
+        int concurrency = options.ints("concurrency", "100").get(0);
+        int delayMillis = options.ints("delay-ms", "20").get(0);
+        int bodyBytes = options.ints("body-bytes", "16384").get(0);
+        Duration timeout = Duration.ofSeconds(options.ints("timeout", "30").get(0));
+
+        System.out.printf("%d ms per request, %,d byte bodies, %d at once for the bulk fetcher%n",
+                delayMillis, bodyBytes, concurrency);
+        System.out.printf("%-8s %9s %9s %10s %9s %9s %9s %8s %10s %9s%n", "way", "requests", "seconds",
+                "req/s", "p50 ms", "p99 ms", "max ms", "failed", "server max", "heap MB");
+        // A first round of each, not printed, so that both are compiled before they are measured
+        for (String way : List.of("warmup", "naive", "bulk")) {
+            for (int requests : way.equals("warmup") ? List.of(Math.min(500, requestCounts.get(0)))
+                    : requestCounts) {
+                for (boolean naive : way.equals("warmup") ? List.of(true, false) : List.of(way.equals("naive"))) {
+                    try (StandInServer server = new StandInServer(Duration.ofMillis(delayMillis), bodyBytes, 0)) {
+                        Run run = new Run(server, requests, timeout);
+                        if (naive) run.naive();
+                        else run.bulk(concurrency);
+                        if (!way.equals("warmup")) run.print(way);
+                    }
+                }
+            }
+        }
+        System.out.println("(checksum " + Blackhole.checksum() + ")");
+    }
+
+    // One fetch of a number of requests, with what it measured
+    private static final class Run {
+        private final StandInServer server;
+        private final int requestCount;
+        private final Duration timeout;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failed = new LongAdder();
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peakHeap = new AtomicLong();
+        private double seconds;
+
+        Run(StandInServer server, int requestCount, Duration timeout) {
+            this.server = server;
+            this.requestCount = requestCount;
+            this.timeout = timeout;
+        }
+
+        // sendAsync for every request at once, then allOf, as the requests would be fetched without a limit
+        void naive() {
+            measure(client -> {
+                List<CompletableFuture<HttpResponse<byte[]>>> futures = requests().map(request -> {
+                    long sent = System.nanoTime();
+                    return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                            .whenComplete((response, error) -> {
+                                latency.record(System.nanoTime() - sent);
+                                if (error != null) failed.increment();
+                            });
+                }).toList();
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(error -> null)
+                        .join();
+                long bytes = 0;
+                for (CompletableFuture<HttpResponse<byte[]>> future : futures) {
+                    if (!future.isCompletedExceptionally()) bytes += future.join().body().length;
+                }
+                Blackhole.consume(bytes);
+            });
+        }
+
+        void bulk(int concurrency) {
+            measure(client -> {
+                BulkFetcher<byte[]> fetcher = new BulkFetcher<>(client, HttpResponse.BodyHandlers.ofByteArray(),
+                        concurrency, concurrency);
+                long bytes = 0;
+                try (Stream<BulkFetcher.Result<byte[]>> results = fetcher.fetch(requests())) {
+                    for (BulkFetcher.Result<byte[]> result : (Iterable<BulkFetcher.Result<byte[]>>) results::iterator) {
+                        latency.record(result.latencyNanos());
+                        if (result.response() != null) bytes += result.response().body().length;
+                        else failed.increment();
+                    }
+                }
+                Blackhole.consume(bytes);
+            });
+        }
+
+        private Stream<HttpRequest> requests() {
+            return IntStream.range(0, requestCount)
+                    .mapToObj(i -> HttpRequest.newBuilder(server.uri("/item/" + i)).timeout(timeout).build());
+        }
+
+        // Runs the fetch with a fresh client while a virtual thread samples the heap in use
+        private void measure(Consumer<HttpClient> fetch) {
+            System.gc();
+            AtomicBoolean done = new AtomicBoolean();
+            Thread sampler = Thread.ofVirtual().start(() -> {
+                while (!done.get()) {
+                    peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            long start = System.nanoTime();
+            try (HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()) {
+                fetch.accept(client);
+                seconds = (System.nanoTime() - start) / 1e9;
+            }
+            done.set(true);
+            sampler.interrupt();
+        }
+
+        void print(String way) {
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            System.out.printf(Locale.ROOT, "%-8s %,9d %9.2f %,10.0f %9.2f %9.2f %9.2f %,8d %,10d %,9.1f%n",
+                    way, requestCount, seconds, requestCount / seconds, snapshot.valueAtQuantile(0.5) / 1e6,
+                    snapshot.valueAtQuantile(0.99) / 1e6, snapshot.max() / 1e6, failed.sum(), server.maxInFlight(),
+                    peakHeap.get() / 1e6);
+        }
+    }
+}
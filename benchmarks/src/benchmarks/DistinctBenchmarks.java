@@ -0,0 +1,107 @@
+package benchmarks;
+
+import modernfeatures.streams.DistinctFilters;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares removing duplicate strings with {@code distinct()} and with the {@link DistinctFilters}:
+ * <ul>
+ *   <li>{@code distinct}: {@code stream().distinct().count()};</li>
+ *   <li>{@code offHeap}: {@code filter(DistinctFilters.offHeap(...))}, exact;</li>
+ *   <li>{@code bloom}: {@code filter(DistinctFilters.bloom(..., 0.01))}, approximate;</li>
+ *   <li>{@code lastDistinct}: {@code filter(DistinctFilters.lastDistinct(10_000))}, windowed.</li>
+ * </ul>
+ * {@code --unique} is the percentage of distinct values in the input. After the timed runs, the memory
+ * each approach retains for the largest size is printed: the heap growth of a {@code HashSet} holding
+ * the distinct elements (what {@code distinct()} keeps) against the filters' {@code memoryBytes()}.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.DistinctBenchmarks \
+ *        --sizes=100K,1M --unique=10,50,100 --out=distinct-benchmarks.json
+ * </pre>
+ */
+public class DistinctBenchmarks {
+
+    /**
+     * Runs all distinct benchmarks, writes the JSON report and prints the memory comparison.
+     *
+     * @param args {@code --sizes}, {@code --unique}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "1M");
+        List<Integer> uniquePercents = options.ints("unique", "10,50,100");
+        Path out = Path.of(options.get("out", "distinct-benchmarks.json"));
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        for (int size : sizes) {
+            for (int percent : uniquePercents) {
+                int unique = Math.max(1, (int) ((long) size * percent / 100));
+                List<String> data = data(size, unique);
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("size", String.valueOf(size));
+                params.put("unique", percent + "%");
+
+                harness.run("distinct", params, () -> data.stream().distinct().count());
+                harness.run("offHeap", params, () -> data.stream()
+                        .filter(DistinctFilters.offHeap(DistinctBenchmarks::utf8, unique)).count());
+                harness.run("bloom", params, () -> data.stream()
+                        .filter(DistinctFilters.bloom(unique, 0.01)).count());
+                harness.run("lastDistinct", params, () -> data.stream()
+                        .filter(DistinctFilters.lastDistinct(10_000)).count());
+            }
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+
+        printRetainedMemory(sizes.get(sizes.size() - 1));
+    }
+
+    // Every element distinct: the worst case for the memory distinct() holds
+    private static void printRetainedMemory(int size) {
+        List<String> data = IntStream.range(0, size).mapToObj(i -> "user-" + i).collect(Collectors.toList());
+        long before = usedHeap();
+        Set<String> seen = new HashSet<>();
+        data.forEach(seen::add);
+        long hashSetBytes = usedHeap() - before;
+        Blackhole.consume(seen.size());
+
+        DistinctFilters.Filter<String> offHeap = DistinctFilters.offHeap(DistinctBenchmarks::utf8, size);
+        DistinctFilters.Filter<String> bloom = DistinctFilters.bloom(size, 0.01);
+        data.forEach(offHeap::test);
+        data.forEach(bloom::test);
+
+        System.out.printf("%nRetained memory for %,d distinct strings:%n", size);
+        System.out.printf("  distinct() HashSet  %,14d bytes heap (set entries only; the strings are shared)%n",
+                hashSetBytes);
+        System.out.printf("  offHeap             %,14d bytes off-heap (copies of the keys included)%n",
+                offHeap.memoryBytes());
+        System.out.printf("  bloom (1%%)          %,14d bytes heap, %,d of %,d passed%n",
+                bloom.memoryBytes(), bloom.size(), size);
+    }
+
+    private static List<String> data(int size, int unique) {
+        return new Random(42).ints(size, 0, unique).mapToObj(i -> "user-" + i).collect(Collectors.toList());
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,242 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.SimpleFileServer;
+import modernfeatures.java18.server.NioHttpServer;
+import modernfeatures.java18.server.ZeroCopyFileHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares the throughput and heap allocation of serving one large file over loopback:
+ * <ul>
+ *   <li>{@code heap}: {@code SimpleFileServer.createFileHandler}, which copies the file through an
+ *       {@code InputStream} into heap buffers;</li>
+ *   <li>{@code mapped}: {@link ZeroCopyFileHandler} in {@code MAPPED} mode;</li>
+ *   <li>{@code transfer}: {@link ZeroCopyFileHandler} in {@code TRANSFER} mode;</li>
+ *   <li>{@code nio-mapped} and {@code nio-transfer}: the same handlers on {@link NioHttpServer}, where they
+ *       write mapped memory to the socket directly and use {@code sendfile};</li>
+ *   <li>{@code sendfile}: a bare socket server calling {@code FileChannel.transferTo} on the
+ *       {@code SocketChannel}, the zero-copy ceiling that {@code HttpServer}'s stream API cannot reach.</li>
+ * </ul>
+ * One operation downloads the whole file over a keep-alive connection into a direct buffer. After the
+ * timed runs, the throughput in MB/s and the bytes allocated per download (by all threads) are printed.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.FileServingBenchmarks \
+ *        --sizes=16M,256M --out=file-serving-benchmarks.json
+ * </pre>
+ */
+public class FileServingBenchmarks {
+
+    private static final List<String> HANDLERS =
+            List.of("heap", "mapped", "transfer", "nio-mapped", "nio-transfer", "sendfile");
+
+    /**
+     * Runs the file serving benchmarks, writes the JSON report and prints the throughput summary.
+     *
+     * @param args {@code --sizes}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the servers cannot start or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "64M");
+        Path out = Path.of(options.get("out", "file-serving-benchmarks.json"));
+
+        Path directory = Files.createTempDirectory("file-serving");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/heap", SimpleFileServer.createFileHandler(directory));
+        server.createContext("/mapped", new ZeroCopyFileHandler(directory, ZeroCopyFileHandler.Mode.MAPPED));
+        server.createContext("/transfer", new ZeroCopyFileHandler(directory, ZeroCopyFileHandler.Mode.TRANSFER));
+        server.start();
+        NioHttpServer nio = NioHttpServer.create(new InetSocketAddress("localhost", 0), 0, 1);
+        nio.createContext("/nio-mapped", new ZeroCopyFileHandler(directory, ZeroCopyFileHandler.Mode.MAPPED));
+        nio.createContext("/nio-transfer", new ZeroCopyFileHandler(directory, ZeroCopyFileHandler.Mode.TRANSFER));
+        nio.start();
+        ServerSocketChannel sendfile = startSendfileServer(directory);
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        Map<String, String> summary = new LinkedHashMap<>();
+        try {
+            for (int size : sizes) {
+                String name = "data-" + size + ".bin";
+                writeRandomFile(directory.resolve(name), size);
+                for (String handler : HANDLERS) {
+                    int port = handler.equals("sendfile")
+                            ? ((InetSocketAddress) sendfile.getLocalAddress()).getPort()
+                            : handler.startsWith("nio-") ? nio.getAddress().getPort() : server.getAddress().getPort();
+                    try (Client client = new Client(port, "/" + handler + "/" + name)) {
+                        Map<String, String> params = new LinkedHashMap<>();
+                        params.put("size", String.valueOf(size));
+                        BenchmarkHarness.Result result = harness.run(handler, params, client::download);
+                        double megabytesPerSecond = size / (result.meanNanosPerOp() / 1e9) / (1 << 20);
+                        summary.put(handler + " " + size, String.format("%,10.0f MB/s %,12.1f KB allocated/op",
+                                megabytesPerSecond, allocatedPerDownload(client) / 1024.0));
+                    }
+                }
+            }
+        } finally {
+            server.stop(0);
+            nio.stop(0);
+            sendfile.close();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+        System.out.println();
+        summary.forEach((key, line) -> System.out.printf("%-22s %s%n", key, line));
+    }
+
+    // Heap allocated in the whole JVM per download, averaged over a few downloads
+    private static long allocatedPerDownload(Client client) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int downloads = 5;
+        long before = threads.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < downloads; i++) {
+            Blackhole.consume(client.download());
+        }
+        return (threads.getTotalThreadAllocatedBytes() - before) / downloads;
+    }
+
+    private static void writeRandomFile(Path file, int size) throws IOException {
+        byte[] block = new byte[1 << 20];
+        new Random(42).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int written = 0; written < size; written += block.length) {
+                channel.write(ByteBuffer.wrap(block, 0, Math.min(block.length, size - written)));
+            }
+        }
+    }
+
+    // A minimal HTTP/1.1 server that answers every request with the named file through sendfile
+    private static ServerSocketChannel startSendfileServer(Path directory) throws IOException {
+        ServerSocketChannel listener = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        Thread.ofVirtual().start(() -> {
+            while (listener.isOpen()) {
+                try {
+                    SocketChannel connection = listener.accept();
+                    Thread.ofVirtual().start(() -> serveSendfile(connection, directory));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        return listener;
+    }
+
+    private static void serveSendfile(SocketChannel connection, Path directory) {
+        try (connection) {
+            ByteBuffer request = ByteBuffer.allocate(4096);
+            while (true) {
+                String head = readHead(connection, request);
+                if (head == null) return;
+                String path = head.substring(head.indexOf(' ') + 1, head.indexOf(' ', head.indexOf(' ') + 1));
+                Path file = directory.resolve(path.substring(path.lastIndexOf('/') + 1));
+                try (FileChannel channel = FileChannel.open(file)) {
+                    long size = channel.size();
+                    connection.write(StandardCharsets.US_ASCII.encode(
+                            "HTTP/1.1 200 OK\r\nContent-Length: " + size + "\r\n\r\n"));
+                    for (long position = 0; position < size; ) {
+                        position += channel.transferTo(position, size - position, connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The client closed the connection
+        }
+    }
+
+    // Reads up to the blank line after the headers; leaves any following bytes in the buffer
+    private static String readHead(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.flip();
+            for (int i = buffer.position(); i + 3 < buffer.limit(); i++) {
+                if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r'
+                        && buffer.get(i + 3) == '\n') {
+                    byte[] head = new byte[i - buffer.position()];
+                    buffer.get(head).position(i + 4);
+                    buffer.compact();
+                    return new String(head, StandardCharsets.US_ASCII);
+                }
+            }
+            buffer.compact();
+            if (!buffer.hasRemaining() || channel.read(buffer) < 0) return null;
+        }
+    }
+
+    // A keep-alive HTTP/1.1 client that downloads one path into a reused direct buffer
+    private static final class Client implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer request;
+        private final ByteBuffer head = ByteBuffer.allocate(4096);
+        private final ByteBuffer body = ByteBuffer.allocateDirect(1 << 20);
+
+        Client(int port, String path) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+            request = StandardCharsets.US_ASCII.encode("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+
+        // Returns the number of body bytes received
+        long download() {
+            try {
+                channel.write(request.rewind());
+                String response = readHead(channel, head);
+                if (response == null || !response.startsWith("HTTP/1.1 200")) {
+                    throw new IOException("Unexpected response: " + response);
+                }
+                long remaining = contentLength(response);
+                // Body bytes that arrived with the headers
+                head.flip();
+                long buffered = Math.min(remaining, head.remaining());
+                head.position(head.position() + (int) buffered).compact();
+                remaining -= buffered;
+                long received = buffered;
+                while (remaining > 0) {
+                    body.clear().limit((int) Math.min(body.capacity(), remaining));
+                    int n = channel.read(body);
+                    if (n < 0) throw new IOException("Connection closed");
+                    remaining -= n;
+                    received += n;
+                }
+                return received;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static long contentLength(String head) {
+            for (String line : head.split("\r\n")) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    return Long.parseLong(line.substring(15).trim());
+                }
+            }
+            throw new IllegalStateException("No Content-Length in " + head);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
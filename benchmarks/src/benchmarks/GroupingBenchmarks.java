@@ -0,0 +1,70 @@
+package benchmarks;
+
+import modernfeatures.streams.collectors.ConcurrentGroupingCollectors;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares parallel grouping collectors on high-cardinality keys:
+ * <ul>
+ *   <li>{@code groupingBy}: {@code Collectors.groupingBy(key, counting())}, one map per split, merged at the end;</li>
+ *   <li>{@code groupingByConcurrent}: {@code Collectors.groupingByConcurrent(key, counting())}, one shared map
+ *       holding the downstream container of every key, for {@code counting()} a one-element {@code long[]},
+ *       which each update adds to while holding that container's monitor ({@code synchronized}), so threads
+ *       hitting the same key wait for each other;</li>
+ *   <li>{@code concurrentGroupingCollectors}: {@link ConcurrentGroupingCollectors#counting}, one shared map
+ *       of {@code LongAdder} cells.</li>
+ * </ul>
+ * The same three are also run for per-key sums ({@code summingLong}).
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.GroupingBenchmarks \
+ *        --sizes=1M,10M --keys=100,100K,1M --out=grouping-benchmarks.json
+ * </pre>
+ */
+public class GroupingBenchmarks {
+
+    /**
+     * Runs all grouping benchmarks and writes the JSON report.
+     *
+     * @param args {@code --sizes}, {@code --keys}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "1M");
+        List<Integer> keyCounts = options.ints("keys", "100,100K");
+        Path out = Path.of(options.get("out", "grouping-benchmarks.json"));
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        for (int size : sizes) {
+            for (int keys : keyCounts) {
+                List<Integer> data = new Random(42).ints(size, 0, keys).boxed().collect(Collectors.toList());
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("size", String.valueOf(size));
+                params.put("keys", String.valueOf(keys));
+
+                harness.run("countGroupingBy", params, () -> data.parallelStream()
+                        .collect(Collectors.groupingBy(k -> k, Collectors.counting())).size());
+                harness.run("countGroupingByConcurrent", params, () -> data.parallelStream()
+                        .collect(Collectors.groupingByConcurrent(k -> k, Collectors.counting())).size());
+                harness.run("countConcurrentGrouping", params, () -> data.parallelStream()
+                        .collect(ConcurrentGroupingCollectors.counting(k -> k)).size());
+
+                harness.run("sumGroupingBy", params, () -> data.parallelStream()
+                        .collect(Collectors.groupingBy(k -> k, Collectors.summingLong(k -> k))).size());
+                harness.run("sumGroupingByConcurrent", params, () -> data.parallelStream()
+                        .collect(Collectors.groupingByConcurrent(k -> k, Collectors.summingLong(k -> k))).size());
+                harness.run("sumConcurrentGrouping", params, () -> data.parallelStream()
+                        .collect(ConcurrentGroupingCollectors.summingLong(k -> k, k -> k)).size());
+            }
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+    }
+}
@@ -0,0 +1,263 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import modernfeatures.collections.LongArrayList;
+import modernfeatures.java18.SimpleWebServerDemo;
+import modernfeatures.java18.server.ServerConfig;
+import modernfeatures.java18.server.ServerExecutor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JDK's {@code HttpServer} with {@link modernfeatures.java18.server.NioHttpServer} serving the
+ * same {@link SimpleWebServerDemo} handlers, at increasing numbers of keep-alive connections.
+ * <p>
+ * The client is a single selector thread, so it costs far less per request than {@code HttpClient} and
+ * leaves the CPU to the server. Every connection keeps {@code --pipeline} requests for {@code --path} in
+ * flight and sends the next one as soon as a response arrives (closed loop). For each engine and
+ * connection count, the requests per second, latency percentiles and errors are printed, with the number
+ * of connections that got any response at all: the JDK server only serves a limited number of
+ * connections at a time and leaves the others waiting.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.HttpEngineBenchmarks \
+ *        --connections=1K,10K --engines=JDK,NIO --pipeline=1 --seconds=10 --warmup=3 --path=/
+ * </pre>
+ * Client and server share the process: 10,000 connections need more than 20,000 file descriptors
+ * ({@code ulimit -n}).
+ */
+public class HttpEngineBenchmarks {
+
+    /**
+     * Runs every engine at every connection count and prints one line per run.
+     *
+     * @param args {@code --connections}, {@code --engines}, {@code --pipeline}, {@code --seconds},
+     *             {@code --warmup}, {@code --path}, {@code --loops}
+     * @throws Exception if a server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> connectionCounts = options.ints("connections", "1K,10K");
+        List<ServerConfig.Engine> engines = Arrays.stream(options.get("engines", "JDK,NIO").split(","))
+                .map(engine -> ServerConfig.Engine.valueOf(engine.trim().toUpperCase(Locale.ROOT))).toList();
+        int pipeline = options.ints("pipeline", "1").get(0);
+        int seconds = options.ints("seconds", "10").get(0);
+        int warmup = options.ints("warmup", "3").get(0);
+        int loops = options.ints("loops", String.valueOf(Runtime.getRuntime().availableProcessors())).get(0);
+        String path = options.get("path", "/");
+        // Without TCP_NODELAY the JDK server's separate head and body writes meet the client's delayed
+        // ACK and every response takes 40 ms; compare against the server tuned as it would be in production
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        System.out.printf("GET %s, %d in flight per connection, %d s per run, %d NIO event loops%n",
+                path, pipeline, seconds, loops);
+        System.out.printf("%-6s %11s %8s %12s %10s %9s %9s %9s %8s%n",
+                "engine", "connections", "served", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (int connections : connectionCounts) {
+            for (ServerConfig.Engine engine : engines) {
+                ServerConfig defaults = ServerConfig.fromArgs();
+                ServerConfig config = new ServerConfig(0, connections, defaults.root(), ServerExecutor.Mode.VIRTUAL,
+                        defaults.limit(), 0, defaults.cacheBytes(), engine, loops, defaults.admission());
+                try (ServerExecutor executor = config.newExecutor()) {
+                    HttpServer server = SimpleWebServerDemo.start(config, executor);
+                    try {
+                        LoadClient client = new LoadClient(server.getAddress().getPort(), path, pipeline);
+                        client.connect(connections);
+                        // The warm-up lets the JIT compile both sides; its latencies are dropped
+                        client.run(TimeUnit.SECONDS.toNanos(warmup));
+                        client.reset();
+                        client.run(TimeUnit.SECONDS.toNanos(seconds));
+                        client.close();
+                        client.print(engine, connections, seconds);
+                    } finally {
+                        SimpleWebServerDemo.stop(server);
+                    }
+                }
+            }
+        }
+    }
+
+    // A closed-loop HTTP/1.1 client driving many connections from one selector
+    private static final class LoadClient {
+        private final InetSocketAddress address;
+        private final ByteBuffer request;
+        private final int pipeline;
+        private final Selector selector;
+        private final List<Connection> connections = new ArrayList<>();
+        private final byte[] head = new byte[8192];
+        private LongArrayList latencies = new LongArrayList();
+        private long errors;
+
+        LoadClient(int port, String path, int pipeline) throws IOException {
+            this.address = new InetSocketAddress("localhost", port);
+            this.request = StandardCharsets.US_ASCII.encode("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            this.pipeline = pipeline;
+            this.selector = Selector.open();
+        }
+
+        // One connection's state: buffered input and the send times of the requests in flight
+        private final class Connection {
+            final SocketChannel channel;
+            final ByteBuffer input = ByteBuffer.allocateDirect(64 * 1024);
+            final long[] sent = new long[pipeline];
+            int oldest;
+            int inFlight;
+            long completed;
+
+            Connection(SocketChannel channel) {
+                this.channel = channel;
+            }
+        }
+
+        void connect(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                Connection connection = new Connection(channel);
+                channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+            }
+        }
+
+        void run(long durationNanos) throws IOException {
+            long deadline = System.nanoTime() + durationNanos;
+            for (Connection connection : connections) {
+                while (connection.inFlight < pipeline) send(connection);
+            }
+            while (System.nanoTime() < deadline) {
+                selector.select(100);
+                long now = System.nanoTime();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (connection.channel.read(connection.input) < 0) throw new IOException("Closed");
+                        receive(connection, now, now < deadline);
+                    } catch (IOException | RuntimeException e) {
+                        errors++;
+                        key.cancel();
+                        connection.channel.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            // Let the requests still in flight finish, so the next run starts clean
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (inFlight() > 0 && System.nanoTime() < drainDeadline) {
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (connection.channel.read(connection.input) < 0) throw new IOException("Closed");
+                        receive(connection, 0, false);
+                    } catch (IOException | RuntimeException e) {
+                        key.cancel();
+                        connection.channel.close();
+                        connection.inFlight = 0;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+
+        private int inFlight() {
+            int total = 0;
+            for (Connection connection : connections) total += connection.inFlight;
+            return total;
+        }
+
+        private void send(Connection connection) throws IOException {
+            ByteBuffer bytes = request.duplicate();
+            while (bytes.hasRemaining()) {
+                if (connection.channel.write(bytes) == 0) Thread.onSpinWait();
+            }
+            connection.sent[(connection.oldest + connection.inFlight) % pipeline] = System.nanoTime();
+            connection.inFlight++;
+        }
+
+        // Consumes complete responses; while measuring, records their latency and sends the next requests
+        private void receive(Connection connection, long now, boolean measuring) throws IOException {
+            ByteBuffer input = connection.input;
+            while (true) {
+                int end = input.position();
+                int headEnd = -1;
+                for (int i = 0; i + 3 < end; i++) {
+                    if (input.get(i) == '\r' && input.get(i + 1) == '\n' && input.get(i + 2) == '\r'
+                            && input.get(i + 3) == '\n') {
+                        headEnd = i + 4;
+                        break;
+                    }
+                }
+                if (headEnd < 0) return;
+                input.get(0, head, 0, Math.min(headEnd, head.length));
+                String text = new String(head, 0, Math.min(headEnd, head.length), StandardCharsets.ISO_8859_1);
+                if (!text.startsWith("HTTP/1.1 200")) throw new IOException("Unexpected response: " + text);
+                long length = contentLength(text);
+                // Bodies larger than the buffer are consumed as they arrive
+                if (headEnd + length > end) {
+                    if (headEnd + length <= input.capacity()) return;
+                    throw new IOException("Response larger than the client buffer");
+                }
+                input.flip().position((int) (headEnd + length));
+                input.compact();
+                if (measuring) {
+                    latencies.add(now - connection.sent[connection.oldest]);
+                    connection.completed++;
+                }
+                connection.oldest = (connection.oldest + 1) % pipeline;
+                connection.inFlight--;
+                if (measuring) send(connection);
+            }
+        }
+
+        private static long contentLength(String head) {
+            for (String line : head.split("\r\n")) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    return Long.parseLong(line.substring(15).trim());
+                }
+            }
+            throw new IllegalStateException("No Content-Length in " + head);
+        }
+
+        void reset() {
+            for (Connection connection : connections) connection.completed = 0;
+            latencies = new LongArrayList();
+            errors = 0;
+        }
+
+        void close() throws IOException {
+            for (Connection connection : connections) connection.channel.close();
+            selector.close();
+        }
+
+        void print(ServerConfig.Engine engine, int connectionCount, double elapsedSeconds) {
+            long served = connections.stream().filter(connection -> connection.completed > 0).count();
+            long[] sorted = latencies.toArray();
+            Arrays.sort(sorted);
+            System.out.printf(Locale.ROOT, "%-6s %,11d %,8d %,12d %,10.0f %9.2f %9.2f %9.2f %,8d%n",
+                    engine, connectionCount, served, sorted.length, sorted.length / elapsedSeconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : Double.NaN, errors);
+        }
+
+        private static double percentile(long[] sortedNanos, double quantile) {
+            if (sortedNanos.length == 0) return Double.NaN;
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1e6;
+        }
+    }
+}
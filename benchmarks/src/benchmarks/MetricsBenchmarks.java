@@ -0,0 +1,239 @@
+package benchmarks;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import modernfeatures.java18.server.HttpMetrics;
+import modernfeatures.java18.server.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures what {@link HttpMetrics} adds to a request:
+ * <ul>
+ *   <li>{@code histogramRecord}: {@link LatencyHistogram#record} of realistic latencies, while
+ *       {@code threads - 1} other threads record into the same histogram;</li>
+ *   <li>{@code filterChainPlain}: a filter chain with no filters around a handler that answers {@code ok},
+ *       on an in-memory exchange, as the servers run it for every request;</li>
+ *   <li>{@code filterChainMetrics}: the same chain with the metrics filter in front, the difference being
+ *       the cost per request;</li>
+ *   <li>{@code toPrometheus}: one scrape of four routes.</li>
+ * </ul>
+ * After the timed runs, the bytes allocated per operation by the measuring thread are printed. The
+ * in-memory exchange is not a {@code NioHttpServer} exchange, so the filter wraps its response stream
+ * as it does on the JDK's server.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.MetricsBenchmarks \
+ *        --threads=1,4 --out=metrics-benchmarks.json
+ * </pre>
+ */
+public class MetricsBenchmarks {
+
+    private static final byte[] OK = {'o', 'k'};
+
+    /**
+     * Runs all metrics benchmarks, writes the JSON report and prints the allocation per operation.
+     *
+     * @param args {@code --threads}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> threadCounts = options.ints("threads", "1," + Runtime.getRuntime().availableProcessors())
+                .stream().distinct().toList();
+        Path out = Path.of(options.get("out", "metrics-benchmarks.json"));
+
+        // Log-normal latencies around 0.5 ms, like a mix of cached files and slower handlers
+        Random random = new Random(42);
+        long[] latencies = new long[4096];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = (long) Math.exp(random.nextGaussian() * 1.5 + 13);
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        Map<String, LongSupplier> operations = new LinkedHashMap<>();
+        for (int threads : threadCounts) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            int[] next = {0};
+            LongSupplier record = () -> {
+                long value = latencies[next[0]++ & (latencies.length - 1)];
+                histogram.record(value);
+                return value;
+            };
+            AtomicBoolean stop = new AtomicBoolean();
+            List<Thread> others = new ArrayList<>();
+            for (int i = 1; i < threads; i++) {
+                others.add(Thread.ofPlatform().daemon().start(() -> {
+                    int j = 0;
+                    while (!stop.get()) histogram.record(latencies[j++ & (latencies.length - 1)]);
+                }));
+            }
+            try {
+                harness.run("histogramRecord", Map.of("threads", String.valueOf(threads)), record);
+            } finally {
+                stop.set(true);
+                for (Thread other : others) other.join();
+            }
+            if (threads == 1) operations.put("histogramRecord", record);
+        }
+
+        HttpMetrics metrics = new HttpMetrics();
+        HttpHandler handler = exchange -> {
+            exchange.sendResponseHeaders(200, OK.length);
+            exchange.getResponseBody().write(OK);
+            exchange.close();
+        };
+        List<Filter> noFilters = List.of();
+        List<Filter> metricsFilter = List.of(metrics.filter("/"));
+        LongSupplier plain = () -> serve(noFilters, handler);
+        LongSupplier instrumented = () -> serve(metricsFilter, handler);
+        harness.run("filterChainPlain", Map.of(), plain);
+        harness.run("filterChainMetrics", Map.of(), instrumented);
+        for (String route : List.of("/status", "/metrics", "/slow")) {
+            serve(List.of(metrics.filter(route)), handler);
+        }
+        LongSupplier scrape = () -> metrics.toPrometheus().length();
+        harness.run("toPrometheus", Map.of(), scrape);
+        operations.put("filterChainPlain", plain);
+        operations.put("filterChainMetrics", instrumented);
+        operations.put("toPrometheus", scrape);
+
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+        System.out.println();
+        operations.forEach((name, operation) ->
+                System.out.printf("%-22s %,10.1f bytes allocated/op%n", name, allocatedPerOp(operation)));
+    }
+
+    private static long serve(List<Filter> filters, HttpHandler handler) {
+        MemoryExchange exchange = new MemoryExchange();
+        try {
+            new Filter.Chain(filters, handler).doFilter(exchange);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return exchange.getResponseCode();
+    }
+
+    // Heap allocated by this thread per operation, over many operations
+    private static double allocatedPerOp(LongSupplier operation) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int count = 100_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            Blackhole.consume(operation.getAsLong());
+        }
+        return (double) (threads.getCurrentThreadAllocatedBytes() - before) / count;
+    }
+
+    // An exchange without a connection: the request is GET / and the response goes nowhere
+    private static final class MemoryExchange extends HttpExchange {
+        private static final URI URI_ROOT = URI.create("/");
+        private static final InetSocketAddress ADDRESS = new InetSocketAddress("localhost", 8080);
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        private OutputStream body = OutputStream.nullOutputStream();
+        private int code = -1;
+
+        @Override
+        public Headers getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI_ROOT;
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "GET";
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return body;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) {
+            code = rCode;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return code;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            if (o != null) body = o;
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import modernfeatures.streams.collectors.RadixCollectors;
+import modernfeatures.streams.sorting.RadixSort;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares {@link RadixSort} with {@code Arrays.parallelSort} on random keys of each supported type:
+ * <ul>
+ *   <li>{@code int[]} and {@code long[]}: uniformly random values;</li>
+ *   <li>{@code String[]}: short ASCII keys such as {@code "user-4kq9z1"} with a shared prefix;</li>
+ *   <li>{@code byte[][]}: the same keys UTF-8 encoded, compared with {@code Arrays::compareUnsigned};</li>
+ *   <li>{@code streamSorted} vs {@code radixCollector}: {@code parallelStream().sorted().toList()} against
+ *       {@link RadixCollectors#toSortedList()} on the strings.</li>
+ * </ul>
+ * Every run sorts a fresh copy of the input; the copy is part of both measurements.
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.RadixSortBenchmarks \
+ *        --sizes=1M,10M --out=radix-benchmarks.json
+ * </pre>
+ */
+public class RadixSortBenchmarks {
+
+    /**
+     * Runs all radix sort benchmarks and writes the JSON report.
+     *
+     * @param args {@code --sizes}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "1M,10M");
+        Path out = Path.of(options.get("out", "radix-benchmarks.json"));
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        for (int size : sizes) {
+            Random random = new Random(42);
+            int[] ints = random.ints(size).toArray();
+            long[] longs = random.longs(size).toArray();
+            String[] strings = new String[size];
+            Arrays.setAll(strings, i -> "user-" + Long.toString(random.nextLong() >>> 34, 36));
+            byte[][] bytes = new byte[size][];
+            Arrays.setAll(bytes, i -> strings[i].getBytes(StandardCharsets.UTF_8));
+            List<String> stringList = Arrays.asList(strings);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("size", String.valueOf(size));
+
+            harness.run("intParallelSort", params, () -> {
+                int[] copy = ints.clone();
+                Arrays.parallelSort(copy);
+                return copy[0];
+            });
+            harness.run("intRadixSort", params, () -> {
+                int[] copy = ints.clone();
+                RadixSort.sort(copy);
+                return copy[0];
+            });
+            harness.run("longParallelSort", params, () -> {
+                long[] copy = longs.clone();
+                Arrays.parallelSort(copy);
+                return copy[0];
+            });
+            harness.run("longRadixSort", params, () -> {
+                long[] copy = longs.clone();
+                RadixSort.sort(copy);
+                return copy[0];
+            });
+            harness.run("stringParallelSort", params, () -> {
+                String[] copy = strings.clone();
+                Arrays.parallelSort(copy);
+                return copy[0].length();
+            });
+            harness.run("stringRadixSort", params, () -> {
+                String[] copy = strings.clone();
+                RadixSort.sort(copy);
+                return copy[0].length();
+            });
+            harness.run("bytesParallelSort", params, () -> {
+                byte[][] copy = bytes.clone();
+                Arrays.parallelSort(copy, Arrays::compareUnsigned);
+                return copy[0].length;
+            });
+            harness.run("bytesRadixSort", params, () -> {
+                byte[][] copy = bytes.clone();
+                RadixSort.sort(copy);
+                return copy[0].length;
+            });
+            harness.run("streamSorted", params, () -> stringList.parallelStream().sorted().toList().size());
+            harness.run("radixCollector", params, () -> stringList.parallelStream()
+                    .collect(RadixCollectors.toSortedList()).size());
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+    }
+}
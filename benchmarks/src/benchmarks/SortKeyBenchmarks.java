@@ -0,0 +1,83 @@
+package benchmarks;
+
+import modernfeatures.streams.sorting.SortKey;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares sorting with a comparator chain, which extracts keys on every comparison, against
+ * {@link SortKey}, which extracts them once per element:
+ * <ul>
+ *   <li>{@code cheap}: length, then last character, both plain field reads;</li>
+ *   <li>{@code expensive}: the number of vowels (a scan of the string), then the length;</li>
+ *   <li>{@code object}: the lower-cased string (an allocation per call), then the length,
+ *       which cannot be packed and uses the merge sort over key columns.</li>
+ * </ul>
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.SortKeyBenchmarks \
+ *        --sizes=10K,100K,1M --out=sortkey-benchmarks.json
+ * </pre>
+ */
+public class SortKeyBenchmarks {
+
+    /**
+     * Runs all sort-key benchmarks and writes the JSON report.
+     *
+     * @param args {@code --sizes}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "100K,1M");
+        Path out = Path.of(options.get("out", "sortkey-benchmarks.json"));
+
+        SortKey<String> cheap = SortKey.<String>comparingInt(String::length)
+                .thenComparingChar(s -> s.charAt(s.length() - 1));
+        SortKey<String> expensive = SortKey.<String>comparingInt(SortKeyBenchmarks::vowels)
+                .thenComparingInt(String::length);
+        SortKey<String> object = SortKey.<String, String>comparing(String::toLowerCase)
+                .thenComparingInt(String::length);
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        for (int size : sizes) {
+            Random random = new Random(42);
+            List<String> data = random.ints(size).mapToObj(i -> "Name-" + Integer.toString(i, 36) + "-"
+                    + Long.toString(random.nextLong() >>> 20, 36)).collect(Collectors.toList());
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("size", String.valueOf(size));
+
+            run(harness, "cheap", params, data, cheap);
+            run(harness, "expensive", params, data, expensive);
+            run(harness, "object", params, data, object);
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+    }
+
+    private static void run(BenchmarkHarness harness, String name, Map<String, String> params,
+                            List<String> data, SortKey<String> key) {
+        Comparator<String> comparator = key.comparator();
+        harness.run(name + "Comparator", params, () -> {
+            List<String> copy = new ArrayList<>(data);
+            copy.sort(comparator);
+            return copy.get(0).length();
+        });
+        harness.run(name + "SortKey", params, () -> key.sortedCopy(data).get(0).length());
+    }
+
+    private static int vowels(String s) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if ("aeiouAEIOU".indexOf(s.charAt(i)) >= 0) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,118 @@
+package benchmarks;
+
+import modernfeatures.java7.LongSumTask;
+import modernfeatures.java7.SplitPolicy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares ways of summing a large {@code int[]}, for every combination of array size and parallelism:
+ * <ul>
+ *   <li>{@code loop}: a plain sequential {@code for} loop (run once per size, it ignores parallelism);</li>
+ *   <li>{@code forkJoinLongSumTask}: {@link LongSumTask}, the boxing-free successor of {@code SumTask},
+ *       in a {@link ForkJoinPool} of the given parallelism ({@code SumTask} itself prints every split);</li>
+ *   <li>{@code intStreamParallel}: {@code Arrays.stream(arr).parallel().sum()};</li>
+ *   <li>{@code boxedListParallelStream}: the {@code List<Integer>.parallelStream()} path from
+ *       {@code StreamParallelExample}, skipped above {@code --boxed-limit} elements;</li>
+ *   <li>{@code virtualThreadChunks}: one virtual thread per chunk, {@code parallelism} chunks.</li>
+ * </ul>
+ * Parallel streams run inside the pool of the given parallelism by being started from one of its
+ * tasks. Arrays of a billion {@code int}s need a heap of more than 4 GB ({@code -Xmx6g}).
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.SumBenchmarks \
+ *        --sizes=1K,1M,100M --parallelism=1,4,8 --out=sum-benchmarks.json
+ * </pre>
+ */
+public class SumBenchmarks {
+
+    /**
+     * Runs all sum benchmarks and writes the JSON report.
+     *
+     * @param args {@code --sizes}, {@code --parallelism}, {@code --boxed-limit}, {@code --out} and the
+     *             common harness options of {@link BenchmarkArgs}
+     * @throws Exception if a benchmark fails or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "1K,1M,10M");
+        List<Integer> parallelisms = options.ints("parallelism",
+                "1," + Runtime.getRuntime().availableProcessors()).stream().distinct().toList();
+        long boxedLimit = options.ints("boxed-limit", "10M").get(0);
+        Path out = Path.of(options.get("out", "sum-benchmarks.json"));
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        for (int size : sizes) {
+            int[] arr = new int[size];
+            Arrays.setAll(arr, i -> i & 0xFF);
+            List<Integer> boxed = size <= boxedLimit
+                    ? IntStream.of(arr).boxed().collect(Collectors.toList())
+                    : null;
+
+            harness.run("loop", Map.of("size", String.valueOf(size)), () -> {
+                long sum = 0;
+                for (int value : arr) sum += value;
+                return sum;
+            });
+
+            for (int parallelism : parallelisms) {
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("size", String.valueOf(size));
+                params.put("parallelism", String.valueOf(parallelism));
+
+                try (ForkJoinPool pool = new ForkJoinPool(parallelism);
+                     ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+                    harness.run("forkJoinLongSumTask", params, () -> {
+                        LongSumTask task = new LongSumTask(arr, 0, size, SplitPolicy.adaptive(pool, size));
+                        pool.invoke(task);
+                        return task.sum();
+                    });
+                    harness.run("intStreamParallel", params,
+                            () -> pool.submit(() -> Arrays.stream(arr).parallel().sum()).join());
+                    if (boxed != null) {
+                        harness.run("boxedListParallelStream", params, () -> pool.submit(() -> boxed.parallelStream()
+                                .mapToLong(Integer::longValue)
+                                .sum()).join());
+                    }
+                    harness.run("virtualThreadChunks", params, () -> chunkedSum(arr, parallelism, virtualThreads));
+                }
+            }
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+    }
+
+    /**
+     * Sums {@code arr} by splitting it into {@code chunks} ranges, each summed on its own thread.
+     */
+    private static long chunkedSum(int[] arr, int chunks, ExecutorService executor) {
+        List<Future<Long>> parts = new ArrayList<>(chunks);
+        int chunkSize = (arr.length + chunks - 1) / chunks;
+        for (int from = 0; from < arr.length; from += chunkSize) {
+            int lo = from, hi = Math.min(arr.length, from + chunkSize);
+            parts.add(executor.submit(() -> {
+                long sum = 0;
+                for (int i = lo; i < hi; i++) sum += arr[i];
+                return sum;
+            }));
+        }
+        long total = 0;
+        try {
+            for (Future<Long> part : parts) total += part.get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Chunk failed", e);
+        }
+        return total;
+    }
+}
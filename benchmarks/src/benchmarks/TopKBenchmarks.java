@@ -0,0 +1,61 @@
+package benchmarks;
+
+import modernfeatures.streams.collectors.TopKCollectors;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares selecting the {@code k} smallest strings by sorting with the bounded-heap collector:
+ * <ul>
+ *   <li>{@code sortedLimit}: {@code sorted().limit(k).collect(toList())}, sequential and parallel;</li>
+ *   <li>{@code bottomK}: {@link TopKCollectors#bottomK}, sequential and parallel.</li>
+ * </ul>
+ * <pre>
+ * Usage:
+ *   java -cp out/production/Java8Plus:out/production/benchmarks benchmarks.TopKBenchmarks \
+ *        --sizes=100K,1M --k=1,10,1000 --out=topk-benchmarks.json
+ * </pre>
+ */
+public class TopKBenchmarks {
+
+    /**
+     * Runs all top-k benchmarks and writes the JSON report.
+     *
+     * @param args {@code --sizes}, {@code --k}, {@code --out} and the common options of {@link BenchmarkArgs}
+     * @throws Exception if the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkArgs options = new BenchmarkArgs(args);
+        List<Integer> sizes = options.ints("sizes", "1M");
+        List<Integer> ks = options.ints("k", "1,10,1000");
+        Path out = Path.of(options.get("out", "topk-benchmarks.json"));
+
+        BenchmarkHarness harness = new BenchmarkHarness(options.options());
+        Comparator<String> order = Comparator.naturalOrder();
+        for (int size : sizes) {
+            List<String> data = new Random(42).ints(size).mapToObj(i -> "name-" + i).collect(Collectors.toList());
+            for (int k : ks) {
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("size", String.valueOf(size));
+                params.put("k", String.valueOf(k));
+
+                harness.run("sortedLimit", params, () -> data.stream()
+                        .sorted(order).limit(k).collect(Collectors.toList()).size());
+                harness.run("sortedLimitParallel", params, () -> data.parallelStream()
+                        .sorted(order).limit(k).collect(Collectors.toList()).size());
+                harness.run("bottomK", params, () -> data.stream()
+                        .collect(TopKCollectors.bottomK(k, order)).size());
+                harness.run("bottomKParallel", params, () -> data.parallelStream()
+                        .collect(TopKCollectors.bottomK(k, order)).size());
+            }
+        }
+        harness.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath() + " (checksum " + Blackhole.checksum() + ")");
+    }
+}
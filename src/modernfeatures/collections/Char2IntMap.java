@@ -0,0 +1,306 @@
+package modernfeatures.collections;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A hash map from primitive {@code char} keys to primitive {@code int} values.
+ * <p>
+ * A {@code Map<Character, Integer>} allocates a {@code HashMap.Node} per entry and, outside the
+ * small cached ranges, a {@code Character} and an {@code Integer} per update. This map keeps keys and
+ * values in two parallel arrays (open addressing with linear probing), so {@link #addTo(char, int)}
+ * on an existing key allocates nothing.
+ * <p>
+ * Absent keys read as {@code 0}, which suits counters and sums; use {@link #containsKey(char)} or
+ * {@link #getOrDefault(char, int)} to tell them apart. This class is not thread-safe.
+ */
+public class Char2IntMap {
+
+    /**
+     * Receives the entries of a map in {@link #forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Accepts one entry.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(char key, int value);
+    }
+
+    // Marks a free slot; every char fits in the int range 0..65535
+    private static final int FREE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    public Char2IntMap() {
+        this(DEFAULT_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty map able to hold {@code expectedSize} entries without rehashing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    public Char2IntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative size: " + expectedSize);
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code 0} if it is absent.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public int get(char key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code defaultValue} if it is absent.
+     *
+     * @param key the key
+     * @param defaultValue the value to return for an absent key
+     * @return the value
+     */
+    public int getOrDefault(char key, int defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Returns whether the map has an entry for {@code key}.
+     *
+     * @param key the key
+     * @return {@code true} if present
+     */
+    public boolean containsKey(char key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Sets the value for {@code key}.
+     *
+     * @param key the key
+     * @param value the new value
+     * @return the previous value, or {@code 0} if the key was absent
+     */
+    public int put(char key, int value) {
+        int slot = insertionSlot(key);
+        if (keys[slot] == key) {
+            int old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        insert(slot, key, value);
+        return 0;
+    }
+
+    /**
+     * Adds {@code increment} to the value for {@code key}, treating an absent key as {@code 0}.
+     *
+     * @param key the key
+     * @param increment the amount to add
+     * @return the new value
+     */
+    public int addTo(char key, int increment) {
+        int slot = insertionSlot(key);
+        if (keys[slot] == key) {
+            return values[slot] += increment;
+        }
+        insert(slot, key, increment);
+        return increment;
+    }
+
+    /**
+     * Stores {@code value} for an absent key, or combines it with the present value,
+     * like {@link java.util.Map#merge}.
+     *
+     * @param key the key
+     * @param value the value to store or combine
+     * @param remapping combines the present value with {@code value}
+     * @return the new value
+     */
+    public int merge(char key, int value, IntBinaryOperator remapping) {
+        int slot = insertionSlot(key);
+        if (keys[slot] == key) {
+            return values[slot] = remapping.applyAsInt(values[slot], value);
+        }
+        insert(slot, key, value);
+        return value;
+    }
+
+    /**
+     * Removes the entry for {@code key}.
+     *
+     * @param key the key
+     * @return the removed value, or {@code 0} if the key was absent
+     */
+    public int remove(char key) {
+        int slot = find(key);
+        if (slot < 0) return 0;
+        int old = values[slot];
+        shiftKeys(slot);
+        size--;
+        return old;
+    }
+
+    /** Returns the number of entries. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns whether the map is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all entries (the capacity is kept). */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * Passes every entry to {@code action}, in no particular order.
+     *
+     * @param action receives each key and value
+     */
+    public void forEach(EntryConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) action.accept((char) keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the keys in ascending order.
+     */
+    public char[] sortedKeys() {
+        char[] result = new char[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != FREE) result[n++] = (char) key;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Slot holding key, or -1
+    private int find(char key) {
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == FREE) return -1;
+        }
+    }
+
+    // Slot holding key, or the free slot where it would go
+    private int insertionSlot(char key) {
+        int i = mix(key) & mask;
+        while (keys[i] != FREE && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void insert(int slot, char key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        // Rehash at a load factor of 1/2; short probe sequences matter more than memory here
+        if (++size > keys.length >>> 1) rehash(keys.length << 1);
+    }
+
+    /**
+     * Removes the key at {@code slot} by moving later entries of the same probe run back,
+     * so lookups never stop early at a hole.
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        for (int i = (slot + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            int home = mix((char) keys[i]) & mask;
+            // Move the entry back if its home slot is not between the hole and its position
+            if (((i - home) & mask) >= ((i - last) & mask)) {
+                keys[last] = keys[i];
+                values[last] = values[i];
+                last = i;
+            }
+        }
+        keys[last] = FREE;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = insertionSlot((char) oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    // Spreads consecutive chars such as 'A', 'B', 'C' over the table (Fibonacci hashing)
+    private int mix(char key) {
+        return (key * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask));
+    }
+
+    // Power of two with room for expectedSize entries at a load factor of 1/2; there are only 65536 chars
+    private static int tableSizeFor(int expectedSize) {
+        int entries = Math.min(Math.max(1, expectedSize), 1 << 16);
+        return Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(entries * 2 - 1) << 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Char2IntMap other) || other.size != size) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                int slot = other.find((char) keys[i]);
+                if (slot < 0 || other.values[slot] != values[i]) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as Map.hashCode: the sum of key ^ value over all entries
+        int h = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) h += Character.hashCode((char) keys[i]) ^ values[i];
+        }
+        return h;
+    }
+
+    /**
+     * Returns the entries as {@code {key=value, ...}} in ascending key order.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (char key : sortedKeys()) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(key).append('=').append(get(key));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,206 @@
+package modernfeatures.collections;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A growable list of primitive {@code double} values, backed by a single {@code double[]}.
+ * <p>
+ * Compared with a {@code List<Double>}, which stores a reference plus a separate {@code Double} object
+ * per element, this list stores 8 bytes per element and streams them as a
+ * {@link DoubleStream} without boxing. See {@link IntArrayList} for the {@code int} variant.
+ * <p>
+ * {@link #stream()} and {@link #parallelStream()} use an exact-size spliterator
+ * ({@code SIZED | SUBSIZED}) that always splits its range exactly in half, so parallel streams get
+ * perfectly balanced work. The list must not be modified while a stream over it is running.
+ * This class is not thread-safe.
+ */
+public class DoubleArrayList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private double[] elements;
+    private int size;
+
+    /**
+     * Creates an empty list with a small default capacity.
+     */
+    public DoubleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list able to hold {@code initialCapacity} elements without growing.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public DoubleArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        elements = new double[initialCapacity];
+    }
+
+    /**
+     * Creates a list containing the given values.
+     *
+     * @param values the values to copy
+     * @return a new list
+     */
+    public static DoubleArrayList of(double... values) {
+        DoubleArrayList list = new DoubleArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value to add
+     */
+    public void add(double value) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = value;
+    }
+
+    /**
+     * Appends all given values.
+     *
+     * @param values the values to add
+     */
+    public void addAll(double... values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, elements, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * Appends all values of another list; usable as the combiner of
+     * {@code DoubleStream.collect(DoubleArrayList::new, DoubleArrayList::add, DoubleArrayList::addAll)}.
+     *
+     * @param other the list whose values to add
+     */
+    public void addAll(DoubleArrayList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.elements, 0, elements, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @return the value
+     */
+    public double get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @param value the new value
+     * @return the previous value
+     */
+    public double set(int index, double value) {
+        checkIndex(index);
+        double old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /** Returns the number of values in the list. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns whether the list is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all values (the capacity is kept). */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure at least {@code minCapacity} values fit without growing.
+     *
+     * @param minCapacity the required capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    /** Shrinks the backing array to the current size. */
+    public void trimToSize() {
+        if (size < elements.length) elements = Arrays.copyOf(elements, size);
+    }
+
+    /** Returns a copy of the values as an array. */
+    public double[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Returns an exact-size, evenly splitting spliterator over the values.
+     */
+    public Spliterator.OfDouble spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /** Returns a sequential {@link DoubleStream} over the values. */
+    public DoubleStream stream() {
+        return StreamSupport.doubleStream(spliterator(), false);
+    }
+
+    /** Returns a parallel {@link DoubleStream} over the values. */
+    public DoubleStream parallelStream() {
+        return StreamSupport.doubleStream(spliterator(), true);
+    }
+
+    // Grows by 50%, like ArrayList, but at least to minCapacity
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Required capacity too large");
+        }
+        int newCapacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoubleArrayList other)) return false;
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) h = 31 * h + Double.hashCode(elements[i]);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,229 @@
+package modernfeatures.collections;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A growable list of primitive {@code int} values, backed by a single {@code int[]}.
+ * <p>
+ * A {@code List<Integer>} stores a pointer per element plus a separate {@code Integer} object
+ * (16 bytes header and value, plus 4-8 bytes for the reference), so 10 million elements take about
+ * 200 MB and every read has to unbox. This list stores 4 bytes per element and streams them as an
+ * {@link IntStream} without boxing.
+ * <p>
+ * {@link #stream()} and {@link #parallelStream()} use an exact-size spliterator
+ * ({@code SIZED | SUBSIZED}) that always splits its range exactly in half, so parallel streams get
+ * perfectly balanced work. The list must not be modified while a stream over it is running.
+ * This class is not thread-safe.
+ */
+public class IntArrayList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    // The largest array the JVM reliably allocates, as in ArrayList
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Creates an empty list with a small default capacity.
+     */
+    public IntArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list able to hold {@code initialCapacity} elements without growing.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        elements = new int[initialCapacity];
+    }
+
+    /**
+     * Creates a list containing the given values.
+     *
+     * @param values the values to copy
+     * @return a new list
+     */
+    public static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    /**
+     * Creates a list of the values {@code from..to}, both inclusive,
+     * like {@code IntStream.rangeClosed(from, to)} but without boxing.
+     *
+     * @param from the first value
+     * @param to the last value
+     * @return a new list
+     * @throws IllegalArgumentException if the range has more values than an array can hold
+     */
+    public static IntArrayList rangeClosed(int from, int to) {
+        long size = Math.max(0L, (long) to - from + 1);
+        if (size > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Range " + from + ".." + to + " has more than " + MAX_ARRAY_LENGTH
+                    + " values");
+        }
+        IntArrayList list = new IntArrayList((int) size);
+        for (long v = from; v <= to; v++) list.add((int) v);
+        return list;
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value to add
+     */
+    public void add(int value) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = value;
+    }
+
+    /**
+     * Appends all given values.
+     *
+     * @param values the values to add
+     */
+    public void addAll(int... values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, elements, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * Appends all values of another list; usable as the combiner of
+     * {@code IntStream.collect(IntArrayList::new, IntArrayList::add, IntArrayList::addAll)}.
+     *
+     * @param other the list whose values to add
+     */
+    public void addAll(IntArrayList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.elements, 0, elements, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @return the value
+     */
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @param value the new value
+     * @return the previous value
+     */
+    public int set(int index, int value) {
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /** Returns the number of values in the list. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns whether the list is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all values (the capacity is kept). */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure at least {@code minCapacity} values fit without growing.
+     *
+     * @param minCapacity the required capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    /** Shrinks the backing array to the current size. */
+    public void trimToSize() {
+        if (size < elements.length) elements = Arrays.copyOf(elements, size);
+    }
+
+    /** Returns a copy of the values as an array. */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Returns an exact-size, evenly splitting spliterator over the values.
+     */
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /** Returns a sequential {@link IntStream} over the values. */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /** Returns a parallel {@link IntStream} over the values. */
+    public IntStream parallelStream() {
+        return StreamSupport.intStream(spliterator(), true);
+    }
+
+    // Grows by 50%, like ArrayList, but at least to minCapacity
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Required capacity too large");
+        }
+        int newCapacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntArrayList other)) return false;
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) h = 31 * h + elements[i];
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,234 @@
+package modernfeatures.collections;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A growable list of primitive {@code long} values, backed by a single {@code long[]}.
+ * <p>
+ * Compared with a {@code List<Long>}, which stores a reference plus a separate {@code Long} object
+ * per element, this list stores 8 bytes per element and streams them as a
+ * {@link LongStream} without boxing. See {@link IntArrayList} for the {@code int} variant.
+ * <p>
+ * {@link #stream()} and {@link #parallelStream()} use an exact-size spliterator
+ * ({@code SIZED | SUBSIZED}) that always splits its range exactly in half, so parallel streams get
+ * perfectly balanced work. The list must not be modified while a stream over it is running.
+ * This class is not thread-safe.
+ */
+public class LongArrayList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    // The largest array the JVM reliably allocates, as in ArrayList
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private long[] elements;
+    private int size;
+
+    /**
+     * Creates an empty list with a small default capacity.
+     */
+    public LongArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list able to hold {@code initialCapacity} elements without growing.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public LongArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        elements = new long[initialCapacity];
+    }
+
+    /**
+     * Creates a list containing the given values.
+     *
+     * @param values the values to copy
+     * @return a new list
+     */
+    public static LongArrayList of(long... values) {
+        LongArrayList list = new LongArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    /**
+     * Creates a list of the values {@code from..to}, both inclusive,
+     * like {@code LongStream.rangeClosed(from, to)} but without boxing.
+     *
+     * @param from the first value
+     * @param to the last value
+     * @return a new list
+     * @throws IllegalArgumentException if the range has more values than an array can hold
+     */
+    public static LongArrayList rangeClosed(long from, long to) {
+        if (from > to) return new LongArrayList(0);
+        // to - from wraps around to a negative value for ranges wider than Long.MAX_VALUE
+        long span = to - from;
+        if (span < 0 || span >= MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Range " + from + ".." + to + " has more than " + MAX_ARRAY_LENGTH
+                    + " values");
+        }
+        LongArrayList list = new LongArrayList((int) span + 1);
+        // Stop on equality rather than v <= to, which would never fail for to == Long.MAX_VALUE
+        for (long v = from; ; v++) {
+            list.add(v);
+            if (v == to) break;
+        }
+        return list;
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value to add
+     */
+    public void add(long value) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = value;
+    }
+
+    /**
+     * Appends all given values.
+     *
+     * @param values the values to add
+     */
+    public void addAll(long... values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, elements, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * Appends all values of another list; usable as the combiner of
+     * {@code LongStream.collect(LongArrayList::new, LongArrayList::add, LongArrayList::addAll)}.
+     *
+     * @param other the list whose values to add
+     */
+    public void addAll(LongArrayList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.elements, 0, elements, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @return the value
+     */
+    public long get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Replaces the value at {@code index}.
+     *
+     * @param index the position, in {@code [0, size())}
+     * @param value the new value
+     * @return the previous value
+     */
+    public long set(int index, long value) {
+        checkIndex(index);
+        long old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /** Returns the number of values in the list. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns whether the list is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all values (the capacity is kept). */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure at least {@code minCapacity} values fit without growing.
+     *
+     * @param minCapacity the required capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) grow(minCapacity);
+    }
+
+    /** Shrinks the backing array to the current size. */
+    public void trimToSize() {
+        if (size < elements.length) elements = Arrays.copyOf(elements, size);
+    }
+
+    /** Returns a copy of the values as an array. */
+    public long[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Returns an exact-size, evenly splitting spliterator over the values.
+     */
+    public Spliterator.OfLong spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /** Returns a sequential {@link LongStream} over the values. */
+    public LongStream stream() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    /** Returns a parallel {@link LongStream} over the values. */
+    public LongStream parallelStream() {
+        return StreamSupport.longStream(spliterator(), true);
+    }
+
+    // Grows by 50%, like ArrayList, but at least to minCapacity
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Required capacity too large");
+        }
+        int newCapacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongArrayList other)) return false;
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) h = 31 * h + Long.hashCode(elements[i]);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
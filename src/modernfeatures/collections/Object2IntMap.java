@@ -0,0 +1,306 @@
+package modernfeatures.collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A hash map from object keys to primitive {@code int} values.
+ * <p>
+ * A {@code Map<String, Integer>} stores a {@code HashMap.Node} and an {@code Integer} per entry,
+ * and {@code map.merge(key, 1, Integer::sum)} allocates a new {@code Integer} on most updates.
+ * This map keeps keys and values in two parallel arrays (open addressing with linear probing),
+ * so {@link #addTo(Object, int)} on an existing key allocates nothing.
+ * <p>
+ * Absent keys read as {@code 0}, which suits counters and sums; use {@link #containsKey(Object)}
+ * or {@link #getOrDefault(Object, int)} to tell them apart. {@code null} keys are not allowed.
+ * This class is not thread-safe.
+ *
+ * @param <K> the key type
+ */
+public class Object2IntMap<K> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // null marks a free slot
+    private Object[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    public Object2IntMap() {
+        this(DEFAULT_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty map able to hold {@code expectedSize} entries without rehashing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    public Object2IntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative size: " + expectedSize);
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code 0} if it is absent.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public int get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code defaultValue} if it is absent.
+     *
+     * @param key the key
+     * @param defaultValue the value to return for an absent key
+     * @return the value
+     */
+    public int getOrDefault(Object key, int defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Returns whether the map has an entry for {@code key}.
+     *
+     * @param key the key
+     * @return {@code true} if present
+     */
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Sets the value for {@code key}.
+     *
+     * @param key the key
+     * @param value the new value
+     * @return the previous value, or {@code 0} if the key was absent
+     */
+    public int put(K key, int value) {
+        int slot = insertionSlot(key);
+        if (keys[slot] != null) {
+            int old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        insert(slot, key, value);
+        return 0;
+    }
+
+    /**
+     * Sets the value for {@code key} only if the key is absent.
+     *
+     * @param key the key
+     * @param value the value to store
+     * @return {@code true} if the value was stored, {@code false} if the key was already present
+     */
+    public boolean putIfAbsent(K key, int value) {
+        int slot = insertionSlot(key);
+        if (keys[slot] != null) return false;
+        insert(slot, key, value);
+        return true;
+    }
+
+    /**
+     * Adds {@code increment} to the value for {@code key}, treating an absent key as {@code 0}.
+     *
+     * @param key the key
+     * @param increment the amount to add
+     * @return the new value
+     */
+    public int addTo(K key, int increment) {
+        int slot = insertionSlot(key);
+        if (keys[slot] != null) {
+            return values[slot] += increment;
+        }
+        insert(slot, key, increment);
+        return increment;
+    }
+
+    /**
+     * Stores {@code value} for an absent key, or combines it with the present value,
+     * like {@link java.util.Map#merge}.
+     *
+     * @param key the key
+     * @param value the value to store or combine
+     * @param remapping combines the present value with {@code value}
+     * @return the new value
+     */
+    public int merge(K key, int value, IntBinaryOperator remapping) {
+        int slot = insertionSlot(key);
+        if (keys[slot] != null) {
+            return values[slot] = remapping.applyAsInt(values[slot], value);
+        }
+        insert(slot, key, value);
+        return value;
+    }
+
+    /**
+     * Removes the entry for {@code key}.
+     *
+     * @param key the key
+     * @return the removed value, or {@code 0} if the key was absent
+     */
+    public int remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) return 0;
+        int old = values[slot];
+        shiftKeys(slot);
+        size--;
+        return old;
+    }
+
+    /** Returns the number of entries. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns whether the map is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all entries (the capacity is kept). */
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    /**
+     * Passes every entry to {@code action}, in no particular order.
+     *
+     * @param action receives each key and value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept((K) keys[i], values[i]);
+        }
+    }
+
+    // Slot holding key, or -1
+    private int find(Object key) {
+        Objects.requireNonNull(key, "key");
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) return -1;
+            if (k == key || k.equals(key)) return i;
+        }
+    }
+
+    // Slot holding key, or the free slot where it would go
+    private int insertionSlot(Object key) {
+        Objects.requireNonNull(key, "key");
+        int i = mix(key) & mask;
+        for (Object k; (k = keys[i]) != null && k != key && !k.equals(key); i = (i + 1) & mask) {
+            // keep probing
+        }
+        return i;
+    }
+
+    private void insert(int slot, K key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        // Rehash at a load factor of 1/2; short probe sequences matter more than memory here
+        if (++size > keys.length >>> 1) rehash(keys.length << 1);
+    }
+
+    /**
+     * Removes the key at {@code slot} by moving later entries of the same probe run back,
+     * so lookups never stop early at a hole.
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = mix(keys[i]) & mask;
+            // Move the entry back if its home slot is not between the hole and its position
+            if (((i - home) & mask) >= ((i - last) & mask)) {
+                keys[last] = keys[i];
+                values[last] = values[i];
+                last = i;
+            }
+        }
+        keys[last] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity <= 0) {
+            throw new OutOfMemoryError("Required capacity too large");
+        }
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = insertionSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // Spreads poor hashCodes (e.g. small Integers) over the table (Fibonacci hashing)
+    private int mix(Object key) {
+        return (key.hashCode() * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask));
+    }
+
+    // Power of two with room for expectedSize entries at a load factor of 1/2
+    private static int tableSizeFor(int expectedSize) {
+        long slots = Math.max(1L, expectedSize) * 2 - 1;
+        if (slots >= 1 << 30) return 1 << 30;
+        return Math.max(DEFAULT_CAPACITY, Integer.highestOneBit((int) slots) << 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Object2IntMap<?> other) || other.size != size) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int slot = other.find(keys[i]);
+                if (slot < 0 || other.values[slot] != values[i]) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as Map.hashCode: the sum of key.hashCode() ^ value over all entries
+        int h = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) h += keys[i].hashCode() ^ values[i];
+        }
+        return h;
+    }
+
+    /**
+     * Returns the entries as {@code {key=value, ...}} in no particular order.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+}
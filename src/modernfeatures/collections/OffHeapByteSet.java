@@ -0,0 +1,173 @@
+package modernfeatures.collections;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An exact set of byte-array keys stored outside the Java heap, in direct {@link ByteBuffer}s.
+ * <p>
+ * A {@code HashSet<String>} costs a {@code HashMap.Node}, a {@code String} and its array per element,
+ * roughly 80-100 bytes for short strings, all of which the garbage collector has to trace. This set
+ * copies each key into an append-only off-heap arena as {@code [length][bytes]}, and indexes it with an
+ * open-addressing table of {@code long} slots, also off-heap:
+ * <pre>
+ *   slot = (32-bit hash of the key) &lt;&lt; 32 | (arena offset + 1)      0 = empty
+ * </pre>
+ * The stored hash lets lookups skip almost all byte comparisons, and lets the table grow without
+ * reading the keys again. Per element this is 8-16 bytes of table plus 4 bytes and the key itself.
+ * <p>
+ * Keys cannot be removed. The arena is limited to 2 GB (the largest {@code ByteBuffer}).
+ * The memory is released when the set becomes unreachable, like any direct buffer.
+ * This class is not thread-safe.
+ */
+public class OffHeapByteSet {
+
+    private static final int SLOT_BYTES = Long.BYTES;
+    private static final int MAX_TABLE_SLOTS = 1 << 27;
+    private static final int MIN_TABLE_SLOTS = 16;
+
+    private ByteBuffer table;
+    private int mask;
+    private ByteBuffer arena;
+    private int size;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param expectedSize the number of keys expected
+     * @param averageKeyBytes the expected average key length, used to size the arena
+     */
+    public OffHeapByteSet(int expectedSize, int averageKeyBytes) {
+        if (expectedSize < 0 || averageKeyBytes < 0) {
+            throw new IllegalArgumentException("Negative size: " + expectedSize + ", " + averageKeyBytes);
+        }
+        allocateTable(tableSlotsFor(expectedSize));
+        long arenaBytes = (long) Math.max(16, expectedSize) * (Integer.BYTES + averageKeyBytes);
+        arena = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8, arenaBytes))
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key; its bytes are copied
+     * @return {@code true} if the key was not in the set yet
+     */
+    public boolean add(byte[] key) {
+        int hash = hash(key);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = table.getLong(slot * SLOT_BYTES);
+            if (entry == 0) {
+                int offset = append(key);
+                table.putLong(slot * SLOT_BYTES, ((long) hash << 32) | (offset + 1L));
+                // Grow at a load factor of 3/4
+                if (++size > (mask + 1) - ((mask + 1) >>> 2)) growTable();
+                return true;
+            }
+            if ((int) (entry >>> 32) == hash && keyEquals((int) entry - 1, key)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the set contains a key.
+     *
+     * @param key the key
+     * @return {@code true} if present
+     */
+    public boolean contains(byte[] key) {
+        int hash = hash(key);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = table.getLong(slot * SLOT_BYTES);
+            if (entry == 0) return false;
+            if ((int) (entry >>> 32) == hash && keyEquals((int) entry - 1, key)) return true;
+        }
+    }
+
+    /** Returns the number of keys. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the off-heap memory reserved by the table and the arena, in bytes. */
+    public long offHeapBytes() {
+        return (long) table.capacity() + arena.capacity();
+    }
+
+    /** Removes all keys; the memory stays reserved for reuse. */
+    public void clear() {
+        for (int i = 0; i < table.capacity(); i += SLOT_BYTES) table.putLong(i, 0);
+        arena.clear();
+        size = 0;
+    }
+
+    // Copies [length][bytes] to the end of the arena and returns its offset
+    private int append(byte[] key) {
+        int needed = Integer.BYTES + key.length;
+        if (arena.remaining() < needed) growArena(needed);
+        int offset = arena.position();
+        arena.putInt(key.length).put(key);
+        return offset;
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        if (arena.getInt(offset) != key.length) return false;
+        int start = offset + Integer.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (arena.get(start + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private void growArena(int needed) {
+        long required = (long) arena.position() + needed;
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Off-heap arena full: " + arena.position() + " bytes");
+        }
+        long capacity = Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * arena.capacity()));
+        ByteBuffer larger = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+        arena.flip();
+        larger.put(arena);
+        arena = larger;
+    }
+
+    // The stored hashes are enough to place every key in the larger table
+    private void growTable() {
+        if (mask + 1 >= MAX_TABLE_SLOTS) {
+            throw new IllegalStateException("Off-heap table full: " + size + " keys");
+        }
+        ByteBuffer old = table;
+        allocateTable((mask + 1) << 1);
+        for (int i = 0; i < old.capacity(); i += SLOT_BYTES) {
+            long entry = old.getLong(i);
+            if (entry == 0) continue;
+            int slot = (int) (entry >>> 32) & mask;
+            while (table.getLong(slot * SLOT_BYTES) != 0) slot = (slot + 1) & mask;
+            table.putLong(slot * SLOT_BYTES, entry);
+        }
+    }
+
+    private void allocateTable(int slots) {
+        // allocateDirect memory is zeroed, so every slot starts empty
+        table = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        mask = slots - 1;
+    }
+
+    // Power of two with room for expectedSize keys at a load factor of 3/4
+    private static int tableSlotsFor(int expectedSize) {
+        long slots = Math.max(MIN_TABLE_SLOTS, (long) Math.ceil(expectedSize / 0.75));
+        return (int) Math.min(MAX_TABLE_SLOTS, Long.highestOneBit(slots - 1) << 1);
+    }
+
+    // FNV-1a over the bytes, finished with MurmurHash3's 32-bit mixer
+    private static int hash(byte[] key) {
+        int h = 0x811c9dc5;
+        for (byte b : key) h = (h ^ b) * 0x01000193;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
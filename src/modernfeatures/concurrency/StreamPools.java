@@ -0,0 +1,129 @@
+package modernfeatures.concurrency;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A registry of named, bounded {@link ForkJoinPool}s for running parallel stream pipelines.
+ * <p>
+ * By default every {@code parallelStream()} runs in the JVM-wide common pool, so one heavy
+ * pipeline can occupy all its workers and delay every other one. A parallel stream actually runs
+ * its tasks in the pool of the thread that starts the terminal operation, so starting the
+ * pipeline from inside a dedicated pool confines it to that pool's workers:
+ * <pre>{@code
+ * try (StreamPools pools = new StreamPools()) {
+ *     long total = pools.run("reports", 2, () -> orders.parallelStream().mapToLong(Order::amount).sum());
+ * }
+ * }</pre>
+ * Each pool is bounded: it never grows beyond its parallelism, not even to compensate for
+ * blocked workers. {@link #stats()} reports queue depth and steal counts per pool.
+ * <p>
+ * Note: streams still size their splits from the common pool's parallelism, so a pipeline in a
+ * small pool may create more tasks than it needs; it will just not use more threads.
+ */
+public class StreamPools implements AutoCloseable {
+
+    /**
+     * A snapshot of one pool's activity.
+     *
+     * @param name the pool name
+     * @param parallelism the maximum number of workers
+     * @param poolSize the number of worker threads started so far
+     * @param activeThreads workers currently stealing or running tasks
+     * @param queuedTasks tasks waiting in the workers' queues
+     * @param queuedSubmissions pipelines submitted but not yet started
+     * @param steals tasks taken from another worker's queue since the pool started
+     */
+    public record PoolStats(String name, int parallelism, int poolSize, int activeThreads,
+                            long queuedTasks, int queuedSubmissions, long steals) {
+    }
+
+    // Workers stay alive this long without work before they are released
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final Map<String, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pool with the given name, creating it with {@code parallelism} workers if needed.
+     *
+     * @param name the pool name, also used to name its worker threads
+     * @param parallelism the maximum number of workers
+     * @return the pool
+     * @throws IllegalArgumentException if a pool with that name exists with a different parallelism
+     */
+    public ForkJoinPool pool(String name, int parallelism) {
+        ForkJoinPool pool = pools.computeIfAbsent(name, n -> newBoundedPool(n, parallelism));
+        if (pool.getParallelism() != parallelism) {
+            throw new IllegalArgumentException("Pool '" + name + "' already exists with parallelism "
+                    + pool.getParallelism() + ", not " + parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Runs a stream pipeline in the named pool, waits for it and returns its result.
+     *
+     * @param name the pool name
+     * @param parallelism the maximum number of workers of that pool
+     * @param pipeline builds and runs the stream, e.g. {@code () -> list.parallelStream()...sum()}
+     * @param <T> the result type
+     * @return the pipeline's result
+     */
+    public <T> T run(String name, int parallelism, Supplier<T> pipeline) {
+        return runIn(pool(name, parallelism), pipeline);
+    }
+
+    /**
+     * Runs a stream pipeline in a caller-supplied pool and returns its result.
+     *
+     * @param pool the pool to run in
+     * @param pipeline builds and runs the stream
+     * @param <T> the result type
+     * @return the pipeline's result
+     */
+    public static <T> T runIn(ForkJoinPool pool, Supplier<T> pipeline) {
+        // join() rethrows any RuntimeException or Error thrown by the pipeline
+        return pool.submit(pipeline::get).join();
+    }
+
+    /**
+     * Returns a snapshot of every pool's activity, sorted by pool name.
+     */
+    public Map<String, PoolStats> stats() {
+        Map<String, PoolStats> result = new TreeMap<>();
+        pools.forEach((name, pool) -> result.put(name, new PoolStats(name, pool.getParallelism(),
+                pool.getPoolSize(), pool.getActiveThreadCount(), pool.getQueuedTaskCount(),
+                pool.getQueuedSubmissionCount(), pool.getStealCount())));
+        return result;
+    }
+
+    /**
+     * Shuts down all pools, waiting for running pipelines to finish.
+     */
+    @Override
+    public void close() {
+        pools.values().forEach(ForkJoinPool::close);
+        pools.clear();
+    }
+
+    /**
+     * Creates a pool of at most {@code parallelism} workers named {@code name-worker-N}.
+     * A saturated pool keeps running with the workers it has instead of adding threads.
+     */
+    private static ForkJoinPool newBoundedPool(String name, int parallelism) {
+        AtomicInteger workerIds = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(name + "-worker-" + workerIds.incrementAndGet());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, factory, null, false,
+                parallelism, parallelism, 1, pool -> true, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,64 @@
+package modernfeatures.concurrency;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Demonstrates isolating parallel stream pipelines in their own bounded pools with {@link StreamPools}.
+ * <p>
+ * A heavy "report" pipeline runs in a 2-worker pool while several light "request" pipelines run
+ * in a separate 2-worker pool at the same time. Each pipeline records which threads did its work,
+ * showing that neither touches the other's workers nor the common pool. Pool statistics are
+ * printed while the report is still running and again at the end.
+ */
+public class StreamPoolsDemo {
+
+    /**
+     * Runs the demo.
+     *
+     * @param args command-line arguments (not used)
+     * @throws InterruptedException if interrupted while sampling the statistics
+     */
+    public static void main(String[] args) throws InterruptedException {
+        try (StreamPools pools = new StreamPools()) {
+            Set<String> reportThreads = ConcurrentHashMap.newKeySet();
+            Set<String> requestThreads = ConcurrentHashMap.newKeySet();
+
+            // Heavy pipeline, started asynchronously so the requests can run meanwhile
+            CompletableFuture<Long> report = CompletableFuture.supplyAsync(() ->
+                    pools.run("reports", 2, () -> LongStream.rangeClosed(1, 30_000_000)
+                            .parallel()
+                            .peek(n -> reportThreads.add(Thread.currentThread().getName()))
+                            .filter(n -> n % 3 == 0)
+                            .sum()));
+
+            // Light pipelines in their own pool, unaffected by the report
+            for (int i = 1; i <= 3; i++) {
+                int requestId = i;
+                List<Integer> squares = pools.run("requests", 2, () -> IntStream.rangeClosed(1, 8)
+                        .parallel()
+                        .peek(n -> requestThreads.add(Thread.currentThread().getName()))
+                        .map(n -> n * n * requestId)
+                        .boxed()
+                        .collect(Collectors.toList()));
+                System.out.println("Request " + requestId + " result: " + squares);
+            }
+
+            Thread.sleep(50);
+            System.out.println("\nWhile the report is running:");
+            pools.stats().values().forEach(System.out::println);
+
+            System.out.println("\nReport result: " + report.join());
+            System.out.println("Report ran on:   " + reportThreads);
+            System.out.println("Requests ran on: " + requestThreads);
+
+            System.out.println("\nFinal pool statistics:");
+            pools.stats().values().forEach(System.out::println);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.CompletableFuture;
  *   <li>Build and send an asynchronous request, register a callback to handle the response,
  *   and ensure the program waits for the async operation to complete.</li>
  * </ul>
+ * To fetch many URLs at once with bounded concurrency, see {@code modernfeatures.java18.BulkFetchDemo}.
  * <pre>
  * Usage:
  *   java modernfeatures.java11.HttpClientDemo
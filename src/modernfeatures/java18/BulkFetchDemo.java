@@ -0,0 +1,75 @@
+package modernfeatures.java18;
+
+import modernfeatures.java18.fetch.BulkFetcher;
+import modernfeatures.java18.fetch.StandInServer;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Fetches many URLs from three local stand-in hosts with {@link BulkFetcher}: a fast one, a slow one and
+ * one that fails every tenth request. The requests are generated lazily and interleaved across the hosts;
+ * the results are consumed in completion order, with progress every 5,000, and the statistics per host
+ * are printed at the end.
+ * <pre>
+ * Usage:
+ *   java modernfeatures.java18.BulkFetchDemo [requests=30000] [concurrency=200] [perHost=100]
+ * </pre>
+ */
+public class BulkFetchDemo {
+
+    /**
+     * Runs the fetch.
+     *
+     * @param args the number of requests, the global and the per-host concurrency limit
+     * @throws Exception if a stand-in server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int requestCount = args.length > 0 ? Integer.parseInt(args[0]) : 30_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int perHost = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        try (StandInServer fast = new StandInServer(Duration.ofMillis(2), 1024, 0);
+             StandInServer slow = new StandInServer(Duration.ofMillis(100), 16 * 1024, 0);
+             StandInServer flaky = new StandInServer(Duration.ofMillis(10), 1024, 10);
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            List<StandInServer> hosts = List.of(fast, slow, flaky);
+            BulkFetcher<Void> fetcher = new BulkFetcher<>(client, HttpResponse.BodyHandlers.discarding(),
+                    concurrency, perHost);
+            Stream<HttpRequest> requests = IntStream.range(0, requestCount)
+                    .mapToObj(i -> HttpRequest.newBuilder(hosts.get(i % hosts.size()).uri("/item/" + i))
+                            .timeout(Duration.ofSeconds(30))
+                            .build());
+
+            System.out.printf("Fetching %,d URLs from %d hosts, %d at once, %d per host%n",
+                    requestCount, hosts.size(), concurrency, perHost);
+            long start = System.nanoTime();
+            long done = 0, succeeded = 0;
+            try (Stream<BulkFetcher.Result<Void>> results = fetcher.fetch(requests)) {
+                for (BulkFetcher.Result<Void> result : (Iterable<BulkFetcher.Result<Void>>) results::iterator) {
+                    done++;
+                    if (result.succeeded()) succeeded++;
+                    if (done % 5_000 == 0) {
+                        System.out.printf("%,8d done after %,6d ms%n", done, (System.nanoTime() - start) / 1_000_000);
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d results (%,d succeeded) in %.2f s, %,.0f/s%n",
+                    done, succeeded, seconds, done / seconds);
+            fetcher.stats().forEach(System.out::println);
+            System.out.printf("Most requests in flight at a host: %d, %d, %d%n",
+                    fast.maxInFlight(), slow.maxInFlight(), flaky.maxInFlight());
+        }
+    }
+}
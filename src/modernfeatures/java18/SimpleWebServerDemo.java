@@ -1,13 +1,26 @@
 package modernfeatures.java18;
 
-import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.SimpleFileServer;
+import modernfeatures.java18.server.AdmissionFilter;
+import modernfeatures.java18.server.CachingFileHandler;
+import modernfeatures.java18.server.HttpMetrics;
+import modernfeatures.java18.server.NioHttpServer;
+import modernfeatures.java18.server.ServerConfig;
+import modernfeatures.java18.server.ServerExecutor;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A simple static file server using Java 18's built-in HttpServer.
@@ -16,30 +29,194 @@ import java.util.concurrent.Executors;
  * at the root of the project (i.e., alongside the README.md).
  * </p>
  * <p>
+ * Requests run on a {@link ServerExecutor}: by default a virtual thread per request, so slow clients
+ * no longer hold one of a few pool threads. Port, backlog, root directory and execution model come from
+ * arguments or system properties (see {@link ServerConfig}), for example:
+ * </p>
+ * <pre>
+ * java modernfeatures.java18.SimpleWebServerDemo --port=9090 --mode=HYBRID --limit=100
+ * java -Dserver.mode=BOUNDED -Dserver.limit=4 modernfeatures.java18.SimpleWebServerDemo
+ * java modernfeatures.java18.SimpleWebServerDemo --engine=NIO --loops=2
+ * java modernfeatures.java18.SimpleWebServerDemo --admission=VEGAS --queue-wait=50 --client-rate=100
+ * </pre>
+ * <p>
+ * {@code --engine=NIO} swaps the JDK's server for {@link NioHttpServer}, which runs the same handlers on
+ * selector event loops with pooled buffers, keep-alive and pipelining.
+ * </p>
+ * <p>
+ * Hot files are served from memory by a {@link CachingFileHandler}: loaded and gzipped once, answered
+ * with {@code 304 Not Modified} when the browser already has them, and reloaded when they change on disk.
+ * {@code --cache=0} serves every request from disk with {@code SimpleFileServer} instead.
+ * </p>
+ * <p>
+ * {@code --admission=VEGAS} (or {@code FIXED}, {@code GRADIENT}) and {@code --client-rate} put an
+ * {@link AdmissionFilter} in front of the files, {@code /slow} and {@code /work}: under overload, requests
+ * beyond the concurrency limit that cannot start within {@code --queue-wait} get {@code 503}, clients over
+ * their rate get {@code 429}, and the requests that are admitted stay fast.
+ * </p>
+ * <p>
+ * Besides the files, the server has four endpoints:
+ * </p>
+ * <ul>
+ *   <li>{@code /status}: the execution model and the active, queued and completed request counts,
+ *       the file cache's hits and misses, admission counts, and the latency percentiles of every route;</li>
+ *   <li>{@code /metrics}: per-route latency histograms, status codes, bytes and in-flight requests in the
+ *       Prometheus text format, recorded by {@link HttpMetrics};</li>
+ *   <li>{@code /slow?ms=50}: waits before answering, like a handler calling a slow backend;</li>
+ *   <li>{@code /work?ms=5}: keeps a CPU busy before answering, like a handler rendering a page, so the
+ *       server's capacity is about {@code 1000 / ms} requests per second per core and the latency grows
+ *       with the number of requests running at once.</li>
+ * </ul>
+ * <p>
  * Once running, access it in your browser at:
  * http://localhost:8080/
  * </p>
  */
 public class SimpleWebServerDemo {
 
+    // The file cache of every server started and not yet stopped, closed by stop()
+    private static final Map<HttpServer, CachingFileHandler> FILE_CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the server with the given settings.
+     *
+     * @param args {@code --port}, {@code --backlog}, {@code --root}, {@code --mode}, {@code --limit},
+     *             {@code --report}, {@code --cache}, {@code --engine}, {@code --loops}, {@code --admission} and
+     *             its settings; see {@link ServerConfig}
+     * @throws IOException if the port cannot be bound
+     */
     public static void main(String[] args) throws IOException {
-        // Convert the root directory to an absolute path
-        Path rootDir = Path.of("public").toAbsolutePath();
+        ServerConfig config = ServerConfig.fromArgs(args);
+        ServerExecutor executor = config.newExecutor();
+        HttpServer server = start(config, executor);
+
+        System.out.println("Simple Web Server running at http://localhost:" + server.getAddress().getPort() + "/");
+        System.out.println("🗂️ Serving files from: " + config.root());
+        System.out.println("Execution model: " + executor.mode()
+                + (executor.mode() == ServerExecutor.Mode.VIRTUAL ? "" : ", limit " + executor.limit()));
+
+        // Print the request counts now and then, only while something is happening
+        if (config.reportSeconds() > 0) {
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "status-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long[] lastCompleted = {0};
+            reporter.scheduleAtFixedRate(() -> {
+                if (executor.active() + executor.queued() > 0 || executor.completed() != lastCompleted[0]) {
+                    System.out.println(executor);
+                    lastCompleted[0] = executor.completed();
+                }
+            }, config.reportSeconds(), config.reportSeconds(), TimeUnit.SECONDS);
+        }
+    }
 
-        // Create the server to listen on port 8080
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+    /**
+     * Creates and starts a server serving {@code config.root()}, {@code /status}, {@code /metrics},
+     * {@code /slow} and {@code /work}, every context instrumented by {@link HttpMetrics}.
+     * Stop it with {@link #stop} and close the executor afterwards; that also closes the file cache, which
+     * watches the root directory on a daemon thread of its own.
+     *
+     * @param config the port, backlog, root directory and cache size
+     * @param executor runs the requests
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static HttpServer start(ServerConfig config, ServerExecutor executor) throws IOException {
+        // Create the server to listen on the configured port, with the JDK's engine or the NIO one
+        InetSocketAddress address = new InetSocketAddress(config.port());
+        HttpServer server = config.engine() == ServerConfig.Engine.NIO
+                ? NioHttpServer.create(address, config.backlog(), config.eventLoops())
+                : HttpServer.create(address, config.backlog());
 
-        // Create a handler that serves static files from the rootDir
-        HttpHandler handler = SimpleFileServer.createFileHandler(rootDir);
-        server.createContext("/", handler);
+        // Create a handler that serves static files from the root directory, from memory if configured
+        CachingFileHandler cache = config.cacheBytes() > 0
+                ? new CachingFileHandler(config.root(), config.cacheBytes()) : null;
+        HttpHandler handler = cache != null ? cache : SimpleFileServer.createFileHandler(config.root());
+        // Every route records its latency, status codes and bytes; /metrics serves them to Prometheus.
+        // The admission filter, if configured, guards the routes that do the work, not the monitoring ones
+        HttpMetrics metrics = new HttpMetrics();
+        AdmissionFilter admission = config.admission().newFilter();
+        guard(metrics, admission, server.createContext("/", handler));
+        metrics.instrument(server.createContext("/status", exchange -> respond(exchange, executor + "\n"
+                + (server instanceof NioHttpServer nio ? nio + "\n" : "")
+                + (cache != null ? cache + "\n" : "")
+                + (admission != null ? admission + "\n" : "")
+                + metrics + "\n")));
+        metrics.instrument(server.createContext("/metrics", metrics));
+        guard(metrics, admission, server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(queryMillis(exchange, 50));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "ok\n");
+        }));
+        guard(metrics, admission, server.createContext("/work", exchange -> {
+            // Busy in slices of 0.1 ms with a yield in between, so that concurrent requests share the cores
+            // as platform threads would, instead of each virtual thread keeping its carrier to the end
+            for (long left = TimeUnit.MILLISECONDS.toNanos(queryMillis(exchange, 5)); left > 0; left -= 100_000) {
+                long end = System.nanoTime() + Math.min(left, 100_000);
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                Thread.yield();
+            }
+            respond(exchange, "done\n");
+        }));
 
-        // Optional: Use a thread pool
-        server.setExecutor(Executors.newFixedThreadPool(4));
+        // Run the requests on the configured execution model
+        server.setExecutor(executor);
 
         // Start the server
         server.start();
+        if (cache != null) FILE_CACHES.put(server, cache);
+        return server;
+    }
+
+    /**
+     * Stops a server created by {@link #start} at once and closes its file cache, so that its directory
+     * watch and thread do not outlive it.
+     *
+     * @param server the server
+     * @throws IOException if the file cache's watch service cannot be closed
+     */
+    public static void stop(HttpServer server) throws IOException {
+        server.stop(0);
+        CachingFileHandler cache = FILE_CACHES.remove(server);
+        if (cache != null) cache.close();
+    }
+
+    // Admission runs after the metrics filter, so rejected requests show up in the metrics too
+    private static void guard(HttpMetrics metrics, AdmissionFilter admission, HttpContext context) {
+        if (admission != null) context.getFilters().add(admission);
+        metrics.instrument(context);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
 
-        System.out.println("Simple Web Server running at http://localhost:8080/");
-        System.out.println("🗂️ Serving files from: " + rootDir);
+    // The value of ms=... in the query string, or the default
+    private static long queryMillis(HttpExchange exchange, long defaultMillis) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("ms=")) {
+                    try {
+                        return Math.max(0, Long.parseLong(parameter.substring(3)));
+                    } catch (NumberFormatException e) {
+                        return defaultMillis;
+                    }
+                }
+            }
+        }
+        return defaultMillis;
     }
-}
\ No newline at end of file
+}
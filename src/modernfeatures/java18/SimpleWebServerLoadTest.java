@@ -0,0 +1,171 @@
+package modernfeatures.java18;
+
+import com.sun.net.httpserver.HttpServer;
+import modernfeatures.collections.LongArrayList;
+import modernfeatures.java18.server.ServerConfig;
+import modernfeatures.java18.server.ServerExecutor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load-tests {@link SimpleWebServerDemo} under each execution model of {@link ServerExecutor}.
+ * <p>
+ * For every mode, the server is started in this JVM on a free port and {@code clients} virtual threads
+ * each send {@code GET /slow?ms=delay} in a loop over a keep-alive connection, for {@code seconds}.
+ * The handler sleeps like one waiting for a backend, so the results show how many slow requests each
+ * model can have in flight:
+ * <ul>
+ *   <li>{@code VIRTUAL}: all clients are served at once; throughput is close to {@code clients / delay}
+ *       until the CPU is the limit;</li>
+ *   <li>{@code BOUNDED}: {@code limit} threads serve {@code limit / delay} requests per second, the rest
+ *       wait in the queue (and time out);</li>
+ *   <li>{@code HYBRID}: {@code limit} requests at a time, but waiting costs no platform thread.</li>
+ * </ul>
+ * <pre>
+ * Usage: java modernfeatures.java18.SimpleWebServerLoadTest [--clients=10000] [--seconds=10] [--warmup=3]
+ *                                                          [--delay=50] [--modes=VIRTUAL,BOUNDED,HYBRID] [--limit=256]
+ * </pre>
+ * Client and server share the process, so 10,000 clients need about 20,000 file descriptors
+ * ({@code ulimit -n}); {@code --limit} applies to BOUNDED and HYBRID (BOUNDED defaults to 4 threads,
+ * like the original {@code newFixedThreadPool(4)}).
+ */
+public class SimpleWebServerLoadTest {
+
+    // The load test's own settings; the server's are built from them
+    private record Options(int clients, int seconds, int warmupSeconds, int delayMillis,
+                           List<ServerExecutor.Mode> modes, Integer limit) {
+    }
+
+    /**
+     * Runs the load test for each mode and prints one result line per mode.
+     *
+     * @param args {@code --clients}, {@code --seconds}, {@code --warmup}, {@code --delay}, {@code --modes},
+     *             {@code --limit}
+     * @throws Exception if the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        System.out.printf("%,d keep-alive clients, %d s per mode, handler delay %d ms%n",
+                options.clients(), options.seconds(), options.delayMillis());
+        System.out.printf("%-8s %7s %12s %10s %9s %9s %9s %11s%n",
+                "mode", "limit", "requests", "req/s", "p50 ms", "p99 ms", "errors", "max queued");
+        // A first, unreported round lets the JIT compile the server and client code, which would
+        // otherwise make the first mode look several times slower than it is
+        if (options.warmupSeconds() > 0) {
+            run(options, ServerExecutor.Mode.HYBRID, 256, options.warmupSeconds(), false);
+        }
+        for (ServerExecutor.Mode mode : options.modes()) {
+            int limit = options.limit() != null ? options.limit() : mode == ServerExecutor.Mode.BOUNDED ? 4 : 256;
+            run(options, mode, limit, options.seconds(), true);
+        }
+    }
+
+    private static void run(Options options, ServerExecutor.Mode mode, int limit, int seconds, boolean report)
+            throws Exception {
+        // A free port, and an accept queue long enough for all clients connecting at once
+        ServerConfig defaults = ServerConfig.fromArgs();
+        ServerConfig config = new ServerConfig(0, Math.max(defaults.backlog(), options.clients()), defaults.root(),
+                mode, limit, 0, defaults.cacheBytes(), defaults.engine(), defaults.eventLoops(), defaults.admission());
+        ServerExecutor executor = config.newExecutor();
+        HttpServer server = SimpleWebServerDemo.start(config, executor);
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/slow?ms=" + options.delayMillis());
+
+        long durationNanos = seconds * 1_000_000_000L;
+        LongAdder errors = new LongAdder();
+        AtomicInteger maxQueued = new AtomicInteger();
+        List<LongArrayList> latencies = new ArrayList<>();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < options.clients(); c++) {
+                LongArrayList mine = new LongArrayList();
+                latencies.add(mine);
+                clients.execute(() -> runClient(client, uri, deadline, mine, errors));
+            }
+            // Sample the server's queue while the clients run
+            while (System.nanoTime() < deadline) {
+                maxQueued.accumulateAndGet(executor.queued(), Math::max);
+                Thread.sleep(50);
+            }
+            // Requests still waiting in a queue would hold the clients for minutes
+            SimpleWebServerDemo.stop(server);
+            executor.close();
+        } finally {
+            client.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        if (!report) return;
+
+        LongArrayList all = new LongArrayList();
+        latencies.forEach(all::addAll);
+        long[] sorted = all.toArray();
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "%-8s %7s %,12d %,10.0f %9.1f %9.1f %,9d %,11d%n",
+                mode, mode == ServerExecutor.Mode.VIRTUAL ? "-" : String.valueOf(limit), sorted.length,
+                sorted.length / elapsedSeconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                errors.sum(), maxQueued.get());
+    }
+
+    // One client: a request after the other on its own keep-alive connection until the deadline
+    private static void runClient(HttpClient client, URI uri, long deadline, LongArrayList latencies,
+                                  LongAdder errors) {
+        while (System.nanoTime() < deadline) {
+            long remainingMillis = Math.max(1, (deadline - System.nanoTime()) / 1_000_000);
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(remainingMillis)).build();
+            long sent = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    latencies.add(System.nanoTime() - sent);
+                } else {
+                    errors.increment();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // Timeouts, and connections closed when the server stops at the deadline
+                if (System.nanoTime() < deadline) errors.increment();
+            }
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) return Double.NaN;
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Options parse(String[] args) {
+        int clients = 10_000, seconds = 10, warmup = 3, delay = 50;
+        Integer limit = null;
+        List<ServerExecutor.Mode> modes = List.of(ServerExecutor.Mode.values());
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--clients=")) clients = Integer.parseInt(value);
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(value);
+            else if (arg.startsWith("--warmup=")) warmup = Integer.parseInt(value);
+            else if (arg.startsWith("--delay=")) delay = Integer.parseInt(value);
+            else if (arg.startsWith("--limit=")) limit = Integer.parseInt(value);
+            else if (arg.startsWith("--modes=")) modes = Arrays.stream(value.split(","))
+                    .map(mode -> ServerExecutor.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT))).toList();
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+        return new Options(clients, seconds, warmup, delay, modes, limit);
+    }
+}
@@ -0,0 +1,291 @@
+package modernfeatures.java18.fetch;
+
+import modernfeatures.java18.server.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fetches large numbers of URLs with an {@link HttpClient}, each request on its own virtual thread, with
+ * bounded concurrency overall and per host.
+ * <p>
+ * The naive way, {@code sendAsync} for every request and {@code CompletableFuture.allOf} on the lot, puts
+ * every request in flight at once: the client opens as many connections as there are requests, the servers
+ * queue them, so even the fastest response waits behind the others, and every response is kept until the
+ * last one has arrived. {@link #fetch} instead:
+ * <ul>
+ *   <li>keeps at most {@code maxConcurrency} requests in flight or waiting to be consumed, and at most
+ *       {@code maxPerHost} in flight to any one host ({@code host:port}), which also bounds the HTTP/1.1
+ *       connections per host;</li>
+ *   <li>returns the results as a stream in completion order, as soon as each one arrives;</li>
+ *   <li>only takes the next request from the input once a result has been consumed, so a slow consumer slows
+ *       the fetch down rather than filling the memory (backpressure), and the input may itself be a lazy
+ *       stream of millions of requests.</li>
+ * </ul>
+ * A request waiting for its host keeps its global slot, so a long run of requests to one host lowers the
+ * concurrency left for the others; interleave hosts in the input where that matters. {@link #stats()} reports
+ * the throughput, errors and latency per host over all fetches. Give the client a virtual thread executor
+ * ({@code HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor())}), as its default
+ * one is a cached pool of platform threads.
+ *
+ * @param <T> the type of the response bodies
+ */
+public final class BulkFetcher<T> {
+
+    /**
+     * The outcome of one request: a response (of any status), or the exception that prevented one.
+     *
+     * @param request the request
+     * @param response the response, or null if the request failed
+     * @param error the exception, or null if there is a response
+     * @param latencyNanos the time from sending the request to the complete response or the failure,
+     *                     not counting the wait for a slot
+     * @param <T> the type of the response body
+     */
+    public record Result<T>(HttpRequest request, HttpResponse<T> response, Exception error, long latencyNanos) {
+
+        /** Returns whether there is a response with a status below 400. */
+        public boolean succeeded() {
+            return response != null && response.statusCode() < 400;
+        }
+    }
+
+    /**
+     * The requests to one host so far.
+     *
+     * @param host the host and port
+     * @param requests the requests that completed or failed
+     * @param httpErrors the responses with a status of 400 or higher
+     * @param failures the requests that got no response
+     * @param requestsPerSecond the requests divided by the time from the first send to the last completion
+     * @param latency the latency of all requests to the host
+     */
+    public record HostStats(String host, long requests, long httpErrors, long failures, double requestsPerSecond,
+                            LatencyHistogram.Snapshot latency) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %,d requests (%,.1f/s), %,d HTTP errors, %,d failures, %s",
+                    host, requests, requestsPerSecond, httpErrors, failures, latency);
+        }
+    }
+
+    // Marks the end of the results of one fetch
+    private static final Object END = new Object();
+
+    private final HttpClient client;
+    private final HttpResponse.BodyHandler<T> bodyHandler;
+    private final int maxConcurrency;
+    private final int maxPerHost;
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    // One host's slots and counters
+    private final class Host {
+        final String name;
+        final Semaphore permits = new Semaphore(maxPerHost);
+        final LongAdder requests = new LongAdder();
+        final LongAdder httpErrors = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong firstSent = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong lastDone = new AtomicLong(Long.MIN_VALUE);
+
+        Host(String name) {
+            this.name = name;
+        }
+
+        void record(long sent, long done, int status) {
+            firstSent.accumulateAndGet(sent, Math::min);
+            lastDone.accumulateAndGet(done, Math::max);
+            latency.record(done - sent);
+            requests.increment();
+            if (status >= 400) httpErrors.increment();
+            else if (status < 0) failures.increment();
+        }
+
+        HostStats stats() {
+            long count = requests.sum();
+            long elapsed = lastDone.get() - firstSent.get();
+            return new HostStats(name, count, httpErrors.sum(), failures.sum(),
+                    elapsed > 0 ? count * 1e9 / elapsed : 0, latency.snapshot());
+        }
+    }
+
+    /**
+     * Creates a fetcher.
+     *
+     * @param client the client that sends the requests
+     * @param bodyHandler the handler for every response body
+     * @param maxConcurrency the most requests in flight or waiting to be consumed, over all hosts
+     * @param maxPerHost the most requests in flight to one host
+     */
+    public BulkFetcher(HttpClient client, HttpResponse.BodyHandler<T> bodyHandler, int maxConcurrency,
+                       int maxPerHost) {
+        if (maxConcurrency < 1 || maxPerHost < 1) {
+            throw new IllegalArgumentException("Concurrency limits must be positive: " + maxConcurrency + ", "
+                    + maxPerHost);
+        }
+        this.client = client;
+        this.bodyHandler = bodyHandler;
+        this.maxConcurrency = maxConcurrency;
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * Starts sending the requests and returns their results in completion order.
+     * <p>
+     * The requests are taken from {@code requests} as slots become free. Close the returned stream, e.g.
+     * with try-with-resources, to cancel the requests still running if it is not consumed to the end; that
+     * also closes {@code requests}. An exception thrown by {@code requests} itself is thrown by the returned
+     * stream after the results of the requests taken before it.
+     *
+     * @param requests the requests to send
+     * @return the results, each as soon as it is complete
+     */
+    public Stream<Result<T>> fetch(Stream<HttpRequest> requests) {
+        Fetch fetch = new Fetch(requests.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(fetch,
+                        Spliterator.NONNULL | Spliterator.IMMUTABLE), false)
+                .onClose(fetch::cancel)
+                .onClose(requests::close);
+    }
+
+    /**
+     * Sends the requests and collects the successful responses, in completion order.
+     *
+     * @param requests the requests to send
+     * @return the responses with a status below 400
+     */
+    public List<HttpResponse<T>> fetchAll(Stream<HttpRequest> requests) {
+        try (Stream<Result<T>> results = fetch(requests)) {
+            return results.filter(Result::succeeded).map(Result::response).toList();
+        }
+    }
+
+    /** Returns the statistics of every host requested so far, by host name. */
+    public List<HostStats> stats() {
+        List<HostStats> stats = new ArrayList<>();
+        for (Host host : hosts.values()) stats.add(host.stats());
+        stats.sort((a, b) -> a.host().compareTo(b.host()));
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkFetcher(" + maxConcurrency + " at once, " + maxPerHost + " per host, " + hosts.size()
+                + " hosts)";
+    }
+
+    // Sends one request once its host has a free slot
+    private Result<T> send(HttpRequest request) {
+        Host host = hosts.computeIfAbsent(host(request.uri()), Host::new);
+        try {
+            host.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result<>(request, null, e, 0);
+        }
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request, bodyHandler);
+            long done = System.nanoTime();
+            host.record(sent, done, response.statusCode());
+            return new Result<>(request, response, null, done - sent);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            long done = System.nanoTime();
+            host.record(sent, done, -1);
+            return new Result<>(request, null, e, done - sent);
+        } finally {
+            host.permits.release();
+        }
+    }
+
+    // The host and port, with the scheme's default port if the URI has none
+    private static String host(URI uri) {
+        int port = uri.getPort() >= 0 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return uri.getHost() + ":" + port;
+    }
+
+    // One call of fetch: a virtual thread feeds the requests to tasks, which queue their results for the
+    // iterator; a global slot is taken before each request and given back when its result is consumed
+    private final class Fetch implements Iterator<Result<T>> {
+        private final BlockingQueue<Object> completed = new LinkedBlockingQueue<>();
+        private final Semaphore permits = new Semaphore(maxConcurrency);
+        private final Thread feeder;
+        private Object next;
+
+        Fetch(Iterator<HttpRequest> requests) {
+            feeder = Thread.ofVirtual().name("bulk-fetch").start(() -> feed(requests));
+        }
+
+        private void feed(Iterator<HttpRequest> requests) {
+            Object end = END;
+            try (ExecutorService tasks = Executors.newVirtualThreadPerTaskExecutor()) {
+                try {
+                    while (true) {
+                        permits.acquire();
+                        if (!requests.hasNext()) break;
+                        HttpRequest request = requests.next();
+                        tasks.execute(() -> completed.add(send(request)));
+                    }
+                } catch (InterruptedException e) {
+                    tasks.shutdownNow();
+                } catch (RuntimeException e) {
+                    end = e;
+                }
+            }
+            // Only once every task has queued its result
+            completed.add(end);
+        }
+
+        void cancel() {
+            feeder.interrupt();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = completed.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    throw new CancellationException("Interrupted while waiting for a result");
+                }
+            }
+            if (next instanceof RuntimeException e) throw e;
+            return next != END;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Result<T> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Result<T> result = (Result<T>) next;
+            next = null;
+            permits.release();
+            return result;
+        }
+    }
+}
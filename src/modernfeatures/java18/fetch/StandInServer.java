@@ -0,0 +1,97 @@
+package modernfeatures.java18.fetch;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local {@link HttpServer} that stands in for a remote host when trying out or measuring
+ * {@link BulkFetcher}: every request to any path waits {@code delay}, like a request across the internet,
+ * and is answered with {@code bodyBytes} bytes, or with {@code 500} for every {@code errorEvery}-th request.
+ * Requests run on virtual threads, so the server never limits the concurrency itself; it counts the
+ * requests and the most it had in flight at once.
+ */
+public final class StandInServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder requests = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * Starts a server on a free port of the loopback address.
+     *
+     * @param delay how long every request takes
+     * @param bodyBytes the size of every successful response body
+     * @param errorEvery answer every this many requests with 500, or 0 for never
+     * @throws IOException if the server cannot start
+     */
+    public StandInServer(Duration delay, int bodyBytes, int errorEvery) throws IOException {
+        if (delay.isNegative() || bodyBytes < 0 || errorEvery < 0) {
+            throw new IllegalArgumentException("Invalid delay, body size or error interval: " + delay + ", "
+                    + bodyBytes + ", " + errorEvery);
+        }
+        byte[] body = new byte[bodyBytes];
+        Arrays.fill(body, (byte) 'x');
+        AtomicInteger count = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                requests.increment();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                boolean error = errorEvery > 0 && count.incrementAndGet() % errorEvery == 0;
+                exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                exchange.sendResponseHeaders(error ? 500 : 200, error ? -1 : body.length);
+                if (!error) exchange.getResponseBody().write(body);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Returns the URI of a path on this server.
+     *
+     * @param path the path, starting with {@code /}
+     * @return the absolute URI
+     */
+    public URI uri(String path) {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + path);
+    }
+
+    /** Returns the number of requests received so far. */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /** Returns the most requests that were in flight at once. */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /** Stops the server at once. */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
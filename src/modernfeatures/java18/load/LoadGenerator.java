@@ -0,0 +1,264 @@
+package modernfeatures.java18.load;
+
+import modernfeatures.java18.SimpleWebServerDemo;
+import modernfeatures.java18.server.ServerExecutor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An open-loop HTTP load generator on {@link HttpClient} and virtual threads.
+ * <p>
+ * Requests are sent at a fixed arrival rate, whatever the server does: request {@code i} is due at
+ * {@code start + i / rate} (or after exponentially distributed gaps with {@code --arrivals=poisson}), and
+ * each is sent on its own virtual thread, so slow responses never delay the next request. This is how
+ * real users behave, and unlike a closed loop of clients it keeps the pressure on a server that slows
+ * down. The latency is measured from the time a request was due, so it stays correct even if the
+ * generator falls behind (see {@link LoadReport} on coordinated omission).
+ * <p>
+ * The requests come from a JSONL scenario file (see {@link Scenario}), mixed by weight; without one,
+ * every request is {@code GET /}. Without {@code --url}, the generator starts the bundled
+ * {@link SimpleWebServerDemo} in a separate JVM for every execution model in {@code --modes}, so client
+ * and server do not compete for the same virtual thread carriers, and compares them on one machine.
+ * For every run, a summary, a table of percentiles per scenario and an HdrHistogram {@code .hgrm} file
+ * of the latency distribution are written.
+ * <pre>
+ * Usage: java modernfeatures.java18.load.LoadGenerator [--url=http://localhost:8080] [--rate=500]
+ *            [--seconds=10] [--warmup=3] [--scenario=requests.jsonl] [--arrivals=uniform|poisson]
+ *            [--timeout=10] [--max-in-flight=10000] [--histogram=loadgen] [--seed=42]
+ *            [--modes=VIRTUAL,BOUNDED,HYBRID] [--server-args="--engine=NIO --admission=VEGAS"]
+ * </pre>
+ * The warm-up runs at the same rate right before the measured seconds, without a pause in between. Against
+ * the bundled server, an extra unreported round against the first mode warms up the generator itself
+ * first. {@code --max-in-flight} caps the requests waiting for a response; requests due beyond it are not
+ * sent but counted in the latency with the timeout, as timeouts are with the time they took. On one core,
+ * {@code HttpClient} itself sustains a few thousand requests per second; check the service time column to
+ * see whether the generator kept up.
+ */
+public class LoadGenerator {
+
+    private static final Pattern SERVER_URL = Pattern.compile("running at (http://\\S+?)/?$");
+
+    // The generator's settings
+    private record Options(URI url, double rate, int seconds, int warmupSeconds, Path scenario, boolean poisson,
+                           Duration timeout, int maxInFlight, String histogram, long seed,
+                           List<ServerExecutor.Mode> modes, List<String> serverArgs) {
+    }
+
+    /**
+     * Runs the load test against {@code --url}, or against a bundled server for each mode.
+     *
+     * @param args see the class description
+     * @throws Exception if the scenario cannot be read or a server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        List<Scenario> scenarios = options.scenario() != null
+                ? Scenario.read(options.scenario()) : List.of(Scenario.get("/"));
+        System.out.printf(Locale.ROOT, "%,.0f requests/s (%s arrivals) for %d s after %d s of warm-up, "
+                        + "%d scenario(s)%n", options.rate(), options.poisson() ? "poisson" : "uniform",
+                options.seconds(), options.warmupSeconds(), scenarios.size());
+        if (options.url() != null) {
+            System.out.println("== " + options.url());
+            run(options, scenarios, options.url(), options.warmupSeconds(), options.seconds(),
+                    Path.of(options.histogram() + ".hgrm"));
+            return;
+        }
+        // A first, unreported round lets the JIT compile the generator's own code, which would otherwise
+        // make whichever mode runs first look far slower than it is; each server still gets its own warm-up
+        if (options.warmupSeconds() > 0) {
+            runAgainstServer(options, scenarios, options.modes().get(0), 0, options.warmupSeconds(), null);
+        }
+        for (ServerExecutor.Mode mode : options.modes()) {
+            runAgainstServer(options, scenarios, mode, options.warmupSeconds(), options.seconds(),
+                    Path.of(options.histogram() + "-" + mode + ".hgrm"));
+        }
+    }
+
+    // Starts the bundled server in the given mode, runs against it and stops it
+    private static void runAgainstServer(Options options, List<Scenario> scenarios, ServerExecutor.Mode mode,
+                                         int warmupSeconds, int seconds, Path histogram) throws Exception {
+        Process server = startServer(mode, options.serverArgs());
+        try {
+            URI url = awaitUrl(server);
+            System.out.println(histogram != null ? "== " + mode + " at " + url : "(warming up the generator)");
+            run(options, scenarios, url, warmupSeconds, seconds, histogram);
+        } finally {
+            server.destroy();
+            server.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Sends requests to {@code url} at the configured rate, then prints the report and writes the histogram,
+     * unless {@code histogram} is null.
+     */
+    private static void run(Options options, List<Scenario> scenarios, URI url, int warmupSeconds, int seconds,
+                            Path histogram) throws Exception {
+        Scenario[] mix = mix(scenarios, options.seed());
+        List<HttpRequest> requests = new ArrayList<>();
+        for (Scenario scenario : mix) requests.add(scenario.request(url, options.timeout()));
+        LoadReport report = new LoadReport(scenarios);
+        AtomicInteger inFlight = new AtomicInteger();
+        Random arrivals = new Random(options.seed());
+        double meanGapNanos = 1e9 / options.rate();
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(options.timeout())
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+            double due = start;
+            for (long i = 0; due < end; i++) {
+                long dueNanos = (long) due;
+                long wait;
+                while ((wait = dueNanos - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                boolean measured = dueNanos >= measureFrom;
+                int index = (int) (i % mix.length);
+                if (inFlight.get() >= options.maxInFlight()) {
+                    // Never sent, so it would have waited at least until it timed out
+                    if (measured) report.skipped(mix[index], options.timeout().toNanos());
+                } else {
+                    inFlight.incrementAndGet();
+                    senders.execute(() -> send(client, requests.get(index), mix[index], dueNanos,
+                            measured ? report : null, inFlight));
+                }
+                due += options.poisson() ? -Math.log(1 - arrivals.nextDouble()) * meanGapNanos : meanGapNanos;
+            }
+            // The requests still in flight finish or time out before the report
+            long drainDeadline = System.nanoTime() + options.timeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+            while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) Thread.sleep(10);
+            client.shutdownNow();
+        }
+        if (histogram == null) return;
+        report.print(System.out, seconds);
+        report.writeHistogram(histogram);
+        System.out.println("Histogram written to " + histogram.toAbsolutePath());
+    }
+
+    // Sends one request on its own virtual thread; report is null during the warm-up
+    private static void send(HttpClient client, HttpRequest request, Scenario scenario, long dueNanos,
+                             LoadReport report, AtomicInteger inFlight) {
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            long done = System.nanoTime();
+            if (report != null) report.response(scenario, response.statusCode(), done - dueNanos, done - sent);
+        } catch (HttpTimeoutException e) {
+            if (report != null) report.failure(scenario, true, System.nanoTime() - dueNanos);
+        } catch (IOException e) {
+            if (report != null) report.failure(scenario, false, System.nanoTime() - dueNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // The scenarios repeated by weight, in a shuffled but reproducible order
+    private static Scenario[] mix(List<Scenario> scenarios, long seed) {
+        List<Scenario> mix = new ArrayList<>();
+        for (Scenario scenario : scenarios) mix.addAll(Collections.nCopies(scenario.weight(), scenario));
+        Collections.shuffle(mix, new Random(seed));
+        return mix.toArray(Scenario[]::new);
+    }
+
+    // The bundled server in its own JVM, on a free port
+    private static Process startServer(ServerExecutor.Mode mode, List<String> serverArgs) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                SimpleWebServerDemo.class.getName(),
+                "--port=0", "--report=0", "--backlog=4096", "--mode=" + mode));
+        command.addAll(serverArgs);
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    // Reads the server's output up to its URL, then keeps draining it so that it never blocks on a full pipe
+    private static URI awaitUrl(Process server) throws IOException {
+        BufferedReader output = new BufferedReader(new InputStreamReader(server.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            Matcher matcher = SERVER_URL.matcher(line);
+            if (matcher.find()) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        output.transferTo(Writer.nullWriter());
+                    } catch (IOException ignored) {
+                        // The server was stopped
+                    }
+                });
+                return URI.create(matcher.group(1) + "/");
+            }
+        }
+        throw new IOException("The server exited before it was ready");
+    }
+
+    private static Options parse(String[] args) {
+        URI url = null;
+        double rate = 500;
+        int seconds = 10, warmup = 3, maxInFlight = 10_000;
+        long seed = 42;
+        Path scenario = null;
+        boolean poisson = false;
+        Duration timeout = Duration.ofSeconds(10);
+        String histogram = "loadgen";
+        List<ServerExecutor.Mode> modes = List.of(ServerExecutor.Mode.values());
+        List<String> serverArgs = List.of();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--url=")) url = URI.create(value.endsWith("/") ? value : value + "/");
+            else if (arg.startsWith("--rate=")) rate = Double.parseDouble(value);
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(value);
+            else if (arg.startsWith("--warmup=")) warmup = Integer.parseInt(value);
+            else if (arg.startsWith("--scenario=")) scenario = Path.of(value);
+            else if (arg.startsWith("--arrivals=")) poisson = switch (value.toLowerCase(Locale.ROOT)) {
+                case "uniform" -> false;
+                case "poisson" -> true;
+                default -> throw new IllegalArgumentException("Arrivals must be uniform or poisson: " + value);
+            };
+            else if (arg.startsWith("--timeout=")) timeout = Duration.ofSeconds(Long.parseLong(value));
+            else if (arg.startsWith("--max-in-flight=")) maxInFlight = Integer.parseInt(value);
+            else if (arg.startsWith("--histogram=")) histogram = value;
+            else if (arg.startsWith("--seed=")) seed = Long.parseLong(value);
+            else if (arg.startsWith("--modes=")) modes = Arrays.stream(value.split(","))
+                    .map(mode -> ServerExecutor.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT))).toList();
+            else if (arg.startsWith("--server-args=")) serverArgs = value.isBlank() ? List.of()
+                    : List.of(value.trim().split("\\s+"));
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+        if (rate <= 0 || seconds < 1 || warmup < 0 || maxInFlight < 1 || timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid rate, seconds, warm-up, in-flight limit or timeout");
+        }
+        return new Options(url, rate, seconds, warmup, scenario, poisson, timeout, maxInFlight, histogram, seed,
+                modes, serverArgs);
+    }
+}
@@ -0,0 +1,182 @@
+package modernfeatures.java18.load;
+
+import modernfeatures.java18.server.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The results of one load test run, per scenario: two latency histograms, status codes and errors.
+ * <p>
+ * The latency is measured from the time the request was <em>due</em> by the schedule, not from when it
+ * was actually sent. A generator that falls behind, or that only sends the next request when the last one
+ * returned, leaves out exactly the requests that would have waited, so a server that stalls for a second
+ * looks like one slow request instead of a second's worth of them: coordinated omission. The service time,
+ * from the actual send, is kept next to it; where the two differ, the generator itself was late.
+ * <p>
+ * For the same reason, requests without a response are not left out of the latency: a timeout counts
+ * with the time from when it was due until it timed out, and a request that was never sent because too
+ * many were in flight counts with the timeout. A server that stalls thus shows in the percentiles even
+ * when its requests time out. Other errors, such as refused connections, are only counted.
+ */
+public final class LoadReport {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 0.9999};
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Entry all = new Entry();
+    private final LongAdder skipped = new LongAdder();
+
+    // The results of one scenario, or of all of them
+    private static final class Entry {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final AtomicLongArray statuses = new AtomicLongArray(1000);
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(int status, long latencyNanos, long serviceNanos) {
+            latency.record(latencyNanos);
+            serviceTime.record(serviceNanos);
+            statuses.incrementAndGet(status >= 0 && status < statuses.length() ? status : 0);
+        }
+    }
+
+    /**
+     * Creates an empty report for the given scenarios.
+     *
+     * @param scenarios the scenarios, each reported on its own row
+     */
+    public LoadReport(List<Scenario> scenarios) {
+        for (Scenario scenario : scenarios) entries.putIfAbsent(scenario.name(), new Entry());
+    }
+
+    /**
+     * Records a response.
+     *
+     * @param scenario the scenario of the request
+     * @param status the response status code
+     * @param latencyNanos the time from when the request was due to the complete response
+     * @param serviceNanos the time from when the request was sent to the complete response
+     */
+    public void response(Scenario scenario, int status, long latencyNanos, long serviceNanos) {
+        entries.get(scenario.name()).record(status, latencyNanos, serviceNanos);
+        all.record(status, latencyNanos, serviceNanos);
+    }
+
+    /**
+     * Records a request that got no response.
+     *
+     * @param scenario the scenario of the request
+     * @param timedOut whether it timed out, rather than failed otherwise
+     * @param latencyNanos the time from when the request was due to the failure; recorded as its latency
+     *                     if it timed out
+     */
+    public void failure(Scenario scenario, boolean timedOut, long latencyNanos) {
+        for (Entry entry : List.of(entries.get(scenario.name()), all)) {
+            (timedOut ? entry.timeouts : entry.errors).increment();
+            if (timedOut) entry.latency.record(latencyNanos);
+        }
+    }
+
+    /**
+     * Records a request that was due but not sent, because too many were in flight.
+     *
+     * @param scenario the scenario of the request
+     * @param latencyNanos the latency to record for it, at least the request timeout
+     */
+    public void skipped(Scenario scenario, long latencyNanos) {
+        skipped.increment();
+        entries.get(scenario.name()).latency.record(latencyNanos);
+        all.latency.record(latencyNanos);
+    }
+
+    /**
+     * Returns the latency histogram of all requests, measured from the intended send time, including the
+     * ones that timed out or were not sent.
+     */
+    public LatencyHistogram latency() {
+        return all.latency;
+    }
+
+    /**
+     * Prints the summary and one percentile row per scenario, latency first (including timeouts and
+     * requests not sent), then service time (responses only).
+     *
+     * @param out where to print
+     * @param elapsedSeconds the length of the measured run, for the rates
+     */
+    public void print(PrintStream out, double elapsedSeconds) {
+        LatencyHistogram.Snapshot total = all.latency.snapshot();
+        LatencyHistogram.Snapshot service = all.serviceTime.snapshot();
+        out.printf(Locale.ROOT, "%,d responses (%,.1f/s), %,d timeouts, %,d errors, %,d not sent; status %s%n",
+                service.count(), service.count() / elapsedSeconds, all.timeouts.sum(), all.errors.sum(),
+                skipped.sum(), statuses(all));
+        out.printf("%-16s %-8s %9s %9s %9s %9s %9s %9s %9s%n", "scenario", "ms", "count",
+                "p50", "p90", "p99", "p99.9", "p99.99", "max");
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            row(out, entry.getKey(), "latency", entry.getValue().latency.snapshot());
+            row(out, "", "service", entry.getValue().serviceTime.snapshot());
+        }
+        if (entries.size() > 1) {
+            row(out, "all", "latency", total);
+            row(out, "", "service", service);
+        }
+    }
+
+    /**
+     * Writes the latency distribution of all requests in HdrHistogram's percentile format ({@code .hgrm}),
+     * with values in milliseconds, which HdrHistogram's plotter and most tools around it read.
+     *
+     * @param file the file to write
+     * @throws IOException if it cannot be written
+     */
+    public void writeHistogram(Path file) throws IOException {
+        LatencyHistogram.Snapshot latency = all.latency.snapshot();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(String.format("%12s %14s %10s %14s%n%n",
+                    "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+            // Five steps per halving of the remaining tail, as HdrHistogram prints it
+            long count = latency.count();
+            for (int step = 0; count > 0; step++) {
+                double quantile = 1 - Math.pow(0.5, step / 5.0);
+                long value = latency.valueAtQuantile(quantile);
+                out.write(String.format(Locale.ROOT, "%12.3f %2.12f %10d %14.2f%n", value / 1e6,
+                        quantile, latency.countAtOrBelow(value), 1 / (1 - quantile)));
+                if (value >= latency.max() || 1 / (1 - quantile) > 10 * (double) count) break;
+            }
+            out.write(String.format(Locale.ROOT, "%12.3f %2.12f %10d%n", latency.max() / 1e6, 1.0, count));
+            out.write(String.format(Locale.ROOT, "#[Mean    = %12.3f, Max         = %12.3f]%n",
+                    count > 0 ? latency.sum() / 1e6 / count : 0.0, latency.max() / 1e6));
+            out.write(String.format(Locale.ROOT, "#[Total count    = %12d]%n", count));
+        }
+    }
+
+    private static void row(PrintStream out, String name, String kind, LatencyHistogram.Snapshot snapshot) {
+        StringBuilder line = new StringBuilder(String.format("%-16s %-8s %,9d", name, kind, snapshot.count()));
+        for (double quantile : QUANTILES) {
+            line.append(String.format(Locale.ROOT, " %9.2f", snapshot.valueAtQuantile(quantile) / 1e6));
+        }
+        line.append(String.format(Locale.ROOT, " %9.2f", snapshot.max() / 1e6));
+        out.println(line);
+    }
+
+    private static String statuses(Entry entry) {
+        StringBuilder out = new StringBuilder();
+        for (int code = 0; code < entry.statuses.length(); code++) {
+            long count = entry.statuses.get(code);
+            if (count > 0) out.append(out.isEmpty() ? "" : ", ").append(code).append(": ").append(count);
+        }
+        return out.isEmpty() ? "-" : out.toString();
+    }
+}
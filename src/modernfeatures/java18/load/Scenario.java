@@ -0,0 +1,242 @@
+package modernfeatures.java18.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One kind of request in a load test, read from a line of a JSONL scenario file:
+ * <pre>
+ * {"name": "home", "path": "/", "weight": 8, "headers": {"Accept-Encoding": "gzip"}}
+ * {"name": "slow", "path": "/slow?ms=20", "weight": 1}
+ * {"name": "upload", "method": "POST", "path": "/echo", "body": "hello", "headers": {"Content-Type": "text/plain"}}
+ * </pre>
+ * {@code path} is resolved against the target URL (an absolute URL is used as is), {@code method}
+ * defaults to {@code GET} and {@code weight}, the share of requests of this kind, to 1. Blank lines and
+ * lines starting with {@code #} are skipped.
+ *
+ * @param name the name shown in the report
+ * @param method the HTTP method
+ * @param path the path and query, or an absolute URL
+ * @param headers request headers
+ * @param body the request body, or null for none
+ * @param weight the relative share of requests
+ */
+public record Scenario(String name, String method, String path, Map<String, String> headers, String body,
+                       int weight) {
+
+    /**
+     * Validates the scenario.
+     */
+    public Scenario {
+        if (name == null || name.isBlank() || path == null || weight < 1) {
+            throw new IllegalArgumentException("A scenario needs a name, a path and a positive weight: "
+                    + name + ", " + path + ", " + weight);
+        }
+        method = method == null ? "GET" : method;
+        headers = Map.copyOf(headers);
+    }
+
+    /**
+     * Creates a {@code GET} scenario with weight 1.
+     *
+     * @param path the path and query
+     * @return the scenario, named after the path
+     */
+    public static Scenario get(String path) {
+        return new Scenario(path, "GET", path, Map.of(), null, 1);
+    }
+
+    /**
+     * Reads the scenarios of a JSONL file, one JSON object per line.
+     *
+     * @param file the file
+     * @return the scenarios in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is not a valid scenario, with its line number
+     */
+    public static List<Scenario> read(Path file) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                scenarios.add(parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("No scenarios in " + file);
+        }
+        return scenarios;
+    }
+
+    /**
+     * Parses one scenario line.
+     *
+     * @param json a JSON object with the fields described above
+     * @return the scenario
+     * @throws IllegalArgumentException if the line is not valid
+     */
+    public static Scenario parse(String json) {
+        Map<String, Object> fields = new JsonLine(json).object();
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (fields.get("headers") instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> headers.put((String) key, String.valueOf(value)));
+        } else if (fields.containsKey("headers")) {
+            throw new IllegalArgumentException("headers must be an object");
+        }
+        String path = string(fields, "path");
+        Object weight = fields.getOrDefault("weight", 1.0);
+        if (!(weight instanceof Double number) || number != Math.rint(number)) {
+            throw new IllegalArgumentException("weight must be a whole number: " + weight);
+        }
+        return new Scenario(fields.containsKey("name") ? string(fields, "name") : path, string(fields, "method"),
+                path, headers, string(fields, "body"), number.intValue());
+    }
+
+    /**
+     * Builds the request for this scenario.
+     *
+     * @param base the target URL the path is resolved against
+     * @param timeout the request timeout
+     * @return the request
+     */
+    public HttpRequest request(URI base, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(timeout)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static String string(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string: " + value);
+        }
+        return (String) value;
+    }
+
+    // A parser for the JSON on one line: objects, strings, numbers (as Double), booleans and null
+    private static final class JsonLine {
+        private final String text;
+        private int position;
+
+        JsonLine(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> object = parseObject();
+            skipSpace();
+            if (position < text.length()) throw error("Unexpected text after the object");
+            return object;
+        }
+
+        private Object value() {
+            skipSpace();
+            if (position >= text.length()) throw error("Value expected");
+            char c = text.charAt(position);
+            if (c == '{') return parseObject();
+            if (c == '"') return parseString();
+            if (text.startsWith("true", position)) return literal("true", Boolean.TRUE);
+            if (text.startsWith("false", position)) return literal("false", Boolean.FALSE);
+            if (text.startsWith("null", position)) return literal("null", null);
+            int start = position;
+            while (position < text.length() && "+-.0123456789eE".indexOf(text.charAt(position)) >= 0) position++;
+            try {
+                return Double.parseDouble(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Value expected");
+            }
+        }
+
+        private Map<String, Object> parseObject() {
+            expect('{');
+            Map<String, Object> object = new LinkedHashMap<>();
+            skipSpace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipSpace();
+                String key = parseString();
+                skipSpace();
+                expect(':');
+                object.put(key, value());
+                skipSpace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (position >= text.length()) break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> out.append('\n');
+                    case 't' -> out.append('\t');
+                    case 'r' -> out.append('\r');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) throw error("Bad \\u escape");
+                        out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> out.append(escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Object literal(String word, Object value) {
+            position += word.length();
+            return value;
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("'" + c + "' expected");
+            position++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
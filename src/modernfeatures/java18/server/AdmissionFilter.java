@@ -0,0 +1,238 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Filter} that sheds load before it reaches the handlers, so that under overload the requests
+ * that are served stay fast instead of all of them becoming slow:
+ * <ul>
+ *   <li>at most {@link ConcurrencyLimit#limit()} requests run the rest of the chain at once; the limit is
+ *       fixed or adapts to the handlers' latency;</li>
+ *   <li>a request over the limit waits at most {@code maxQueueWait} for a free slot and is then answered
+ *       with {@code 503 Service Unavailable} and {@code Retry-After}; new requests may take a slot ahead of
+ *       waiting ones, which keeps the latency of most served requests low;</li>
+ *   <li>optionally, each client address gets a token bucket of {@code clientRate} requests per second with
+ *       bursts of {@code clientBurst}; a client over its rate is answered with {@code 429 Too Many Requests}
+ *       and a {@code Retry-After} of when its next token is due.</li>
+ * </ul>
+ * Rejections cost a few microseconds and no handler, so a server at two or three times its capacity keeps
+ * serving about its capacity with the latency of a server at capacity, while the excess is told to back
+ * off. Waiting requests park their thread, which is cheap with virtual threads, so use the filter with
+ * the {@code VIRTUAL} execution model: a {@code BOUNDED} pool queues requests before any filter sees them.
+ */
+public final class AdmissionFilter extends Filter {
+
+    /**
+     * Admission activity since the filter was created.
+     *
+     * @param admitted requests let through to the handlers
+     * @param overloaded requests answered with 503 after waiting {@code maxQueueWait}
+     * @param rateLimited requests answered with 429 because their client was over its rate
+     * @param inFlight requests in the handlers now
+     * @param waiting requests waiting for a slot now
+     * @param limit the current concurrency limit
+     */
+    public record Stats(long admitted, long overloaded, long rateLimited, int inFlight, int waiting, int limit) {
+    }
+
+    // Once there are this many clients, the buckets of those quiet long enough to be full again are dropped
+    private static final int MAX_CLIENTS = 10_000;
+
+    private final ConcurrencyLimit limit;
+    private final double clientRate;
+    private final long maxQueueWaitNanos;
+    private final long retryAfterSeconds;
+    private final long tokenIntervalNanos;
+    private final long burstNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // Samples are skipped while another thread updates the limit, rather than waited for
+    private final ReentrantLock sampleLock = new ReentrantLock();
+    private final ConcurrentHashMap<InetAddress, AtomicLong> clients = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * Creates a filter without per-client rate limits.
+     *
+     * @param limit the concurrency limit
+     * @param maxQueueWait how long a request may wait for a slot before it is rejected
+     */
+    public AdmissionFilter(ConcurrencyLimit limit, Duration maxQueueWait) {
+        this(limit, maxQueueWait, 0, 0);
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param limit the concurrency limit
+     * @param maxQueueWait how long a request may wait for a slot before it is rejected
+     * @param clientRate requests per second allowed per client address, or 0 for no rate limit
+     * @param clientBurst requests a client may send at once after being quiet
+     */
+    public AdmissionFilter(ConcurrencyLimit limit, Duration maxQueueWait, double clientRate, int clientBurst) {
+        if (maxQueueWait.isNegative() || clientRate < 0 || (clientRate > 0 && clientBurst < 1)) {
+            throw new IllegalArgumentException("Invalid queue wait, client rate or burst: "
+                    + maxQueueWait + ", " + clientRate + ", " + clientBurst);
+        }
+        this.limit = limit;
+        this.clientRate = clientRate;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.retryAfterSeconds = Math.max(1, maxQueueWait.toSeconds());
+        this.tokenIntervalNanos = clientRate > 0 ? Math.max(1, (long) (1e9 / clientRate)) : 0;
+        this.burstNanos = tokenIntervalNanos * clientBurst;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long now = System.nanoTime();
+        if (tokenIntervalNanos > 0) {
+            long waitNanos = takeToken(exchange.getRemoteAddress(), now);
+            if (waitNanos > 0) {
+                rateLimited.increment();
+                reject(exchange, 429, (waitNanos + 999_999_999) / 1_000_000_000);
+                return;
+            }
+        }
+        if (!acquire(now)) {
+            overloaded.increment();
+            reject(exchange, 503, retryAfterSeconds);
+            return;
+        }
+        admitted.increment();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            int running = inFlight.get();
+            release();
+            if (sampleLock.tryLock()) {
+                try {
+                    limit.onSample(System.nanoTime() - start, running);
+                } finally {
+                    sampleLock.unlock();
+                }
+                // A raised limit lets waiting requests in without waiting for another release
+                if (waiting.get() > 0 && inFlight.get() < limit.limit()) signal(true);
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Admission control: " + limit;
+    }
+
+    /** Returns the concurrency limit. */
+    public ConcurrencyLimit limit() {
+        return limit;
+    }
+
+    /** Returns the admission counts so far and the current state. */
+    public Stats stats() {
+        return new Stats(admitted.sum(), overloaded.sum(), rateLimited.sum(), inFlight.get(), waiting.get(),
+                limit.limit());
+    }
+
+    @Override
+    public String toString() {
+        Stats stats = stats();
+        return String.format("admission %s%s: %,d admitted, %,d rejected overloaded, %,d rate limited, "
+                        + "%d in flight, %d waiting", limit, clientRate > 0 ? ", " + clientRate + "/s per client" : "",
+                stats.admitted(), stats.overloaded(), stats.rateLimited(), stats.inFlight(), stats.waiting());
+    }
+
+    // Takes a slot now if one is free, else waits for one until the deadline
+    private boolean acquire(long now) {
+        if (tryAcquire()) return true;
+        if (maxQueueWaitNanos == 0) return false;
+        long remaining = now + maxQueueWaitNanos - System.nanoTime();
+        lock.lock();
+        try {
+            // Counted before trying again, so a release either sees this waiter or frees the slot taken below
+            waiting.incrementAndGet();
+            try {
+                while (!tryAcquire()) {
+                    if (remaining <= 0) return false;
+                    remaining = released.awaitNanos(remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.limit()) return false;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        if (waiting.get() > 0) signal(false);
+    }
+
+    private void signal(boolean all) {
+        lock.lock();
+        try {
+            if (all) released.signalAll();
+            else released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A token bucket kept as the time its next token is due (GCRA): returns 0 if a token was taken, else
+    // the nanoseconds until one will be available
+    private long takeToken(InetSocketAddress remote, long now) {
+        InetAddress address = remote != null ? remote.getAddress() : null;
+        if (address == null) return 0;
+        AtomicLong due = clients.get(address);
+        if (due == null) {
+            if (clients.size() >= MAX_CLIENTS) {
+                clients.values().removeIf(bucket -> bucket.get() <= now - burstNanos);
+            }
+            due = clients.computeIfAbsent(address, key -> new AtomicLong(now - burstNanos));
+        }
+        while (true) {
+            long current = due.get();
+            long next = Math.max(current, now - burstNanos) + tokenIntervalNanos;
+            if (next > now) return next - now;
+            if (due.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    private static void reject(HttpExchange exchange, int status, long retryAfterSeconds) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(Math.max(1, retryAfterSeconds)));
+            StaticFiles.sendError(exchange, status, status == 429 ? "Too many requests" : "Server overloaded");
+        }
+    }
+}
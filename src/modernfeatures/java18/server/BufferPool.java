@@ -0,0 +1,48 @@
+package modernfeatures.java18.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of equally sized direct {@link ByteBuffer}s, shared by the event loops and handler threads of
+ * {@link NioHttpServer}.
+ * <p>
+ * Direct buffers are expensive to allocate and are freed only by the garbage collector, but the socket
+ * reads and writes from them without an extra copy. Connections borrow a buffer only while they have
+ * bytes in flight, so idle keep-alive connections hold none. At most {@code maxPooled} free buffers are
+ * kept; buffers returned beyond that are left to the garbage collector.
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /** Returns a cleared buffer, from the pool if one is free. */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /** Returns a buffer to the pool; the caller must not use it afterwards. */
+    void release(ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,79 @@
+package modernfeatures.java18.server;
+
+/**
+ * A single byte range of an HTTP {@code Range: bytes=...} request (RFC 9110, 14.1.2).
+ * <p>
+ * {@link #parse} resolves the three forms against the file size: {@code bytes=100-199} (bytes 100 to 199),
+ * {@code bytes=100-} (from 100 to the end) and {@code bytes=-500} (the last 500 bytes). A range that
+ * starts beyond the end of the file is returned empty, to be answered with
+ * {@code 416 Range Not Satisfiable}.
+ *
+ * @param first the first byte, inclusive
+ * @param last the last byte, inclusive; {@code first - 1} for an empty range
+ */
+public record ByteRange(long first, long last) {
+
+    /**
+     * Validates the bounds.
+     */
+    public ByteRange {
+        if (first < 0 || last < first - 1) {
+            throw new IllegalArgumentException("Invalid range: " + first + "-" + last);
+        }
+    }
+
+    /**
+     * Parses a {@code Range} header for a file of {@code size} bytes.
+     *
+     * @param header the header value, may be null
+     * @param size the file size
+     * @return the range, an empty range if it cannot be satisfied, or null if the whole file should be
+     *         sent: no header, another unit, a malformed value, or several ranges (which a server may ignore)
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) return null;
+        try {
+            String start = spec.substring(0, dash).trim();
+            String end = spec.substring(dash + 1).trim();
+            if (start.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(end);
+                if (suffix < 0) return null;
+                return suffix == 0 || size == 0 ? empty() : new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long first = Long.parseLong(start);
+            long last = end.isEmpty() ? Long.MAX_VALUE : Long.parseLong(end);
+            if (first < 0 || last < first) return null;
+            return first >= size ? empty() : new ByteRange(first, Math.min(last, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Returns the number of bytes in the range. */
+    public long length() {
+        return last - first + 1;
+    }
+
+    /** Returns true if the range cannot be satisfied. */
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+
+    /**
+     * Returns the {@code Content-Range} header value for this range.
+     *
+     * @param size the file size
+     * @return {@code bytes first-last/size}, or {@code bytes *}{@code /size} for an empty range
+     */
+    public String contentRange(long size) {
+        return isEmpty() ? "bytes */" + size : "bytes " + first + "-" + last + "/" + size;
+    }
+
+    private static ByteRange empty() {
+        return new ByteRange(0, -1);
+    }
+}
@@ -0,0 +1,339 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A static file {@link HttpHandler} that serves hot files from memory, a replacement for
+ * {@code SimpleFileServer.createFileHandler}, which reads the file from disk on every request.
+ * <ul>
+ *   <li>Files up to {@code maxFileBytes} are loaded once into a least-recently-used cache bounded to
+ *       {@code maxCacheBytes}. Larger files are sent by a {@link ZeroCopyFileHandler}, with
+ *       {@code Range} support.</li>
+ *   <li>Compressible types (text, JavaScript, JSON, XML, SVG) are gzipped once at load time and kept
+ *       next to the original when that is smaller, so {@code Accept-Encoding: gzip} costs no CPU per
+ *       request.</li>
+ *   <li>Every response carries an {@code ETag} (a CRC32C of the content, with {@code -gz} appended for the
+ *       gzip variant) and {@code Last-Modified};
+ *       {@code If-None-Match} and {@code If-Modified-Since} are answered with {@code 304 Not Modified}.</li>
+ *   <li>A {@link WatchService} on the root directory and its subdirectories drops cache entries when
+ *       their files change or disappear, so the cache never serves stale content for long.</li>
+ * </ul>
+ * Only {@code GET} and {@code HEAD} are supported. Paths are resolved inside the root directory; anything
+ * escaping it is answered with 404. Directories are served by their {@code index.html}. Close the handler
+ * to stop watching.
+ */
+public class CachingFileHandler implements HttpHandler, AutoCloseable {
+
+    /**
+     * Cache activity since the handler was created.
+     *
+     * @param hits requests served from the cache
+     * @param misses requests that loaded a file into the cache
+     * @param uncached requests for files too large to cache, sent from a memory mapping
+     * @param notModified requests answered with 304
+     * @param gzipped responses sent gzip-encoded
+     * @param invalidations cache entries dropped because their file changed
+     * @param evictions cache entries dropped to stay within the size bound
+     * @param cachedFiles the number of files in the cache now
+     * @param cachedBytes the bytes held by the cache now, both variants counted
+     */
+    public record Stats(long hits, long misses, long uncached, long notModified, long gzipped,
+                        long invalidations, long evictions, int cachedFiles, long cachedBytes) {
+    }
+
+    // A file as loaded: its content, the gzip variant (or null) and the validators
+    private record CachedFile(byte[] identity, byte[] gzip, String etag, Instant lastModified, String contentType) {
+        long bytes() {
+            return identity.length + (gzip != null ? gzip.length : 0);
+        }
+
+        // A content coding is a different representation, so it needs its own strong validator
+        String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    private final Path root;
+    private final long maxCacheBytes;
+    private final long maxFileBytes;
+    private final ZeroCopyFileHandler largeFiles;
+    private final WatchService watcher;
+    private final Thread watchThread;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Path, CachedFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // Incremented by every invalidation, so a load that raced with a change is not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncached = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder gzipped = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a handler for {@code root} and starts watching it.
+     *
+     * @param root the directory to serve
+     * @param maxCacheBytes the maximum bytes the cache holds
+     * @throws IOException if the directory cannot be watched
+     */
+    public CachingFileHandler(Path root, long maxCacheBytes) throws IOException {
+        if (maxCacheBytes <= 0) {
+            throw new IllegalArgumentException("maxCacheBytes must be positive: " + maxCacheBytes);
+        }
+        this.root = root.toAbsolutePath().normalize();
+        if (!Files.isDirectory(this.root)) {
+            throw new IllegalArgumentException("Not a directory: " + this.root);
+        }
+        this.maxCacheBytes = maxCacheBytes;
+        // One file may take at most an eighth of the cache, so a single big download cannot flush it
+        this.maxFileBytes = Math.max(1, maxCacheBytes / 8);
+        this.largeFiles = new ZeroCopyFileHandler(this.root);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        try (Stream<Path> directories = Files.walk(this.root)) {
+            for (Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                register(directory);
+            }
+        }
+        this.watchThread = Thread.ofPlatform().daemon().name("file-cache-watcher").start(this::watch);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (StaticFiles.rejectMethod(exchange)) return;
+            Path file = StaticFiles.resolve(root, exchange);
+            if (file == null) {
+                StaticFiles.sendError(exchange, 404, "Not found");
+                return;
+            }
+            CachedFile cached = lookup(file);
+            if (cached == null) {
+                largeFiles.serve(exchange, file);
+                return;
+            }
+            Headers headers = exchange.getResponseHeaders();
+            boolean gzip = cached.gzip() != null && acceptsGzip(exchange.getRequestHeaders());
+            headers.set("ETag", gzip ? cached.gzipEtag() : cached.etag());
+            headers.set("Last-Modified", StaticFiles.httpDate(cached.lastModified()));
+            headers.set("Vary", "Accept-Encoding");
+            if (StaticFiles.notModified(exchange.getRequestHeaders(), cached.etag(),
+                    cached.gzip() != null ? cached.gzipEtag() : null, cached.lastModified())) {
+                notModified.increment();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = cached.identity();
+            if (gzip) {
+                body = cached.gzip();
+                headers.set("Content-Encoding", "gzip");
+                gzipped.increment();
+            }
+            headers.set("Content-Type", cached.contentType());
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                headers.set("Content-Length", String.valueOf(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Returns the cache activity so far.
+     *
+     * @return a snapshot of the counters
+     */
+    public Stats stats() {
+        synchronized (cache) {
+            return new Stats(hits.sum(), misses.sum(), uncached.sum(), notModified.sum(), gzipped.sum(),
+                    invalidations.sum(), evictions.sum(), cache.size(), cachedBytes);
+        }
+    }
+
+    /**
+     * Stops watching the directory; the handler keeps serving, without invalidation.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        watchThread.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        Stats s = stats();
+        return String.format("file cache: %d hits, %d misses, %d uncached, %d not modified, %d gzipped, "
+                        + "%d invalidated, %d evicted, %d files / %,d bytes", s.hits(), s.misses(), s.uncached(),
+                s.notModified(), s.gzipped(), s.invalidations(), s.evictions(), s.cachedFiles(), s.cachedBytes());
+    }
+
+    // Returns the cached file, loading it on a miss, or null if it is too large to cache
+    private CachedFile lookup(Path file) throws IOException {
+        long loadGeneration;
+        synchronized (cache) {
+            CachedFile cached = cache.get(file);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+        // Loading and compressing happen outside the lock; two concurrent misses may both load
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() > maxFileBytes) {
+            uncached.increment();
+            return null;
+        }
+        CachedFile loaded = load(file, attributes);
+        misses.increment();
+        synchronized (cache) {
+            if (generation == loadGeneration) {
+                CachedFile previous = cache.put(file, loaded);
+                if (previous != null) cachedBytes -= previous.bytes();
+                cachedBytes += loaded.bytes();
+                evict();
+            }
+        }
+        return loaded;
+    }
+
+    private CachedFile load(Path file, BasicFileAttributes attributes) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        String contentType = StaticFiles.contentType(file);
+        byte[] gzip = null;
+        if (compressible(contentType)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 3 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(content);
+            }
+            // Tiny or already dense files can grow when gzipped
+            if (buffer.size() < content.length) gzip = buffer.toByteArray();
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Long.toHexString(content.length) + "\"";
+        // HTTP dates have second precision, so compare them at that precision
+        Instant lastModified = attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
+        return new CachedFile(content, gzip, etag, lastModified, contentType);
+    }
+
+    // Drops least recently used entries until the cache fits its bound
+    private void evict() {
+        Iterator<CachedFile> eldest = cache.values().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    // gzip listed in Accept-Encoding, and not with q=0
+    private static boolean acceptsGzip(Headers request) {
+        String accept = request.getFirst("Accept-Encoding");
+        if (accept == null) return false;
+        for (String coding : accept.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip") || parts[0].trim().equals("*")) {
+                return !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"));
+            }
+        }
+        return false;
+    }
+
+    private static boolean compressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/json")
+                || contentType.startsWith("application/javascript") || contentType.contains("xml");
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    // Runs on the watcher thread until close(): drops entries whose file (or directory) changed. Nothing but
+    // close() may end it, or the cache would silently serve stale files from then on
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return; // close() was called
+            }
+            try {
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        invalidate(root);
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            register(changed);
+                        } catch (IOException e) {
+                            // The directory is already gone again; its deletion invalidates below it
+                        }
+                    }
+                    invalidate(changed);
+                }
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Whatever went wrong with this event, the cache may now be stale
+                invalidate(root);
+            } finally {
+                key.reset();
+            }
+        }
+    }
+
+    // Drops the entry for a file, or all entries below a directory
+    private void invalidate(Path changed) {
+        largeFiles.invalidate(changed);
+        synchronized (cache) {
+            generation++;
+            Iterator<Map.Entry<Path, CachedFile>> entries = cache.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Path, CachedFile> entry = entries.next();
+                if (entry.getKey().startsWith(changed)) {
+                    cachedBytes -= entry.getValue().bytes();
+                    entries.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+}
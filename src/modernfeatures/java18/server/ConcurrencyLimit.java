@@ -0,0 +1,208 @@
+package modernfeatures.java18.server;
+
+/**
+ * How many requests {@link AdmissionFilter} lets into the handlers at once, either fixed or adapted to
+ * the latency the handlers show, in one of three algorithms:
+ * <ul>
+ *   <li>{@link Algorithm#FIXED}: a constant limit, the right choice when the capacity is known.</li>
+ *   <li>{@link Algorithm#VEGAS}: TCP Vegas applied to requests. The lowest latency seen is taken as the
+ *       latency without queueing; {@code limit * (1 - minimum / latency)} estimates how many requests
+ *       are queued somewhere inside the server. Few queued: the limit grows; many: it shrinks.</li>
+ *   <li>{@link Algorithm#GRADIENT}: compares a short-term average of the latency with a baseline, the
+ *       lowest latency seen while the limit was briefly dropped to 1 (every 2,000 samples, for 10), as
+ *       Envoy's adaptive concurrency filter does. While the average stays within 1.5 times the baseline the
+ *       limit grows by its square root; above, it is scaled down by their ratio (at most halved).</li>
+ * </ul>
+ * The adaptive limits only grow while at least half of the limit is in use, so a quiet period does not
+ * inflate them, and they stay between 1 and {@code max}. Samples come from {@link #onSample}, one thread
+ * at a time.
+ */
+public abstract class ConcurrencyLimit {
+
+    /** The limit algorithm. */
+    public enum Algorithm {
+        /** A constant limit. */
+        FIXED,
+        /** TCP Vegas: the limit follows the estimated number of queued requests. */
+        VEGAS,
+        /** The limit follows the ratio of the baseline latency to the current one. */
+        GRADIENT
+    }
+
+    private final Algorithm algorithm;
+    final int max;
+    // Kept as a double so that small adjustments add up; read without a lock by acquiring threads
+    volatile double limit;
+
+    private ConcurrencyLimit(Algorithm algorithm, int initial, int max) {
+        if (initial < 1 || max < initial) {
+            throw new IllegalArgumentException("Need 1 <= initial <= max: " + initial + ", " + max);
+        }
+        this.algorithm = algorithm;
+        this.limit = initial;
+        this.max = max;
+    }
+
+    /**
+     * Creates a limit with the given algorithm.
+     *
+     * @param algorithm the algorithm
+     * @param initial the limit to start with, the constant one for {@code FIXED}
+     * @param max the highest limit an adaptive algorithm may reach
+     * @return the limit
+     */
+    public static ConcurrencyLimit of(Algorithm algorithm, int initial, int max) {
+        return switch (algorithm) {
+            case FIXED -> fixed(initial);
+            case VEGAS -> vegas(initial, max);
+            case GRADIENT -> gradient(initial, max);
+        };
+    }
+
+    /**
+     * Creates a constant limit.
+     *
+     * @param limit the number of requests allowed at once
+     * @return the limit
+     */
+    public static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit(Algorithm.FIXED, limit, limit) {
+            @Override
+            void update(long latencyNanos, int inFlight) {
+            }
+        };
+    }
+
+    /**
+     * Creates a TCP Vegas limit.
+     *
+     * @param initial the limit to start with
+     * @param max the highest limit
+     * @return the limit
+     */
+    public static ConcurrencyLimit vegas(int initial, int max) {
+        return new Vegas(initial, max);
+    }
+
+    /**
+     * Creates a gradient limit.
+     *
+     * @param initial the limit to start with
+     * @param max the highest limit
+     * @return the limit
+     */
+    public static ConcurrencyLimit gradient(int initial, int max) {
+        return new Gradient(initial, max);
+    }
+
+    /** Returns the algorithm. */
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    /** Returns the current limit, at least 1. */
+    public int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * Adjusts the limit to a finished request.
+     *
+     * @param latencyNanos how long the handler took
+     * @param inFlight the number of requests in the handlers when it finished, itself included
+     */
+    public void onSample(long latencyNanos, int inFlight) {
+        if (latencyNanos > 0) update(latencyNanos, inFlight);
+    }
+
+    abstract void update(long latencyNanos, int inFlight);
+
+    void setLimit(double newLimit) {
+        limit = Math.max(1, Math.min(max, newLimit));
+    }
+
+    @Override
+    public String toString() {
+        if (max == Integer.MAX_VALUE && algorithm == Algorithm.FIXED) return "unlimited";
+        return algorithm + "(" + limit() + (algorithm == Algorithm.FIXED ? "" : ", max " + max) + ")";
+    }
+
+    private static final class Vegas extends ConcurrencyLimit {
+        // The minimum is forgotten now and then, so that a lasting change in the handlers is learnt
+        private static final int PROBE_SAMPLES = 1000;
+
+        private long minLatency;
+        private int samples;
+
+        Vegas(int initial, int max) {
+            super(Algorithm.VEGAS, initial, max);
+        }
+
+        @Override
+        void update(long latencyNanos, int inFlight) {
+            if (++samples % PROBE_SAMPLES == 0) minLatency = 0;
+            if (minLatency == 0 || latencyNanos < minLatency) {
+                minLatency = latencyNanos;
+                return;
+            }
+            double current = limit;
+            double step = Math.max(1, Math.log10(current));
+            double queued = current * (1 - (double) minLatency / latencyNanos);
+            if (queued <= step) {
+                if (inFlight * 2 >= current) setLimit(current + 3 * step);
+            } else if (queued < 3 * step) {
+                if (inFlight * 2 >= current) setLimit(current + step);
+            } else if (queued > 6 * step) {
+                setLimit(current - step);
+            }
+        }
+    }
+
+    private static final class Gradient extends ConcurrencyLimit {
+        private static final double SHORT_WINDOW = 10;
+        // Latency may rise this much over the baseline before the limit shrinks
+        private static final double TOLERANCE = 1.5;
+        private static final double SMOOTHING = 0.2;
+        private static final int PROBE_INTERVAL = 2000;
+        private static final int PROBE_SAMPLES = 10;
+
+        private double shortLatency;
+        private long baseline;
+        private int sinceProbe;
+        // While probing, the limit is 1 and the lowest latency seen becomes the new baseline
+        private int probing;
+        private long probeMin;
+        private double beforeProbe;
+
+        Gradient(int initial, int max) {
+            super(Algorithm.GRADIENT, initial, max);
+        }
+
+        @Override
+        void update(long latencyNanos, int inFlight) {
+            if (probing > 0) {
+                probeMin = Math.min(probeMin, latencyNanos);
+                if (--probing == 0) {
+                    baseline = probeMin;
+                    shortLatency = probeMin;
+                    setLimit(beforeProbe);
+                }
+                return;
+            }
+            if (baseline == 0 || ++sinceProbe >= PROBE_INTERVAL) {
+                sinceProbe = 0;
+                probing = PROBE_SAMPLES;
+                probeMin = Long.MAX_VALUE;
+                beforeProbe = limit;
+                setLimit(1);
+                return;
+            }
+            shortLatency += (latencyNanos - shortLatency) / SHORT_WINDOW;
+            double current = limit;
+            if (inFlight * 2 < current) return;
+            double gradient = Math.max(0.5, Math.min(1, TOLERANCE * baseline / shortLatency));
+            double target = current * gradient + Math.sqrt(current);
+            setLimit(current * (1 - SMOOTHING) + target * SMOOTHING);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route request metrics for {@code HttpServer} contexts, served in the Prometheus text format.
+ * <p>
+ * {@link #instrument} puts a {@link Filter} in front of a context's handler that records, under the
+ * context's path as the {@code route} label:
+ * <ul>
+ *   <li>{@code http_request_duration_seconds}: a histogram of the time from the filter to the handler's
+ *       return, kept in a {@link LatencyHistogram} and exported with fixed {@code le} buckets;</li>
+ *   <li>{@code http_requests_total}: completed requests by status code, where a request that failed
+ *       before sending a status counts as 500;</li>
+ *   <li>{@code http_response_bytes_total}: response body bytes sent;</li>
+ *   <li>{@code http_requests_in_flight}: requests inside the handler right now.</li>
+ * </ul>
+ * Recording uses only atomic increments on counters created with the route, so it takes no locks and
+ * allocates nothing. On {@link NioHttpServer} the exchange counts its own body bytes; on the JDK's server
+ * the response stream is wrapped in a counting stream, the one object the filter creates per request.
+ * The metrics object is itself the handler for the scrape endpoint, for example
+ * {@code server.createContext("/metrics", metrics)}.
+ */
+public class HttpMetrics implements HttpHandler {
+
+    // The exported histogram buckets in seconds, from 100 µs to 10 s
+    private static final String[] BUCKET_SECONDS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25",
+            "0.5", "1", "2.5", "5", "10"};
+    private static final long[] BUCKET_NANOS = Arrays.stream(BUCKET_SECONDS)
+            .mapToLong(seconds -> new BigDecimal(seconds).movePointRight(9).longValueExact()).toArray();
+
+    private final Map<String, Route> routes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Records the requests of {@code context} under its path; call it once per context, before the server
+     * starts, so the metrics filter runs before any other.
+     *
+     * @param context the context to measure
+     * @return the context
+     */
+    public HttpContext instrument(HttpContext context) {
+        context.getFilters().add(0, filter(context.getPath()));
+        return context;
+    }
+
+    /**
+     * Returns the filter that records requests under {@code route}, for servers that put filters together
+     * themselves. Every call for the same route returns the same filter.
+     *
+     * @param route the value of the {@code route} label
+     * @return the filter
+     */
+    public Filter filter(String route) {
+        return routes.computeIfAbsent(route, Route::new);
+    }
+
+    /**
+     * Returns the latency histogram of a route, or null if the route is unknown.
+     *
+     * @param route the route, as given to {@link #filter}
+     * @return the histogram
+     */
+    public LatencyHistogram latency(String route) {
+        Route metrics = routes.get(route);
+        return metrics != null ? metrics.latency : null;
+    }
+
+    /** Serves the metrics in the Prometheus text format. */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (StaticFiles.rejectMethod(exchange)) return;
+            byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format, routes in path order.
+     *
+     * @return the exposition, one sample per line
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        family(out, "http_requests_in_flight", "gauge", "Requests being handled.");
+        for (Route route : routes.values()) {
+            sample(out, "http_requests_in_flight", route.label, null, route.inFlight.sum());
+        }
+        family(out, "http_requests_total", "counter", "Completed requests by status code.");
+        for (Route route : routes.values()) {
+            for (int code = 0; code < route.statuses.length(); code++) {
+                long count = route.statuses.get(code);
+                if (count > 0) sample(out, "http_requests_total", route.label, "code=\"" + code + "\"", count);
+            }
+        }
+        family(out, "http_response_bytes_total", "counter", "Response body bytes sent.");
+        for (Route route : routes.values()) {
+            sample(out, "http_response_bytes_total", route.label, null, route.bytes.sum());
+        }
+        family(out, "http_request_duration_seconds", "histogram", "Time spent handling requests.");
+        for (Route route : routes.values()) {
+            LatencyHistogram.Snapshot latency = route.latency.snapshot();
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                sample(out, "http_request_duration_seconds_bucket", route.label, "le=\"" + BUCKET_SECONDS[i] + "\"",
+                        latency.countAtOrBelow(BUCKET_NANOS[i]));
+            }
+            sample(out, "http_request_duration_seconds_bucket", route.label, "le=\"+Inf\"", latency.count());
+            out.append("http_request_duration_seconds_sum{").append(route.label).append("} ")
+                    .append(latency.sum() / 1e9).append('\n');
+            sample(out, "http_request_duration_seconds_count", route.label, null, latency.count());
+        }
+        return out.toString();
+    }
+
+    /** Returns one line per route with its request count and latency percentiles. */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (Route route : routes.values()) {
+            if (!out.isEmpty()) out.append('\n');
+            out.append(route.path).append(": ").append(route.latency)
+                    .append(", in flight ").append(route.inFlight.sum());
+        }
+        return out.toString();
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String extraLabel, long value) {
+        out.append(name).append('{').append(label);
+        if (extraLabel != null) out.append(',').append(extraLabel);
+        out.append("} ").append(value).append('\n');
+    }
+
+    // The counters of one route, and the filter that updates them
+    private static final class Route extends Filter {
+        final String path;
+        final String label;
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Indexed by status code; sendResponseHeaders only takes codes up to 999
+        final AtomicLongArray statuses = new AtomicLongArray(1000);
+        final LongAdder bytes = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+
+        Route(String path) {
+            this.path = path;
+            this.label = "route=\"" + path.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long start = System.nanoTime();
+            inFlight.increment();
+            CountingStream counter = null;
+            if (!(exchange instanceof NioExchange)) {
+                counter = new CountingStream(exchange.getResponseBody());
+                exchange.setStreams(null, counter);
+            }
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                latency.record(System.nanoTime() - start);
+                inFlight.decrement();
+                int code = exchange.getResponseCode();
+                statuses.incrementAndGet(code >= 100 && code < statuses.length() ? code : 500);
+                bytes.add(counter != null ? counter.count : ((NioExchange) exchange).responseBytes());
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Records latency, status codes and bytes for " + path;
+        }
+    }
+
+    // Counts the bytes written to the JDK server's response stream
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package modernfeatures.java18.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Every power of two is split into {@value #SUB_BUCKETS} equal buckets, so a bucket is never wider than
+ * 1/{@value #SUB_BUCKETS} (about 3%) of the values it holds, from 1 ns up to {@link #MAX_VALUE} (about 18
+ * minutes); longer values are counted as {@code MAX_VALUE}. {@link #record} finds the bucket with a
+ * leading-zero count and a shift and increments it atomically: no locks and no allocation, so any number
+ * of threads can record at once. Readers take a {@link #snapshot()}, which is consistent in itself but may
+ * miss values recorded while it is being taken.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** The largest value tracked exactly, 2<sup>40</sup>-1 ns. */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts one value.
+     *
+     * @param nanos the duration; negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        // Reading first keeps the common case, no new maximum, free of contended writes
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /** Returns a copy of the current counts. */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    // Values below 2 * SUB_BUCKETS get a bucket each; above, the bits after the leading one pick the bucket
+    static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    // The smallest value counted in the bucket
+    static long lowestValue(int index) {
+        int shift = Math.max(0, (index >>> SUB_BUCKET_BITS) - 1);
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    // The largest value counted in the bucket
+    static long highestValue(int index) {
+        return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : MAX_VALUE;
+    }
+
+    /**
+     * The state of a {@link LatencyHistogram} at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /** Returns the number of values. */
+        public long count() {
+            return count;
+        }
+
+        /** Returns the sum of the values in nanoseconds. */
+        public long sum() {
+            return sum;
+        }
+
+        /** Returns the largest value, or 0 if there are none. */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Returns the value below which the given fraction of the values fall, as the top of its bucket
+         * (but never above {@link #max()}), so it overstates the exact quantile by at most 3%.
+         *
+         * @param quantile between 0 and 1, for example 0.99
+         * @return the value in nanoseconds, or 0 if there are none
+         */
+        public long valueAtQuantile(double quantile) {
+            if (quantile < 0 || quantile > 1) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+            }
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), max);
+            }
+            return max;
+        }
+
+        /**
+         * Returns how many values were at most {@code nanos}. Values in the bucket containing {@code nanos}
+         * are only included when the whole bucket is, so values within 3% below it may be left out.
+         *
+         * @param nanos the upper bound, inclusive
+         * @return the number of values known to be at most {@code nanos}
+         */
+        public long countAtOrBelow(long nanos) {
+            if (nanos >= MAX_VALUE) return count;
+            if (nanos < 0) return 0;
+            int end = index(nanos + 1);
+            long total = 0;
+            for (int i = 0; i < end; i++) total += counts[i];
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%,d p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms", count,
+                    valueAtQuantile(0.5) / 1e6, valueAtQuantile(0.99) / 1e6, valueAtQuantile(0.999) / 1e6,
+                    max / 1e6);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One client connection of {@link NioHttpServer}.
+ * <p>
+ * Reading and parsing happen on the event loop. Once a request is complete, reading stops until its
+ * exchange is closed, so responses go out in request order; requests the client already pipelined stay
+ * in the input buffer and are parsed as soon as the previous exchange is done, without waiting for the
+ * socket. The handler thread writes the response itself and, when the socket buffer is full, parks until
+ * the loop sees the socket writable again.
+ */
+final class NioConnection {
+
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_REQUEST_BODY = 1 << 20;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // A request that cannot be served, answered with the status and the connection closed
+    private static final class BadRequest extends Exception {
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    private final NioHttpServer server;
+    final NioEventLoop loop;
+    final SocketChannel channel;
+    final InetSocketAddress localAddress;
+    final InetSocketAddress remoteAddress;
+    SelectionKey key;
+
+    // Event loop state: buffered input (in write mode), how much of it was searched for the end of the
+    // head, a request waiting for the rest of its body, and whether an exchange is running
+    private ByteBuffer input;
+    private int scanned;
+    private NioExchange pending;
+    private int bodyRead;
+    private boolean handling;
+    private long lastActive;
+
+    private final Semaphore writable = new Semaphore(0);
+    private volatile boolean closed;
+
+    NioConnection(NioHttpServer server, NioEventLoop loop, SocketChannel channel) throws IOException {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.lastActive = loop.now();
+        server.connectionOpened();
+    }
+
+    BufferPool buffers() {
+        return server.buffers();
+    }
+
+    void onReadable() {
+        if (input == null) input = server.buffers().acquire();
+        int read;
+        try {
+            read = channel.read(input);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastActive = loop.now();
+        processInput();
+    }
+
+    void onWritable() {
+        key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        writable.release();
+    }
+
+    /**
+     * Parks the calling handler thread until the socket can take more bytes.
+     *
+     * @throws IOException if the connection was closed meanwhile
+     */
+    void awaitWritable() throws IOException {
+        if (closed) throw new ClosedChannelException();
+        try {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+        } catch (CancelledKeyException e) {
+            throw new ClosedChannelException();
+        }
+        loop.wakeup();
+        try {
+            writable.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to write");
+        }
+        if (closed) throw new ClosedChannelException();
+    }
+
+    /** Called by the handler thread once the response is complete. */
+    void exchangeDone(boolean keepAlive) {
+        server.exchangeFinished();
+        loop.execute(() -> {
+            handling = false;
+            if (closed) return;
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            lastActive = loop.now();
+            processInput();
+        });
+    }
+
+    boolean idleLongerThan(long now) {
+        return !handling && now - lastActive > IDLE_TIMEOUT_NANOS;
+    }
+
+    /** Closes the connection; on the event loop thread only. */
+    void close() {
+        if (closed) return;
+        closed = true;
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        if (input != null) {
+            server.buffers().release(input);
+            input = null;
+        }
+        // A handler parked in awaitWritable() wakes up and fails
+        writable.release();
+        server.connectionClosed();
+    }
+
+    // Dispatches the next complete request in the buffer, if any, else waits for more input
+    private void processInput() {
+        try {
+            while (!handling && input != null) {
+                if (pending != null) {
+                    if (!readBody()) break;
+                    NioExchange exchange = pending;
+                    pending = null;
+                    dispatch(exchange);
+                    break;
+                }
+                int headEnd = findHeadEnd();
+                if (headEnd < 0) {
+                    if (!input.hasRemaining()) throw new BadRequest(431, "Request header fields too large");
+                    break;
+                }
+                NioExchange exchange = parseHead(headEnd);
+                consume(headEnd);
+                long length = exchange.requestLength();
+                if (length > 0) {
+                    pending = exchange;
+                    bodyRead = 0;
+                    if ("100-continue".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Expect"))
+                            && input.position() < length) {
+                        channel.write(ByteBuffer.wrap(CONTINUE));
+                    }
+                    continue;
+                }
+                dispatch(exchange);
+            }
+        } catch (BadRequest e) {
+            reject(e.status, e.getMessage());
+            return;
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (closed || handling) return;
+        if (input != null && input.position() == 0) {
+            server.buffers().release(input);
+            input = null;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void dispatch(NioExchange exchange) {
+        handling = true;
+        key.interestOps(0);
+        server.dispatch(exchange);
+    }
+
+    // The index just past the empty line that ends the head, or -1 if the head is not complete yet; lines may
+    // end with a bare LF as well as CR LF, as RFC 9112 allows
+    private int findHeadEnd() {
+        int end = input.position();
+        for (int i = Math.max(0, scanned - 2); i + 1 < end; i++) {
+            if (input.get(i) != '\n') continue;
+            if (input.get(i + 1) == '\n') return i + 2;
+            if (i + 2 < end && input.get(i + 1) == '\r' && input.get(i + 2) == '\n') return i + 3;
+        }
+        scanned = end;
+        return -1;
+    }
+
+    private NioExchange parseHead(int headEnd) throws BadRequest {
+        byte[] head = loop.scratch;
+        input.get(0, head, 0, headEnd);
+        int newline = indexOf(head, (byte) '\n', 0, headEnd);
+        int requestEnd = lineEnd(head, 0, newline);
+        int space1 = indexOf(head, (byte) ' ', 0, requestEnd);
+        int space2 = space1 < 0 ? -1 : indexOf(head, (byte) ' ', space1 + 1, requestEnd);
+        if (space1 <= 0 || space2 < 0) throw new BadRequest(400, "Malformed request line");
+        String method = token(head, 0, space1);
+        String target = new String(head, space1 + 1, space2 - space1 - 1, StandardCharsets.ISO_8859_1);
+        String protocol = token(head, space2 + 1, requestEnd);
+        if (!protocol.startsWith("HTTP/1.")) throw new BadRequest(505, "HTTP version not supported");
+
+        Headers headers = new Headers();
+        for (int start = newline + 1; ; ) {
+            newline = indexOf(head, (byte) '\n', start, headEnd);
+            int end = lineEnd(head, start, newline);
+            if (end == start) break;
+            int colon = indexOf(head, (byte) ':', start, end);
+            if (colon <= start) throw new BadRequest(400, "Malformed header line");
+            int valueStart = colon + 1;
+            int valueEnd = end;
+            while (valueStart < valueEnd && (head[valueStart] == ' ' || head[valueStart] == '\t')) valueStart++;
+            while (valueEnd > valueStart && (head[valueEnd - 1] == ' ' || head[valueEnd - 1] == '\t')) valueEnd--;
+            headers.add(new String(head, start, colon - start, StandardCharsets.ISO_8859_1),
+                    new String(head, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1));
+            start = newline + 1;
+        }
+
+        if (headers.containsKey("Transfer-Encoding")) {
+            throw new BadRequest(501, "Chunked request bodies are not supported");
+        }
+        long length = 0;
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                throw new BadRequest(400, "Invalid Content-Length");
+            }
+            if (length < 0) throw new BadRequest(400, "Invalid Content-Length");
+            if (length > MAX_REQUEST_BODY) throw new BadRequest(413, "Request body too large");
+        }
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            throw new BadRequest(400, "Malformed request target");
+        }
+        NioContext context = server.findContext(uri.getPath());
+        if (context == null) throw new BadRequest(404, "No context found for request");
+
+        String connection = headers.getFirst("Connection");
+        boolean keepAlive = protocol.equals("HTTP/1.1")
+                ? connection == null || !connection.toLowerCase(Locale.ROOT).contains("close")
+                : connection != null && connection.toLowerCase(Locale.ROOT).contains("keep-alive");
+        return new NioExchange(this, context, method, uri, protocol, headers, length, keepAlive);
+    }
+
+    // Copies body bytes from the input buffer into the pending request; true when it is complete
+    private boolean readBody() {
+        byte[] body = pending.requestBody();
+        int n = Math.min(input.position(), body.length - bodyRead);
+        input.get(0, body, bodyRead, n);
+        bodyRead += n;
+        consume(n);
+        return bodyRead == body.length;
+    }
+
+    // Drops the first n bytes of input
+    private void consume(int n) {
+        input.flip().position(n);
+        input.compact();
+        scanned = 0;
+    }
+
+    private void reject(int status, String message) {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.US_ASCII);
+        String head = "HTTP/1.1 " + status + " " + NioExchange.reason(status) + "\r\nContent-Type: text/plain\r\n"
+                + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+        try {
+            channel.write(new ByteBuffer[]{StandardCharsets.US_ASCII.encode(head), ByteBuffer.wrap(body)});
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        close();
+    }
+
+    // Common methods and versions without a new String
+    private static String token(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (length == 3 && bytes[from] == 'G' && bytes[from + 1] == 'E' && bytes[from + 2] == 'T') return "GET";
+        if (length == 8 && bytes[from + 7] == '1' && startsWithHttp1(bytes, from)) return "HTTP/1.1";
+        if (length == 8 && bytes[from + 7] == '0' && startsWithHttp1(bytes, from)) return "HTTP/1.0";
+        return new String(bytes, from, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean startsWithHttp1(byte[] bytes, int from) {
+        return bytes[from] == 'H' && bytes[from + 1] == 'T' && bytes[from + 2] == 'T' && bytes[from + 3] == 'P'
+                && bytes[from + 4] == '/' && bytes[from + 5] == '1' && bytes[from + 6] == '.';
+    }
+
+    // The end of the line from start to the LF at newline, without a CR before the LF
+    private static int lineEnd(byte[] bytes, int start, int newline) {
+        return newline > start && bytes[newline - 1] == '\r' ? newline - 1 : newline;
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) return i;
+        }
+        return -1;
+    }
+}
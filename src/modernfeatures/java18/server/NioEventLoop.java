@@ -0,0 +1,150 @@
+package modernfeatures.java18.server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One event loop of {@link NioHttpServer}: a platform thread running a {@link Selector} over its share
+ * of the connections. It reads and parses requests and wakes handler threads waiting for a full socket
+ * to drain; handlers write their responses themselves. Other threads hand it work with {@link #execute}.
+ */
+final class NioEventLoop implements Runnable {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final NioHttpServer server;
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Set while a wakeup is pending, so a burst of tasks costs one wakeup system call
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile boolean running = true;
+    private long now = System.nanoTime();
+
+    // Request heads are copied here once, then parsed from the array
+    final byte[] scratch;
+
+    NioEventLoop(NioHttpServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.scratch = new byte[server.buffers().bufferSize()];
+        // Not a daemon, like HttpServer's dispatcher: a started server keeps the JVM alive until stop()
+        this.thread = Thread.ofPlatform().name("nio-http-loop-" + index).unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /** The time of the current batch of events, from {@link System#nanoTime()}. */
+    long now() {
+        return now;
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Runs {@code task} on this loop's thread. */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) wakeup();
+    }
+
+    void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    /** Takes over an accepted connection. */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                NioConnection connection = new NioConnection(server, this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already broken
+                }
+            }
+        });
+    }
+
+    /** Stops the loop and closes its connections. */
+    void shutdown() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+        try {
+            while (running) {
+                selector.select(1000);
+                wakeupPending.set(false);
+                now = System.nanoTime();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                if (now - nextSweep >= 0) {
+                    closeIdle();
+                    nextSweep = now + SWEEP_INTERVAL_NANOS;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection connection) connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (!key.isValid()) return;
+            if (key.isAcceptable()) {
+                server.accept();
+                return;
+            }
+            NioConnection connection = (NioConnection) key.attachment();
+            if (key.isWritable()) connection.onWritable();
+            if (key.isValid() && key.isReadable()) connection.onReadable();
+        } catch (CancelledKeyException e) {
+            // Closed by another task in this batch
+        }
+    }
+
+    // Keep-alive connections without a request for the idle timeout are closed, like HttpServer does
+    private void closeIdle() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection && connection.idleLongerThan(now)) {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One request and its response on a {@link NioConnection}, behind the {@link HttpExchange} API.
+ * <p>
+ * The status line and headers are encoded into a pooled direct buffer, and so are small bodies, so a
+ * short response leaves in a single write. The handler thread writes to the socket itself. Besides the
+ * stream API, {@link ZeroCopyFileHandler} uses {@link #write(ByteBuffer)} and {@link #transferFrom} to send
+ * file content without copying it into the heap.
+ */
+final class NioExchange extends HttpExchange {
+
+    // The Date header, formatted once per second for all exchanges
+    private static volatile String date = "";
+    private static volatile long dateSecond;
+
+    private enum Body { NONE, FIXED, CHUNKED, UNTIL_CLOSE }
+
+    private final NioConnection connection;
+    private final NioContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final byte[] requestBody;
+    private boolean keepAlive;
+    private Map<String, Object> attributes;
+    private InputStream requestStream;
+    private OutputStream responseStream;
+    private HttpPrincipal principal;
+
+    // Response state, touched by the handler thread only
+    private int responseCode = -1;
+    private ByteBuffer output;
+    private Body body = Body.NONE;
+    private long remaining;
+    private long bodyBytes;
+    private boolean closed;
+
+    NioExchange(NioConnection connection, NioContext context, String method, URI uri, String protocol,
+                Headers requestHeaders, long requestLength, boolean keepAlive) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestLength > 0 ? new byte[(int) requestLength] : null;
+        this.keepAlive = keepAlive;
+        this.responseStream = new BodyStream();
+    }
+
+    long requestLength() {
+        return requestBody != null ? requestBody.length : 0;
+    }
+
+    // Filled in by the event loop before the exchange is dispatched
+    byte[] requestBody() {
+        return requestBody;
+    }
+
+    NioContext context() {
+        return context;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        if (requestStream == null) {
+            requestStream = requestBody != null ? new ByteArrayInputStream(requestBody) : InputStream.nullInputStream();
+        }
+        return requestStream;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseStream;
+    }
+
+    @Override
+    public void sendResponseHeaders(int code, long responseLength) throws IOException {
+        if (responseCode >= 0) {
+            throw new IOException("Headers already sent");
+        }
+        if (code < 100 || code > 999) {
+            throw new IllegalArgumentException("Invalid status code: " + code);
+        }
+        responseCode = code;
+        boolean noBody = method.equals("HEAD") || code == 204 || code == 304 || code < 200;
+        String length = null;
+        if (noBody) {
+            body = Body.NONE;
+        } else if (responseLength > 0) {
+            body = Body.FIXED;
+            remaining = responseLength;
+            length = Long.toString(responseLength);
+        } else if (responseLength == 0 && protocol.equals("HTTP/1.0")) {
+            // HTTP/1.0 has no chunked encoding: the body ends when the connection is closed
+            body = Body.UNTIL_CLOSE;
+            keepAlive = false;
+        } else if (responseLength == 0) {
+            body = Body.CHUNKED;
+        } else {
+            body = Body.NONE;
+            length = "0";
+        }
+
+        output = connection.buffers().acquire();
+        putAscii("HTTP/1.1 ");
+        putAscii(Integer.toString(code));
+        putAscii(" ");
+        putAscii(reason(code));
+        putAscii("\r\n");
+        if (!responseHeaders.containsKey("Date")) putHeader("Date", date());
+        if (length != null) putHeader("Content-Length", length);
+        if (body == Body.CHUNKED) putHeader("Transfer-Encoding", "chunked");
+        if (!keepAlive) putHeader("Connection", "close");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            if (length != null && header.getKey().equalsIgnoreCase("Content-Length")) continue;
+            for (String value : header.getValue()) putHeader(header.getKey(), value);
+        }
+        putAscii("\r\n");
+        // A response without a body goes out now; otherwise the head waits for the first body bytes
+        if (body == Body.NONE) flushOutput();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) attributes = new HashMap<>();
+        if (value == null) attributes.remove(name);
+        else attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) requestStream = i;
+        if (o != null) responseStream = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return principal;
+    }
+
+    // Set once the context's authenticator accepted the request
+    void setPrincipal(HttpPrincipal principal) {
+        this.principal = principal;
+    }
+
+    /**
+     * Ends the exchange: completes the response and returns the connection to its event loop. A response
+     * with fewer bytes than announced, or none at all, closes the connection.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (responseCode < 0) {
+                keepAlive = false;
+            } else {
+                if (body == Body.FIXED && remaining > 0) keepAlive = false;
+                if (body == Body.CHUNKED) putAscii("0\r\n\r\n");
+                flushOutput();
+            }
+        } catch (IOException e) {
+            keepAlive = false;
+        } finally {
+            if (output != null) connection.buffers().release(output);
+            output = null;
+            connection.exchangeDone(keepAlive);
+        }
+    }
+
+    /**
+     * Answers with 500 if nothing was sent yet; the connection is closed in any case.
+     */
+    void fail() {
+        keepAlive = false;
+        if (responseCode < 0) {
+            try {
+                responseHeaders.clear();
+                sendResponseHeaders(500, -1);
+            } catch (IOException ignored) {
+                // The connection is closed below
+            }
+        }
+    }
+
+    /**
+     * Writes {@code source} straight to the socket, after the buffered head.
+     *
+     * @param source bytes of a fixed-length body
+     * @throws IOException if the body would exceed its length or the connection fails
+     */
+    void write(ByteBuffer source) throws IOException {
+        checkBody(source.remaining());
+        output.flip();
+        ByteBuffer[] sources = {output, source};
+        while (source.hasRemaining()) {
+            if (connection.channel.write(sources) == 0) connection.awaitWritable();
+        }
+        output.clear();
+    }
+
+    /**
+     * Sends {@code count} bytes of {@code file} with {@link FileChannel#transferTo} to the socket, which
+     * the operating system can do without copying them into user space.
+     *
+     * @throws IOException if the body would exceed its length, the file ends early or the connection fails
+     */
+    void transferFrom(FileChannel file, long position, long count) throws IOException {
+        checkBody(count);
+        flushOutput();
+        long end = position + count;
+        while (position < end) {
+            long sent = file.transferTo(position, end - position, connection.channel);
+            if (sent > 0) {
+                position += sent;
+            } else if (position >= file.size()) {
+                throw new IOException("File shrank while being sent");
+            } else {
+                connection.awaitWritable();
+            }
+        }
+    }
+
+    /** Returns the number of response body bytes written so far, without chunk framing. */
+    long responseBytes() {
+        return bodyBytes;
+    }
+
+    static String reason(int code) {
+        return switch (code) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 413 -> "Content Too Large";
+            case 416 -> "Range Not Satisfiable";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 503 -> "Service Unavailable";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "";
+        };
+    }
+
+    private void checkBody(long length) throws IOException {
+        if (responseCode < 0) throw new IOException("sendResponseHeaders() not called");
+        if (closed) throw new IOException("Exchange closed");
+        if (body == Body.NONE) {
+            if (length > 0) throw new IOException("Response has no body");
+        } else if (body == Body.FIXED) {
+            if (length > remaining) throw new IOException("Too many bytes for Content-Length");
+            remaining -= length;
+        } else if (body == Body.CHUNKED && length > 0) {
+            throw new IOException("Direct writes need a fixed-length response");
+        }
+        bodyBytes += length;
+    }
+
+    private void putHeader(String name, String value) throws IOException {
+        putAscii(name);
+        putAscii(": ");
+        putAscii(value);
+        putAscii("\r\n");
+    }
+
+    private void putAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (!output.hasRemaining()) flushOutput();
+            output.put((byte) text.charAt(i));
+        }
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!output.hasRemaining()) flushOutput();
+            int n = Math.min(length, output.remaining());
+            output.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void flushOutput() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            if (connection.channel.write(output) == 0) connection.awaitWritable();
+        }
+        output.clear();
+    }
+
+    private static String date() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != dateSecond) {
+            date = StaticFiles.httpDate(Instant.ofEpochSecond(second));
+            dateSecond = second;
+        }
+        return date;
+    }
+
+    // The response body: fixed-length, chunked or until the connection closes, buffered in the pooled output buffer
+    private final class BodyStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return;
+            if (body == Body.CHUNKED) {
+                if (closed) throw new IOException("Exchange closed");
+                putAscii(Integer.toHexString(length));
+                putAscii("\r\n");
+                put(bytes, offset, length);
+                putAscii("\r\n");
+                bodyBytes += length;
+            } else {
+                checkBody(length);
+                put(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (output != null && output.position() > 0) flushOutput();
+        }
+
+        @Override
+        public void close() {
+            NioExchange.this.close();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An HTTP/1.1 server on {@link java.nio.channels.Selector} event loops, a drop-in alternative to
+ * {@code HttpServer.create()}.
+ * <p>
+ * It extends {@link HttpServer} and hands handlers an {@link com.sun.net.httpserver.HttpExchange}, so
+ * contexts, filters and handlers written for the JDK server, such as {@link CachingFileHandler},
+ * {@link ZeroCopyFileHandler} or {@code SimpleFileServer.createFileHandler}, run unchanged. What differs
+ * is underneath:
+ * <ul>
+ *   <li>a few event loop threads ({@code eventLoops}, typically one per core) each run a selector over
+ *       their share of the connections, instead of a single dispatcher thread;</li>
+ *   <li>reads and writes go through pooled direct buffers, and request heads are parsed straight from
+ *       the bytes, with no per-request streams or readers;</li>
+ *   <li>connections are kept alive (HTTP/1.1 by default, HTTP/1.0 on request) and pipelined requests
+ *       are answered in order from the buffered input;</li>
+ *   <li>a short response, head and body, leaves in one write; {@link ZeroCopyFileHandler} sends files
+ *       with {@code sendfile} or from mapped memory.</li>
+ * </ul>
+ * Handlers run on the executor from {@link #setExecutor}, by default a virtual thread per request, never
+ * on an event loop, so a blocking handler only parks its own thread. Request bodies are limited to 1 MiB
+ * and must have a {@code Content-Length}; HTTPS is not supported. A context's {@link Authenticator} runs
+ * after its filters and before its handler, as with the JDK server.
+ */
+public final class NioHttpServer extends HttpServer {
+
+    private static final System.Logger LOGGER = System.getLogger(NioHttpServer.class.getName());
+    private static final int BUFFER_SIZE = 32 * 1024;
+    private static final long ACCEPT_PAUSE_MILLIS = 100;
+    private static final long ACCEPT_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int eventLoops;
+    private final BufferPool buffers = new BufferPool(BUFFER_SIZE, 1024);
+    // Longest path first, so the first match is the most specific context
+    private volatile List<NioContext> contexts = List.of();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+
+    private ServerSocketChannel listener;
+    private SelectionKey acceptKey;
+    // Failed accepts since the last warning, and when the next warning may be logged; first loop only
+    private int acceptFailures;
+    private long nextAcceptWarning = System.nanoTime();
+    private Executor executor;
+    private ExecutorService defaultExecutor;
+    private NioEventLoop[] loops;
+    private int nextLoop;
+    private boolean started;
+
+    private NioHttpServer(int eventLoops) {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("Need at least one event loop: " + eventLoops);
+        }
+        this.eventLoops = eventLoops;
+    }
+
+    /**
+     * Creates a server, bound to {@code address} unless it is null.
+     *
+     * @param address the address to listen on, or null to {@link #bind} later
+     * @param backlog the TCP accept queue length, or 0 for the system default
+     * @param eventLoops the number of event loop threads
+     * @return the server, not started yet
+     * @throws IOException if the address cannot be bound
+     */
+    public static NioHttpServer create(InetSocketAddress address, int backlog, int eventLoops) throws IOException {
+        NioHttpServer server = new NioHttpServer(eventLoops);
+        if (address != null) server.bind(address, backlog);
+        return server;
+    }
+
+    @Override
+    public synchronized void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (listener != null) {
+            throw new BindException("Already bound");
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(address, backlog);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        listener = channel;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (listener == null || started) {
+            throw new IllegalStateException(started ? "Server already started" : "Server not bound");
+        }
+        if (executor == null) {
+            defaultExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            executor = defaultExecutor;
+        }
+        try {
+            loops = new NioEventLoop[eventLoops];
+            for (int i = 0; i < eventLoops; i++) {
+                loops[i] = new NioEventLoop(this, i);
+            }
+            acceptKey = listener.register(loops[0].selector(), SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (NioEventLoop loop : loops) {
+            loop.start();
+        }
+        started = true;
+    }
+
+    @Override
+    public synchronized void setExecutor(Executor executor) {
+        if (started) {
+            throw new IllegalStateException("Server already started");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized Executor getExecutor() {
+        return defaultExecutor != null ? null : executor;
+    }
+
+    /**
+     * Stops accepting connections, waits up to {@code delay} seconds for running exchanges to finish, then
+     * closes all connections and stops the event loops.
+     *
+     * @param delay the longest wait in seconds
+     */
+    @Override
+    public void stop(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay: " + delay);
+        }
+        NioEventLoop[] running;
+        synchronized (this) {
+            if (!started) return;
+            started = false;
+            running = loops;
+        }
+        try {
+            listener.close();
+        } catch (IOException ignored) {
+            // Stopping anyway
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+        try {
+            while (activeExchanges.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            for (NioEventLoop loop : running) {
+                loop.shutdown();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdownNow();
+            defaultExecutor = null;
+            executor = null;
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        return addContext(new NioContext(checkPath(path), handler, this));
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        return addContext(new NioContext(checkPath(path), null, this));
+    }
+
+    @Override
+    public synchronized void removeContext(String path) {
+        List<NioContext> remaining = new ArrayList<>(contexts);
+        if (!remaining.removeIf(context -> context.getPath().equals(path))) {
+            throw new IllegalArgumentException("No context for " + path);
+        }
+        contexts = List.copyOf(remaining);
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        if (context.getServer() != this) {
+            throw new IllegalArgumentException("Context belongs to another server");
+        }
+        removeContext(context.getPath());
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return listener != null ? (InetSocketAddress) listener.getLocalAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Returns the number of event loop threads. */
+    public int eventLoops() {
+        return eventLoops;
+    }
+
+    /** Returns the number of open connections. */
+    public int connections() {
+        return connections.get();
+    }
+
+    /** Returns the number of exchanges dispatched and not closed yet. */
+    public int activeExchanges() {
+        return activeExchanges.get();
+    }
+
+    @Override
+    public String toString() {
+        return "NIO(" + eventLoops + " loops): connections=" + connections() + ", exchanges=" + activeExchanges();
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    // The context with the longest path that prefixes the request path, like HttpServer's
+    NioContext findContext(String path) {
+        if (path == null) return null;
+        for (NioContext context : contexts) {
+            if (path.startsWith(context.getPath())) return context;
+        }
+        return null;
+    }
+
+    // Called on the first event loop when connections are waiting; deals them out round robin
+    void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = listener.accept();
+            } catch (IOException e) {
+                pauseAccepting(e);
+                return;
+            }
+            if (channel == null) return;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already broken
+                }
+                continue;
+            }
+            loops[nextLoop].register(channel);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    // Typically out of file descriptors (EMFILE): the pending connections stay queued, so the listener would be
+    // selected again at once and the loop would spin; stop selecting it for a moment instead, and warn at most
+    // once per interval
+    private void pauseAccepting(IOException e) {
+        acceptFailures++;
+        long now = System.nanoTime();
+        if (now - nextAcceptWarning >= 0) {
+            LOGGER.log(System.Logger.Level.WARNING, "Accept failed " + acceptFailures + " time(s), pausing for "
+                    + ACCEPT_PAUSE_MILLIS + " ms each: " + e);
+            acceptFailures = 0;
+            nextAcceptWarning = now + ACCEPT_WARNING_INTERVAL_NANOS;
+        }
+        SelectionKey key = acceptKey;
+        if (!key.isValid()) return;
+        key.interestOps(0);
+        NioEventLoop loop = loops[0];
+        CompletableFuture.delayedExecutor(ACCEPT_PAUSE_MILLIS, TimeUnit.MILLISECONDS, loop::execute).execute(() -> {
+            if (key.isValid()) key.interestOps(SelectionKey.OP_ACCEPT);
+        });
+    }
+
+    // Runs the context's filters and handler for a parsed request on the executor
+    void dispatch(NioExchange exchange) {
+        activeExchanges.incrementAndGet();
+        try {
+            executor.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            exchange.fail();
+            exchange.close();
+        }
+    }
+
+    private void handle(NioExchange exchange) {
+        try {
+            HttpHandler handler = exchange.context().getHandler();
+            if (handler == null) {
+                exchange.fail();
+                return;
+            }
+            new Filter.Chain(exchange.context().getFilters(), authenticated(handler, exchange))
+                    .doFilter(exchange);
+        } catch (Throwable t) {
+            LOGGER.log(System.Logger.Level.WARNING, "Handler failed for " + exchange.getRequestURI(), t);
+            exchange.fail();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Like the JDK server's authentication filter: the user filters run first, then the authenticator decides
+    // whether the handler sees the request or the client gets the authenticator's status
+    private static HttpHandler authenticated(HttpHandler handler, NioExchange nioExchange) {
+        Authenticator authenticator = nioExchange.context().getAuthenticator();
+        if (authenticator == null) return handler;
+        return exchange -> {
+            Authenticator.Result result = authenticator.authenticate(exchange);
+            if (result instanceof Authenticator.Success success) {
+                nioExchange.setPrincipal(success.getPrincipal());
+                handler.handle(exchange);
+            } else if (result instanceof Authenticator.Failure failure) {
+                exchange.sendResponseHeaders(failure.getResponseCode(), -1);
+            } else if (result instanceof Authenticator.Retry retry) {
+                exchange.sendResponseHeaders(retry.getResponseCode(), -1);
+            } else {
+                throw new IllegalStateException("Unknown authenticator result: " + result);
+            }
+        };
+    }
+
+    void exchangeFinished() {
+        activeExchanges.decrementAndGet();
+    }
+
+    void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    private synchronized HttpContext addContext(NioContext context) {
+        for (NioContext existing : contexts) {
+            if (existing.getPath().equals(context.getPath())) {
+                throw new IllegalArgumentException("Context already exists: " + context.getPath());
+            }
+        }
+        List<NioContext> updated = new ArrayList<>(contexts);
+        updated.add(context);
+        updated.sort(Comparator.comparingInt((NioContext c) -> c.getPath().length()).reversed());
+        contexts = List.copyOf(updated);
+        return context;
+    }
+
+    private static String checkPath(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Context path must start with /: " + path);
+        }
+        return path;
+    }
+}
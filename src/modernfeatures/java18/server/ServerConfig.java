@@ -0,0 +1,181 @@
+package modernfeatures.java18.server;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Settings of the demo web servers, read from {@code --name=value} arguments or system properties.
+ * <p>
+ * Every setting can be given as an argument ({@code --port=9090}) or as a system property
+ * ({@code -Dserver.port=9090}); the argument wins.
+ * <pre>
+ *   --port / server.port         port to listen on (default 8080, 0 for any free port)
+ *   --backlog / server.backlog   TCP accept queue length (default 0, the system default)
+ *   --root / server.root         directory with the files to serve (default ./public)
+ *   --mode / server.mode         VIRTUAL, BOUNDED or HYBRID (default VIRTUAL), see {@link ServerExecutor}
+ *   --limit / server.limit       threads for BOUNDED (default 4), concurrency for HYBRID (default 256)
+ *   --report / server.report     seconds between status lines on the console, 0 for none (default 5)
+ *   --cache / server.cache       bytes of files kept in memory, with K/M/G suffixes, 0 to read every
+ *                                request from disk (default 32M), see {@link CachingFileHandler}
+ *   --engine / server.engine     JDK (com.sun.net.httpserver) or NIO (default JDK), see {@link NioHttpServer}
+ *   --loops / server.loops       event loop threads of the NIO engine (default: one per processor)
+ *   --admission                  concurrency limit in front of the handlers: OFF, FIXED, VEGAS or GRADIENT
+ *                                (default OFF), see {@link AdmissionFilter}
+ *   --concurrency                the fixed limit, or the adaptive limit's start (default 64)
+ *   --max-concurrency            the highest adaptive limit (default 1000)
+ *   --queue-wait                 milliseconds a request may wait for the limit before 503 (default 100)
+ *   --client-rate                requests per second per client address before 429, 0 for none (default 0)
+ *   --client-burst               requests a quiet client may send at once (default 50)
+ * </pre>
+ * System properties take the same names, {@code -Dserver.queue-wait=50}.
+ *
+ * @param port the port to listen on
+ * @param backlog the TCP accept queue length, or 0 for the system default
+ * @param root the directory with the files to serve
+ * @param mode the execution model for requests
+ * @param limit the pool size or concurrency limit
+ * @param reportSeconds seconds between status lines, 0 for none
+ * @param cacheBytes the size of the file cache, 0 for none
+ * @param engine the server implementation
+ * @param eventLoops the event loop threads of the NIO engine
+ * @param admission the admission control settings
+ */
+public record ServerConfig(int port, int backlog, Path root, ServerExecutor.Mode mode, int limit, int reportSeconds,
+                           long cacheBytes, Engine engine, int eventLoops, Admission admission) {
+
+    /** The HTTP server implementation. */
+    public enum Engine {
+        /** The JDK's {@code com.sun.net.httpserver.HttpServer}. */
+        JDK,
+        /** {@link NioHttpServer}, on selector event loops. */
+        NIO
+    }
+
+    /**
+     * Admission control settings, see {@link AdmissionFilter}.
+     *
+     * @param algorithm the concurrency limit algorithm, or null for none
+     * @param concurrency the fixed limit, or where an adaptive one starts
+     * @param maxConcurrency the highest adaptive limit
+     * @param queueWaitMillis how long a request may wait for the limit
+     * @param clientRate requests per second per client address, 0 for no rate limit
+     * @param clientBurst requests a quiet client may send at once
+     */
+    public record Admission(ConcurrencyLimit.Algorithm algorithm, int concurrency, int maxConcurrency,
+                            long queueWaitMillis, double clientRate, int clientBurst) {
+
+        /** No admission control. */
+        public static final Admission OFF = new Admission(null, 64, 1000, 100, 0, 50);
+
+        /**
+         * Validates the settings.
+         */
+        public Admission {
+            if (concurrency < 1 || maxConcurrency < concurrency || queueWaitMillis < 0 || clientRate < 0
+                    || clientBurst < 1) {
+                throw new IllegalArgumentException("Invalid concurrency, maximum, queue wait, client rate or burst: "
+                        + concurrency + ", " + maxConcurrency + ", " + queueWaitMillis + ", " + clientRate
+                        + ", " + clientBurst);
+            }
+        }
+
+        /**
+         * Creates the filter for these settings.
+         *
+         * @return a new filter, or null if neither a concurrency limit nor a client rate is configured
+         */
+        public AdmissionFilter newFilter() {
+            if (algorithm == null && clientRate == 0) return null;
+            ConcurrencyLimit limit = algorithm != null
+                    ? ConcurrencyLimit.of(algorithm, concurrency, maxConcurrency)
+                    : ConcurrencyLimit.fixed(Integer.MAX_VALUE);
+            return new AdmissionFilter(limit, Duration.ofMillis(queueWaitMillis), clientRate, clientBurst);
+        }
+    }
+
+    /**
+     * Validates the settings.
+     */
+    public ServerConfig {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        if (backlog < 0 || limit < 1 || reportSeconds < 0 || cacheBytes < 0 || eventLoops < 1) {
+            throw new IllegalArgumentException("Invalid backlog, limit, report interval, cache size or loops: "
+                    + backlog + ", " + limit + ", " + reportSeconds + ", " + cacheBytes + ", " + eventLoops);
+        }
+        root = root.toAbsolutePath();
+        if (admission == null) admission = Admission.OFF;
+    }
+
+    /**
+     * Reads the settings from the arguments, then the system properties, then the defaults.
+     *
+     * @param args {@code --name=value} arguments; others are rejected
+     * @return the settings
+     * @throws IllegalArgumentException for an unknown argument or an invalid value
+     */
+    public static ServerConfig fromArgs(String... args) {
+        for (String arg : args) {
+            String name = arg.startsWith("--") && arg.indexOf('=') > 2 ? arg.substring(2, arg.indexOf('=')) : "";
+            if (!name.matches("port|backlog|root|mode|limit|report|cache|engine|loops|admission|concurrency"
+                    + "|max-concurrency|queue-wait|client-rate|client-burst")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        ServerExecutor.Mode mode = ServerExecutor.Mode.valueOf(
+                setting(args, "mode", "VIRTUAL").toUpperCase(Locale.ROOT));
+        String algorithm = setting(args, "admission", "OFF").toUpperCase(Locale.ROOT);
+        Admission admission = new Admission(
+                algorithm.equals("OFF") ? null : ConcurrencyLimit.Algorithm.valueOf(algorithm),
+                Integer.parseInt(setting(args, "concurrency", "64")),
+                Integer.parseInt(setting(args, "max-concurrency", "1000")),
+                Long.parseLong(setting(args, "queue-wait", "100")),
+                Double.parseDouble(setting(args, "client-rate", "0")),
+                Integer.parseInt(setting(args, "client-burst", "50")));
+        return new ServerConfig(
+                Integer.parseInt(setting(args, "port", "8080")),
+                Integer.parseInt(setting(args, "backlog", "0")),
+                Path.of(setting(args, "root", "public")),
+                mode,
+                Integer.parseInt(setting(args, "limit", mode == ServerExecutor.Mode.BOUNDED ? "4" : "256")),
+                Integer.parseInt(setting(args, "report", "5")),
+                parseBytes(setting(args, "cache", "32M")),
+                Engine.valueOf(setting(args, "engine", "JDK").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(setting(args, "loops",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                admission);
+    }
+
+    /**
+     * Creates the executor for the configured mode.
+     *
+     * @return a new executor
+     */
+    public ServerExecutor newExecutor() {
+        return ServerExecutor.of(mode, limit);
+    }
+
+    // 512, 64K, 32M or 1G
+    private static long parseBytes(String value) {
+        String digits = value.trim().toUpperCase(Locale.ROOT);
+        int shift = switch (digits.isEmpty() ? ' ' : digits.charAt(digits.length() - 1)) {
+            case 'K' -> 10;
+            case 'M' -> 20;
+            case 'G' -> 30;
+            default -> 0;
+        };
+        if (shift > 0) digits = digits.substring(0, digits.length() - 1);
+        return Long.parseLong(digits) << shift;
+    }
+
+    // --name=value if present, else the system property server.name, else the default
+    private static String setting(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return System.getProperty("server." + name, defaultValue);
+    }
+}
@@ -0,0 +1,181 @@
+package modernfeatures.java18.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link Executor} for {@code HttpServer.setExecutor} that counts active and queued requests,
+ * in one of three execution models:
+ * <ul>
+ *   <li>{@link Mode#VIRTUAL}: a new virtual thread per request. A handler blocked on I/O or
+ *       {@code sleep} only parks its virtual thread, so thousands of slow requests run at once;
+ *       nothing is ever queued.</li>
+ *   <li>{@link Mode#BOUNDED}: a fixed pool of platform threads, like the original
+ *       {@code newFixedThreadPool(4)}. Requests beyond the pool size wait in the queue, so a few slow
+ *       clients delay everyone behind them.</li>
+ *   <li>{@link Mode#HYBRID}: a virtual thread per request, but at most {@code limit} requests run the
+ *       handler at once; the others wait (parked, cheaply) for a permit. This keeps the scalability of
+ *       virtual threads while protecting a resource that cannot take unlimited concurrency, such as
+ *       a database pool.</li>
+ * </ul>
+ * In every mode a request counts as queued from {@link #execute} until it starts, then as active until
+ * it finishes.
+ */
+public final class ServerExecutor implements Executor, AutoCloseable {
+
+    /** The execution model. */
+    public enum Mode {
+        /** A virtual thread per request, no limit. */
+        VIRTUAL,
+        /** A fixed pool of platform threads with an unbounded queue. */
+        BOUNDED,
+        /** A virtual thread per request, with a limit on concurrently running requests. */
+        HYBRID
+    }
+
+    private final Mode mode;
+    private final int limit;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+
+    private ServerExecutor(Mode mode, int limit, ExecutorService delegate, Semaphore permits) {
+        this.mode = mode;
+        this.limit = limit;
+        this.delegate = delegate;
+        this.permits = permits;
+    }
+
+    /**
+     * Creates an executor for the given mode.
+     *
+     * @param mode the execution model
+     * @param limit the pool size for {@code BOUNDED}, the concurrency limit for {@code HYBRID};
+     *              ignored for {@code VIRTUAL}
+     * @return the executor
+     */
+    public static ServerExecutor of(Mode mode, int limit) {
+        return switch (mode) {
+            case VIRTUAL -> virtual();
+            case BOUNDED -> bounded(limit);
+            case HYBRID -> hybrid(limit);
+        };
+    }
+
+    /**
+     * Creates an executor that runs each request in a new virtual thread.
+     *
+     * @return the executor
+     */
+    public static ServerExecutor virtual() {
+        return new ServerExecutor(Mode.VIRTUAL, Integer.MAX_VALUE, Executors.newVirtualThreadPerTaskExecutor(), null);
+    }
+
+    /**
+     * Creates an executor with a fixed pool of platform threads.
+     *
+     * @param threads the number of threads
+     * @return the executor
+     */
+    public static ServerExecutor bounded(int threads) {
+        checkLimit(threads);
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> new Thread(task, "http-worker-" + count.incrementAndGet()));
+        return new ServerExecutor(Mode.BOUNDED, threads, pool, null);
+    }
+
+    /**
+     * Creates an executor that runs each request in a virtual thread, at most {@code limit} at a time.
+     *
+     * @param limit the maximum number of requests running at once
+     * @return the executor
+     */
+    public static ServerExecutor hybrid(int limit) {
+        checkLimit(limit);
+        return new ServerExecutor(Mode.HYBRID, limit, Executors.newVirtualThreadPerTaskExecutor(),
+                new Semaphore(limit));
+    }
+
+    @Override
+    public void execute(Runnable request) {
+        queued.incrementAndGet();
+        delegate.execute(() -> {
+            boolean acquired = false;
+            try {
+                if (permits != null) {
+                    permits.acquire();
+                    acquired = true;
+                }
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    request.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.increment();
+                }
+            } catch (InterruptedException e) {
+                // Shutting down while waiting for a permit: the request is dropped
+                queued.decrementAndGet();
+                Thread.currentThread().interrupt();
+            } finally {
+                if (acquired) permits.release();
+            }
+        });
+    }
+
+    /** Returns the execution model. */
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Returns the pool size or concurrency limit, {@code Integer.MAX_VALUE} for {@code VIRTUAL}. */
+    public int limit() {
+        return limit;
+    }
+
+    /** Returns the number of requests running their handler now. */
+    public int active() {
+        return active.get();
+    }
+
+    /** Returns the number of requests accepted but not started yet. */
+    public int queued() {
+        return queued.get();
+    }
+
+    /** Returns the number of requests finished since the start. */
+    public long completed() {
+        return completed.sum();
+    }
+
+    /**
+     * Stops accepting requests and interrupts the running ones.
+     */
+    @Override
+    public void close() {
+        delegate.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return mode + (mode == Mode.VIRTUAL ? "" : "(" + limit + ")") + ": active=" + active()
+                + ", queued=" + queued() + ", completed=" + completed();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+    }
+}
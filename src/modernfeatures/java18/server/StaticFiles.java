@@ -0,0 +1,143 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Request and header helpers shared by the static file handlers.
+ */
+final class StaticFiles {
+
+    // Senders must write IMF-fixdate, with a two-digit day (RFC 9110, section 5.6.7); RFC_1123_DATE_TIME writes
+    // "5 Oct", so it is only used to parse, where it also accepts the one-digit days some clients send
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    private static final DateTimeFormatter HTTP_DATE_PARSER = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private StaticFiles() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Maps the request path, relative to the handler's context, to a regular file inside {@code root};
+     * directories map to their {@code index.html}.
+     *
+     * @param root the absolute, normalized root directory
+     * @param exchange the request
+     * @return the file, or null if it does not exist or lies outside the root
+     */
+    static Path resolve(Path root, HttpExchange exchange) {
+        String requestPath = exchange.getRequestURI().getPath();
+        String contextPath = exchange.getHttpContext().getPath();
+        if (requestPath.startsWith(contextPath)) requestPath = requestPath.substring(contextPath.length());
+        Path file;
+        try {
+            file = root.resolve(requestPath.replaceFirst("^/+", "")).normalize();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!file.startsWith(root)) return null;
+        if (Files.isDirectory(file)) file = file.resolve("index.html");
+        return Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) ? file : null;
+    }
+
+    /**
+     * Answers requests other than GET and HEAD with 405.
+     *
+     * @return true if the request was answered
+     */
+    static boolean rejectMethod(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET") || method.equals("HEAD")) return false;
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return true;
+    }
+
+    static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        String type = URLConnection.getFileNameMap().getContentTypeFor(name);
+        if (type == null) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".js") || lower.endsWith(".mjs")) type = "text/javascript";
+            else if (lower.endsWith(".css")) type = "text/css";
+            else if (lower.endsWith(".json")) type = "application/json";
+            else if (lower.endsWith(".svg")) type = "image/svg+xml";
+            else type = "application/octet-stream";
+        }
+        return type.startsWith("text/") ? type + "; charset=utf-8" : type;
+    }
+
+    static String httpDate(Instant instant) {
+        return HTTP_DATE.format(instant.atZone(ZoneOffset.UTC));
+    }
+
+    // null if the date is malformed
+    static Instant parseHttpDate(String date) {
+        try {
+            return ZonedDateTime.parse(date, HTTP_DATE_PARSER).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates {@code If-None-Match}, or {@code If-Modified-Since} when there is none (RFC 9110, 13.2.2).
+     *
+     * @param request the request headers
+     * @param etag the current entity tag, quoted
+     * @param lastModified the modification time, truncated to seconds
+     * @return true if the client's copy is current and 304 should be sent
+     */
+    static boolean notModified(Headers request, String etag, Instant lastModified) {
+        return notModified(request, etag, null, lastModified);
+    }
+
+    /**
+     * Evaluates the conditional headers for a resource with two content codings, each with its own strong
+     * entity tag (RFC 9110, 8.8.3); a client holding either variant has a current copy.
+     *
+     * @param request the request headers
+     * @param etag the entity tag of the identity variant, quoted
+     * @param encodedEtag the entity tag of the encoded variant, quoted, or null if there is none
+     * @param lastModified the modification time, truncated to seconds
+     * @return true if the client's copy is current and 304 should be sent
+     */
+    static boolean notModified(Headers request, String etag, String encodedEtag, Instant lastModified) {
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(encodedEtag)) return true;
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            Instant since = parseHttpDate(ifModifiedSince);
+            return since != null && !lastModified.isAfter(since);
+        }
+        return false;
+    }
+}
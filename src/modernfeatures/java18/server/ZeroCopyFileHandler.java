@@ -0,0 +1,316 @@
+package modernfeatures.java18.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A static file {@link HttpHandler} for large files: the content goes from the page cache to the
+ * connection without being read into a heap buffer the size of the file, and {@code Range} requests are
+ * answered with {@code 206 Partial Content}, so interrupted downloads can resume.
+ * <ul>
+ *   <li>{@link Mode#MAPPED} maps each file once, in regions of up to 1 GiB, and keeps the mapping while
+ *       the file is unchanged; every request copies straight from the mapping to the connection in
+ *       256 KiB chunks, without {@code read} system calls. The mappings kept are bounded by
+ *       {@code maxMappedBytes}, least recently used first out, and a mapping is dropped once its file is
+ *       deleted or changed, so that the file's disk space and the address space can be released (when
+ *       the garbage collector has collected the buffers of requests still using it).</li>
+ *   <li>{@link Mode#TRANSFER} opens the file per request and hands it to {@link FileChannel#transferTo}.
+ *       On the JDK server its target is not a socket, so the JDK falls back to 8 KiB copies (see
+ *       {@code benchmarks.FileServingBenchmarks}).</li>
+ * </ul>
+ * The JDK's {@code HttpServer} only exposes the response as an {@code OutputStream}, so the last copy into
+ * the socket still passes through a small buffer; {@code transferTo} can only use {@code sendfile} when its
+ * target is a socket channel. On {@link NioHttpServer}, which has the socket, both modes are true zero-copy:
+ * mapped regions are written to the socket directly and {@code TRANSFER} uses {@code sendfile}. Heap usage
+ * per download is at most one chunk whatever the file size. Responses carry
+ * {@code ETag} (size and modification time), {@code Last-Modified} and {@code Accept-Ranges}; conditional
+ * and {@code If-Range} requests are honoured.
+ * <p>
+ * A mapped file must not be truncated while it is served: reading past the new end fails.
+ */
+public class ZeroCopyFileHandler implements HttpHandler {
+
+    /** How the file content reaches the connection. */
+    public enum Mode {
+        /** Copy from a cached memory mapping of the file. */
+        MAPPED,
+        /** {@link FileChannel#transferTo} per request. */
+        TRANSFER
+    }
+
+    private static final long REGION_BYTES = 1L << 30;
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    // A mapped file, valid while its size and modification time do not change
+    private record Mapping(long size, FileTime modified, MappedByteBuffer[] regions) {
+        boolean current(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+        }
+    }
+
+    /** Default bound of the bytes kept mapped: 4 GiB. */
+    public static final long DEFAULT_MAX_MAPPED_BYTES = 4L << 30;
+
+    private final Path root;
+    private final Mode mode;
+    private final long maxMappedBytes;
+    // Access-ordered: iteration starts at the least recently used mapping
+    private final LinkedHashMap<Path, Mapping> mappings = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    /**
+     * Creates a handler for {@code root} that serves from memory mappings.
+     *
+     * @param root the directory to serve
+     */
+    public ZeroCopyFileHandler(Path root) {
+        this(root, Mode.MAPPED);
+    }
+
+    /**
+     * Creates a handler for {@code root}.
+     *
+     * @param root the directory to serve
+     * @param mode how the content is sent
+     */
+    public ZeroCopyFileHandler(Path root, Mode mode) {
+        this(root, mode, DEFAULT_MAX_MAPPED_BYTES);
+    }
+
+    /**
+     * Creates a handler for {@code root} with a bound on the mappings it keeps.
+     *
+     * @param root the directory to serve
+     * @param mode how the content is sent
+     * @param maxMappedBytes the most bytes of files kept mapped between requests; a larger file is mapped
+     *                       for each request
+     */
+    public ZeroCopyFileHandler(Path root, Mode mode, long maxMappedBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        if (!Files.isDirectory(this.root)) {
+            throw new IllegalArgumentException("Not a directory: " + this.root);
+        }
+        if (maxMappedBytes < 0) {
+            throw new IllegalArgumentException("maxMappedBytes must not be negative: " + maxMappedBytes);
+        }
+        this.mode = mode;
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (StaticFiles.rejectMethod(exchange)) return;
+            Path file = StaticFiles.resolve(root, exchange);
+            if (file == null) {
+                StaticFiles.sendError(exchange, 404, "Not found");
+                return;
+            }
+            serve(exchange, file);
+        }
+    }
+
+    /** Returns the way content is sent. */
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Returns the bytes of the files kept mapped now. */
+    public long mappedBytes() {
+        synchronized (mappings) {
+            return mappedBytes;
+        }
+    }
+
+    // Drops the mapping of a file, or of all files below a directory; CachingFileHandler calls it on changes
+    void invalidate(Path changed) {
+        synchronized (mappings) {
+            Iterator<Map.Entry<Path, Mapping>> entries = mappings.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Path, Mapping> entry = entries.next();
+                if (entry.getKey().startsWith(changed)) {
+                    mappedBytes -= entry.getValue().size();
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    // Sends a resolved file; also used by CachingFileHandler for files too large to cache
+    void serve(HttpExchange exchange, Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            invalidate(file);
+            throw e;
+        }
+        long size = attributes.size();
+        Instant lastModified = attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
+        String etag = "\"" + Long.toHexString(size) + "-"
+                + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+
+        Headers request = exchange.getRequestHeaders();
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Last-Modified", StaticFiles.httpDate(lastModified));
+        headers.set("Accept-Ranges", "bytes");
+        if (StaticFiles.notModified(request, etag, lastModified)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        ByteRange range = ifRange(request.getFirst("If-Range"), etag, lastModified)
+                ? ByteRange.parse(request.getFirst("Range"), size) : null;
+        if (range != null && range.isEmpty()) {
+            headers.set("Content-Range", range.contentRange(size));
+            exchange.sendResponseHeaders(416, -1);
+            return;
+        }
+        long first = range != null ? range.first() : 0;
+        long length = range != null ? range.length() : size;
+        int status = range != null ? 206 : 200;
+        if (range != null) headers.set("Content-Range", range.contentRange(size));
+        headers.set("Content-Type", StaticFiles.contentType(file));
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            headers.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length == 0) return;
+        if (mode == Mode.MAPPED) {
+            sendMapped(mapping(file, attributes), first, length, exchange);
+        } else {
+            sendTransfer(file, first, length, exchange);
+        }
+    }
+
+    // No If-Range, or one naming the current version: the Range header applies
+    private static boolean ifRange(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"")) return ifRange.equals(etag);
+        // Weak tags never match; a date must be the exact modification time
+        return lastModified.equals(StaticFiles.parseHttpDate(ifRange));
+    }
+
+    private Mapping mapping(Path file, BasicFileAttributes attributes) throws IOException {
+        synchronized (mappings) {
+            Mapping mapping = mappings.get(file);
+            if (mapping != null && mapping.current(attributes)) return mapping;
+        }
+        // Mapping happens outside the lock; two concurrent first requests may both map the file
+        Mapping mapped = map(file, attributes);
+        synchronized (mappings) {
+            Mapping previous = mappings.remove(file);
+            if (previous != null) mappedBytes -= previous.size();
+            if (mapped.size() <= maxMappedBytes) {
+                dropStale();
+                mappings.put(file, mapped);
+                mappedBytes += mapped.size();
+                Iterator<Mapping> eldest = mappings.values().iterator();
+                while (mappedBytes > maxMappedBytes && eldest.hasNext()) {
+                    mappedBytes -= eldest.next().size();
+                    eldest.remove();
+                }
+            }
+        }
+        return mapped;
+    }
+
+    // Drops the mappings of files deleted or changed since; run when a mapping is added, under the lock
+    private void dropStale() {
+        Iterator<Map.Entry<Path, Mapping>> entries = mappings.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, Mapping> entry = entries.next();
+            boolean current;
+            try {
+                current = entry.getValue().current(Files.readAttributes(entry.getKey(), BasicFileAttributes.class));
+            } catch (IOException e) {
+                current = false;
+            }
+            if (!current) {
+                mappedBytes -= entry.getValue().size();
+                entries.remove();
+            }
+        }
+    }
+
+    private static Mapping map(Path file, BasicFileAttributes attributes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = attributes.size();
+            MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_BYTES - 1) / REGION_BYTES)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = i * REGION_BYTES;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(REGION_BYTES, size - position));
+            }
+            // The mapping stays valid after the channel is closed
+            return new Mapping(size, attributes.lastModifiedTime(), regions);
+        }
+    }
+
+    private static void sendMapped(Mapping mapping, long first, long length, HttpExchange exchange)
+            throws IOException {
+        if (exchange instanceof NioExchange nio) {
+            // The mapped pages go to the socket as they are, without a copy into the heap
+            for (long position = first, end = first + length; position < end; ) {
+                MappedByteBuffer region = mapping.regions()[(int) (position / REGION_BYTES)];
+                int offset = (int) (position % REGION_BYTES);
+                int n = (int) Math.min(end - position, region.capacity() - offset);
+                nio.write(region.slice(offset, n));
+                position += n;
+            }
+            return;
+        }
+        OutputStream out = exchange.getResponseBody();
+        byte[] chunk = new byte[(int) Math.min(CHUNK_BYTES, length)];
+        long position = first;
+        long end = first + length;
+        while (position < end) {
+            MappedByteBuffer region = mapping.regions()[(int) (position / REGION_BYTES)];
+            int offset = (int) (position % REGION_BYTES);
+            int n = (int) Math.min(chunk.length, Math.min(end - position, region.capacity() - offset));
+            region.get(offset, chunk, 0, n);
+            out.write(chunk, 0, n);
+            position += n;
+        }
+    }
+
+    private static void sendTransfer(Path file, long first, long length, HttpExchange exchange) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (exchange instanceof NioExchange nio) {
+                // A socket target: the operating system copies the file itself (sendfile)
+                nio.transferFrom(channel, first, length);
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(exchange.getResponseBody());
+            long position = first;
+            long end = first + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    throw new IOException("File shrank while being sent: " + file);
+                }
+                position += sent;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.function.IntPredicate;
+
+/**
+ * Counts the elements of an {@code int[]} slice that match an {@link IntPredicate}.
+ * Use {@link #count()} after the task has completed to read the result without boxing.
+ */
+public class CountTask extends SliceReduceTask<Long, CountTask> {
+    private final int[] arr;
+    private final IntPredicate predicate;
+    long count;
+
+    /**
+     * Constructs a task counting matches in {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to scan
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param predicate the condition to count
+     */
+    public CountTask(int[] arr, int from, int to, IntPredicate predicate) {
+        this(arr, from, to, predicate, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task counting matches in {@code arr[from, to)}.
+     *
+     * @param arr the array to scan
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param predicate the condition to count
+     * @param policy decides when to stop splitting
+     */
+    public CountTask(int[] arr, int from, int to, IntPredicate predicate, SplitPolicy policy) {
+        this(null, arr, from, to, predicate, policy, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    private CountTask(CountedCompleter<?> parent, int[] arr, int lo, int hi,
+                      IntPredicate predicate, SplitPolicy policy, CountTask next) {
+        super(parent, lo, hi, policy, next);
+        this.arr = arr;
+        this.predicate = predicate;
+    }
+
+    @Override
+    protected CountTask newSubtask(int lo, int hi, CountTask next) {
+        return new CountTask(this, arr, lo, hi, predicate, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        long c = 0;
+        for (int i = lo; i < hi; i++) {
+            if (predicate.test(arr[i])) c++;
+        }
+        count = c;
+    }
+
+    @Override
+    protected void merge(CountTask subtask) {
+        count += subtask.count;
+    }
+
+    /**
+     * Returns the number of matches as a primitive; only meaningful once the task has completed.
+     *
+     * @return the number of matching elements
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public Long getRawResult() {
+        return count;
+    }
+}
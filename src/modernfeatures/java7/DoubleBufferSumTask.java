@@ -0,0 +1,63 @@
+package modernfeatures.java7;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * Sums a slice of a {@link DoubleBuffer}, e.g. a view of a memory-mapped file, without copying it to the heap.
+ * See {@link LongBufferSumTask} for the integer variant.
+ */
+public class DoubleBufferSumTask extends SliceReduceTask<Double, DoubleBufferSumTask> {
+    private final DoubleBuffer buffer;
+    double sum;
+
+    /**
+     * Constructs a task summing the elements {@code [from, to)} of {@code buffer}.
+     *
+     * @param buffer the buffer to sum, indexed absolutely
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public DoubleBufferSumTask(DoubleBuffer buffer, int from, int to, SplitPolicy policy) {
+        this(null, buffer, from, to, policy, null);
+        checkSlice(buffer.limit(), from, to);
+    }
+
+    private DoubleBufferSumTask(CountedCompleter<?> parent, DoubleBuffer buffer,
+                                int lo, int hi, SplitPolicy policy, DoubleBufferSumTask next) {
+        super(parent, lo, hi, policy, next);
+        this.buffer = buffer;
+    }
+
+    @Override
+    protected DoubleBufferSumTask newSubtask(int lo, int hi, DoubleBufferSumTask next) {
+        return new DoubleBufferSumTask(this, buffer, lo, hi, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        double s = 0.0;
+        for (int i = lo; i < hi; i++) s += buffer.get(i);
+        sum = s;
+    }
+
+    @Override
+    protected void merge(DoubleBufferSumTask subtask) {
+        sum += subtask.sum;
+    }
+
+    /**
+     * Returns the sum as a primitive; only meaningful once the task has completed.
+     *
+     * @return the sum of the slice
+     */
+    public double sum() {
+        return sum;
+    }
+
+    @Override
+    public Double getRawResult() {
+        return sum;
+    }
+}
@@ -0,0 +1,77 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * Sums a slice of a {@code double[]} without boxing the partial results.
+ * <p>
+ * Because the slice is summed as a balanced tree of leaf sums, rounding error grows with
+ * {@code log(n)} rather than {@code n} as it would in a single sequential loop.
+ * Use {@link #sum()} after the task has completed to read the result without boxing.
+ */
+public class DoubleSumTask extends SliceReduceTask<Double, DoubleSumTask> {
+    private final double[] arr;
+    double sum;
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     */
+    public DoubleSumTask(double[] arr, int from, int to) {
+        this(arr, from, to, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public DoubleSumTask(double[] arr, int from, int to, SplitPolicy policy) {
+        this(null, arr, from, to, policy, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    private DoubleSumTask(CountedCompleter<?> parent, double[] arr,
+                          int lo, int hi, SplitPolicy policy, DoubleSumTask next) {
+        super(parent, lo, hi, policy, next);
+        this.arr = arr;
+    }
+
+    @Override
+    protected DoubleSumTask newSubtask(int lo, int hi, DoubleSumTask next) {
+        return new DoubleSumTask(this, arr, lo, hi, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        double s = 0.0;
+        for (int i = lo; i < hi; i++) s += arr[i];
+        sum = s;
+    }
+
+    @Override
+    protected void merge(DoubleSumTask subtask) {
+        sum += subtask.sum;
+    }
+
+    /**
+     * Returns the sum as a primitive; only meaningful once the task has completed.
+     *
+     * @return the sum of the slice
+     */
+    public double sum() {
+        return sum;
+    }
+
+    @Override
+    public Double getRawResult() {
+        return sum;
+    }
+}
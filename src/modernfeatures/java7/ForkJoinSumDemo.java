@@ -1,48 +1,66 @@
 package modernfeatures.java7;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ForkJoinPool;
 
 class SumTask extends RecursiveTask<Integer> {
     private final int[] arr;
     private final int start, end;
+    private final SplitPolicy policy;
 
+    // Tiny threshold so the demo's 10-element array still shows several splits
     private static final int THRESHOLD = 5;
 
     /**
-     * Constructs a SumTask for summing a segment of the array.
+     * Constructs a SumTask for summing a segment of the array, splitting down to {@code THRESHOLD} elements.
      *
      * @param arr the array to sum
      * @param start the starting index (inclusive) of the segment
      * @param end the ending index (exclusive) of the segment
      */
     public SumTask(int[] arr, int start, int end) {
+        this(arr, start, end, SplitPolicy.fixed(THRESHOLD));
+    }
+
+    /**
+     * Constructs a SumTask for summing a segment of the array.
+     *
+     * @param arr the array to sum
+     * @param start the starting index (inclusive) of the segment
+     * @param end the ending index (exclusive) of the segment
+     * @param policy decides when a segment is small enough to sum sequentially
+     */
+    public SumTask(int[] arr, int start, int end, SplitPolicy policy) {
         this.arr = arr;
         this.start = start;
         this.end = end;
+        this.policy = policy;
     }
 
     /**
      * Computes the sum of the assigned array segment.
-     * If the segment size is below the threshold, sums sequentially;
+     * If the split policy says the segment is small enough, sums sequentially;
      * otherwise, splits the task into subtasks that run in parallel.
      *
      * @return the sum of the segment
      */
     @Override
     protected Integer compute() {
+        policy.recordTask();
         // Print current task range and thread name for demonstration
         System.out.println("Computing sum from index " + start + " to " + end + " on thread " + Thread.currentThread().getName());
 
-        if (end - start <= THRESHOLD) {
+        if (!policy.shouldSplit(end - start)) {
             // Sequential sum for small enough segment
             int sum = 0;
             for (int i = start; i < end; i++) sum += arr[i];
             return sum;
         } else {
             int mid = (start + end) / 2;
-            SumTask left = new SumTask(arr, start, mid);
-            SumTask right = new SumTask(arr, mid, end);
+            SumTask left = new SumTask(arr, start, mid, policy);
+            SumTask right = new SumTask(arr, mid, end, policy);
             // Fork the left subtask to run in parallel
             left.fork();
             // Compute the right subtask directly
@@ -58,6 +76,10 @@ class SumTask extends RecursiveTask<Integer> {
  * Demonstrates the use of the Fork/Join framework to sum an array of integers in parallel.
  * The array is recursively divided into smaller tasks that are processed concurrently,
  * improving performance on multi-core processors.
+ * <p>
+ * The second part of the demo uses the boxing-free reductions from {@link Reductions}
+ * on an array large enough that {@link SumTask}'s {@code int} accumulator would overflow,
+ * and shows how an adaptive {@link SplitPolicy} sizes the leaves compared to a fixed threshold.
  */
 public class ForkJoinSumDemo {
     public static void main(String[] args) {
@@ -69,5 +91,49 @@ public class ForkJoinSumDemo {
             // Print the final sum result
             System.out.println("Sum is: " + total); // Output: 110
         }
+
+        // Boxing-free reductions over a large array (no per-task output here!)
+        int[] large = new int[50_000_000];
+        Arrays.fill(large, 1_000);
+        large[0] = -7;
+        System.out.println("\nLarge array of " + large.length + " elements:");
+        System.out.println("long sum: " + Reductions.sum(large));       // 49999998993, beyond Integer.MAX_VALUE
+        System.out.println("min: " + Reductions.min(large));            // -7
+        System.out.println("max: " + Reductions.max(large));            // 1000
+        System.out.println("count(> 0): " + Reductions.count(large, n -> n > 0));
+        System.out.println("fold(xor): " + Reductions.fold(large, 0, (a, b) -> a ^ b));
+        System.out.println("double sum: " + Reductions.sum(new double[]{0.5, 0.25, 0.125}));
+
+        // Fixed vs. adaptive splitting: how many tasks does each create for the same array?
+        ForkJoinPool common = ForkJoinPool.commonPool();
+        LongSumTask fixed = new LongSumTask(large, 0, large.length, SplitPolicy.fixed(1_000));
+        common.invoke(fixed);
+        System.out.println("\nFixed leaf size:      " + fixed.policy());
+
+        LongSumTask adaptive = new LongSumTask(large, 0, large.length, SplitPolicy.adaptive(common, large.length));
+        common.invoke(adaptive);
+        System.out.println("Adaptive (parallelism " + common.getParallelism() + "): " + adaptive.policy());
+
+        // Calibrated: measure the real per-element cost of an expensive leaf before sizing the leaves.
+        // Random values up to a billion make trial division cost anything from one step to tens of thousands.
+        int[] candidates = new SplittableRandom(42).ints(1_000_000, 1, 1_000_000_000).toArray();
+        CountTask probe = new CountTask(candidates, 0, candidates.length, ForkJoinSumDemo::isProbablePrime);
+        double nanosPerElement = SplitPolicy.measureNanosPerElement(probe);
+        CountTask calibrated = new CountTask(candidates, 0, candidates.length, ForkJoinSumDemo::isProbablePrime,
+                SplitPolicy.adaptive(common, candidates.length, nanosPerElement));
+        common.invoke(calibrated);
+        System.out.printf("Calibrated (%.2f ns/element): %s, primes: %,d of %,d%n",
+                nanosPerElement, calibrated.policy(), calibrated.count(), candidates.length);
+    }
+
+    /**
+     * Deliberately slow per-element work, so the calibrated policy picks smaller leaves.
+     */
+    private static boolean isProbablePrime(int n) {
+        if (n < 2) return false;
+        for (int d = 2; (long) d * d <= n; d++) {
+            if (n % d == 0) return false;
+        }
+        return true;
     }
 }
\ No newline at end of file
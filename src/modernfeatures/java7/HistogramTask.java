@@ -0,0 +1,114 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Counts how many elements of an {@code int[]} slice fall into each of a fixed number of bins.
+ * <p>
+ * Every leaf task counts into its own {@code long[bins]} array (one allocation per task, never
+ * per element), and the partial counts are added together as tasks complete. Workers therefore
+ * never write to a shared counter and never contend with each other.
+ * Use {@link #counts()} after the task has completed to read the result.
+ */
+public class HistogramTask extends SliceReduceTask<long[], HistogramTask> {
+    private final int[] arr;
+    private final int bins;
+    private final IntUnaryOperator binOf;
+    long[] counts;
+
+    /**
+     * Constructs a task histogramming {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to scan
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param bins the number of bins
+     * @param binOf maps a value to its bin, in {@code [0, bins)}
+     */
+    public HistogramTask(int[] arr, int from, int to, int bins, IntUnaryOperator binOf) {
+        this(arr, from, to, bins, binOf, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task histogramming {@code arr[from, to)}.
+     *
+     * @param arr the array to scan
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param bins the number of bins
+     * @param binOf maps a value to its bin, in {@code [0, bins)}
+     * @param policy decides when to stop splitting
+     */
+    public HistogramTask(int[] arr, int from, int to, int bins, IntUnaryOperator binOf, SplitPolicy policy) {
+        this(null, arr, from, to, bins, binOf, policy, null);
+        checkSlice(arr.length, from, to);
+        if (bins < 1) {
+            throw new IllegalArgumentException("bins must be positive: " + bins);
+        }
+    }
+
+    private HistogramTask(CountedCompleter<?> parent, int[] arr, int lo, int hi,
+                          int bins, IntUnaryOperator binOf, SplitPolicy policy, HistogramTask next) {
+        super(parent, lo, hi, policy, next);
+        this.arr = arr;
+        this.bins = bins;
+        this.binOf = binOf;
+    }
+
+    /**
+     * Creates a task with {@code bins} equal-width bins covering {@code [min, max)}.
+     * Values below {@code min} are counted in the first bin, values at or above {@code max} in the last.
+     *
+     * @param arr the array to scan
+     * @param min the lower bound of the first bin (inclusive)
+     * @param max the upper bound of the last bin (exclusive)
+     * @param bins the number of bins
+     * @return the task
+     */
+    public static HistogramTask equalWidth(int[] arr, int min, int max, int bins) {
+        if (max <= min) {
+            throw new IllegalArgumentException("max must be greater than min: [" + min + ", " + max + ")");
+        }
+        long width = (long) max - min;
+        return new HistogramTask(arr, 0, arr.length, bins, value -> {
+            long offset = Math.max(0L, Math.min(width - 1, (long) value - min));
+            return (int) (offset * bins / width);
+        });
+    }
+
+    @Override
+    protected HistogramTask newSubtask(int lo, int hi, HistogramTask next) {
+        return new HistogramTask(this, arr, lo, hi, bins, binOf, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        long[] c = new long[bins];
+        for (int i = lo; i < hi; i++) c[binOf.applyAsInt(arr[i])]++;
+        counts = c;
+    }
+
+    @Override
+    protected void merge(HistogramTask subtask) {
+        long[] other = subtask.counts;
+        for (int b = 0; b < bins; b++) counts[b] += other[b];
+        // Let the subtask's partial counts be garbage collected early
+        subtask.counts = null;
+    }
+
+    /**
+     * Returns the count per bin; only meaningful once the task has completed.
+     *
+     * @return the counts, indexed by bin
+     */
+    public long[] counts() {
+        return counts;
+    }
+
+    @Override
+    public long[] getRawResult() {
+        return counts;
+    }
+}
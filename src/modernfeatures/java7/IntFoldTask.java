@@ -0,0 +1,104 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Folds a slice of an {@code int[]} with an associative {@link IntBinaryOperator}.
+ * <p>
+ * The operator must be associative and {@code identity} must be its identity element
+ * (e.g. {@code 0} for addition, {@code Integer.MAX_VALUE} for {@code Math::min}), because
+ * the slice is folded in parallel pieces that are combined in an unspecified grouping.
+ * Use {@link #result()} after the task has completed to read the result without boxing.
+ */
+public class IntFoldTask extends SliceReduceTask<Integer, IntFoldTask> {
+    private final int[] arr;
+    private final int identity;
+    private final IntBinaryOperator op;
+    int result;
+
+    /**
+     * Constructs a task folding {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to fold
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param identity the identity value of {@code op}
+     * @param op an associative operator
+     */
+    public IntFoldTask(int[] arr, int from, int to, int identity, IntBinaryOperator op) {
+        this(arr, from, to, identity, op, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task folding {@code arr[from, to)}.
+     *
+     * @param arr the array to fold
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param identity the identity value of {@code op}
+     * @param op an associative operator
+     * @param policy decides when to stop splitting
+     */
+    public IntFoldTask(int[] arr, int from, int to, int identity, IntBinaryOperator op, SplitPolicy policy) {
+        this(null, arr, from, to, identity, op, policy, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    private IntFoldTask(CountedCompleter<?> parent, int[] arr, int lo, int hi,
+                        int identity, IntBinaryOperator op, SplitPolicy policy, IntFoldTask next) {
+        super(parent, lo, hi, policy, next);
+        this.arr = arr;
+        this.identity = identity;
+        this.op = op;
+    }
+
+    /**
+     * Creates a task computing the minimum of {@code arr[from, to)}
+     * ({@code Integer.MAX_VALUE} for an empty slice).
+     */
+    public static IntFoldTask min(int[] arr, int from, int to) {
+        return new IntFoldTask(arr, from, to, Integer.MAX_VALUE, Math::min);
+    }
+
+    /**
+     * Creates a task computing the maximum of {@code arr[from, to)}
+     * ({@code Integer.MIN_VALUE} for an empty slice).
+     */
+    public static IntFoldTask max(int[] arr, int from, int to) {
+        return new IntFoldTask(arr, from, to, Integer.MIN_VALUE, Math::max);
+    }
+
+    @Override
+    protected IntFoldTask newSubtask(int lo, int hi, IntFoldTask next) {
+        return new IntFoldTask(this, arr, lo, hi, identity, op, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        int r = identity;
+        for (int i = lo; i < hi; i++) r = op.applyAsInt(r, arr[i]);
+        result = r;
+    }
+
+    @Override
+    protected void merge(IntFoldTask subtask) {
+        // Subtasks always cover a range to the right of ours, so keep the operand order
+        result = op.applyAsInt(result, subtask.result);
+    }
+
+    /**
+     * Returns the folded value as a primitive; only meaningful once the task has completed.
+     *
+     * @return the result of the fold
+     */
+    public int result() {
+        return result;
+    }
+
+    @Override
+    public Integer getRawResult() {
+        return result;
+    }
+}
@@ -0,0 +1,150 @@
+package modernfeatures.java7;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The sequential loop run by a leaf task of {@link LongSumTask}.
+ * <p>
+ * Three implementations are provided:
+ * <ul>
+ *   <li>{@link #SCALAR}: the plain {@code for} loop from {@link SumTask}, one dependent add per element.</li>
+ *   <li>{@link #UNROLLED}: four independent accumulators. Breaking the dependency chain lets the CPU
+ *       overlap the adds, and gives HotSpot's C2 compiler a loop shape it can turn into SIMD instructions
+ *       (AVX2/AVX-512 on x86) by itself, so the leaf becomes limited by memory bandwidth, not by adds.</li>
+ *   <li>{@link #vector()}: {@code VectorLeafKernel}, explicit SIMD with {@code IntVector}/{@code LongVector}
+ *       of {@code SPECIES_PREFERRED}. It is compiled in the {@code vector} module with the incubator module
+ *       and loaded reflectively, so it is only there when the JVM runs with
+ *       {@code --add-modules jdk.incubator.vector} and that module is on the class path.</li>
+ * </ul>
+ * The kernel is chosen at runtime with the system property {@value #PROPERTY}
+ * ({@code scalar}, the default, {@code unrolled} or {@code vector}). {@code vector} falls back to
+ * {@code scalar} when the Vector API is not available. The default follows {@code LeafKernelBenchmark}: on
+ * an AVX-512 machine with 16M elements, all three run at 8-10 GB/s on one thread, close to memory bandwidth,
+ * with {@code unrolled} slower than {@code scalar} for {@code int} and {@code vector} ahead only for
+ * {@code long}. No kernel wins across the board, so the default is the simplest one.
+ */
+public interface LeafKernel {
+
+    /** System property used to pick the default kernel. */
+    String PROPERTY = "modernfeatures.leafKernel";
+
+    /** One accumulator, one element per iteration. */
+    LeafKernel SCALAR = new LeafKernel() {
+        @Override
+        public long sum(int[] arr, int from, int to) {
+            long s = 0;
+            for (int i = from; i < to; i++) s += arr[i];
+            return s;
+        }
+
+        @Override
+        public long sum(long[] arr, int from, int to) {
+            long s = 0;
+            for (int i = from; i < to; i++) s += arr[i];
+            return s;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    };
+
+    /** Four independent accumulators, four elements per iteration. */
+    LeafKernel UNROLLED = new LeafKernel() {
+        @Override
+        public long sum(int[] arr, int from, int to) {
+            long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = from;
+            for (int bound = to - 3; i < bound; i += 4) {
+                s0 += arr[i];
+                s1 += arr[i + 1];
+                s2 += arr[i + 2];
+                s3 += arr[i + 3];
+            }
+            // Remaining 0-3 elements
+            for (; i < to; i++) s0 += arr[i];
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public long sum(long[] arr, int from, int to) {
+            long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = from;
+            for (int bound = to - 3; i < bound; i += 4) {
+                s0 += arr[i];
+                s1 += arr[i + 1];
+                s2 += arr[i + 2];
+                s3 += arr[i + 3];
+            }
+            for (; i < to; i++) s0 += arr[i];
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String name() {
+            return "unrolled";
+        }
+    };
+
+    /**
+     * Sums {@code arr[from, to)} into a {@code long}.
+     */
+    long sum(int[] arr, int from, int to);
+
+    /**
+     * Sums {@code arr[from, to)}.
+     */
+    long sum(long[] arr, int from, int to);
+
+    /**
+     * Returns the short name used to select this kernel.
+     */
+    String name();
+
+    /**
+     * Looks up a kernel by name ({@code scalar}, {@code unrolled} or {@code vector}); {@code vector} gives
+     * {@link #SCALAR} when the Vector API is not available.
+     *
+     * @param name the kernel name, case-insensitive
+     * @return the matching kernel
+     * @throws IllegalArgumentException if no kernel has that name
+     */
+    static LeafKernel of(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "scalar" -> SCALAR;
+            case "unrolled" -> UNROLLED;
+            case "vector" -> vector().orElse(SCALAR);
+            default -> throw new IllegalArgumentException("Unknown leaf kernel: " + name);
+        };
+    }
+
+    /**
+     * Returns the kernel selected by the {@value #PROPERTY} system property, or {@link #SCALAR}.
+     */
+    static LeafKernel defaultKernel() {
+        return of(System.getProperty(PROPERTY, "scalar"));
+    }
+
+    /**
+     * Returns the Vector API kernel, if the {@code jdk.incubator.vector} module is present and
+     * {@code VectorLeafKernel} (the {@code vector} module) is on the class path.
+     */
+    static Optional<LeafKernel> vector() {
+        if (!isVectorApiAvailable()) return Optional.empty();
+        try {
+            return Optional.of((LeafKernel) Class.forName("modernfeatures.java7.VectorLeafKernel")
+                    .getConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns whether the {@code jdk.incubator.vector} module is present in the boot layer.
+     */
+    static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
@@ -0,0 +1,82 @@
+package modernfeatures.java7;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the {@link LeafKernel} implementations and reports their throughput in GB/s.
+ * <p>
+ * Each kernel is measured twice: sequentially on one thread, and inside a fork/join
+ * {@link LongSumTask} using all cores of the common pool. Every measurement is warmed up first
+ * so the JIT has compiled the loop, and the best of several rounds is reported.
+ * <pre>
+ * Usage:
+ *   java modernfeatures.java7.LeafKernelBenchmark [elements]
+ * </pre>
+ */
+public class LeafKernelBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // Written after each round so the JIT cannot drop the summing work as dead code
+    private static long sink;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional number of elements (default 16M)
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 24;
+        int[] ints = new int[n];
+        long[] longs = new long[n];
+        Arrays.setAll(ints, i -> i & 0xFF);
+        Arrays.setAll(longs, i -> i & 0xFF);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        System.out.println("Elements: " + n + ", parallelism: " + pool.getParallelism());
+        System.out.println("jdk.incubator.vector available: " + LeafKernel.isVectorApiAvailable()
+                + (LeafKernel.vector().isPresent() ? "" : " (vector kernel not loaded, see VectorLeafKernel)"));
+        System.out.printf("%-10s %-6s %14s %14s%n", "kernel", "type", "1 thread GB/s", "fork/join GB/s");
+
+        List<LeafKernel> kernels = new ArrayList<>(List.of(LeafKernel.SCALAR, LeafKernel.UNROLLED));
+        LeafKernel.vector().ifPresent(kernels::add);
+        for (LeafKernel kernel : kernels) {
+            double seqInts = gbPerSecond(4L * n, () -> kernel.sum(ints, 0, n));
+            double fjInts = gbPerSecond(4L * n, () -> {
+                LongSumTask task = new LongSumTask(ints, 0, n, SplitPolicy.adaptive(pool, n), kernel);
+                pool.invoke(task);
+                return task.sum();
+            });
+            System.out.printf("%-10s %-6s %14.2f %14.2f%n", kernel.name(), "int", seqInts, fjInts);
+
+            double seqLongs = gbPerSecond(8L * n, () -> kernel.sum(longs, 0, n));
+            double fjLongs = gbPerSecond(8L * n, () -> {
+                LongSumTask task = new LongSumTask(longs, 0, n, SplitPolicy.adaptive(pool, n), kernel);
+                pool.invoke(task);
+                return task.sum();
+            });
+            System.out.printf("%-10s %-6s %14.2f %14.2f%n", kernel.name(), "long", seqLongs, fjLongs);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Returns the best throughput of {@code run} in GB/s, given how many bytes one run reads.
+     */
+    private static double gbPerSecond(long bytes, LongSupplier run) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += run.getAsLong();
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) best = Math.min(best, elapsed);
+        }
+        // bytes per nanosecond == GB per second
+        return (double) bytes / best;
+    }
+}
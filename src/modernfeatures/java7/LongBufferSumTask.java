@@ -0,0 +1,87 @@
+package modernfeatures.java7;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * Sums a slice of an {@link IntBuffer} or {@link LongBuffer} into a {@code long}.
+ * <p>
+ * This is {@link LongSumTask} for buffers instead of arrays. With a view of a memory-mapped file
+ * ({@code FileChannel.map(...).asLongBuffer()}) or of a direct buffer, the numbers are read straight
+ * from off-heap memory: nothing is copied onto the heap, and the buffer's position is never touched,
+ * so all workers can share the same view.
+ */
+public class LongBufferSumTask extends SliceReduceTask<Long, LongBufferSumTask> {
+    private final IntBuffer ints;
+    private final LongBuffer longs;
+    long sum;
+
+    /**
+     * Constructs a task summing the elements {@code [from, to)} of {@code buffer}.
+     *
+     * @param buffer the buffer to sum, indexed absolutely
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public LongBufferSumTask(IntBuffer buffer, int from, int to, SplitPolicy policy) {
+        this(null, buffer, null, from, to, policy, null);
+        checkSlice(buffer.limit(), from, to);
+    }
+
+    /**
+     * Constructs a task summing the elements {@code [from, to)} of {@code buffer}.
+     *
+     * @param buffer the buffer to sum, indexed absolutely
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public LongBufferSumTask(LongBuffer buffer, int from, int to, SplitPolicy policy) {
+        this(null, null, buffer, from, to, policy, null);
+        checkSlice(buffer.limit(), from, to);
+    }
+
+    private LongBufferSumTask(CountedCompleter<?> parent, IntBuffer ints, LongBuffer longs,
+                              int lo, int hi, SplitPolicy policy, LongBufferSumTask next) {
+        super(parent, lo, hi, policy, next);
+        this.ints = ints;
+        this.longs = longs;
+    }
+
+    @Override
+    protected LongBufferSumTask newSubtask(int lo, int hi, LongBufferSumTask next) {
+        return new LongBufferSumTask(this, ints, longs, lo, hi, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        long s = 0;
+        if (ints != null) {
+            for (int i = lo; i < hi; i++) s += ints.get(i);
+        } else {
+            for (int i = lo; i < hi; i++) s += longs.get(i);
+        }
+        sum = s;
+    }
+
+    @Override
+    protected void merge(LongBufferSumTask subtask) {
+        sum += subtask.sum;
+    }
+
+    /**
+     * Returns the sum as a primitive; only meaningful once the task has completed.
+     *
+     * @return the sum of the slice
+     */
+    public long sum() {
+        return sum;
+    }
+
+    @Override
+    public Long getRawResult() {
+        return sum;
+    }
+}
@@ -0,0 +1,104 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Folds a slice of a {@code long[]} with an associative {@link LongBinaryOperator}.
+ * <p>
+ * The operator must be associative and {@code identity} must be its identity element
+ * (e.g. {@code 0} for addition, {@code Long.MAX_VALUE} for {@code Math::min}), because
+ * the slice is folded in parallel pieces that are combined in an unspecified grouping.
+ * Use {@link #result()} after the task has completed to read the result without boxing.
+ */
+public class LongFoldTask extends SliceReduceTask<Long, LongFoldTask> {
+    private final long[] arr;
+    private final long identity;
+    private final LongBinaryOperator op;
+    long result;
+
+    /**
+     * Constructs a task folding {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to fold
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param identity the identity value of {@code op}
+     * @param op an associative operator
+     */
+    public LongFoldTask(long[] arr, int from, int to, long identity, LongBinaryOperator op) {
+        this(arr, from, to, identity, op, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task folding {@code arr[from, to)}.
+     *
+     * @param arr the array to fold
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param identity the identity value of {@code op}
+     * @param op an associative operator
+     * @param policy decides when to stop splitting
+     */
+    public LongFoldTask(long[] arr, int from, int to, long identity, LongBinaryOperator op, SplitPolicy policy) {
+        this(null, arr, from, to, identity, op, policy, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    private LongFoldTask(CountedCompleter<?> parent, long[] arr, int lo, int hi,
+                         long identity, LongBinaryOperator op, SplitPolicy policy, LongFoldTask next) {
+        super(parent, lo, hi, policy, next);
+        this.arr = arr;
+        this.identity = identity;
+        this.op = op;
+    }
+
+    /**
+     * Creates a task computing the minimum of {@code arr[from, to)}
+     * ({@code Long.MAX_VALUE} for an empty slice).
+     */
+    public static LongFoldTask min(long[] arr, int from, int to) {
+        return new LongFoldTask(arr, from, to, Long.MAX_VALUE, Math::min);
+    }
+
+    /**
+     * Creates a task computing the maximum of {@code arr[from, to)}
+     * ({@code Long.MIN_VALUE} for an empty slice).
+     */
+    public static LongFoldTask max(long[] arr, int from, int to) {
+        return new LongFoldTask(arr, from, to, Long.MIN_VALUE, Math::max);
+    }
+
+    @Override
+    protected LongFoldTask newSubtask(int lo, int hi, LongFoldTask next) {
+        return new LongFoldTask(this, arr, lo, hi, identity, op, policy, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        long r = identity;
+        for (int i = lo; i < hi; i++) r = op.applyAsLong(r, arr[i]);
+        result = r;
+    }
+
+    @Override
+    protected void merge(LongFoldTask subtask) {
+        // Subtasks always cover a range to the right of ours, so keep the operand order
+        result = op.applyAsLong(result, subtask.result);
+    }
+
+    /**
+     * Returns the folded value as a primitive; only meaningful once the task has completed.
+     *
+     * @return the result of the fold
+     */
+    public long result() {
+        return result;
+    }
+
+    @Override
+    public Long getRawResult() {
+        return result;
+    }
+}
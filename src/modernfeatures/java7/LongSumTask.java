@@ -0,0 +1,133 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * Sums a slice of an {@code int[]} or {@code long[]} into a {@code long} accumulator.
+ * <p>
+ * This is the overflow-safe, boxing-free counterpart of {@link SumTask}: partial sums stay in a
+ * primitive {@code long} field and are merged via {@link CountedCompleter} completion.
+ * Use {@link #sum()} after the task has completed to read the result without boxing.
+ * <p>
+ * The leaf loop is a pluggable {@link LeafKernel}; by default the one selected by the
+ * {@value LeafKernel#PROPERTY} system property.
+ */
+public class LongSumTask extends SliceReduceTask<Long, LongSumTask> {
+    private final int[] ints;
+    private final long[] longs;
+    private final LeafKernel kernel;
+    long sum;
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     */
+    public LongSumTask(int[] arr, int from, int to) {
+        this(arr, from, to, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public LongSumTask(int[] arr, int from, int to, SplitPolicy policy) {
+        this(arr, from, to, policy, LeafKernel.defaultKernel());
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)} with the given leaf kernel.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     * @param kernel the sequential loop run by each leaf
+     */
+    public LongSumTask(int[] arr, int from, int to, SplitPolicy policy, LeafKernel kernel) {
+        this(null, arr, null, from, to, policy, kernel, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}
+     * with an adaptive {@link SplitPolicy} for the common pool.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     */
+    public LongSumTask(long[] arr, int from, int to) {
+        this(arr, from, to, defaultPolicy(from, to));
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)}.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     */
+    public LongSumTask(long[] arr, int from, int to, SplitPolicy policy) {
+        this(arr, from, to, policy, LeafKernel.defaultKernel());
+    }
+
+    /**
+     * Constructs a task summing {@code arr[from, to)} with the given leaf kernel.
+     *
+     * @param arr the array to sum
+     * @param from the starting index (inclusive)
+     * @param to the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     * @param kernel the sequential loop run by each leaf
+     */
+    public LongSumTask(long[] arr, int from, int to, SplitPolicy policy, LeafKernel kernel) {
+        this(null, null, arr, from, to, policy, kernel, null);
+        checkSlice(arr.length, from, to);
+    }
+
+    private LongSumTask(CountedCompleter<?> parent, int[] ints, long[] longs,
+                        int lo, int hi, SplitPolicy policy, LeafKernel kernel, LongSumTask next) {
+        super(parent, lo, hi, policy, next);
+        this.ints = ints;
+        this.longs = longs;
+        this.kernel = kernel;
+    }
+
+    @Override
+    protected LongSumTask newSubtask(int lo, int hi, LongSumTask next) {
+        return new LongSumTask(this, ints, longs, lo, hi, policy, kernel, next);
+    }
+
+    @Override
+    protected void reduceLeaf(int lo, int hi) {
+        sum = (ints != null) ? kernel.sum(ints, lo, hi) : kernel.sum(longs, lo, hi);
+    }
+
+    @Override
+    protected void merge(LongSumTask subtask) {
+        sum += subtask.sum;
+    }
+
+    /**
+     * Returns the sum as a primitive; only meaningful once the task has completed.
+     *
+     * @return the sum of the slice
+     */
+    public long sum() {
+        return sum;
+    }
+
+    @Override
+    public Long getRawResult() {
+        return sum;
+    }
+}
@@ -0,0 +1,115 @@
+package modernfeatures.java7;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel sums over binary files of fixed-size numbers, read through memory-mapped buffers.
+ * <p>
+ * The file is mapped with {@link FileChannel#map} in chunks of at most {@link #MAX_CHUNK_BYTES}
+ * (a single mapping is limited to 2 GB). Chunk boundaries are multiples of the chunk size, so every
+ * chunk starts on a page and element boundary. Each chunk is reduced by its own fork/join task tree
+ * over a typed view ({@code asLongBuffer()} etc.), and all chunks run in parallel.
+ * <p>
+ * The data is never copied onto the heap: the OS pages the file in as workers read it, so files
+ * much larger than the heap can be aggregated with a small, bounded heap.
+ */
+public final class MappedFileReductions {
+
+    /** Largest region mapped at once: 1 GB, a multiple of the page size and of every element size. */
+    public static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private MappedFileReductions() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Sums a file of 4-byte integers.
+     *
+     * @param file the file to read
+     * @param order the byte order the numbers were written in
+     * @return the sum as a {@code long}
+     * @throws IOException if the file cannot be mapped
+     */
+    public static long sumInts(Path file, ByteOrder order) throws IOException {
+        List<LongBufferSumTask> tasks = new ArrayList<>();
+        for (ByteBuffer chunk : mapChunks(file, Integer.BYTES, order)) {
+            int n = chunk.capacity() / Integer.BYTES;
+            tasks.add(new LongBufferSumTask(chunk.asIntBuffer(), 0, n, policyFor(n)));
+        }
+        long sum = 0;
+        for (LongBufferSumTask task : ForkJoinTask.invokeAll(tasks)) sum += task.sum();
+        return sum;
+    }
+
+    /**
+     * Sums a file of 8-byte integers.
+     *
+     * @param file the file to read
+     * @param order the byte order the numbers were written in
+     * @return the sum
+     * @throws IOException if the file cannot be mapped
+     */
+    public static long sumLongs(Path file, ByteOrder order) throws IOException {
+        List<LongBufferSumTask> tasks = new ArrayList<>();
+        for (ByteBuffer chunk : mapChunks(file, Long.BYTES, order)) {
+            int n = chunk.capacity() / Long.BYTES;
+            tasks.add(new LongBufferSumTask(chunk.asLongBuffer(), 0, n, policyFor(n)));
+        }
+        long sum = 0;
+        for (LongBufferSumTask task : ForkJoinTask.invokeAll(tasks)) sum += task.sum();
+        return sum;
+    }
+
+    /**
+     * Sums a file of 8-byte IEEE 754 doubles.
+     *
+     * @param file the file to read
+     * @param order the byte order the numbers were written in
+     * @return the sum
+     * @throws IOException if the file cannot be mapped
+     */
+    public static double sumDoubles(Path file, ByteOrder order) throws IOException {
+        List<DoubleBufferSumTask> tasks = new ArrayList<>();
+        for (ByteBuffer chunk : mapChunks(file, Double.BYTES, order)) {
+            int n = chunk.capacity() / Double.BYTES;
+            tasks.add(new DoubleBufferSumTask(chunk.asDoubleBuffer(), 0, n, policyFor(n)));
+        }
+        double sum = 0.0;
+        for (DoubleBufferSumTask task : ForkJoinTask.invokeAll(tasks)) sum += task.sum();
+        return sum;
+    }
+
+    /**
+     * Maps the whole file read-only, in chunks of at most {@link #MAX_CHUNK_BYTES}.
+     * The mappings stay valid after the channel is closed.
+     */
+    static List<ByteBuffer> mapChunks(Path file, int elementBytes, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % elementBytes != 0) {
+                throw new IOException(file + " has " + size + " bytes, not a multiple of " + elementBytes);
+            }
+            List<ByteBuffer> chunks = new ArrayList<>();
+            for (long position = 0; position < size; position += MAX_CHUNK_BYTES) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, Math.min(MAX_CHUNK_BYTES, size - position));
+                chunks.add(chunk.order(order));
+            }
+            return chunks;
+        }
+    }
+
+    private static SplitPolicy policyFor(int elements) {
+        return SplitPolicy.adaptive(ForkJoinPool.commonPool(), elements);
+    }
+}
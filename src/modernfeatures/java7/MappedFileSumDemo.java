@@ -0,0 +1,84 @@
+package modernfeatures.java7;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Demonstrates summing a binary file of numbers in parallel without loading it onto the heap.
+ * <p>
+ * The demo writes a temporary file of {@code long} values 1..N through a small reusable direct
+ * buffer, sums it with {@link MappedFileReductions#sumLongs(Path, ByteOrder)}, and checks the
+ * result against the formula {@code N * (N + 1) / 2}. It then sums an off-heap direct buffer the
+ * same way. The heap in use is printed to show that it stays small whatever the file size.
+ * <pre>
+ * Usage:
+ *   java modernfeatures.java7.MappedFileSumDemo [numberOfLongs]
+ * </pre>
+ */
+public class MappedFileSumDemo {
+
+    /**
+     * Runs the demo.
+     *
+     * @param args optional number of {@code long} values to write (default 32M, i.e. a 256 MB file)
+     * @throws IOException if the temporary file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        long n = args.length > 0 ? Long.parseLong(args[0]) : 1L << 25;
+        Path file = Files.createTempFile("metrics", ".bin");
+        try {
+            writeLongs(file, n);
+            System.out.printf("Wrote %,d longs (%,d MB) to %s%n", n, Files.size(file) >> 20, file);
+
+            long start = System.nanoTime();
+            long sum = MappedFileReductions.sumLongs(file, ByteOrder.LITTLE_ENDIAN);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Mapped sum: %d (expected %d) in %.1f ms, %.2f GB/s%n",
+                    sum, n * (n + 1) / 2, elapsed / 1e6, (double) Files.size(file) / elapsed);
+            System.out.printf("Heap in use: %,d MB%n", usedHeapMegabytes());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // The same task also works on any off-heap direct buffer
+        ByteBuffer offHeap = ByteBuffer.allocateDirect(8 * 1_000_000).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < 1_000_000; i++) offHeap.putLong(i * 8, i);
+        LongBufferSumTask task = new LongBufferSumTask(offHeap.asLongBuffer(), 0, 1_000_000,
+                SplitPolicy.adaptive(ForkJoinPool.commonPool(), 1_000_000));
+        ForkJoinPool.commonPool().invoke(task);
+        System.out.println("Direct buffer sum of 0..999999: " + task.sum()); // 499999500000
+    }
+
+    /**
+     * Writes the values 1..n as little-endian longs, one small buffer at a time.
+     */
+    private static void writeLongs(Path file, long n) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (long value = 1; value <= n; value++) {
+                buffer.putLong(value);
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    private static long usedHeapMegabytes() {
+        Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) >> 20;
+    }
+}
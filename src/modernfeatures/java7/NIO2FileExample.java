@@ -29,6 +29,7 @@ public class NIO2FileExample {
         }
 
         // 3. Read all lines from the file
+        // (readAllLines loads the whole file; for files larger than memory see ExternalFileSort)
         try {
             System.out.println("Reading file:");
             for (String line : Files.readAllLines(path)) {
@@ -0,0 +1,83 @@
+package modernfeatures.java7;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Demonstrates the parallel scans in {@link PrefixSums} and the parallel {@link HistogramTask}.
+ * <p>
+ * The scans are checked against {@link Arrays#parallelPrefix(long[], java.util.function.LongBinaryOperator)}
+ * on a large random array, and both are timed (best of a few warmed-up rounds).
+ */
+public class PrefixSumDemo {
+
+    /**
+     * Runs the small worked examples, then the large correctness and timing comparison.
+     *
+     * @param args optional number of elements for the large comparison (default 16M)
+     */
+    public static void main(String[] args) {
+        // Small worked examples
+        long[] small = {1, 2, 3, 4, 5};
+        PrefixSums.inclusiveScan(small);
+        System.out.println("Inclusive scan of [1..5]: " + Arrays.toString(small)); // [1, 3, 6, 10, 15]
+
+        small = new long[]{1, 2, 3, 4, 5};
+        PrefixSums.exclusiveScan(small);
+        System.out.println("Exclusive scan of [1..5]: " + Arrays.toString(small)); // [0, 1, 3, 6, 10]
+
+        small = new long[]{1, 2, 3, 4, 5};
+        PrefixSums.segmentedInclusiveScan(small, new boolean[]{true, false, false, true, false});
+        System.out.println("Segmented scan, segments start at 0 and 3: " + Arrays.toString(small)); // [1, 3, 6, 4, 9]
+
+        // Large comparison against Arrays.parallelPrefix
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 24;
+        long[] data = new Random(42).longs(n, -1_000, 1_000).toArray();
+
+        long[] expected = data.clone();
+        long jdkNanos = bestOf(() -> {
+            System.arraycopy(data, 0, expected, 0, n);
+            Arrays.parallelPrefix(expected, Long::sum);
+        });
+        long[] actual = data.clone();
+        long ourNanos = bestOf(() -> {
+            System.arraycopy(data, 0, actual, 0, n);
+            PrefixSums.inclusiveScan(actual);
+        });
+        System.out.printf("%nInclusive scan of %d elements matches Arrays.parallelPrefix: %b%n",
+                n, Arrays.equals(expected, actual));
+        System.out.printf("Arrays.parallelPrefix: %.1f ms, PrefixSums.inclusiveScan: %.1f ms%n",
+                jdkNanos / 1e6, ourNanos / 1e6);
+
+        // Exclusive scan is the inclusive scan shifted right by one
+        System.arraycopy(data, 0, actual, 0, n);
+        PrefixSums.exclusiveScan(actual);
+        boolean exclusiveOk = actual[0] == 0;
+        for (int i = 1; i < n && exclusiveOk; i++) exclusiveOk = actual[i] == expected[i - 1];
+        System.out.println("Exclusive scan consistent with inclusive scan: " + exclusiveOk);
+
+        // Histogram of random values in [0, 1000) into 10 bins, compared with a sequential count
+        int[] values = new Random(7).ints(n, 0, 1_000).toArray();
+        HistogramTask histogram = HistogramTask.equalWidth(values, 0, 1_000, 10);
+        histogram.invoke();
+        long[] sequential = new long[10];
+        for (int v : values) sequential[v / 100]++;
+        System.out.println("\nHistogram (10 bins): " + Arrays.toString(histogram.counts()));
+        System.out.println("Matches sequential count: " + Arrays.equals(sequential, histogram.counts())
+                + ", tasks: " + histogram.policy().taskCount());
+    }
+
+    /**
+     * Runs {@code work} a few times and returns the fastest time in nanoseconds.
+     */
+    private static long bestOf(Runnable work) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 8; round++) {
+            long start = System.nanoTime();
+            work.run();
+            long elapsed = System.nanoTime() - start;
+            if (round >= 3) best = Math.min(best, elapsed);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,175 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel in-place prefix sums (scans) over {@code long[]} arrays, built on the Fork/Join framework.
+ * <p>
+ * Every scan uses the classic two-pass, block-based algorithm:
+ * <ol>
+ *   <li><b>Up-sweep:</b> the array is cut into blocks (a few per core, see {@link SplitPolicy}),
+ *       and the total of each block is computed in parallel.</li>
+ *   <li>The block totals are scanned sequentially; there are only a few dozen of them.
+ *       This gives the carry-in value of each block.</li>
+ *   <li><b>Down-sweep:</b> each block is scanned in parallel, starting from its carry-in.</li>
+ * </ol>
+ * Each element is read twice and written once. The only allocation is one small array of
+ * per-block values per call, so nothing is allocated per element.
+ */
+public final class PrefixSums {
+
+    private PrefixSums() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Replaces each element with the sum of itself and all elements before it.
+     * Produces the same result as {@code Arrays.parallelPrefix(arr, Long::sum)}.
+     *
+     * @param arr the array to scan in place
+     */
+    public static void inclusiveScan(long[] arr) {
+        int blockSize = blockSize(arr.length);
+        int blocks = blockCount(arr.length, blockSize);
+        long[] carry = blockTotals(arr, blockSize, blocks);
+        forEachBlock(blocks, b -> {
+            int lo = b * blockSize, hi = Math.min(arr.length, lo + blockSize);
+            long running = carry[b];
+            for (int i = lo; i < hi; i++) {
+                running += arr[i];
+                arr[i] = running;
+            }
+        });
+    }
+
+    /**
+     * Replaces each element with the sum of all elements before it (the first element becomes 0).
+     *
+     * @param arr the array to scan in place
+     */
+    public static void exclusiveScan(long[] arr) {
+        int blockSize = blockSize(arr.length);
+        int blocks = blockCount(arr.length, blockSize);
+        long[] carry = blockTotals(arr, blockSize, blocks);
+        forEachBlock(blocks, b -> {
+            int lo = b * blockSize, hi = Math.min(arr.length, lo + blockSize);
+            long running = carry[b];
+            for (int i = lo; i < hi; i++) {
+                long value = arr[i];
+                arr[i] = running;
+                running += value;
+            }
+        });
+    }
+
+    /**
+     * Inclusive scan that restarts at every index where {@code segmentStarts} is {@code true}.
+     * For example, values {@code [1, 2, 3, 4, 5]} with starts at indexes 0 and 3 become {@code [1, 3, 6, 4, 9]}.
+     *
+     * @param arr the array to scan in place
+     * @param segmentStarts marks the first element of each segment; must have the same length as {@code arr}
+     */
+    public static void segmentedInclusiveScan(long[] arr, boolean[] segmentStarts) {
+        if (segmentStarts.length != arr.length) {
+            throw new IllegalArgumentException("segmentStarts has length " + segmentStarts.length
+                    + ", expected " + arr.length);
+        }
+        int blockSize = blockSize(arr.length);
+        int blocks = blockCount(arr.length, blockSize);
+
+        // Up-sweep: sum of each block's tail after its last segment start, and whether it has a start at all
+        long[] tails = new long[blocks];
+        boolean[] restarts = new boolean[blocks];
+        forEachBlock(blocks, b -> {
+            int lo = b * blockSize, hi = Math.min(arr.length, lo + blockSize);
+            long tail = 0;
+            for (int i = lo; i < hi; i++) {
+                if (segmentStarts[i]) {
+                    tail = 0;
+                    restarts[b] = true;
+                }
+                tail += arr[i];
+            }
+            tails[b] = tail;
+        });
+
+        // A block's carry-in is the previous block's tail, plus the previous carry unless the segment restarted
+        long[] carry = new long[blocks];
+        for (int b = 1; b < blocks; b++) {
+            carry[b] = restarts[b - 1] ? tails[b - 1] : carry[b - 1] + tails[b - 1];
+        }
+
+        // Down-sweep
+        forEachBlock(blocks, b -> {
+            int lo = b * blockSize, hi = Math.min(arr.length, lo + blockSize);
+            long running = carry[b];
+            for (int i = lo; i < hi; i++) {
+                running = segmentStarts[i] ? arr[i] : running + arr[i];
+                arr[i] = running;
+            }
+        });
+    }
+
+    /**
+     * Up-sweep: computes every block total in parallel, then turns the totals into
+     * per-block carry-in values with a short sequential exclusive scan.
+     */
+    private static long[] blockTotals(long[] arr, int blockSize, int blocks) {
+        long[] carry = new long[blocks];
+        forEachBlock(blocks, b -> {
+            int lo = b * blockSize, hi = Math.min(arr.length, lo + blockSize);
+            carry[b] = LeafKernel.UNROLLED.sum(arr, lo, hi);
+        });
+        long running = 0;
+        for (int b = 0; b < blocks; b++) {
+            long total = carry[b];
+            carry[b] = running;
+            running += total;
+        }
+        return carry;
+    }
+
+    // A few blocks per core, but never so small that task overhead dominates
+    private static int blockSize(int length) {
+        return SplitPolicy.adaptive(ForkJoinPool.commonPool(), length).maxLeafSize();
+    }
+
+    private static int blockCount(int length, int blockSize) {
+        return (int) (((long) length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * Runs {@code body} for every block index in {@code [0, blocks)} in the common pool.
+     */
+    private static void forEachBlock(int blocks, IntConsumer body) {
+        if (blocks > 0) {
+            ForkJoinPool.commonPool().invoke(new BlockAction(0, blocks, body));
+        }
+    }
+
+    /**
+     * Splits a range of block indexes in halves until each task handles a single block.
+     */
+    private static final class BlockAction extends RecursiveAction {
+        private final int lo, hi;
+        private final IntConsumer body;
+
+        BlockAction(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.accept(lo);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BlockAction(lo, mid, body), new BlockAction(mid, hi, body));
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Convenience entry points for the boxing-free fork/join reductions
+ * ({@link LongSumTask}, {@link DoubleSumTask}, {@link IntFoldTask}, {@link LongFoldTask}, {@link CountTask}).
+ * <p>
+ * Every method runs in the common {@link ForkJoinPool} and returns a primitive.
+ * To use a dedicated pool, create the task directly and call {@code pool.invoke(task)}.
+ */
+public final class Reductions {
+
+    private Reductions() {
+        // Utility class, no instances
+    }
+
+    /** Sums an {@code int[]} into a {@code long}, so the result cannot overflow for realistic array sizes. */
+    public static long sum(int[] arr) {
+        return run(new LongSumTask(arr, 0, arr.length)).sum();
+    }
+
+    /** Sums a {@code long[]}. */
+    public static long sum(long[] arr) {
+        return run(new LongSumTask(arr, 0, arr.length)).sum();
+    }
+
+    /** Sums a {@code double[]}. */
+    public static double sum(double[] arr) {
+        return run(new DoubleSumTask(arr, 0, arr.length)).sum();
+    }
+
+    /** Returns the minimum of an {@code int[]}, or {@code Integer.MAX_VALUE} if it is empty. */
+    public static int min(int[] arr) {
+        return run(IntFoldTask.min(arr, 0, arr.length)).result();
+    }
+
+    /** Returns the maximum of an {@code int[]}, or {@code Integer.MIN_VALUE} if it is empty. */
+    public static int max(int[] arr) {
+        return run(IntFoldTask.max(arr, 0, arr.length)).result();
+    }
+
+    /** Returns the minimum of a {@code long[]}, or {@code Long.MAX_VALUE} if it is empty. */
+    public static long min(long[] arr) {
+        return run(LongFoldTask.min(arr, 0, arr.length)).result();
+    }
+
+    /** Returns the maximum of a {@code long[]}, or {@code Long.MIN_VALUE} if it is empty. */
+    public static long max(long[] arr) {
+        return run(LongFoldTask.max(arr, 0, arr.length)).result();
+    }
+
+    /** Counts the elements of an {@code int[]} that match {@code predicate}. */
+    public static long count(int[] arr, IntPredicate predicate) {
+        return run(new CountTask(arr, 0, arr.length, predicate)).count();
+    }
+
+    /** Folds an {@code int[]} with an associative operator and its identity value. */
+    public static int fold(int[] arr, int identity, IntBinaryOperator op) {
+        return run(new IntFoldTask(arr, 0, arr.length, identity, op)).result();
+    }
+
+    /** Folds a {@code long[]} with an associative operator and its identity value. */
+    public static long fold(long[] arr, long identity, LongBinaryOperator op) {
+        return run(new LongFoldTask(arr, 0, arr.length, identity, op)).result();
+    }
+
+    // Runs the task in the common pool and returns it, so callers can read its primitive result
+    private static <R, T extends SliceReduceTask<R, T>> T run(T task) {
+        ForkJoinPool.commonPool().invoke(task);
+        return task;
+    }
+}
@@ -0,0 +1,112 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Base class for fork/join reductions over a slice {@code [lo, hi)} of a primitive array.
+ * <p>
+ * Unlike {@link SumTask}, which extends {@code RecursiveTask<Integer>} and boxes the partial
+ * result of every split, subclasses keep their partial result in a primitive field and use
+ * {@link CountedCompleter} completion instead of {@code join()}:
+ * <ul>
+ *   <li>{@code compute()} repeatedly halves its range, forking the right half and keeping the left.</li>
+ *   <li>Forked subtasks are remembered in a linked list ({@code forks} / {@code next}).</li>
+ *   <li>When all subtasks of a task have finished, their primitive results are merged into it,
+ *       walking up the tree with {@code firstComplete()} / {@code nextComplete()}.</li>
+ * </ul>
+ * No thread ever blocks waiting for a child, and the only boxing happens once, at the root,
+ * if the caller asks for {@link #getRawResult()}.
+ * <p>
+ * When to stop splitting is decided by a {@link SplitPolicy}, shared by all tasks of one invocation.
+ *
+ * @param <R> the (boxed) result type reported by {@link #getRawResult()}
+ * @param <T> the concrete subclass type (self type)
+ */
+public abstract class SliceReduceTask<R, T extends SliceReduceTask<R, T>> extends CountedCompleter<R> {
+
+    protected final int lo, hi;
+    protected final SplitPolicy policy;
+
+    // Subtasks forked by this task, and the next sibling in our parent's list
+    T forks, next;
+
+    /**
+     * Constructs a task for the slice {@code [lo, hi)}.
+     *
+     * @param parent the completer to notify when this task finishes, or {@code null} for the root
+     * @param lo the starting index (inclusive)
+     * @param hi the ending index (exclusive)
+     * @param policy decides when to stop splitting
+     * @param next the next sibling in the parent's list of forked subtasks
+     */
+    protected SliceReduceTask(CountedCompleter<?> parent, int lo, int hi, SplitPolicy policy, T next) {
+        super(parent);
+        this.lo = lo;
+        this.hi = hi;
+        this.policy = policy;
+        this.next = next;
+    }
+
+    /**
+     * Returns the split policy of this task, e.g. to inspect how many tasks an invocation created.
+     *
+     * @return the split policy
+     */
+    public SplitPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Creates the task for the right half {@code [lo, hi)} of a split.
+     */
+    protected abstract T newSubtask(int lo, int hi, T next);
+
+    /**
+     * Sequentially reduces {@code [lo, hi)} into this task's result field.
+     */
+    protected abstract void reduceLeaf(int lo, int hi);
+
+    /**
+     * Merges the result of a finished subtask into this task's result field.
+     */
+    protected abstract void merge(T subtask);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void compute() {
+        policy.recordTask();
+        int l = lo, h = hi;
+        // Split off right halves until the policy says the remaining left part is small enough
+        while (h - l > 1 && policy.shouldSplit(h - l)) {
+            int mid = (l + h) >>> 1;
+            addToPendingCount(1);
+            (forks = newSubtask(mid, h, forks)).fork();
+            h = mid;
+        }
+        reduceLeaf(l, h);
+        // Propagate completion upwards, merging each finished task's subtasks as we go
+        for (CountedCompleter<?> c = firstComplete(); c != null; c = c.nextComplete()) {
+            T t = (T) c;
+            for (T s = t.forks; s != null; s = t.forks = s.next) {
+                t.merge(s);
+            }
+        }
+    }
+
+    /**
+     * Checks that {@code [from, to)} is a valid slice of an array of the given length.
+     */
+    static void checkSlice(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") of length " + length);
+        }
+    }
+
+    /**
+     * Returns the default policy for a root task: adaptive, sized for the common pool.
+     */
+    static SplitPolicy defaultPolicy(int from, int to) {
+        return SplitPolicy.adaptive(ForkJoinPool.commonPool(), Math.max(0, to - from));
+    }
+}
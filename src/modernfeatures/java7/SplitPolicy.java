@@ -0,0 +1,164 @@
+package modernfeatures.java7;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a fork/join task should stop splitting, and records how many tasks were created.
+ * <p>
+ * A fixed threshold such as {@code SumTask.THRESHOLD = 5} is either far too fine (millions of tiny
+ * tasks on large arrays) or too coarse (idle cores on small ones). An adaptive policy instead works
+ * with two bounds:
+ * <ul>
+ *   <li><b>maxLeafSize</b>: {@code length / (4 * parallelism)}, so every worker gets a few leaves to balance load.
+ *       Larger ranges are always split.</li>
+ *   <li><b>minLeafSize</b>: the number of elements that take about {@link #TARGET_LEAF_NANOS} to process, so task
+ *       overhead stays negligible. Smaller ranges are never split.</li>
+ * </ul>
+ * In between, a range is split only while the current worker has few surplus tasks queued
+ * ({@link ForkJoinTask#getSurplusQueuedTaskCount()}), i.e. only while other workers may be idle.
+ * <p>
+ * The per-element cost can be guessed (about 1 ns for a primitive sum) or measured with
+ * {@link #calibrated(ForkJoinPool, SliceReduceTask)}. Create one policy per invocation:
+ * it counts the tasks that used it, see {@link #taskCount()}.
+ */
+public final class SplitPolicy {
+
+    /** Keep splitting only while the worker has at most this many surplus queued tasks. */
+    public static final int MAX_SURPLUS = 3;
+
+    /** Desired minimum run time of a leaf task, in nanoseconds. */
+    public static final long TARGET_LEAF_NANOS = 10_000;
+
+    /** Per-element cost assumed when no calibration was done (a cheap primitive operation). */
+    public static final double DEFAULT_NANOS_PER_ELEMENT = 1.0;
+
+    // Elements used by calibrated(); large enough to time reliably, small enough to stay in cache
+    private static final int CALIBRATION_SAMPLE = 1 << 16;
+
+    private final int minLeafSize;
+    private final int maxLeafSize;
+    private final LongAdder tasks = new LongAdder();
+
+    private SplitPolicy(int minLeafSize, int maxLeafSize) {
+        this.minLeafSize = minLeafSize;
+        this.maxLeafSize = maxLeafSize;
+    }
+
+    /**
+     * Creates a policy that splits every range larger than {@code leafSize}, like a classic THRESHOLD.
+     *
+     * @param leafSize the maximum number of elements processed sequentially
+     * @return a fixed-threshold policy
+     */
+    public static SplitPolicy fixed(int leafSize) {
+        if (leafSize < 1) {
+            throw new IllegalArgumentException("leafSize must be positive: " + leafSize);
+        }
+        return new SplitPolicy(leafSize, leafSize);
+    }
+
+    /**
+     * Creates an adaptive policy for {@code length} cheap elements processed in {@code pool}.
+     *
+     * @param pool the pool the task will run in
+     * @param length the number of elements to process
+     * @return an adaptive policy
+     */
+    public static SplitPolicy adaptive(ForkJoinPool pool, int length) {
+        return adaptive(pool, length, DEFAULT_NANOS_PER_ELEMENT);
+    }
+
+    /**
+     * Creates an adaptive policy for {@code length} elements costing {@code nanosPerElement} each.
+     *
+     * @param pool the pool the task will run in
+     * @param length the number of elements to process
+     * @param nanosPerElement the (measured or estimated) cost of processing one element
+     * @return an adaptive policy
+     */
+    public static SplitPolicy adaptive(ForkJoinPool pool, int length, double nanosPerElement) {
+        if (!(nanosPerElement > 0)) {
+            throw new IllegalArgumentException("nanosPerElement must be positive: " + nanosPerElement);
+        }
+        int targetLeaves = pool.getParallelism() << 2;
+        int max = Math.max(1, (int) Math.ceil((double) length / targetLeaves));
+        long min = (long) Math.ceil(TARGET_LEAF_NANOS / nanosPerElement);
+        return new SplitPolicy((int) Math.max(1, Math.min(min, max)), max);
+    }
+
+    /**
+     * Creates an adaptive policy after measuring the per-element cost of {@code probe}'s leaf loop
+     * on a prefix of its range. The probe is only used for timing; run a fresh task built with the
+     * returned policy.
+     *
+     * @param pool the pool the task will run in
+     * @param probe a task over the same data as the one to be run
+     * @return an adaptive policy sized from the measured cost
+     */
+    public static SplitPolicy calibrated(ForkJoinPool pool, SliceReduceTask<?, ?> probe) {
+        return adaptive(pool, probe.hi - probe.lo, measureNanosPerElement(probe));
+    }
+
+    /**
+     * Times the sequential leaf loop of {@code probe} and returns the cost of one element.
+     * A few warm-up rounds let the JIT compile the loop; the fastest measured round is used.
+     *
+     * @param probe the task whose leaf loop is timed
+     * @return the measured cost per element in nanoseconds (never zero)
+     */
+    public static double measureNanosPerElement(SliceReduceTask<?, ?> probe) {
+        int n = Math.min(probe.hi - probe.lo, CALIBRATION_SAMPLE);
+        if (n == 0) {
+            return DEFAULT_NANOS_PER_ELEMENT;
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            probe.reduceLeaf(probe.lo, probe.lo + n);
+            long elapsed = System.nanoTime() - start;
+            if (round >= 5) best = Math.min(best, elapsed);
+        }
+        return Math.max(best, 1L) / (double) n;
+    }
+
+    /**
+     * Returns whether a task covering {@code size} elements should split further.
+     *
+     * @param size the number of elements in the current range
+     * @return {@code true} to split, {@code false} to process the range sequentially
+     */
+    public boolean shouldSplit(int size) {
+        if (size <= minLeafSize) return false;
+        if (size > maxLeafSize) return true;
+        // Only split further if the other workers might run out of work
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getSurplusQueuedTaskCount() <= MAX_SURPLUS;
+    }
+
+    /** Records that one more task ran with this policy. */
+    void recordTask() {
+        tasks.increment();
+    }
+
+    /** Returns the size below which ranges are never split. */
+    public int minLeafSize() {
+        return minLeafSize;
+    }
+
+    /** Returns the size above which ranges are always split. */
+    public int maxLeafSize() {
+        return maxLeafSize;
+    }
+
+    /** Returns the number of tasks (each processing one leaf) that have run with this policy. */
+    public long taskCount() {
+        return tasks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SplitPolicy[minLeafSize=" + minLeafSize + ", maxLeafSize=" + maxLeafSize
+                + ", tasks=" + taskCount() + "]";
+    }
+}
@@ -0,0 +1,137 @@
+package modernfeatures.sketches;
+
+/**
+ * A Bloom filter: remembers which elements were seen in a fixed-size bit array, with a configurable
+ * rate of false positives and no false negatives.
+ * <p>
+ * Each element sets {@code k} bits chosen by its hash. An element whose bits are all set was
+ * "probably seen"; if any bit is clear it was certainly not seen.
+ * <ul>
+ *   <li>Memory: {@code m = -n ln(p) / ln(2)^2} bits for {@code n} expected elements and false positive
+ *       rate {@code p}, about 1.2 bytes per element at 1% and 1.8 bytes at 0.1%, whatever the elements'
+ *       size.</li>
+ *   <li>Error: after {@code n} insertions, an element never seen is reported as seen with probability
+ *       about {@code p}; beyond {@code n} the rate climbs (see {@link #expectedFalsePositiveRate()}).</li>
+ *   <li>Merging: filters of the same size merge by OR-ing their bits.</li>
+ * </ul>
+ * This class is not thread-safe.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long insertions;
+
+    /**
+     * Creates a filter sized for {@code expectedInsertions} elements at the given false positive rate.
+     *
+     * @param expectedInsertions the number of distinct elements expected
+     * @param falsePositiveRate the acceptable false positive rate, e.g. {@code 0.01}
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+        this.bits = new long[Math.max(1, words)];
+        this.bitCount = 64L * bits.length;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+    }
+
+    /**
+     * Records an element.
+     *
+     * @param element the element, may be {@code null}
+     * @return {@code true} if the element was certainly not seen before (some bit was still clear)
+     */
+    public boolean put(Object element) {
+        long h1 = Hashing.hash64(element);
+        long h2 = Hashing.mix64(h1);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                changed = true;
+            }
+        }
+        if (changed) insertions++;
+        return changed;
+    }
+
+    /**
+     * Returns whether an element was probably seen: {@code false} is always right,
+     * {@code true} is wrong with about the configured false positive rate.
+     *
+     * @param element the element
+     * @return {@code true} if all its bits are set
+     */
+    public boolean mightContain(Object element) {
+        long h1 = Hashing.hash64(element);
+        long h2 = Hashing.mix64(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Merges another filter into this one, as if all its elements had been put here.
+     *
+     * @param other a filter of the same size and hash count
+     * @return this filter
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public BloomFilter merge(BloomFilter other) {
+        if (other.bits.length != bits.length || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("Cannot merge Bloom filters of different sizes");
+        }
+        for (int i = 0; i < bits.length; i++) bits[i] |= other.bits[i];
+        insertions += other.insertions;
+        return this;
+    }
+
+    /**
+     * Returns the current false positive rate estimated from the fraction of bits set.
+     */
+    public double expectedFalsePositiveRate() {
+        long set = 0;
+        for (long word : bits) set += Long.bitCount(word);
+        return Math.pow((double) set / bitCount, hashCount);
+    }
+
+    /** Returns the number of elements that changed the filter, i.e. were reported as new. */
+    public long insertions() {
+        return insertions;
+    }
+
+    /** Returns the number of bits set per element. */
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /** Returns the memory used by the bit array, in bytes. */
+    public long memoryBytes() {
+        return 8L * bits.length;
+    }
+
+    // Maps a 64-bit hash to a bit position, (hash * bitCount) / 2^64, which avoids a modulo
+    private long index(long combinedHash) {
+        return Math.unsignedMultiplyHigh(combinedHash, bitCount);
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter{bits=" + bitCount + ", hashes=" + hashCount + ", insertions=" + insertions
+                + String.format(", expectedFpp=%.4f%%}", expectedFalsePositiveRate() * 100);
+    }
+}
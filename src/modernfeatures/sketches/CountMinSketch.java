@@ -0,0 +1,160 @@
+package modernfeatures.sketches;
+
+/**
+ * A Count-Min sketch: estimates how often each element occurred, in a fixed amount of memory.
+ * <p>
+ * The sketch is a {@code depth x width} table of counters. Each row hashes an element to one counter
+ * and increments it; the estimate is the smallest of the element's counters across rows. Collisions
+ * can only add to a counter, so estimates never undercount. With {@code N} the total count:
+ * <ul>
+ *   <li>Error: an estimate exceeds the true count by at most {@code epsilon * N} with probability
+ *       {@code confidence}, where {@code width = e / epsilon} and {@code depth = ln(1 / (1 - confidence))}.
+ *       The width is rounded up to a power of two, which only makes {@code epsilon} smaller.</li>
+ *   <li>Memory: {@code 8 * width * depth} bytes, e.g. 160 KB for {@code epsilon = 0.001} and
+ *       {@code confidence = 0.99}, no matter how many distinct elements there are.</li>
+ *   <li>Merging: sketches with the same dimensions merge by adding their counters.</li>
+ * </ul>
+ * This class is not thread-safe; collect per thread and {@link #merge(CountMinSketch)} instead.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final long[] counters;
+    private long totalCount;
+
+    /**
+     * Creates an empty sketch for the given error bound.
+     *
+     * @param epsilon the maximum overcount as a fraction of the total count, e.g. {@code 0.001}
+     * @param confidence the probability that an estimate stays within that bound, e.g. {@code 0.99}
+     */
+    public CountMinSketch(double epsilon, double confidence) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("epsilon must be in (0, 1): " + epsilon);
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("confidence must be in (0, 1): " + confidence);
+        }
+        int minWidth = (int) Math.min(1 << 30, Math.ceil(Math.E / epsilon));
+        this.width = Math.max(2, Integer.highestOneBit(minWidth - 1) << 1);
+        this.mask = width - 1;
+        this.depth = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+        this.counters = new long[Math.multiplyExact(depth, width)];
+    }
+
+    /**
+     * Adds {@code count} occurrences of an element.
+     *
+     * @param element the element, may be {@code null}
+     * @param count the number of occurrences, not negative
+     * @return the element's new estimated count
+     */
+    public long add(Object element, long count) {
+        return addHash(Hashing.hash64(element), count);
+    }
+
+    /**
+     * Adds {@code count} occurrences of an element given by its well-mixed 64-bit hash.
+     *
+     * @param hash the element's hash
+     * @param count the number of occurrences, not negative
+     * @return the element's new estimated count
+     */
+    public long addHash(long hash, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative count: " + count);
+        }
+        // Row i uses h1 + i * h2: two halves of one hash are as good as depth independent hashes
+        // An odd step, so no row can repeat the column of another one: the width is a power of two
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + ((h1 + row * h2) & mask);
+            min = Math.min(min, counters[index] += count);
+        }
+        totalCount += count;
+        return min;
+    }
+
+    /**
+     * Returns the estimated count of an element: never less than the true count.
+     *
+     * @param element the element
+     * @return the estimate
+     */
+    public long estimate(Object element) {
+        return estimateHash(Hashing.hash64(element));
+    }
+
+    /**
+     * Returns the estimated count of an element given by its hash.
+     *
+     * @param hash the element's hash
+     * @return the estimate
+     */
+    public long estimateHash(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * Merges another sketch into this one, as if all its occurrences had been added here.
+     *
+     * @param other a sketch with the same width and depth
+     * @return this sketch
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+                    + " sketch into a " + depth + "x" + width + " sketch");
+        }
+        for (int i = 0; i < counters.length; i++) counters[i] += other.counters[i];
+        totalCount += other.totalCount;
+        return this;
+    }
+
+    /** Returns the total of all counts added. */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /** Returns the actual {@code epsilon}, {@code e / width}, after rounding the width up. */
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /** Returns the overcount that estimates stay within with the configured confidence, {@code epsilon * N}. */
+    public long errorBound() {
+        return (long) Math.ceil(epsilon() * totalCount);
+    }
+
+    /** Returns the number of counters per row. */
+    public int width() {
+        return width;
+    }
+
+    /** Returns the number of rows. */
+    public int depth() {
+        return depth;
+    }
+
+    /** Returns the memory used by the counters, in bytes. */
+    public long memoryBytes() {
+        return 8L * counters.length;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch{" + depth + "x" + width + ", totalCount=" + totalCount
+                + ", errorBound=" + errorBound() + "}";
+    }
+}
@@ -0,0 +1,46 @@
+package modernfeatures.sketches;
+
+/**
+ * 64-bit hashing shared by the sketches.
+ * <p>
+ * Sketches need well-mixed 64-bit hashes: {@code hashCode()} has only 32 bits, so beyond a few
+ * hundred million distinct keys collisions alone would skew a distinct count, and values such as
+ * small {@code Integer}s hash to themselves. Strings are therefore hashed over their characters,
+ * numbers over their 64-bit value, and other objects by mixing their {@code hashCode()}.
+ */
+final class Hashing {
+
+    private Hashing() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Returns a 64-bit hash of {@code element}; {@code null} hashes like {@code 0}.
+     */
+    static long hash64(Object element) {
+        if (element instanceof CharSequence text) {
+            // FNV-1a over the characters, then mixed
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < text.length(); i++) {
+                h = (h ^ text.charAt(i)) * 0x100000001b3L;
+            }
+            return mix64(h);
+        }
+        if (element instanceof Long || element instanceof Integer
+                || element instanceof Short || element instanceof Byte) {
+            return mix64(((Number) element).longValue());
+        }
+        return mix64(element == null ? 0 : element.hashCode());
+    }
+
+    /**
+     * Mixes all bits of {@code value} into all bits of the result (the SplitMix64 step),
+     * so that consecutive values give unrelated hashes and {@code 0} does not hash to {@code 0}.
+     */
+    static long mix64(long value) {
+        long h = value + 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,197 @@
+package modernfeatures.sketches;
+
+import modernfeatures.collections.Object2IntMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tracks the {@code k} most frequent elements of a stream in fixed memory: a {@link CountMinSketch}
+ * estimates every element's count, and a min-heap of size {@code k} keeps the elements with the
+ * highest estimates seen so far.
+ * <p>
+ * When an element arrives, its estimate is updated in the sketch. If it is already in the heap its
+ * entry moves down as its count grows; otherwise it replaces the heap's smallest entry if its
+ * estimate is larger. Because the sketch remembers every element's count, an element that was
+ * evicted earlier comes back with its full count.
+ * <ul>
+ *   <li>Error: the reported counts are Count-Min estimates, at most {@code epsilon * N} too high
+ *       (see {@link #errorBound()}). Any element occurring more than {@code N / k + epsilon * N}
+ *       times is reported with high probability.</li>
+ *   <li>Memory: the sketch plus {@code k} entries; independent of the number of distinct elements.</li>
+ *   <li>Merging: the sketches are added, then the union of both candidate sets is re-ranked by
+ *       the merged estimates.</li>
+ * </ul>
+ * This class is not thread-safe; collect per thread and {@link #merge(HeavyHitters)} instead.
+ *
+ * @param <T> the element type
+ */
+public class HeavyHitters<T> {
+
+    /**
+     * An element and its estimated count.
+     *
+     * @param element the element
+     * @param count the estimated number of occurrences, never less than the true count
+     * @param <T> the element type
+     */
+    public record Entry<T>(T element, long count) {
+    }
+
+    private final int k;
+    private final CountMinSketch sketch;
+
+    // Min-heap of candidates ordered by count; positions maps each candidate to its heap index
+    private final Object[] heapElements;
+    private final long[] heapCounts;
+    private final Object2IntMap<T> positions;
+    private int size;
+
+    /**
+     * Creates an empty tracker.
+     *
+     * @param k the number of most frequent elements to keep
+     * @param epsilon the sketch's maximum overcount as a fraction of the total count
+     * @param confidence the probability that an estimate stays within that bound
+     */
+    public HeavyHitters(int k, double epsilon, double confidence) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        this.sketch = new CountMinSketch(epsilon, confidence);
+        this.heapElements = new Object[k];
+        this.heapCounts = new long[k];
+        this.positions = new Object2IntMap<>(k);
+    }
+
+    /**
+     * Adds one occurrence of an element.
+     *
+     * @param element the element, not {@code null}
+     */
+    public void add(T element) {
+        offer(element, sketch.add(element, 1));
+    }
+
+    /**
+     * Returns the estimated count of any element, whether or not it is among the top {@code k}.
+     *
+     * @param element the element
+     * @return the estimate, never less than the true count
+     */
+    public long estimate(T element) {
+        return sketch.estimate(element);
+    }
+
+    /**
+     * Returns the current top {@code k} elements, most frequent first.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Entry<T>> top() {
+        List<Entry<T>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Entry<>((T) heapElements[i], heapCounts[i]));
+        }
+        result.sort(Comparator.comparingLong((Entry<T> e) -> e.count()).reversed());
+        return result;
+    }
+
+    /**
+     * Merges another tracker into this one, as if all its elements had been added here.
+     *
+     * @param other a tracker with the same {@code k} and sketch dimensions
+     * @return this tracker
+     * @throws IllegalArgumentException if {@code k} or the sketch dimensions differ
+     */
+    @SuppressWarnings("unchecked")
+    public HeavyHitters<T> merge(HeavyHitters<T> other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge k=" + other.k + " into k=" + k);
+        }
+        sketch.merge(other.sketch);
+        // Re-rank both candidate sets by their merged estimates
+        List<Object> candidates = new ArrayList<>(size + other.size);
+        for (int i = 0; i < size; i++) candidates.add(heapElements[i]);
+        for (int i = 0; i < other.size; i++) candidates.add(other.heapElements[i]);
+        positions.clear();
+        size = 0;
+        for (Object candidate : candidates) {
+            offer((T) candidate, sketch.estimate(candidate));
+        }
+        return this;
+    }
+
+    /** Returns the total number of elements added. */
+    public long totalCount() {
+        return sketch.totalCount();
+    }
+
+    /** Returns the overcount that the reported counts stay within with the configured confidence. */
+    public long errorBound() {
+        return sketch.errorBound();
+    }
+
+    /** Returns the approximate memory used by the sketch and the heap, in bytes. */
+    public long memoryBytes() {
+        return sketch.memoryBytes() + 16L * k;
+    }
+
+    private void offer(T element, long count) {
+        int position = positions.getOrDefault(element, -1);
+        if (position >= 0) {
+            // Counts only grow, so an entry can only move down in a min-heap
+            heapCounts[position] = count;
+            siftDown(position);
+        } else if (size < k) {
+            place(size, element, count);
+            siftUp(size++);
+        } else if (count > heapCounts[0]) {
+            positions.remove(heapElements[0]);
+            place(0, element, count);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heapCounts[left] < heapCounts[smallest]) smallest = left;
+            if (right < size && heapCounts[right] < heapCounts[smallest]) smallest = right;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int i, int j) {
+        Object element = heapElements[i];
+        long count = heapCounts[i];
+        place(i, (T) heapElements[j], heapCounts[j]);
+        place(j, (T) element, count);
+    }
+
+    private void place(int i, T element, long count) {
+        heapElements[i] = element;
+        heapCounts[i] = count;
+        positions.put(element, i);
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyHitters{top=" + top() + ", totalCount=" + totalCount() + ", errorBound=" + errorBound() + "}";
+    }
+}
@@ -0,0 +1,150 @@
+package modernfeatures.sketches;
+
+/**
+ * A HyperLogLog sketch: estimates the number of distinct elements in a fixed amount of memory.
+ * <p>
+ * {@code distinct().count()} keeps every distinct element in a hash set, so its memory grows with
+ * the cardinality. This sketch hashes each element to 64 bits, uses the first {@code p} bits to pick
+ * one of {@code m = 2^p} one-byte registers and keeps, per register, the longest run of leading zeros
+ * seen in the remaining bits. Adding the same element twice changes nothing.
+ * <ul>
+ *   <li>Memory: {@code m} bytes, independent of the number of elements (16 KB at the default
+ *       precision 14).</li>
+ *   <li>Error: the relative standard error is about {@code 1.04 / sqrt(m)}, 0.81% at precision 14,
+ *       so about 95% of estimates are within twice that. Small cardinalities (below {@code 2.5 m})
+ *       are counted with linear counting and are almost exact.</li>
+ *   <li>Merging: two sketches of the same precision merge by taking the maximum of each register;
+ *       the result equals the sketch of the union of both inputs.</li>
+ * </ul>
+ * This class is not thread-safe; collect per thread and {@link #merge(HyperLogLog)} instead.
+ */
+public class HyperLogLog {
+
+    /** The precision used by {@link #HyperLogLog()}: 16384 registers, 0.81% standard error. */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch with the {@link #DEFAULT_PRECISION default precision}.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty sketch with {@code 2^precision} registers.
+     *
+     * @param precision the number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and "
+                    + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds an element; {@link CharSequence}s and integral numbers are hashed over their full value.
+     *
+     * @param element the element, may be {@code null}
+     */
+    public void add(Object element) {
+        addHash(Hashing.hash64(element));
+    }
+
+    /**
+     * Adds a {@code long} value without boxing it.
+     *
+     * @param value the value
+     */
+    public void add(long value) {
+        addHash(Hashing.mix64(value));
+    }
+
+    /**
+     * Adds an element by its precomputed 64-bit hash. The hash must be well mixed
+     * (every bit equally likely to be set), or the estimate will be biased.
+     *
+     * @param hash the element's hash
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first 1-bit after the index bits; the extra bit caps it at 64 - p + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) registers[index] = (byte) rank;
+    }
+
+    /**
+     * Returns the estimated number of distinct elements added.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) zeros++;
+        }
+        double raw = alpha(m) * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            // Few elements: most registers are still empty, and counting them is more accurate
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Merges another sketch into this one, as if all its elements had been added here.
+     *
+     * @param other a sketch with the same precision
+     * @return this sketch
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+        return this;
+    }
+
+    /** Returns the number of index bits. */
+    public int precision() {
+        return precision;
+    }
+
+    /** Returns the relative standard error of {@link #estimate()}, {@code 1.04 / sqrt(m)}. */
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /** Returns the memory used by the registers, in bytes. */
+    public int memoryBytes() {
+        return registers.length;
+    }
+
+    // Bias correction constant from the HyperLogLog paper
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog{estimate=" + estimate() + ", precision=" + precision
+                + String.format(", standardError=%.2f%%}", standardError() * 100);
+    }
+}
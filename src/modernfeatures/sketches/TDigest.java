@@ -0,0 +1,257 @@
+package modernfeatures.sketches;
+
+/**
+ * A merging t-digest: estimates quantiles (median, p99, ...) of a stream of {@code double}s in
+ * bounded memory.
+ * <p>
+ * {@code summarizingInt} only gives count, min, max and average; exact quantiles need all values
+ * sorted. A t-digest summarizes the values as a sorted list of centroids (mean and weight). Values are
+ * buffered and periodically merged into the centroids; a scale function lets centroids near the
+ * median absorb many values while those near the tails stay small, so extreme quantiles such as
+ * p99.9 remain accurate.
+ * <ul>
+ *   <li>Memory: at most about {@code compression} centroids of 16 bytes plus a buffer of five times
+ *       that, about 10 KB at the default compression of 100, however many values are added.</li>
+ *   <li>Error: quantile estimates are typically within 0.5% of the rank near the median and
+ *       much closer near the tails (the error shrinks with {@code q * (1 - q)}); higher compression
+ *       means more centroids and smaller errors. Unlike the other sketches there is no hard
+ *       bound, and results depend slightly on the order values arrive in.</li>
+ *   <li>Merging: the other digest's centroids are added as weighted values.</li>
+ * </ul>
+ * This class is not thread-safe; collect per thread and {@link #merge(TDigest)} instead.
+ */
+public class TDigest {
+
+    /** The compression used by {@link #TDigest()}. */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final int BUFFER_FACTOR = 5;
+
+    private final double compression;
+    private final int maxCentroids;
+
+    // Centroids in [0, centroids), sorted by mean; buffered values follow them in the same arrays
+    private final double[] means;
+    private final double[] weights;
+    private int centroids;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an empty digest with the {@link #DEFAULT_COMPRESSION default compression}.
+     */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates an empty digest.
+     *
+     * @param compression the accuracy/memory trade-off, typically 50 to 1000
+     */
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("compression must be at least 10: " + compression);
+        }
+        this.compression = compression;
+        // Merged neighbours always span more than one unit of the scale function, whose range is compression / 2
+        this.maxCentroids = 2 * (int) Math.ceil(compression / 2) + 2;
+        int capacity = maxCentroids * (1 + BUFFER_FACTOR);
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value, not NaN
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds a value with a weight, as if it had been added {@code weight} times.
+     *
+     * @param value the value, not NaN
+     * @param weight the weight, positive
+     */
+    public void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN");
+        }
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive: " + weight);
+        }
+        if (centroids + buffered == means.length) compress();
+        means[centroids + buffered] = value;
+        weights[centroids + buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the estimated value at quantile {@code q}: {@code 0.5} is the median,
+     * {@code 0.99} the 99th percentile. {@code 0} and {@code 1} return the exact minimum and maximum.
+     *
+     * @param q the quantile, between 0 and 1
+     * @return the estimate, or NaN if no values were added
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("q must be between 0 and 1: " + q);
+        }
+        compress();
+        if (centroids == 0) return Double.NaN;
+        if (q == 0) return min;
+        if (q == 1) return max;
+
+        // Each centroid's weight is centred on its mean; interpolate between neighbouring centres
+        double index = q * totalWeight;
+        double firstCentre = weights[0] / 2;
+        if (index < firstCentre) {
+            return min + (means[0] - min) * index / firstCentre;
+        }
+        double centre = firstCentre;
+        for (int i = 0; i < centroids - 1; i++) {
+            double nextCentre = centre + (weights[i] + weights[i + 1]) / 2;
+            if (index < nextCentre) {
+                return means[i] + (means[i + 1] - means[i]) * (index - centre) / (nextCentre - centre);
+            }
+            centre = nextCentre;
+        }
+        double lastHalf = totalWeight - centre;
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, (index - centre) / lastHalf);
+    }
+
+    /**
+     * Merges another digest into this one, as if all its values had been added here.
+     *
+     * @param other the digest to merge; it is compressed but otherwise unchanged
+     * @return this digest
+     */
+    public TDigest merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /** Returns the number of values added (the total weight). */
+    public long count() {
+        return Math.round(totalWeight);
+    }
+
+    /** Returns the smallest value added, or infinity if none. */
+    public double min() {
+        return min;
+    }
+
+    /** Returns the largest value added, or negative infinity if none. */
+    public double max() {
+        return max;
+    }
+
+    /** Returns the number of centroids after merging any buffered values. */
+    public int centroidCount() {
+        compress();
+        return centroids;
+    }
+
+    /** Returns the memory used by the centroid and buffer arrays, in bytes. */
+    public long memoryBytes() {
+        return 16L * means.length;
+    }
+
+    /**
+     * Merges the buffered values into the centroids. Centroids and buffer are sorted together, then
+     * neighbours are combined as long as the combined centroid spans at most one unit of the
+     * scale function {@code k(q) = compression / (2 pi) * asin(2q - 1)}.
+     */
+    private void compress() {
+        if (buffered == 0) return;
+        int n = centroids + buffered;
+        sortByMean(0, n - 1);
+
+        int out = 0;
+        double weightSoFar = 0;
+        double limit = totalWeight * inverseScale(scale(0) + 1);
+        double mean = means[0];
+        double weight = weights[0];
+        for (int i = 1; i < n; i++) {
+            if (weightSoFar + weight + weights[i] <= limit) {
+                weight += weights[i];
+                mean += (means[i] - mean) * weights[i] / weight;
+            } else {
+                means[out] = mean;
+                weights[out++] = weight;
+                weightSoFar += weight;
+                limit = totalWeight * inverseScale(scale(weightSoFar / totalWeight) + 1);
+                mean = means[i];
+                weight = weights[i];
+            }
+        }
+        means[out] = mean;
+        weights[out++] = weight;
+        centroids = out;
+        buffered = 0;
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double inverseScale(double k) {
+        // k ranges over [-compression / 4, compression / 4]; beyond that every remaining value fits
+        double clamped = Math.min(k, compression / 4);
+        return (Math.sin(clamped * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    // Quicksort of the (mean, weight) pairs by mean, with insertion sort for short ranges
+    private void sortByMean(int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = means[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (means[i] < pivot) i++;
+                while (means[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            // Recurse into the smaller half, loop on the larger one
+            if (j - lo < hi - i) {
+                sortByMean(lo, j);
+                lo = i;
+            } else {
+                sortByMean(i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && means[j - 1] > means[j]; j--) swap(j, j - 1);
+        }
+    }
+
+    private void swap(int i, int j) {
+        double mean = means[i];
+        double weight = weights[i];
+        means[i] = means[j];
+        weights[i] = weights[j];
+        means[j] = mean;
+        weights[j] = weight;
+    }
+
+    @Override
+    public String toString() {
+        return "TDigest{count=" + count() + ", centroids=" + centroidCount()
+                + ", p50=" + quantile(0.5) + ", p99=" + quantile(0.99) + "}";
+    }
+}
@@ -0,0 +1,192 @@
+package modernfeatures.streams;
+
+import modernfeatures.collections.OffHeapByteSet;
+import modernfeatures.sketches.BloomFilter;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Memory-bounded replacements for {@code distinct()}, used as {@code stream.filter(...)}.
+ * <p>
+ * {@code distinct()} keeps a {@code HashSet} of every element it has passed, so on a long or unbounded
+ * stream its heap use grows without limit. These filters pass the first occurrence of each element
+ * and drop repeats, with a choice of backing store:
+ * <ul>
+ *   <li>{@link #offHeap}: exact, keys encoded to bytes in an {@link OffHeapByteSet}; the garbage
+ *       collector sees only a few buffers instead of millions of small objects;</li>
+ *   <li>{@link #bloom}: approximate, a {@link BloomFilter} of fixed size; a few never-seen elements
+ *       (about the false positive rate) are dropped as if they were repeats, but a repeat is never passed;</li>
+ *   <li>{@link #lastDistinct}: drops an element only if it is among the last {@code n} distinct
+ *       elements passed;</li>
+ *   <li>{@link #within}: drops an element only if it was first passed less than a given time ago.</li>
+ * </ul>
+ * Use a new filter for each stream. The filters are thread-safe, but unlike {@code distinct()} in an
+ * ordered parallel stream they may keep any of the equal elements rather than the first one.
+ */
+public final class DistinctFilters {
+
+    /**
+     * A stateful {@code distinct()} filter.
+     *
+     * @param <T> the element type
+     */
+    public interface Filter<T> extends Predicate<T> {
+
+        /** Returns the number of elements currently remembered. */
+        long size();
+
+        /**
+         * Returns the bytes used by the filter's fixed or off-heap storage (the off-heap set, the Bloom
+         * bit array), or {@code 0} for the windowed filters, whose heap use is bounded by their window.
+         */
+        long memoryBytes();
+    }
+
+    private DistinctFilters() {
+        // Utility class, no instances
+    }
+
+    /**
+     * An exact filter backed by an off-heap hash set. Two elements are equal if their encodings are.
+     *
+     * @param encoder turns an element into its unique byte form, e.g. {@code s -> s.getBytes(UTF_8)}
+     * @param expectedSize the number of distinct elements expected (the set grows beyond it)
+     * @param <T> the element type
+     * @return the filter
+     */
+    public static <T> Filter<T> offHeap(Function<? super T, byte[]> encoder, int expectedSize) {
+        OffHeapByteSet seen = new OffHeapByteSet(expectedSize, 16);
+        return new Filter<>() {
+            @Override
+            public synchronized boolean test(T element) {
+                return seen.add(encoder.apply(element));
+            }
+
+            @Override
+            public synchronized long size() {
+                return seen.size();
+            }
+
+            @Override
+            public synchronized long memoryBytes() {
+                return seen.offHeapBytes();
+            }
+        };
+    }
+
+    /**
+     * An approximate filter backed by a fixed-size Bloom filter.
+     *
+     * @param expectedSize the number of distinct elements expected
+     * @param falsePositiveRate the fraction of new elements that may be dropped as repeats, e.g. {@code 0.01}
+     * @param <T> the element type
+     * @return the filter
+     */
+    public static <T> Filter<T> bloom(long expectedSize, double falsePositiveRate) {
+        BloomFilter seen = new BloomFilter(expectedSize, falsePositiveRate);
+        return new Filter<>() {
+            @Override
+            public synchronized boolean test(T element) {
+                return seen.put(element);
+            }
+
+            @Override
+            public synchronized long size() {
+                return seen.insertions();
+            }
+
+            @Override
+            public long memoryBytes() {
+                return seen.memoryBytes();
+            }
+        };
+    }
+
+    /**
+     * A count-windowed filter: drops an element if it is among the last {@code window} distinct
+     * elements passed, so memory holds at most {@code window} elements.
+     *
+     * @param window the number of distinct elements remembered
+     * @param <T> the element type
+     * @return the filter
+     */
+    public static <T> Filter<T> lastDistinct(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        // Insertion-ordered map that drops its oldest entry beyond the window
+        Map<T, Boolean> recent = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Boolean> eldest) {
+                return size() > window;
+            }
+        };
+        return new Filter<>() {
+            @Override
+            public synchronized boolean test(T element) {
+                return recent.putIfAbsent(element, Boolean.TRUE) == null;
+            }
+
+            @Override
+            public synchronized long size() {
+                return recent.size();
+            }
+
+            @Override
+            public long memoryBytes() {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * A time-windowed filter: drops an element if the same element was passed less than
+     * {@code window} ago, so memory holds only the elements of the last {@code window}.
+     *
+     * @param window how long an element is remembered after it is passed
+     * @param <T> the element type
+     * @return the filter
+     */
+    public static <T> Filter<T> within(Duration window) {
+        return within(window, System::nanoTime);
+    }
+
+    /**
+     * A time-windowed filter with an explicit clock, e.g. event timestamps instead of wall time.
+     *
+     * @param window how long an element is remembered after it is passed
+     * @param nanoClock the current time in nanoseconds; must not go backwards
+     * @param <T> the element type
+     * @return the filter
+     */
+    public static <T> Filter<T> within(Duration window, LongSupplier nanoClock) {
+        long windowNanos = window.toNanos();
+        // Insertion order is also the order of first-passed times, so expired entries are at the head
+        LinkedHashMap<T, Long> passedAt = new LinkedHashMap<>();
+        return new Filter<>() {
+            @Override
+            public synchronized boolean test(T element) {
+                long now = nanoClock.getAsLong();
+                Iterator<Long> oldest = passedAt.values().iterator();
+                while (oldest.hasNext() && now - oldest.next() >= windowNanos) oldest.remove();
+                return passedAt.putIfAbsent(element, now) == null;
+            }
+
+            @Override
+            public synchronized long size() {
+                return passedAt.size();
+            }
+
+            @Override
+            public long memoryBytes() {
+                return 0;
+            }
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package modernfeatures.streams;
 
+import modernfeatures.streams.collectors.TopKCollectors;
+import modernfeatures.streams.sorting.SortKey;
+
 import java.util.Comparator;
 import java.util.List;
 
@@ -11,6 +14,7 @@ import java.util.List;
  *   <li>Sorting by string length (ascending and descending)</li>
  *   <li>Sorting by the last character of each name</li>
  *   <li>Sorting in reverse (alphabetical) order</li>
+ *   <li>Sorting by a chain of keys extracted once per element with {@link SortKey}</li>
  * </ul>
  * Edge cases are handled: the list is checked for null and emptiness before processing.
  */
@@ -65,6 +69,20 @@ public class StreamAdvancedSortingExample {
         names.stream()
                 .sorted(Comparator.reverseOrder())
                 .forEach(System.out::println);
+
+        // Only the leaders are needed: topK keeps the 2 longest names without sorting the whole list
+        List<String> longestTwo = names.stream()
+                .collect(TopKCollectors.topK(2, Comparator.comparingInt(String::length)));
+        System.out.println("\nTwo longest names: " + longestTwo);
+
+        // The comparators above call their key functions on every comparison. SortKey extracts the keys
+        // once per element; length (int) and last letter (char) pack into a single long per element
+        SortKey<String> byLengthThenLastLetter = SortKey.<String>comparingInt(String::length)
+                .thenComparingChar(name -> name.charAt(name.length() - 1));
+        System.out.println("\nNames sorted by length, then last letter (keys extracted once): "
+                + byLengthThenLastLetter.sortedCopy(names));
+        System.out.println("Same order as the comparator chain: " + byLengthThenLastLetter.sortedCopy(names)
+                .equals(names.stream().sorted(byLengthThenLastLetter.comparator()).toList()));
     }
 
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package modernfeatures.streams;
 
+import modernfeatures.streams.collectors.RadixCollectors;
+
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -17,6 +19,7 @@ import java.util.stream.Stream;
  *     <li>Use Consumer for processing/output</li>
  *     <li>Chain intermediate operations (filter, map, sorted)</li>
  *     <li>Trigger terminal operation (forEach)</li>
+ *     <li>Sort with a radix sort collector instead of sorted()</li>
  * </ul>
  * The stream pipeline prints all names longer than 3 characters,
  * in uppercase, sorted in alphabetical order.
@@ -65,5 +68,13 @@ public class StreamBasicsPrintNamesAlpha {
                 .map(toUpper)              // Intermediate operation: map to uppercase
                 .sorted()                  // Intermediate operation: sort alphabetically
                 .forEach(printName);       // Terminal operation: print each name
+
+        // The same pipeline with the sort done by a radix sort in the collector,
+        // which pays off for millions of short keys (see RadixSortBenchmarks)
+        List<String> radixSorted = names.stream()
+                .filter(isLengthGT3)
+                .map(toUpper)
+                .collect(RadixCollectors.toSortedList());
+        System.out.println("Radix sorted: " + radixSorted);
     }
 }
@@ -1,5 +1,8 @@
 package modernfeatures.streams;
 
+import modernfeatures.streams.collectors.TopKCollectors;
+
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -63,6 +66,12 @@ public class StreamCountFindMatchExample {
                         () -> System.out.println("No name found")
                 );
 
+        // Without sorting: bottomK keeps only the k smallest names seen so far (O(n log k), O(k) memory)
+        List<String> firstTwoAlphabetically = names.stream()
+                .map(toUpper)
+                .collect(TopKCollectors.bottomK(2, Comparator.naturalOrder()));
+        System.out.println("First two names alphabetically (uppercase): " + firstTwoAlphabetically);
+
         // 3. Check if all names start with an uppercase letter (using Character.isUpperCase for robustness)
         boolean allStartWithUppercase = names.stream()
                 .allMatch(name -> Character.isUpperCase(name.charAt(0)));
@@ -1,7 +1,12 @@
 package modernfeatures.streams;
 
+import modernfeatures.sketches.HyperLogLog;
+import modernfeatures.streams.collectors.SketchCollectors;
+
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Demonstrates the use of distinct, limit, and skip operations with Java Streams.
@@ -11,6 +16,7 @@ import java.util.List;
  *   <li>Remove duplicates from a list using distinct()</li>
  *   <li>Limit the output to the first N elements with limit()</li>
  *   <li>Skip the first N elements with skip()</li>
+ *   <li>Remove duplicates with bounded memory using {@link DistinctFilters}</li>
  * </ul>
  */
 public class StreamDistinctLimitSkipExample {
@@ -49,5 +55,23 @@ public class StreamDistinctLimitSkipExample {
         names.stream()
                 .skip(5)
                 .forEach(System.out::println);
+
+        // distinct() keeps every unique element in memory; when only the count is needed,
+        // a HyperLogLog sketch estimates it in fixed memory (see SketchCollectorsDemo)
+        HyperLogLog uniqueNames = names.stream().collect(SketchCollectors.approxDistinct());
+        System.out.println("\nApproximate number of distinct names: " + uniqueNames.estimate());
+
+        // distinct() replacements that bound or move the memory it holds; each filter is stateful,
+        // so a new one is created per stream
+        System.out.println("\nDistinct names, off-heap set: " + names.stream()
+                .filter(DistinctFilters.offHeap(name -> name.getBytes(StandardCharsets.UTF_8), 16))
+                .collect(Collectors.toList()));
+        System.out.println("Distinct names, Bloom filter (1% may be dropped): " + names.stream()
+                .filter(DistinctFilters.bloom(100, 0.01))
+                .collect(Collectors.toList()));
+        // Only repeats among the last 3 distinct names are removed: Alice and Bob pass again once out of the window
+        System.out.println("Distinct within the last 3 names: " + names.stream()
+                .filter(DistinctFilters.lastDistinct(3))
+                .collect(Collectors.toList()));
     }
 }
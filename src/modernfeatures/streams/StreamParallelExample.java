@@ -1,5 +1,7 @@
 package modernfeatures.streams;
 
+import modernfeatures.collections.IntArrayList;
+
 import java.util.List;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
@@ -8,6 +10,10 @@ import java.util.stream.IntStream;
 /**
  * Demonstrates the use of parallel streams in Java.
  * Compares performance and behavior of sequential vs. parallel processing on a large dataset.
+ * <p>
+ * The last part repeats the parallel sum on an {@link IntArrayList}: the same numbers stored as
+ * primitive {@code int}s (40 MB instead of about 200 MB of {@code Integer} objects), streamed
+ * as an {@code IntStream} without unboxing.
  */
 public class StreamParallelExample {
 
@@ -40,6 +46,16 @@ public class StreamParallelExample {
         long timeParallel = System.currentTimeMillis() - startParallel;
         System.out.printf("Parallel sum:   %d, Time taken: %d ms%n", sumParallel, timeParallel);
 
+        // Same numbers in a primitive list: no Integer objects, no unboxing in the filter
+        IntArrayList primitiveNumbers = IntArrayList.rangeClosed(1, 10_000_000);
+        long startPrimitive = System.currentTimeMillis();
+        long sumPrimitive = primitiveNumbers.parallelStream()
+                .filter(n -> n % 2 == 0)
+                .asLongStream()
+                .sum();
+        long timePrimitive = System.currentTimeMillis() - startPrimitive;
+        System.out.printf("Primitive sum:  %d, Time taken: %d ms%n", sumPrimitive, timePrimitive);
+
         // Note: Results should match, but timing may vary depending on your CPU and system.
     }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package modernfeatures.streams.collectors;
 
+import modernfeatures.collections.Char2IntMap;
+import modernfeatures.collections.IntArrayList;
+import modernfeatures.collections.Object2IntMap;
+
 import java.util.Arrays;
+import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -42,6 +47,41 @@ public class CollectorsAdvancedExample {
             System.out.println("First letter '" + firstLetter + "' has name lengths: " + lengthsList);
         });
 
+        // --- Concurrent grouping for parallel streams ---
+        // groupingBy gives each parallel split its own map and merges them at the end;
+        // these collectors let all threads update one shared ConcurrentHashMap of LongAdder cells instead.
+        Map<Character, Long> countByFirstLetter = names.parallelStream()
+                .collect(ConcurrentGroupingCollectors.counting(name -> name.charAt(0)));
+        System.out.println("Concurrent count by first letter: " + countByFirstLetter);
+
+        Map<Character, Long> totalLengthByFirstLetter = names.parallelStream()
+                .collect(ConcurrentGroupingCollectors.summingLong(name -> name.charAt(0), String::length));
+        System.out.println("Concurrent total name length by first letter: " + totalLengthByFirstLetter);
+
+        // Unordered: the lengths inside each list may come out in any order
+        Map<Character, List<Integer>> concurrentLengths = names.parallelStream()
+                .collect(ConcurrentGroupingCollectors.mapping(name -> name.charAt(0), String::length));
+        System.out.println("Concurrent name lengths by first letter: " + concurrentLengths);
+
+        // --- Boxing-free grouping with primitive containers ---
+        // The same groupings as above, but lengths stay ints (no Integer/Long per element)
+        // and char keys are read with a ToCharFunction instead of being boxed to Character.
+        Map<Character, IntArrayList> lengthsByFirstLetter = names.stream()
+                .collect(PrimitiveCollectors.groupingByCharToIntList(name -> name.charAt(0), String::length));
+        System.out.println("Name lengths grouped by first letter (IntArrayList): " + lengthsByFirstLetter);
+
+        Char2IntMap countsByFirstLetter = names.stream()
+                .collect(PrimitiveCollectors.countingByChar(name -> name.charAt(0)));
+        System.out.println("Count by first letter (Char2IntMap): " + countsByFirstLetter
+                + ", names starting with 'A': " + countsByFirstLetter.get('A'));
+
+        Object2IntMap<String> countsByName = names.stream()
+                .collect(PrimitiveCollectors.countingBy(name -> name));
+        System.out.println("Occurrences of Alice (Object2IntMap): " + countsByName.get("Alice"));
+
+        Map<Character, IntSummaryStatistics> lengthStatsByFirstLetter = names.parallelStream()
+                .collect(PrimitiveCollectors.summarizingIntByChar(name -> name.charAt(0), String::length));
+        System.out.println("Name length statistics for 'A': " + lengthStatsByFirstLetter.get('A'));
     }
 
 }
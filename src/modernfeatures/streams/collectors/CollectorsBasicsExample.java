@@ -1,5 +1,7 @@
 package modernfeatures.streams.collectors;
 
+import modernfeatures.collections.Object2IntMap;
+
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -36,6 +38,11 @@ public class CollectorsBasicsExample {
                 ));
         System.out.println("Name to length map: " + nameLengthMap);
 
+        // Same map without an Integer per value; duplicate keys throw like toMap()
+        Object2IntMap<String> nameLengths = names.stream().distinct()
+                .collect(PrimitiveCollectors.toObject2IntMap(name -> name, String::length));
+        System.out.println("Length of Charlie (Object2IntMap): " + nameLengths.get("Charlie"));
+
         // --- Joining: Concatenate names with delimiter ---
         String joinedNames = names.stream()
                 .collect(Collectors.joining("| "));
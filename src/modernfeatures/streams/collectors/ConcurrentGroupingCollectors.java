@@ -0,0 +1,161 @@
+package modernfeatures.streams.collectors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Concurrent grouping collectors for parallel streams: counting, summing and mapping to a list per key.
+ * <p>
+ * With {@code Collectors.groupingBy}, a parallel stream gives every split its own map and merges
+ * all of them at the end; with many distinct keys that merge can cost more than the grouping itself.
+ * These collectors are {@code CONCURRENT} and {@code UNORDERED}: all threads accumulate into one
+ * shared {@link ConcurrentHashMap}, so there is nothing to merge.
+ * <ul>
+ *   <li>Counts and sums go into {@link LongAdder}/{@link DoubleAdder} cells. An adder spreads
+ *       updates over several internal cells when threads collide, so hot keys do not become a
+ *       contention point the way a single {@code AtomicLong} would.</li>
+ *   <li>The map is only locked when a key is seen for the first time; later updates of that key
+ *       find its cell with a lock-free {@code get}.</li>
+ *   <li>The finisher turns the cells into plain values with {@code ConcurrentHashMap.forEach} and a
+ *       parallelism threshold, so with many keys that pass runs on the common pool as well, writing
+ *       into a presized {@code ConcurrentHashMap}, instead of on the one thread that called
+ *       {@code collect}.</li>
+ * </ul>
+ * Because they are unordered, the values collected by {@link #mapping(Function, Function)}
+ * are in no particular order.
+ */
+public final class ConcurrentGroupingCollectors {
+
+    // Below this many keys the finisher copies the cells on the calling thread
+    private static final long PARALLEL_FINISH_THRESHOLD = 1 << 13;
+
+    private ConcurrentGroupingCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Counts the elements per key.
+     *
+     * @param classifier maps an element to its key
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a concurrent collector producing {@code key -> count}
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>> counting(Function<? super T, ? extends K> classifier) {
+        return Collector.<T, ConcurrentHashMap<K, LongAdder>, Map<K, Long>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> cell(map, classifier.apply(element), LongAdder::new).increment(),
+                ConcurrentGroupingCollectors::mergeLongs,
+                ConcurrentGroupingCollectors::finishLongs,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Sums a {@code long} property of the elements per key.
+     *
+     * @param classifier maps an element to its key
+     * @param mapper extracts the value to sum
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a concurrent collector producing {@code key -> sum}
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>> summingLong(Function<? super T, ? extends K> classifier,
+                                                                   ToLongFunction<? super T> mapper) {
+        return Collector.<T, ConcurrentHashMap<K, LongAdder>, Map<K, Long>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> cell(map, classifier.apply(element), LongAdder::new)
+                        .add(mapper.applyAsLong(element)),
+                ConcurrentGroupingCollectors::mergeLongs,
+                ConcurrentGroupingCollectors::finishLongs,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Sums a {@code double} property of the elements per key.
+     *
+     * @param classifier maps an element to its key
+     * @param mapper extracts the value to sum
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a concurrent collector producing {@code key -> sum}
+     */
+    public static <T, K> Collector<T, ?, Map<K, Double>> summingDouble(Function<? super T, ? extends K> classifier,
+                                                                       ToDoubleFunction<? super T> mapper) {
+        return Collector.<T, ConcurrentHashMap<K, DoubleAdder>, Map<K, Double>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> cell(map, classifier.apply(element), DoubleAdder::new)
+                        .add(mapper.applyAsDouble(element)),
+                (left, right) -> {
+                    right.forEach((key, adder) -> cell(left, key, DoubleAdder::new).add(adder.sum()));
+                    return left;
+                },
+                map -> {
+                    Map<K, Double> result = new ConcurrentHashMap<>(map.size());
+                    map.forEach(PARALLEL_FINISH_THRESHOLD, (key, adder) -> result.put(key, adder.sum()));
+                    return result;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Maps the elements and collects the results into a list per key, in no particular order.
+     *
+     * @param classifier maps an element to its key
+     * @param mapper transforms an element into the value to collect
+     * @param <T> the element type
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return a concurrent collector producing {@code key -> values}
+     */
+    public static <T, K, V> Collector<T, ?, Map<K, List<V>>> mapping(Function<? super T, ? extends K> classifier,
+                                                                     Function<? super T, ? extends V> mapper) {
+        return Collector.<T, ConcurrentHashMap<K, Queue<V>>, Map<K, List<V>>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> cell(map, classifier.apply(element), ConcurrentLinkedQueue::new)
+                        .add(mapper.apply(element)),
+                (left, right) -> {
+                    right.forEach((key, values) -> cell(left, key, ConcurrentLinkedQueue::new).addAll(values));
+                    return left;
+                },
+                map -> {
+                    Map<K, List<V>> result = new ConcurrentHashMap<>(map.size());
+                    map.forEach(PARALLEL_FINISH_THRESHOLD,
+                            (key, values) -> result.put(key, new ArrayList<>(values)));
+                    return result;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Returns the cell for {@code key}, creating it on first use.
+     * The plain {@code get} first avoids locking the map's bin for keys that already exist.
+     */
+    private static <K, C> C cell(ConcurrentHashMap<K, C> map, K key, Supplier<C> factory) {
+        C cell = map.get(key);
+        return cell != null ? cell : map.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private static <K> ConcurrentHashMap<K, LongAdder> mergeLongs(ConcurrentHashMap<K, LongAdder> left,
+                                                                  ConcurrentHashMap<K, LongAdder> right) {
+        right.forEach((key, adder) -> cell(left, key, LongAdder::new).add(adder.sum()));
+        return left;
+    }
+
+    // Presized for all keys, so the parallel copy never resizes the table
+    private static <K> Map<K, Long> finishLongs(ConcurrentHashMap<K, LongAdder> map) {
+        Map<K, Long> result = new ConcurrentHashMap<>(map.size());
+        map.forEach(PARALLEL_FINISH_THRESHOLD, (key, adder) -> result.put(key, adder.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.streams.external.Codec;
+import modernfeatures.streams.external.ExternalGrouping;
+import modernfeatures.streams.external.ExternalSorter;
+import modernfeatures.streams.external.SpillOptions;
+import modernfeatures.streams.external.SpillScope;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Disk-backed sorting and grouping collectors for streams larger than the heap.
+ * <p>
+ * {@code sorted()}, {@code toList()} and {@code groupingBy()} keep every element or every group in
+ * memory. These collectors buffer up to {@link SpillOptions#memoryBudgetBytes()}, spill sorted runs to
+ * temporary files and merge them when the result is streamed (see {@link ExternalSorter}). The budget
+ * is shared by all accumulators of one {@code collect}, so parallel streams stay within it as well (up to
+ * half of it over, so that small accumulators do not write tiny runs). The result leaves the shared budget
+ * when the {@code collect} finishes, so a collector can be used again while earlier results are open.
+ * <p>
+ * The results own temporary files; always close them. If the stream fails with an exception, the sorters
+ * of its splits never reach the caller, so collect within a {@link SpillScope}: every split spills under
+ * the scope's directory, which {@link SpillScope#close()} deletes on success and on failure alike.
+ * <pre>{@code
+ * try (SpillScope scope = SpillScope.open(SpillOptions.defaults());
+ *      ExternalGrouping<String, Long> totals = orders.parallelStream().collect(
+ *              ExternalCollectors.groupingBy(scope, Order::customer, Comparator.naturalOrder(),
+ *                      Collectors.summingLong(Order::amount), ORDER_CODEC))) {
+ *     totals.stream().forEach(entry -> System.out.println(entry.getKey() + ": " + entry.getValue()));
+ * }
+ * }</pre>
+ */
+public final class ExternalCollectors {
+
+    private ExternalCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Sorts the elements within a memory budget, spilling to disk as needed.
+     *
+     * @param comparator the sort order
+     * @param codec writes and reads the elements of the run files
+     * @param options memory budget, temp directory and merge fan-in
+     * @param <T> the element type
+     * @return a collector producing a sorter; stream its elements with {@link ExternalSorter#stream()}
+     */
+    public static <T> Collector<T, ?, ExternalSorter<T>> sorting(Comparator<? super T> comparator, Codec<T> codec,
+                                                                 SpillOptions options) {
+        AtomicLong sharedBufferedBytes = new AtomicLong();
+        return Collector.of(
+                () -> new ExternalSorter<>(comparator, codec, options, sharedBufferedBytes),
+                ExternalSorter::add,
+                ExternalSorter::merge,
+                ExternalSorter::detachBudget);
+    }
+
+    /**
+     * Sorts the elements within a memory budget, spilling to disk under {@code scope}'s directory, which
+     * is deleted when the scope is closed even if the stream fails.
+     *
+     * @param scope owns the run files; the result must be used before it is closed
+     * @param comparator the sort order
+     * @param codec writes and reads the elements of the run files
+     * @param <T> the element type
+     * @return a collector producing a sorter; stream its elements with {@link ExternalSorter#stream()}
+     */
+    public static <T> Collector<T, ?, ExternalSorter<T>> sorting(SpillScope scope, Comparator<? super T> comparator,
+                                                                 Codec<T> codec) {
+        return sorting(comparator, codec, scope.options());
+    }
+
+    /**
+     * Groups the elements by key within a memory budget, like
+     * {@code Collectors.groupingBy(classifier, TreeMap::new, downstream)} but backed by disk: the elements
+     * are sorted by key, then each group is reduced with {@code downstream} while the result is streamed.
+     *
+     * @param classifier maps an element to its key
+     * @param keyComparator orders the keys; keys comparing as equal form one group
+     * @param downstream reduces the elements of one group
+     * @param codec writes and reads the elements of the run files
+     * @param options memory budget, temp directory and merge fan-in
+     * @param <T> the element type
+     * @param <K> the key type
+     * @param <A> the downstream accumulator type
+     * @param <R> the downstream result type
+     * @return a collector producing the groups in key order
+     */
+    public static <T, K, A, R> Collector<T, ?, ExternalGrouping<K, R>> groupingBy(
+            Function<? super T, ? extends K> classifier, Comparator<? super K> keyComparator,
+            Collector<? super T, A, R> downstream, Codec<T> codec, SpillOptions options) {
+        Comparator<T> byKey = Comparator.comparing(classifier, keyComparator);
+        AtomicLong sharedBufferedBytes = new AtomicLong();
+        return Collector.of(
+                () -> new ExternalSorter<T>(byKey, codec, options, sharedBufferedBytes),
+                ExternalSorter::add,
+                ExternalSorter::merge,
+                sorter -> ExternalGrouping.of(sorter.detachBudget(), classifier, keyComparator, downstream));
+    }
+
+    /**
+     * Groups the elements by key within a memory budget, spilling to disk under {@code scope}'s directory,
+     * which is deleted when the scope is closed even if the stream fails.
+     *
+     * @param scope owns the run files; the result must be used before it is closed
+     * @param classifier maps an element to its key
+     * @param keyComparator orders the keys; keys comparing as equal form one group
+     * @param downstream reduces the elements of one group
+     * @param codec writes and reads the elements of the run files
+     * @param <T> the element type
+     * @param <K> the key type
+     * @param <A> the downstream accumulator type
+     * @param <R> the downstream result type
+     * @return a collector producing the groups in key order
+     */
+    public static <T, K, A, R> Collector<T, ?, ExternalGrouping<K, R>> groupingBy(
+            SpillScope scope, Function<? super T, ? extends K> classifier, Comparator<? super K> keyComparator,
+            Collector<? super T, A, R> downstream, Codec<T> codec) {
+        return groupingBy(classifier, keyComparator, downstream, codec, scope.options());
+    }
+}
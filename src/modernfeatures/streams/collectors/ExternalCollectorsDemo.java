@@ -0,0 +1,134 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.streams.external.Codec;
+import modernfeatures.streams.external.ExternalGrouping;
+import modernfeatures.streams.external.ExternalSorter;
+import modernfeatures.streams.external.SpillOptions;
+import modernfeatures.streams.external.SpillScope;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sorts and groups a stream of orders with a memory budget far below the data size, using
+ * {@link ExternalCollectors}, and checks the results against the in-memory {@code sorted()} and
+ * {@code groupingBy()}.
+ * <p>
+ * Run files are created in a temporary directory, which is checked to be empty again after the
+ * try-with-resources blocks. The sort uses a merge fan-in of 8 to show the multi-pass merge. A last
+ * sort fails halfway through the stream inside a {@link SpillScope}, whose closing deletes the runs the
+ * failed splits had written.
+ * <pre>
+ * Usage: java modernfeatures.streams.collectors.ExternalCollectorsDemo [orders] [budgetMB]   (default 2000000 4)
+ * </pre>
+ */
+public class ExternalCollectorsDemo {
+
+    record Order(String customer, long amount) {
+    }
+
+    // Stores an order as its customer string and amount
+    static final Codec<Order> ORDER_CODEC = new Codec<>() {
+        @Override
+        public void write(Order order, DataOutput out) throws IOException {
+            out.writeUTF(order.customer());
+            out.writeLong(order.amount());
+        }
+
+        @Override
+        public Order read(DataInput in) throws IOException {
+            return new Order(in.readUTF(), in.readLong());
+        }
+
+        @Override
+        public long estimatedSize(Order order) {
+            // Order object, its String and char data, plus the buffer reference
+            return 24 + 48 + order.customer().length() + 8;
+        }
+    };
+
+    /**
+     * Runs the demo.
+     *
+     * @param args optional number of orders and memory budget in MB
+     * @throws IOException if the temp directory cannot be created or listed
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : 4) << 20;
+        List<Order> orders = IntStream.range(0, count)
+                .mapToObj(i -> new Order("customer-" + (i * 7919L % 100_003), i % 1000))
+                .collect(Collectors.toList());
+        Path tempDir = Files.createTempDirectory("external-demo-");
+        SpillOptions options = SpillOptions.defaults().withMemoryBudget(budget).withTempDirectory(tempDir);
+        System.out.printf("%d orders, memory budget %d MB, run files in %s%n", count, budget >> 20, tempDir);
+
+        // --- Sort by amount, then customer ---
+        Comparator<Order> byAmount = Comparator.comparingLong(Order::amount).thenComparing(Order::customer);
+        long start = System.nanoTime();
+        try (ExternalSorter<Order> sorter = orders.parallelStream()
+                .collect(ExternalCollectors.sorting(byAmount, ORDER_CODEC, options.withMergeFanIn(8)))) {
+            int runs = sorter.runCount();
+            boolean matches;
+            try (Stream<Order> sorted = sorter.stream()) {
+                Iterator<Order> expected = orders.stream().sorted(byAmount).iterator();
+                matches = sorted.allMatch(order -> order.equals(expected.next())) && !expected.hasNext();
+            }
+            System.out.printf("%nExternal sort: %d runs spilled, %d elements written (with merge passes), "
+                            + "%d ms, same as sorted(): %s%n",
+                    runs, sorter.spilledElements(), (System.nanoTime() - start) / 1_000_000, matches);
+        }
+
+        // --- Total amount per customer ---
+        start = System.nanoTime();
+        try (ExternalGrouping<String, Long> totals = orders.parallelStream()
+                .collect(ExternalCollectors.groupingBy(Order::customer, Comparator.naturalOrder(),
+                        Collectors.summingLong(Order::amount), ORDER_CODEC, options))) {
+            Map<String, Long> expected = orders.stream().collect(
+                    Collectors.groupingBy(Order::customer, TreeMap::new, Collectors.summingLong(Order::amount)));
+            Map<String, Long> actual;
+            try (Stream<Map.Entry<String, Long>> groups = totals.stream()) {
+                actual = groups.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                        (a, b) -> a, TreeMap::new));
+            }
+            System.out.printf("External groupingBy: %d customers from %d runs, %d ms, same as groupingBy(): %s%n",
+                    actual.size(), totals.runCount(), (System.nanoTime() - start) / 1_000_000,
+                    actual.equals(expected));
+            System.out.println("First customers: " + actual.entrySet().stream().limit(3).collect(Collectors.toList()));
+        }
+
+        // --- A failing stream: the scope deletes the runs its splits wrote ---
+        Order bad = orders.get(count * 3 / 4);
+        try (SpillScope scope = SpillScope.open(options)) {
+            try (ExternalSorter<Order> sorter = orders.parallelStream()
+                    .peek(order -> {
+                        if (order == bad) throw new IllegalStateException("Bad order: " + order);
+                    })
+                    .collect(ExternalCollectors.sorting(scope, byAmount, ORDER_CODEC))) {
+                System.out.println("Unexpected: " + sorter.size() + " orders sorted");
+            } catch (IllegalStateException e) {
+                try (Stream<Path> runs = Files.walk(scope.directory())) {
+                    System.out.printf("%nFailed sort: %d run files in the scope before closing it%n",
+                            runs.filter(Files::isRegularFile).count());
+                }
+            }
+        }
+
+        // try-with-resources closed both results and the scope, so their run files are gone
+        try (Stream<Path> left = Files.list(tempDir)) {
+            System.out.println("\nFiles left in the temp directory: " + left.count());
+        }
+        Files.delete(tempDir);
+    }
+}
@@ -0,0 +1,256 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.collections.Char2IntMap;
+import modernfeatures.collections.IntArrayList;
+import modernfeatures.collections.Object2IntMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * Grouping collectors that keep their values in primitive containers instead of boxed ones.
+ * <p>
+ * {@code groupingBy(name -> name.charAt(0), mapping(String::length, toList()))} allocates an
+ * {@code Integer} per element (outside the small cached range), and
+ * {@code groupingBy(key, counting())} a new {@code Long} per update. These collectors accumulate into:
+ * <ul>
+ *   <li>{@link Char2IntMap}: counts and sums keyed by a {@code char}, with no boxing at all;</li>
+ *   <li>{@link Object2IntMap}: counts, sums and {@code toMap}-style lookups keyed by any object;</li>
+ *   <li>{@link IntArrayList} and {@link IntSummaryStatistics} per key, where the {@code char}-keyed
+ *       variants also avoid boxing the key of every element.</li>
+ * </ul>
+ * Counts and sums are {@code int}s and overflow silently, like {@code Collectors.summingInt}.
+ * All collectors work on parallel streams; their partial results are merged at the end.
+ */
+public final class PrimitiveCollectors {
+
+    /**
+     * Extracts a {@code char} key from an element, e.g. {@code name -> name.charAt(0)},
+     * without boxing it to a {@code Character}.
+     *
+     * @param <T> the element type
+     */
+    @FunctionalInterface
+    public interface ToCharFunction<T> {
+        /**
+         * Returns the key of {@code value}.
+         *
+         * @param value the element
+         * @return the key
+         */
+        char applyAsChar(T value);
+    }
+
+    private PrimitiveCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Counts the elements per {@code char} key.
+     *
+     * @param classifier extracts the key
+     * @param <T> the element type
+     * @return a collector producing {@code key -> count}
+     */
+    public static <T> Collector<T, ?, Char2IntMap> countingByChar(ToCharFunction<? super T> classifier) {
+        return Collector.of(
+                Char2IntMap::new,
+                (map, element) -> map.addTo(classifier.applyAsChar(element), 1),
+                PrimitiveCollectors::addAll);
+    }
+
+    /**
+     * Sums an {@code int} property of the elements per {@code char} key.
+     *
+     * @param classifier extracts the key
+     * @param mapper extracts the value to sum
+     * @param <T> the element type
+     * @return a collector producing {@code key -> sum}
+     */
+    public static <T> Collector<T, ?, Char2IntMap> summingIntByChar(ToCharFunction<? super T> classifier,
+                                                                    ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                Char2IntMap::new,
+                (map, element) -> map.addTo(classifier.applyAsChar(element), mapper.applyAsInt(element)),
+                PrimitiveCollectors::addAll);
+    }
+
+    /**
+     * Counts the elements per key.
+     *
+     * @param classifier maps an element to its key
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a collector producing {@code key -> count}
+     */
+    public static <T, K> Collector<T, ?, Object2IntMap<K>> countingBy(Function<? super T, ? extends K> classifier) {
+        return Collector.of(
+                Object2IntMap::new,
+                (map, element) -> map.addTo(classifier.apply(element), 1),
+                PrimitiveCollectors::addAll);
+    }
+
+    /**
+     * Sums an {@code int} property of the elements per key.
+     *
+     * @param classifier maps an element to its key
+     * @param mapper extracts the value to sum
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a collector producing {@code key -> sum}
+     */
+    public static <T, K> Collector<T, ?, Object2IntMap<K>> summingIntBy(Function<? super T, ? extends K> classifier,
+                                                                        ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                Object2IntMap::new,
+                (map, element) -> map.addTo(classifier.apply(element), mapper.applyAsInt(element)),
+                PrimitiveCollectors::addAll);
+    }
+
+    /**
+     * Collects the elements into a key to {@code int} map, like {@code Collectors.toMap(key, value)}.
+     *
+     * @param keyMapper maps an element to its key
+     * @param valueMapper maps an element to its value
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a collector producing {@code key -> value}
+     * @throws IllegalStateException (when collecting) if two elements have the same key
+     */
+    public static <T, K> Collector<T, ?, Object2IntMap<K>> toObject2IntMap(Function<? super T, ? extends K> keyMapper,
+                                                                           ToIntFunction<? super T> valueMapper) {
+        return Collector.<T, Object2IntMap<K>>of(
+                Object2IntMap::new,
+                (map, element) -> putUnique(map, keyMapper.apply(element), valueMapper.applyAsInt(element)),
+                (left, right) -> {
+                    right.forEach((key, value) -> putUnique(left, key, value));
+                    return left;
+                });
+    }
+
+    /**
+     * Collects an {@code int} property of the elements into an {@link IntArrayList} per key,
+     * in encounter order.
+     *
+     * @param classifier maps an element to its key
+     * @param mapper extracts the value to collect
+     * @param <T> the element type
+     * @param <K> the key type
+     * @return a collector producing {@code key -> values}
+     */
+    public static <T, K> Collector<T, ?, Map<K, IntArrayList>> groupingToIntList(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.<T, Map<K, IntArrayList>>of(
+                HashMap::new,
+                (map, element) -> map.computeIfAbsent(classifier.apply(element), k -> new IntArrayList())
+                        .add(mapper.applyAsInt(element)),
+                (left, right) -> {
+                    right.forEach((key, values) -> left.merge(key, values, (a, b) -> {
+                        a.addAll(b);
+                        return a;
+                    }));
+                    return left;
+                });
+    }
+
+    /**
+     * Collects an {@code int} property of the elements into an {@link IntArrayList} per {@code char} key,
+     * in encounter order. Neither keys nor values are boxed while collecting.
+     *
+     * @param classifier extracts the key
+     * @param mapper extracts the value to collect
+     * @param <T> the element type
+     * @return a collector producing {@code key -> values}
+     */
+    public static <T> Collector<T, ?, Map<Character, IntArrayList>> groupingByCharToIntList(
+            ToCharFunction<? super T> classifier, ToIntFunction<? super T> mapper) {
+        return charGrouping(IntArrayList::new,
+                (list, element) -> list.add(mapper.applyAsInt(element)),
+                IntArrayList::addAll,
+                classifier);
+    }
+
+    /**
+     * Computes {@link IntSummaryStatistics} (count, sum, min, max, average) of an {@code int} property
+     * per {@code char} key. Neither keys nor values are boxed while collecting.
+     *
+     * @param classifier extracts the key
+     * @param mapper extracts the value to summarize
+     * @param <T> the element type
+     * @return a collector producing {@code key -> statistics}
+     */
+    public static <T> Collector<T, ?, Map<Character, IntSummaryStatistics>> summarizingIntByChar(
+            ToCharFunction<? super T> classifier, ToIntFunction<? super T> mapper) {
+        return charGrouping(IntSummaryStatistics::new,
+                (stats, element) -> stats.accept(mapper.applyAsInt(element)),
+                IntSummaryStatistics::combine,
+                classifier);
+    }
+
+    /**
+     * Groups by a {@code char} key into one mutable container per key. A {@link Char2IntMap} maps each key
+     * to the index of its container, so the key is only boxed once, when the result map is built.
+     */
+    private static <T, C> Collector<T, ?, Map<Character, C>> charGrouping(Supplier<C> factory,
+                                                                         BiConsumer<C, ? super T> accumulator,
+                                                                         BiConsumer<C, C> merger,
+                                                                         ToCharFunction<? super T> classifier) {
+        return Collector.<T, CharGroups<C>, Map<Character, C>>of(
+                () -> new CharGroups<>(factory),
+                (groups, element) -> accumulator.accept(groups.get(classifier.applyAsChar(element)), element),
+                (left, right) -> {
+                    right.slots.forEach((key, slot) -> merger.accept(left.get(key), right.containers.get(slot)));
+                    return left;
+                },
+                groups -> {
+                    Map<Character, C> result = new HashMap<>();
+                    groups.slots.forEach((key, slot) -> result.put(key, groups.containers.get(slot)));
+                    return result;
+                });
+    }
+
+    private static final class CharGroups<C> {
+        final Char2IntMap slots = new Char2IntMap();
+        final List<C> containers = new ArrayList<>();
+        final Supplier<C> factory;
+
+        CharGroups(Supplier<C> factory) {
+            this.factory = factory;
+        }
+
+        C get(char key) {
+            int slot = slots.getOrDefault(key, -1);
+            if (slot < 0) {
+                slot = containers.size();
+                slots.put(key, slot);
+                containers.add(factory.get());
+            }
+            return containers.get(slot);
+        }
+    }
+
+    private static Char2IntMap addAll(Char2IntMap left, Char2IntMap right) {
+        right.forEach(left::addTo);
+        return left;
+    }
+
+    private static <K> Object2IntMap<K> addAll(Object2IntMap<K> left, Object2IntMap<K> right) {
+        right.forEach(left::addTo);
+        return left;
+    }
+
+    private static <K> void putUnique(Object2IntMap<K> map, K key, int value) {
+        if (!map.putIfAbsent(key, value)) {
+            throw new IllegalStateException("Duplicate key " + key + " (attempted merging values "
+                    + map.get(key) + " and " + value + ")");
+        }
+    }
+}
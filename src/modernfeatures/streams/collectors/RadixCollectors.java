@@ -0,0 +1,120 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.collections.IntArrayList;
+import modernfeatures.collections.LongArrayList;
+import modernfeatures.streams.sorting.RadixSort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Collectors that gather a stream and sort it with {@link RadixSort} instead of a comparison sort.
+ * <p>
+ * {@code sorted().toList()} on a stream of strings sorts with {@code Arrays.sort}, in parallel streams
+ * with a parallel merge sort of comparisons. For millions of short keys a radix sort is several times
+ * faster:
+ * <pre>{@code
+ * List<String> sorted = names.parallelStream().map(String::toUpperCase).collect(RadixCollectors.toSortedList());
+ * int[] ages = people.parallelStream().collect(RadixCollectors.toSortedInts(Person::age));
+ * }</pre>
+ * Elements are gathered per split (without boxing for the primitive collectors), and the single sort runs
+ * in parallel in the finisher. Like {@code sorted()}, the result does not depend on the encounter order.
+ */
+public final class RadixCollectors {
+
+    private RadixCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Collects strings into a list in {@link String#compareTo} order, like {@code sorted().toList()}.
+     *
+     * @return a collector producing a new modifiable sorted list
+     */
+    public static Collector<String, ?, List<String>> toSortedList() {
+        return Collector.<String, List<String>, List<String>>of(
+                ArrayList::new,
+                List::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                strings -> {
+                    String[] sorted = strings.toArray(new String[0]);
+                    RadixSort.sort(sorted);
+                    return new ArrayList<>(Arrays.asList(sorted));
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Collects byte arrays, e.g. UTF-8 encoded keys, into a list in unsigned lexicographic order.
+     *
+     * @return a collector producing a new modifiable sorted list
+     */
+    public static Collector<byte[], ?, List<byte[]>> toSortedByteArrays() {
+        return Collector.<byte[], List<byte[]>, List<byte[]>>of(
+                ArrayList::new,
+                List::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                keys -> {
+                    byte[][] sorted = keys.toArray(new byte[0][]);
+                    RadixSort.sort(sorted);
+                    return new ArrayList<>(Arrays.asList(sorted));
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Collects an {@code int} key of each element into an ascending array.
+     *
+     * @param key extracts the key
+     * @param <T> the element type
+     * @return a collector producing the sorted keys
+     */
+    public static <T> Collector<T, ?, int[]> toSortedInts(ToIntFunction<? super T> key) {
+        return Collector.<T, IntArrayList, int[]>of(
+                IntArrayList::new,
+                (keys, element) -> keys.add(key.applyAsInt(element)),
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                keys -> {
+                    int[] sorted = keys.toArray();
+                    RadixSort.sort(sorted);
+                    return sorted;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Collects a {@code long} key of each element into an ascending array.
+     *
+     * @param key extracts the key
+     * @param <T> the element type
+     * @return a collector producing the sorted keys
+     */
+    public static <T> Collector<T, ?, long[]> toSortedLongs(ToLongFunction<? super T> key) {
+        return Collector.<T, LongArrayList, long[]>of(
+                LongArrayList::new,
+                (keys, element) -> keys.add(key.applyAsLong(element)),
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                keys -> {
+                    long[] sorted = keys.toArray();
+                    RadixSort.sort(sorted);
+                    return sorted;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+}
@@ -0,0 +1,117 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.sketches.HeavyHitters;
+import modernfeatures.sketches.HyperLogLog;
+import modernfeatures.sketches.TDigest;
+
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * Approximate collectors that summarize a stream in a fixed amount of memory, however many elements
+ * or distinct keys it has.
+ * <ul>
+ *   <li>{@link #approxDistinct()} instead of {@code distinct().count()}: a {@link HyperLogLog},
+ *       16 KB and about 0.8% standard error by default.</li>
+ *   <li>{@link #heavyHitters(int)} instead of {@code groupingBy(key, counting())} plus a sort:
+ *       a Count-Min sketch with a heap of the {@code k} most frequent elements.</li>
+ *   <li>{@link #quantiles(ToDoubleFunction)} instead of sorting to find the median or p99:
+ *       a {@link TDigest}.</li>
+ * </ul>
+ * The collectors return the sketch itself, so results of separate runs (files, days, machines) can
+ * be merged later. In parallel streams each split fills its own sketch, and the combiner merges them;
+ * the collectors are {@code UNORDERED}, since the result does not depend on encounter order.
+ * See each sketch class for its exact memory use and error bounds.
+ */
+public final class SketchCollectors {
+
+    /** Default Count-Min overcount bound, as a fraction of the total count. */
+    public static final double DEFAULT_EPSILON = 0.001;
+
+    /** Default probability that a Count-Min estimate stays within its bound. */
+    public static final double DEFAULT_CONFIDENCE = 0.99;
+
+    private SketchCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Estimates the number of distinct elements with a {@link HyperLogLog} of the default precision.
+     *
+     * @param <T> the element type
+     * @return a collector producing the sketch; call {@link HyperLogLog#estimate()} for the count
+     */
+    public static <T> Collector<T, ?, HyperLogLog> approxDistinct() {
+        return approxDistinct(HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Estimates the number of distinct elements with a {@link HyperLogLog} of {@code 2^precision} registers.
+     *
+     * @param precision the number of index bits, between 4 and 18
+     * @param <T> the element type
+     * @return a collector producing the sketch
+     */
+    public static <T> Collector<T, ?, HyperLogLog> approxDistinct(int precision) {
+        return Collector.of(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::add,
+                HyperLogLog::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Finds the {@code k} most frequent elements, with the default Count-Min error bound.
+     *
+     * @param k the number of elements to keep
+     * @param <T> the element type
+     * @return a collector producing the tracker; call {@link HeavyHitters#top()} for the elements
+     */
+    public static <T> Collector<T, ?, HeavyHitters<T>> heavyHitters(int k) {
+        return heavyHitters(k, DEFAULT_EPSILON, DEFAULT_CONFIDENCE);
+    }
+
+    /**
+     * Finds the {@code k} most frequent elements.
+     *
+     * @param k the number of elements to keep
+     * @param epsilon the maximum overcount as a fraction of the total count
+     * @param confidence the probability that a count stays within that bound
+     * @param <T> the element type
+     * @return a collector producing the tracker
+     */
+    public static <T> Collector<T, ?, HeavyHitters<T>> heavyHitters(int k, double epsilon, double confidence) {
+        return Collector.of(
+                () -> new HeavyHitters<T>(k, epsilon, confidence),
+                HeavyHitters::add,
+                HeavyHitters::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Summarizes a numeric property of the elements in a {@link TDigest} of the default compression.
+     *
+     * @param mapper extracts the value
+     * @param <T> the element type
+     * @return a collector producing the digest; call {@link TDigest#quantile(double)} for quantiles
+     */
+    public static <T> Collector<T, ?, TDigest> quantiles(ToDoubleFunction<? super T> mapper) {
+        return quantiles(mapper, TDigest.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Summarizes a numeric property of the elements in a {@link TDigest}.
+     *
+     * @param mapper extracts the value
+     * @param compression the digest's accuracy/memory trade-off
+     * @param <T> the element type
+     * @return a collector producing the digest
+     */
+    public static <T> Collector<T, ?, TDigest> quantiles(ToDoubleFunction<? super T> mapper, double compression) {
+        return Collector.of(
+                () -> new TDigest(compression),
+                (digest, element) -> digest.add(mapper.applyAsDouble(element)),
+                TDigest::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+}
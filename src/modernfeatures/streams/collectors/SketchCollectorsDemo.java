@@ -0,0 +1,132 @@
+package modernfeatures.streams.collectors;
+
+import modernfeatures.sketches.HeavyHitters;
+import modernfeatures.sketches.HyperLogLog;
+import modernfeatures.sketches.TDigest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the approximate {@link SketchCollectors} with their exact counterparts on a synthetic
+ * event stream, and checks every result against the sketch's documented error bound.
+ * <p>
+ * Each event has a user id with a skewed distribution (a few very active users, a long tail of rare
+ * ones) and a latency in milliseconds. The sketches are collected with parallel streams, so the
+ * combiners are exercised as well.
+ * <pre>
+ * Usage: java modernfeatures.streams.collectors.SketchCollectorsDemo [events]   (default 2000000)
+ * </pre>
+ */
+public class SketchCollectorsDemo {
+
+    record Event(String user, double latencyMillis) {
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args optional number of events
+     */
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        List<Event> stream = IntStream.range(0, events).parallel()
+                .mapToObj(SketchCollectorsDemo::event)
+                .collect(Collectors.toList());
+        System.out.println("Events: " + events);
+
+        // --- Distinct users: HashSet vs HyperLogLog ---
+        long exactDistinct = stream.parallelStream().map(Event::user).distinct().count();
+        HyperLogLog hll = stream.parallelStream().map(Event::user).collect(SketchCollectors.approxDistinct());
+        double distinctError = Math.abs(hll.estimate() - exactDistinct) / (double) exactDistinct;
+        System.out.printf("%nDistinct users: exact %d, HyperLogLog %d (error %.2f%%, %d bytes) %s%n",
+                exactDistinct, hll.estimate(), distinctError * 100, hll.memoryBytes(),
+                verdict(distinctError <= 3 * hll.standardError()));
+
+        // --- Most active users: counting map vs Count-Min + heap ---
+        Map<String, Long> exactCounts = stream.parallelStream()
+                .collect(Collectors.groupingByConcurrent(Event::user, Collectors.counting()));
+        List<Map.Entry<String, Long>> exactTop = exactCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(5)
+                .collect(Collectors.toList());
+        HeavyHitters<String> hitters = stream.parallelStream().map(Event::user)
+                .collect(SketchCollectors.heavyHitters(5));
+        System.out.println("\nTop users (exact):       " + exactTop);
+        System.out.println("Top users (HeavyHitters): " + hitters.top());
+        boolean countsWithinBound = hitters.top().stream().allMatch(entry -> {
+            long exact = exactCounts.get(entry.element());
+            return entry.count() >= exact && entry.count() - exact <= hitters.errorBound();
+        });
+        boolean sameUsers = exactTop.stream().map(Map.Entry::getKey).collect(Collectors.toSet())
+                .equals(hitters.top().stream().map(HeavyHitters.Entry::element).collect(Collectors.toSet()));
+        System.out.printf("Overcount bound %d, %d bytes instead of a map of %d users %s%n",
+                hitters.errorBound(), hitters.memoryBytes(), exactCounts.size(),
+                verdict(countsWithinBound && sameUsers));
+
+        // --- Latency quantiles: sorted array vs t-digest ---
+        double[] sorted = stream.parallelStream().mapToDouble(Event::latencyMillis).sorted().toArray();
+        TDigest digest = stream.parallelStream().collect(SketchCollectors.quantiles(Event::latencyMillis));
+        System.out.printf("%nLatency quantiles (%d centroids, %d bytes):%n", digest.centroidCount(), digest.memoryBytes());
+        boolean quantilesWithinBound = true;
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double exact = sorted[(int) Math.min(sorted.length - 1, Math.floor(q * sorted.length))];
+            double estimate = digest.quantile(q);
+            // Rank error: where the estimate actually falls in the sorted data
+            double rank = rankOf(sorted, estimate);
+            double rankError = Math.abs(rank - q);
+            quantilesWithinBound &= rankError <= 0.005;
+            System.out.printf("  p%-5s exact %8.3f ms, t-digest %8.3f ms (rank error %.4f%%)%n",
+                    trim(q * 100), exact, estimate, rankError * 100);
+        }
+        System.out.println("Rank errors within 0.5% " + verdict(quantilesWithinBound));
+
+        // --- Merging sketches from separate runs ---
+        int half = events / 2;
+        HyperLogLog firstHalf = stream.subList(0, half).stream().map(Event::user)
+                .collect(SketchCollectors.approxDistinct());
+        HyperLogLog secondHalf = stream.subList(half, events).stream().map(Event::user)
+                .collect(SketchCollectors.approxDistinct());
+        System.out.printf("%nMerged halves: %d distinct users, same as the single run: %s%n",
+                firstHalf.merge(secondHalf).estimate(), firstHalf.estimate() == hll.estimate());
+    }
+
+    // A deterministic pseudo-random event per index: user ids follow a power law, latencies a log-normal
+    private static Event event(int i) {
+        double u = unit(i, 1);
+        int user = (int) (Math.pow(u, 4) * 1_000_000);
+        double latency = Math.exp(1 + 0.75 * gaussian(unit(i, 2), unit(i, 3)));
+        return new Event("user-" + user, latency);
+    }
+
+    private static double unit(int i, int stream) {
+        long h = (i * 0x9E3779B97F4A7C15L) ^ (stream * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return ((h ^ (h >>> 33)) >>> 11) * 0x1.0p-53;
+    }
+
+    // Box-Muller transform of two uniform values
+    private static double gaussian(double u1, double u2) {
+        return Math.sqrt(-2 * Math.log(1 - u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    // Fraction of values below x
+    private static double rankOf(double[] sorted, double x) {
+        int index = Arrays.binarySearch(sorted, x);
+        return (index >= 0 ? index : -index - 1) / (double) sorted.length;
+    }
+
+    private static String trim(double percent) {
+        return percent == Math.rint(percent) ? String.valueOf((int) percent) : String.valueOf(percent);
+    }
+
+    private static String verdict(boolean ok) {
+        return ok ? "[within bound]" : "[OUTSIDE BOUND]";
+    }
+}
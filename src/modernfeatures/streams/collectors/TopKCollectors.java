@@ -0,0 +1,223 @@
+package modernfeatures.streams.collectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * Collectors that keep only the {@code k} largest or smallest elements of a stream.
+ * <p>
+ * {@code sorted().limit(k)} and {@code sorted().findFirst()} buffer and sort the whole stream:
+ * O(n log n) time and O(n) memory. These collectors keep a bounded heap of the best {@code k}
+ * elements seen so far, with the worst of them at the root, so each element costs one comparison
+ * against the root and at most O(log k) work: O(n log k) time and O(k) memory. With {@code k == 1}
+ * they keep a single element, like {@code Collectors.minBy}.
+ * <p>
+ * The result matches {@code sorted(comparator).limit(k)} exactly, including ties: of equal elements
+ * the earlier ones in encounter order win and are listed first, also in parallel streams.
+ */
+public final class TopKCollectors {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private TopKCollectors() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Collects the {@code k} largest elements, largest first; the same as
+     * {@code sorted(comparator.reversed()).limit(k)}.
+     *
+     * @param k the number of elements to keep
+     * @param comparator the order defining "largest"
+     * @param <T> the element type
+     * @return a collector producing a list of at most {@code k} elements
+     */
+    public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> comparator) {
+        return bottomK(k, Collections.reverseOrder(comparator));
+    }
+
+    /**
+     * Collects the {@code k} smallest elements, smallest first; the same as
+     * {@code sorted(comparator).limit(k)}.
+     *
+     * @param k the number of elements to keep
+     * @param comparator the order defining "smallest"
+     * @param <T> the element type
+     * @return a collector producing a list of at most {@code k} elements
+     */
+    public static <T> Collector<T, ?, List<T>> bottomK(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        Objects.requireNonNull(comparator, "comparator");
+        if (k == 1) {
+            return Collector.<T, Best<T>, List<T>>of(
+                    () -> new Best<>(comparator),
+                    Best::offer,
+                    Best::merge,
+                    Best::toList);
+        }
+        return Collector.<T, BoundedHeap<T>, List<T>>of(
+                () -> new BoundedHeap<>(k, comparator),
+                BoundedHeap::offer,
+                BoundedHeap::merge,
+                BoundedHeap::toSortedList);
+    }
+
+    /**
+     * The {@code k == 1} case: just the best element so far. A later element must be strictly
+     * better to replace it, so the earliest of equal elements is kept.
+     */
+    private static final class Best<T> {
+        private final Comparator<? super T> comparator;
+        private T element;
+        private boolean present;
+
+        Best(Comparator<? super T> comparator) {
+            this.comparator = comparator;
+        }
+
+        void offer(T candidate) {
+            if (!present || comparator.compare(candidate, element) < 0) {
+                element = candidate;
+                present = true;
+            }
+        }
+
+        // right holds later elements than this
+        Best<T> merge(Best<T> right) {
+            if (right.present) offer(right.element);
+            return this;
+        }
+
+        List<T> toList() {
+            List<T> result = new ArrayList<>(1);
+            if (present) result.add(element);
+            return result;
+        }
+    }
+
+    /**
+     * A heap of the best {@code k} elements with the worst at the root. Every element gets a sequence
+     * number in encounter order, which breaks ties so that earlier elements count as better.
+     */
+    private static final class BoundedHeap<T> {
+        private final int k;
+        private final Comparator<? super T> comparator;
+        private Object[] elements;
+        private long[] sequence;
+        private int size;
+        private long nextSequence;
+
+        BoundedHeap(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+            // Start small and grow up to k, so a large k over a short stream stays cheap
+            this.elements = new Object[Math.min(k, INITIAL_CAPACITY)];
+            this.sequence = new long[elements.length];
+        }
+
+        void offer(T candidate) {
+            offer(candidate, nextSequence++);
+        }
+
+        private void offer(T candidate, long seq) {
+            if (size < k) {
+                if (size == elements.length) grow();
+                elements[size] = candidate;
+                sequence[size] = seq;
+                siftUp(size++);
+            } else if (k > 0 && isWorse(elements[0], sequence[0], candidate, seq)) {
+                // A tie with the root is not enough: the root came earlier and wins
+                elements[0] = candidate;
+                sequence[0] = seq;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Adds the elements kept by {@code right}, which come after all elements of this heap.
+         * Shifting their sequence numbers past ours keeps both heaps' encounter order.
+         */
+        BoundedHeap<T> merge(BoundedHeap<T> right) {
+            for (int i = 0; i < right.size; i++) {
+                offer(cast(right.elements[i]), nextSequence + right.sequence[i]);
+            }
+            nextSequence += right.nextSequence;
+            return this;
+        }
+
+        // Pops the worst element repeatedly, filling the list from the back
+        List<T> toSortedList() {
+            Object[] sorted = new Object[size];
+            for (int i = size - 1; i >= 0; i--) {
+                sorted[i] = elements[0];
+                size--;
+                elements[0] = elements[size];
+                sequence[0] = sequence[size];
+                elements[size] = null;
+                siftDown(0);
+            }
+            List<T> result = new ArrayList<>(sorted.length);
+            for (Object element : sorted) result.add(cast(element));
+            return result;
+        }
+
+        // Whether a ranks after b: a larger by the comparator, or equal and later
+        private boolean isWorse(Object a, long seqA, Object b, long seqB) {
+            int c = comparator.compare(cast(a), cast(b));
+            return c > 0 || (c == 0 && seqA > seqB);
+        }
+
+        private boolean isWorse(int i, int j) {
+            return isWorse(elements[i], sequence[i], elements[j], sequence[j]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isWorse(i, parent)) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && isWorse(left, worst)) worst = left;
+                if (right < size && isWorse(right, worst)) worst = right;
+                if (worst == i) return;
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            Object element = elements[i];
+            long seq = sequence[i];
+            elements[i] = elements[j];
+            sequence[i] = sequence[j];
+            elements[j] = element;
+            sequence[j] = seq;
+        }
+
+        private void grow() {
+            int capacity = (int) Math.min(k, 2L * elements.length);
+            elements = Arrays.copyOf(elements, capacity);
+            sequence = Arrays.copyOf(sequence, capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T cast(Object element) {
+            return (T) element;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package modernfeatures.streams.external;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes elements to and reads them back from the temporary run files of an {@link ExternalSorter},
+ * and estimates how much heap an element occupies while it is buffered.
+ * <p>
+ * The estimate drives spilling: the sorter writes its buffer to disk once the estimated size of all
+ * buffered elements exceeds the memory budget. It only needs to be roughly right; overestimating
+ * spills earlier, underestimating uses more heap than the budget says.
+ *
+ * @param <T> the element type
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes one element.
+     *
+     * @param value the element
+     * @param out the run file
+     * @throws IOException if writing fails
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads one element written by {@link #write}.
+     *
+     * @param in the run file
+     * @return the element
+     * @throws IOException if reading fails
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Returns the approximate heap size of a buffered element, in bytes, including its reference
+     * in the buffer. The default suits small objects.
+     *
+     * @param value the element
+     * @return the estimate
+     */
+    default long estimatedSize(T value) {
+        return 64;
+    }
+
+    /**
+     * Returns a codec for strings of any length, stored as length-prefixed UTF-8.
+     */
+    static Codec<String> strings() {
+        return new Codec<>() {
+            @Override
+            public void write(String value, DataOutput out) throws IOException {
+                // writeUTF is limited to 64 KB, so write the length and bytes ourselves
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public long estimatedSize(String value) {
+                // String header and fields, array header, reference; up to two bytes per char
+                return 48 + 2L * value.length();
+            }
+        };
+    }
+
+    /**
+     * Returns a codec for {@code Long} values.
+     */
+    static Codec<Long> longs() {
+        return new Codec<>() {
+            @Override
+            public void write(Long value, DataOutput out) throws IOException {
+                out.writeLong(value);
+            }
+
+            @Override
+            public Long read(DataInput in) throws IOException {
+                return in.readLong();
+            }
+
+            @Override
+            public long estimatedSize(Long value) {
+                return 24;
+            }
+        };
+    }
+}
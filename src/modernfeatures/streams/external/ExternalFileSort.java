@@ -0,0 +1,543 @@
+package modernfeatures.streams.external;
+
+import modernfeatures.streams.sorting.RadixSort;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sorts a UTF-8 text file line by line when it is larger than the heap, like the Unix {@code sort} command.
+ * <p>
+ * {@code Files.readAllLines} (see {@code NIO2FileExample}) needs the whole file in memory. This tool works
+ * in two phases:
+ * <ol>
+ *   <li><b>Split:</b> lines are read into chunks of about half the memory budget. Each full chunk is sorted
+ *       (with {@link Arrays#parallelSort}, or {@link RadixSort} for the natural order) and written as a run
+ *       file on a background thread, while the next chunk is being read. Runs are written through a
+ *       buffered {@link FileChannel} stream, optionally gzip-compressed to trade CPU for disk I/O.</li>
+ *   <li><b>Merge:</b> a priority queue holding the current line of each run merges them (a k-way merge).
+ *       With more runs than the fan-in, groups of runs are first merged into longer ones.</li>
+ * </ol>
+ * With {@code unique}, lines comparing as equal are written once, like {@code sort -u}; duplicates are
+ * already dropped within each run. A file that fits in one chunk is sorted in memory without run files.
+ * The sort is stable, so of equal lines the first one in the input is kept.
+ * <pre>
+ * Usage: java modernfeatures.streams.external.ExternalFileSort [input output] [options]
+ *   --memory=64M      memory budget for the chunks (K/M/G suffixes)
+ *   --unique          write each distinct line once
+ *   --gzip            compress the run files
+ *   --ignore-case     compare lines ignoring case
+ *   --reverse         sort in descending order
+ *   --fan-in=64       maximum number of runs merged at once
+ *   --temp=DIR        directory for run files (default java.io.tmpdir)
+ * Without input and output, a sample file of 2 million lines is generated, sorted with an 8 MB budget
+ * and checked against an in-memory sort.
+ * </pre>
+ */
+public class ExternalFileSort {
+
+    /**
+     * What to sort by and how.
+     *
+     * @param spill memory budget, temp directory and merge fan-in
+     * @param comparator the line order, or {@code null} for the natural {@code String} order
+     * @param unique whether to write only the first of equal lines
+     * @param compressRuns whether to gzip the run files
+     */
+    public record Options(SpillOptions spill, Comparator<String> comparator, boolean unique, boolean compressRuns) {
+
+        /**
+         * Validates the options.
+         */
+        public Options {
+            Objects.requireNonNull(spill, "spill");
+        }
+
+        /**
+         * Returns the defaults: {@link SpillOptions#defaults()}, natural order, all lines, plain runs.
+         */
+        public static Options defaults() {
+            return new Options(SpillOptions.defaults(), null, false, false);
+        }
+
+        /**
+         * Returns a copy with other spill options.
+         *
+         * @param spill memory budget, temp directory and merge fan-in
+         * @return the new options
+         */
+        public Options withSpill(SpillOptions spill) {
+            return new Options(spill, comparator, unique, compressRuns);
+        }
+
+        /**
+         * Returns a copy with another line order.
+         *
+         * @param comparator the order, or {@code null} for the natural order
+         * @return the new options
+         */
+        public Options withComparator(Comparator<String> comparator) {
+            return new Options(spill, comparator, unique, compressRuns);
+        }
+
+        /**
+         * Returns a copy that writes each distinct line once, or all lines.
+         *
+         * @param unique whether to drop repeated lines
+         * @return the new options
+         */
+        public Options withUnique(boolean unique) {
+            return new Options(spill, comparator, unique, compressRuns);
+        }
+
+        /**
+         * Returns a copy that compresses the run files, or not.
+         *
+         * @param compressRuns whether to gzip the run files
+         * @return the new options
+         */
+        public Options withCompressRuns(boolean compressRuns) {
+            return new Options(spill, comparator, unique, compressRuns);
+        }
+
+        private Comparator<String> order() {
+            return comparator != null ? comparator : Comparator.naturalOrder();
+        }
+    }
+
+    /**
+     * What a sort did.
+     *
+     * @param inputBytes the size of the input file
+     * @param linesRead the number of lines read
+     * @param linesWritten the number of lines written (fewer with {@code unique})
+     * @param runs the number of run files written in the split phase
+     * @param runBytes the bytes of run files written in all phases, after compression
+     * @param splitNanos the time spent reading, sorting and writing runs
+     * @param mergeNanos the time spent merging into the output
+     */
+    public record Result(long inputBytes, long linesRead, long linesWritten, int runs, long runBytes,
+                         long splitNanos, long mergeNanos) {
+
+        /** Returns the input size divided by the total time, in MB (2^20 bytes) per second. */
+        public double megabytesPerSecond() {
+            return inputBytes / (double) (1 << 20) / ((splitNanos + mergeNanos) / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d lines in, %,d out, %d runs (%,d bytes on disk), split %d ms, merge %d ms, "
+                            + "%.1f MB/s", linesRead, linesWritten, runs, runBytes, splitNanos / 1_000_000,
+                    mergeNanos / 1_000_000, megabytesPerSecond());
+        }
+    }
+
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    private static final long WRITER_STOP_SECONDS = 30;
+
+    // Estimated heap use of a line: String header, byte array header and the reference in the chunk
+    private static final int LINE_OVERHEAD_BYTES = 24 + 16 + 8;
+
+    private final Options options;
+    private final Comparator<String> order;
+    private final ExecutorService runWriter;
+    private final List<Path> runs = new ArrayList<>();
+    private Path directory;
+    private long runBytes;
+
+    private ExternalFileSort(Options options) {
+        this.options = options;
+        this.order = options.order();
+        this.runWriter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "external-sort-run-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sorts the lines of {@code input} into {@code output}.
+     *
+     * @param input a UTF-8 text file
+     * @param output the file to write; replaced if it exists
+     * @param options budget, order and run format
+     * @return what was done and how fast
+     * @throws IOException if a file cannot be read or written
+     */
+    public static Result sort(Path input, Path output, Options options) throws IOException {
+        ExternalFileSort sort = new ExternalFileSort(options);
+        Result result;
+        try {
+            result = sort.run(input, output);
+        } catch (Throwable failure) {
+            // The failure that stopped the sort matters more than one while cleaning up after it
+            try {
+                sort.cleanUp();
+            } catch (IOException | RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+            throw failure;
+        }
+        sort.cleanUp();
+        return result;
+    }
+
+    private Result run(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        long chunkBudget = Math.max(1, options.spill().memoryBudgetBytes() / 2);
+        long linesRead = 0;
+        List<String> chunk = new ArrayList<>();
+        Future<?> pendingRun = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(FileChannel.open(input, StandardOpenOption.READ)), StandardCharsets.UTF_8),
+                IO_BUFFER_BYTES)) {
+            long chunkBytes = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                chunk.add(line);
+                linesRead++;
+                chunkBytes += LINE_OVERHEAD_BYTES + line.length();
+                if (chunkBytes >= chunkBudget) {
+                    // At most one chunk is being sorted and written while the next one is read
+                    await(pendingRun);
+                    List<String> full = chunk;
+                    pendingRun = runWriter.submit(() -> writeRun(sortChunk(full)));
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+            }
+        }
+        await(pendingRun);
+        String[] last = sortChunk(chunk);
+        chunk = null;
+        int splitRuns = runs.size();
+        long splitDone = System.nanoTime();
+
+        long linesWritten;
+        if (runs.isEmpty()) {
+            try (Writer out = newWriter(output, false)) {
+                linesWritten = writeLines(Arrays.asList(last).iterator(), out);
+            }
+        } else {
+            if (last.length > 0) writeRun(last);
+            last = null;
+            reduceRuns();
+            List<LineReader> readers = new ArrayList<>();
+            try (Writer out = newWriter(output, false)) {
+                for (Path run : runs) readers.add(new LineReader(run));
+                linesWritten = writeLines(new MergingIterator(readers, order), out);
+            } finally {
+                for (LineReader reader : readers) reader.close();
+            }
+        }
+        return new Result(Files.size(input), linesRead, linesWritten, splitRuns, runBytes,
+                splitDone - start, System.nanoTime() - splitDone);
+    }
+
+    private String[] sortChunk(List<String> chunk) {
+        String[] lines = chunk.toArray(new String[0]);
+        if (options.comparator() == null) {
+            RadixSort.sort(lines);
+        } else {
+            Arrays.parallelSort(lines, order);
+        }
+        return lines;
+    }
+
+    // Writes sorted lines as a new run file
+    private Void writeRun(String[] lines) throws IOException {
+        Path run = Files.createTempFile(directory(), "run-", options.compressRuns() ? ".txt.gz" : ".txt");
+        try (Writer out = newWriter(run, options.compressRuns())) {
+            writeLines(Arrays.asList(lines).iterator(), out);
+        }
+        synchronized (this) {
+            runs.add(run);
+            runBytes += Files.size(run);
+        }
+        return null;
+    }
+
+    /**
+     * Merges consecutive groups of fan-in runs, pass after pass, until one merge can produce the output.
+     */
+    private void reduceRuns() throws IOException {
+        int fanIn = options.spill().mergeFanIn();
+        while (runs.size() > fanIn) {
+            List<Path> merged = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Path> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                merged.add(group.size() == 1 ? group.get(0) : mergeRuns(group));
+            }
+            runs.clear();
+            runs.addAll(merged);
+        }
+    }
+
+    private Path mergeRuns(List<Path> group) throws IOException {
+        Path merged = Files.createTempFile(directory(), "merged-", options.compressRuns() ? ".txt.gz" : ".txt");
+        List<LineReader> readers = new ArrayList<>();
+        try (Writer out = newWriter(merged, options.compressRuns())) {
+            for (Path run : group) readers.add(new LineReader(run));
+            writeLines(new MergingIterator(readers, order), out);
+        } finally {
+            for (LineReader reader : readers) reader.close();
+        }
+        for (Path run : group) Files.delete(run);
+        runBytes += Files.size(merged);
+        return merged;
+    }
+
+    // Writes the lines, skipping repeats of the previous line if unique is set
+    private long writeLines(Iterator<String> lines, Writer out) throws IOException {
+        long written = 0;
+        String previous = null;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (options.unique() && previous != null && order.compare(previous, line) == 0) continue;
+            out.write(line);
+            out.write('\n');
+            previous = line;
+            written++;
+        }
+        return written;
+    }
+
+    private Writer newWriter(Path file, boolean gzip) throws IOException {
+        OutputStream out = Channels.newOutputStream(FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+        if (gzip) out = new GZIPOutputStream(out, IO_BUFFER_BYTES);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_BYTES);
+    }
+
+    private synchronized Path directory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory(options.spill().tempDirectory(), "external-file-sort-");
+        }
+        return directory;
+    }
+
+    private static void await(Future<?> run) throws IOException {
+        if (run == null) return;
+        try {
+            run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing a run", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Deletes the run files and their directory, also after a failure; a run still being written is
+    // interrupted, and waited for, so that it cannot create a file after the directory was listed
+    private void cleanUp() throws IOException {
+        runWriter.shutdownNow();
+        try {
+            if (!runWriter.awaitTermination(WRITER_STOP_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Run writer did not stop within " + WRITER_STOP_SECONDS + " s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the run writer", e);
+        }
+        if (directory == null) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Reads a run file line by line, decompressing it if it is gzipped.
+     */
+    private static final class LineReader implements AutoCloseable {
+        private final BufferedReader in;
+
+        LineReader(Path run) throws IOException {
+            InputStream stream = Channels.newInputStream(FileChannel.open(run, StandardOpenOption.READ));
+            if (run.getFileName().toString().endsWith(".gz")) stream = new GZIPInputStream(stream, IO_BUFFER_BYTES);
+            this.in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), IO_BUFFER_BYTES);
+        }
+
+        String readLine() {
+            try {
+                return in.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * A k-way merge of runs: a priority queue holds the current line of each run. Ties go to the run
+     * with the lower index, which holds earlier input lines.
+     */
+    private static final class MergingIterator implements Iterator<String> {
+
+        private static final class Head {
+            final LineReader reader;
+            final int index;
+            String line;
+
+            Head(LineReader reader, int index) {
+                this.reader = reader;
+                this.index = index;
+            }
+        }
+
+        private final PriorityQueue<Head> queue;
+
+        MergingIterator(List<LineReader> readers, Comparator<String> order) {
+            Comparator<Head> byLine = (a, b) -> order.compare(a.line, b.line);
+            this.queue = new PriorityQueue<>(Math.max(1, readers.size()), byLine.thenComparingInt(head -> head.index));
+            for (int i = 0; i < readers.size(); i++) {
+                Head head = new Head(readers.get(i), i);
+                head.line = head.reader.readLine();
+                if (head.line != null) queue.add(head);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            Head head = queue.poll();
+            if (head == null) throw new NoSuchElementException();
+            String result = head.line;
+            head.line = head.reader.readLine();
+            if (head.line != null) queue.add(head);
+            return result;
+        }
+    }
+
+    /**
+     * Sorts a file given on the command line, or a generated sample file.
+     *
+     * @param args input and output paths followed by options, see the class documentation
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> paths = new ArrayList<>();
+        Options options = Options.defaults();
+        Comparator<String> comparator = null;
+        boolean reverse = false;
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                paths.add(arg);
+            } else if (arg.startsWith("--memory=")) {
+                options = options.withSpill(options.spill().withMemoryBudget(parseBytes(arg.substring(9))));
+            } else if (arg.startsWith("--fan-in=")) {
+                options = options.withSpill(options.spill().withMergeFanIn(Integer.parseInt(arg.substring(9))));
+            } else if (arg.startsWith("--temp=")) {
+                options = options.withSpill(options.spill().withTempDirectory(Path.of(arg.substring(7))));
+            } else if (arg.equals("--unique")) {
+                options = options.withUnique(true);
+            } else if (arg.equals("--gzip")) {
+                options = options.withCompressRuns(true);
+            } else if (arg.equals("--ignore-case")) {
+                comparator = String.CASE_INSENSITIVE_ORDER;
+            } else if (arg.equals("--reverse")) {
+                reverse = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (reverse) comparator = (comparator != null ? comparator : Comparator.<String>naturalOrder()).reversed();
+        options = options.withComparator(comparator);
+
+        if (paths.size() == 2) {
+            Result result = sort(Path.of(paths.get(0)), Path.of(paths.get(1)), options);
+            System.out.println(result);
+        } else if (paths.isEmpty()) {
+            runSample(options);
+        } else {
+            throw new IllegalArgumentException("Expected an input and an output file, got " + paths);
+        }
+    }
+
+    // Generates a file with repeated lines, sorts it with a small budget and compares with an in-memory sort
+    private static void runSample(Options options) throws IOException {
+        Path input = Files.createTempFile("external-file-sort-input-", ".txt");
+        Path output = Files.createTempFile("external-file-sort-output-", ".txt");
+        try {
+            try (Writer out = Files.newBufferedWriter(input)) {
+                for (int i = 0; i < 2_000_000; i++) {
+                    out.write("line-" + Long.toString(i * 0x9E3779B97F4A7C15L >>> 44, 36) + "\n");
+                }
+            }
+            if (options.spill().memoryBudgetBytes() == SpillOptions.DEFAULT_MEMORY_BUDGET) {
+                options = options.withSpill(options.spill().withMemoryBudget(8L << 20));
+            }
+            System.out.printf("Sorting %,d bytes with a %d MB budget (unique=%s, gzip=%s)%n", Files.size(input),
+                    options.spill().memoryBudgetBytes() >> 20, options.unique(), options.compressRuns());
+            Result result = sort(input, output, options);
+            System.out.println(result);
+
+            List<String> expected = new ArrayList<>(Files.readAllLines(input));
+            expected.sort(options.order());
+            if (options.unique()) {
+                Comparator<String> order = options.order();
+                List<String> distinct = new ArrayList<>();
+                for (String line : expected) {
+                    if (distinct.isEmpty() || order.compare(distinct.get(distinct.size() - 1), line) != 0) {
+                        distinct.add(line);
+                    }
+                }
+                expected = distinct;
+            }
+            System.out.println("Same as an in-memory sort: " + expected.equals(Files.readAllLines(output)));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    private static long parseBytes(String value) {
+        long multiplier = switch (Character.toUpperCase(value.charAt(value.length() - 1))) {
+            case 'K' -> 1L << 10;
+            case 'M' -> 1L << 20;
+            case 'G' -> 1L << 30;
+            default -> 1;
+        };
+        String digits = multiplier == 1 ? value : value.substring(0, value.length() - 1);
+        return Long.parseLong(digits) * multiplier;
+    }
+}
@@ -0,0 +1,144 @@
+package modernfeatures.streams.external;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The result of a disk-backed {@code groupingBy}: the elements sorted by key in an
+ * {@link ExternalSorter}, reduced group by group with a downstream collector as they are streamed.
+ * <p>
+ * Only one group's accumulator is in memory at a time, so the number of keys is not limited by
+ * the heap (a group's own result, e.g. a list of all its elements, still has to fit).
+ * Groups are produced in key order. Close the grouping to delete its run files.
+ *
+ * @param <K> the key type
+ * @param <R> the result type of the downstream collector
+ */
+public class ExternalGrouping<K, R> implements AutoCloseable {
+
+    private final ExternalSorter<?> sorter;
+    private final Supplier<Stream<Map.Entry<K, R>>> groups;
+
+    private ExternalGrouping(ExternalSorter<?> sorter, Supplier<Stream<Map.Entry<K, R>>> groups) {
+        this.sorter = sorter;
+        this.groups = groups;
+    }
+
+    /**
+     * Creates a grouping over a sorter whose comparator orders the elements by key.
+     *
+     * @param sorter the elements, sorted by {@code comparing(classifier, keyComparator)}
+     * @param classifier maps an element to its key
+     * @param keyComparator orders the keys; keys comparing as equal form one group
+     * @param downstream reduces the elements of one group
+     * @param <T> the element type
+     * @param <K> the key type
+     * @param <A> the downstream accumulator type
+     * @param <R> the downstream result type
+     * @return the grouping, owning the sorter
+     */
+    public static <T, K, A, R> ExternalGrouping<K, R> of(ExternalSorter<T> sorter,
+                                                         Function<? super T, ? extends K> classifier,
+                                                         Comparator<? super K> keyComparator,
+                                                         Collector<? super T, A, R> downstream) {
+        return new ExternalGrouping<>(sorter, () -> {
+            Stream<T> sorted = sorter.stream();
+            Iterator<Map.Entry<K, R>> grouped = new GroupIterator<>(sorted.iterator(), classifier, keyComparator, downstream);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(grouped,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false).onClose(sorted::close);
+        });
+    }
+
+    /**
+     * Returns the groups in key order, each reduced by the downstream collector.
+     * Close the stream when done if it is not fully consumed.
+     *
+     * @return a sequential stream of {@code key -> result} entries
+     */
+    public Stream<Map.Entry<K, R>> stream() {
+        return groups.get();
+    }
+
+    /** Returns the number of elements grouped. */
+    public long elementCount() {
+        return sorter.size();
+    }
+
+    /** Returns the number of run files currently on disk. */
+    public int runCount() {
+        return sorter.runCount();
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    @Override
+    public void close() {
+        sorter.close();
+    }
+
+    /**
+     * Walks the sorted elements and reduces each run of equal keys into one entry.
+     */
+    private static final class GroupIterator<T, K, A, R> implements Iterator<Map.Entry<K, R>> {
+        private final Iterator<T> sorted;
+        private final Function<? super T, ? extends K> classifier;
+        private final Comparator<? super K> keyComparator;
+        private final Supplier<A> supplier;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final Function<A, R> finisher;
+
+        // First element of the next group, already read from the sorted stream
+        private T pending;
+        private boolean hasPending;
+
+        GroupIterator(Iterator<T> sorted, Function<? super T, ? extends K> classifier,
+                      Comparator<? super K> keyComparator, Collector<? super T, A, R> downstream) {
+            this.sorted = sorted;
+            this.classifier = classifier;
+            this.keyComparator = keyComparator;
+            this.supplier = downstream.supplier();
+            this.accumulator = downstream.accumulator();
+            this.finisher = downstream.finisher();
+            if (sorted.hasNext()) {
+                pending = sorted.next();
+                hasPending = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasPending;
+        }
+
+        @Override
+        public Map.Entry<K, R> next() {
+            if (!hasPending) throw new NoSuchElementException();
+            K key = classifier.apply(pending);
+            A container = supplier.get();
+            accumulator.accept(container, pending);
+            hasPending = false;
+            while (sorted.hasNext()) {
+                T element = sorted.next();
+                if (keyComparator.compare(classifier.apply(element), key) != 0) {
+                    pending = element;
+                    hasPending = true;
+                    break;
+                }
+                accumulator.accept(container, element);
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(key, finisher.apply(container));
+        }
+    }
+}
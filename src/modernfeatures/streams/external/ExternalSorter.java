@@ -0,0 +1,423 @@
+package modernfeatures.streams.external;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorts more elements than fit in the heap by spilling sorted runs to disk and merging them.
+ * <p>
+ * Elements are buffered until their estimated size ({@link Codec#estimatedSize}) exceeds the memory
+ * budget. The buffer is then sorted and written as a run file through a {@link FileChannel}.
+ * {@link #stream()} merges all runs and the remaining buffer with a priority queue holding one
+ * element per run (a k-way merge). With more runs than the merge fan-in, groups of runs are first
+ * merged into longer runs, so only a bounded number of files is open at a time.
+ * <p>
+ * When nothing was spilled, everything stays in memory and {@link #stream()} is an ordinary sort;
+ * past the budget, the cost grows with the extra disk passes instead of failing with an
+ * {@code OutOfMemoryError}. The sort is stable: equal elements keep their insertion order.
+ * <p>
+ * Run files live in a temporary directory that {@link #close()} deletes, so use the sorter in a
+ * try-with-resources block:
+ * <pre>{@code
+ * try (ExternalSorter<String> sorter = lines.collect(ExternalCollectors.sorting(comparator, Codec.strings(), options))) {
+ *     sorter.stream().forEach(System.out::println);
+ * }
+ * }</pre>
+ * If the stream feeding the collector can fail, collect within a {@link SpillScope}, which also deletes the
+ * runs of sorters that were never returned.
+ * I/O errors are thrown as {@link UncheckedIOException}, since they happen inside stream operations.
+ * This class is not thread-safe; parallel streams give each split its own sorter and {@link #merge} them.
+ *
+ * @param <T> the element type
+ */
+public class ExternalSorter<T> implements AutoCloseable {
+
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    // A sorted run file and its number of elements
+    private record Run(Path file, long count) {
+    }
+
+    private final Comparator<? super T> comparator;
+    private final Codec<T> codec;
+    private final SpillOptions options;
+    // Below this, a sorter keeps its buffer even when the shared budget is exceeded, so that the many
+    // small accumulators of a parallel stream do not each write tiny runs
+    private final long minSpillBytes;
+    private AtomicLong sharedBufferedBytes;
+
+    private final List<T> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private final List<Run> runs = new ArrayList<>();
+    private final List<Path> directories = new ArrayList<>();
+    private final List<Closeable> openReaders = new ArrayList<>();
+    private long size;
+    private long spilledElements;
+    private boolean closed;
+
+    /**
+     * Creates a sorter with its own memory budget.
+     *
+     * @param comparator the sort order
+     * @param codec writes and reads the elements
+     * @param options memory budget, temp directory and merge fan-in
+     */
+    public ExternalSorter(Comparator<? super T> comparator, Codec<T> codec, SpillOptions options) {
+        this(comparator, codec, options, new AtomicLong());
+    }
+
+    /**
+     * Creates a sorter that shares its memory budget with every other sorter using the same counter,
+     * e.g. all accumulators of one parallel collect.
+     *
+     * @param comparator the sort order
+     * @param codec writes and reads the elements
+     * @param options memory budget, temp directory and merge fan-in
+     * @param sharedBufferedBytes the estimated bytes buffered by all sorters sharing the budget
+     */
+    public ExternalSorter(Comparator<? super T> comparator, Codec<T> codec, SpillOptions options,
+                          AtomicLong sharedBufferedBytes) {
+        this.comparator = comparator;
+        this.codec = codec;
+        this.options = options;
+        this.sharedBufferedBytes = sharedBufferedBytes;
+        this.minSpillBytes = options.memoryBudgetBytes() / (2L * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Adds an element, spilling the buffer to a run file if the budget is exceeded.
+     * <p>
+     * With a shared budget, only a sorter holding at least {@code budget / (2 * parallelism)} spills when
+     * the total is over the budget, so the runs stay long; the total may then exceed the budget by up to
+     * half. A sorter whose own buffer reaches the whole budget always spills.
+     *
+     * @param value the element
+     */
+    public void add(T value) {
+        ensureOpen();
+        long bytes = codec.estimatedSize(value);
+        buffer.add(value);
+        bufferedBytes += bytes;
+        size++;
+        sharedBufferedBytes.addAndGet(bytes);
+        spillIfOverBudget();
+    }
+
+    /**
+     * Moves all elements of {@code right} into this sorter, as if they had been added after this
+     * sorter's elements; {@code right} is left empty. Usable as a collector's combiner.
+     *
+     * @param right a sorter with the same comparator and codec
+     * @return this sorter
+     */
+    public ExternalSorter<T> merge(ExternalSorter<T> right) {
+        ensureOpen();
+        if (!right.runs.isEmpty()) {
+            // Our buffered elements come before right's runs, so they must become a run first
+            spill();
+            runs.addAll(right.runs);
+            directories.addAll(right.directories);
+            right.runs.clear();
+            right.directories.clear();
+        }
+        buffer.addAll(right.buffer);
+        bufferedBytes += right.bufferedBytes;
+        size += right.size;
+        spilledElements += right.spilledElements;
+        right.buffer.clear();
+        right.bufferedBytes = 0;
+        right.size = 0;
+        right.spilledElements = 0;
+        // right's bytes were counted in the shared budget already, but only now are they in one buffer
+        spillIfOverBudget();
+        return this;
+    }
+
+    /**
+     * Stops sharing the memory budget: this sorter's buffered bytes no longer count against the shared
+     * counter, and its own buffer is limited by the whole budget from now on. The collectors of
+     * {@link modernfeatures.streams.collectors.ExternalCollectors} call this on their result, so that a
+     * collector used again does not start with the bytes of an earlier result that is still open.
+     *
+     * @return this sorter
+     */
+    public ExternalSorter<T> detachBudget() {
+        ensureOpen();
+        sharedBufferedBytes.addAndGet(-bufferedBytes);
+        sharedBufferedBytes = new AtomicLong(bufferedBytes);
+        return this;
+    }
+
+    /**
+     * Returns all elements in sorted order. Close the stream (or this sorter) to release the run files;
+     * do not add elements while it is open.
+     *
+     * @return a sequential stream of the sorted elements
+     */
+    public Stream<T> stream() {
+        ensureOpen();
+        buffer.sort(comparator);
+        if (runs.isEmpty()) {
+            return buffer.stream();
+        }
+        try {
+            reduceRuns();
+            List<RunReader> readers = new ArrayList<>(runs.size());
+            for (Run run : runs) readers.add(open(run));
+            List<Iterator<T>> sources = new ArrayList<>(readers);
+            sources.add(buffer.iterator());
+            Iterator<T> merged = new MergingIterator<>(sources, comparator);
+            return StreamSupport.stream(Spliterators.spliterator(merged, size, Spliterator.ORDERED), false)
+                    .onClose(() -> readers.forEach(ExternalSorter::closeQuietly));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Returns the number of elements added. */
+    public long size() {
+        return size;
+    }
+
+    /** Returns the number of run files currently on disk. */
+    public int runCount() {
+        return runs.size();
+    }
+
+    /** Returns how many elements were written to run files, counting each merge pass again. */
+    public long spilledElements() {
+        return spilledElements;
+    }
+
+    /**
+     * Deletes all run files and their directories and releases this sorter's share of the budget.
+     *
+     * @throws UncheckedIOException if a file cannot be deleted
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        openReaders.forEach(ExternalSorter::closeQuietly);
+        sharedBufferedBytes.addAndGet(-bufferedBytes);
+        buffer.clear();
+        bufferedBytes = 0;
+        try {
+            // Delete everything in the directories, including runs of a merge pass that failed; a closed
+            // SpillScope may have deleted them already
+            for (Path directory : directories) {
+                if (Files.notExists(directory)) continue;
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+                }
+                Files.delete(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            runs.clear();
+            directories.clear();
+        }
+    }
+
+    private void spillIfOverBudget() {
+        long budget = options.memoryBudgetBytes();
+        if (bufferedBytes >= budget || (sharedBufferedBytes.get() > budget && bufferedBytes >= minSpillBytes)) {
+            spill();
+        }
+    }
+
+    /**
+     * Sorts the buffer and writes it to a new run file.
+     */
+    private void spill() {
+        if (buffer.isEmpty()) return;
+        buffer.sort(comparator);
+        try {
+            runs.add(writeRun(buffer.iterator(), buffer.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+        sharedBufferedBytes.addAndGet(-bufferedBytes);
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Merges consecutive groups of {@code mergeFanIn} runs, pass after pass, until at most
+     * {@code mergeFanIn - 1} are left, leaving one slot for the in-memory buffer. Each merged run takes
+     * the place of its inputs, which keeps the sort stable.
+     */
+    private void reduceRuns() throws IOException {
+        int fanIn = options.mergeFanIn();
+        while (runs.size() > fanIn - 1) {
+            List<Run> merged = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Run> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                merged.add(group.size() == 1 ? group.get(0) : mergeRuns(group));
+            }
+            runs.clear();
+            runs.addAll(merged);
+        }
+    }
+
+    private Run mergeRuns(List<Run> group) throws IOException {
+        List<Iterator<T>> readers = new ArrayList<>(group.size());
+        long count = 0;
+        try {
+            for (Run run : group) {
+                readers.add(new RunReader(run));
+                count += run.count();
+            }
+            Run merged = writeRun(new MergingIterator<>(readers, comparator), count);
+            for (Run run : group) Files.delete(run.file());
+            return merged;
+        } finally {
+            readers.forEach(reader -> closeQuietly((Closeable) reader));
+        }
+    }
+
+    private Run writeRun(Iterator<T> elements, long count) throws IOException {
+        Path file = Files.createTempFile(directory(), "run-", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER_BYTES))) {
+            while (elements.hasNext()) codec.write(elements.next(), out);
+        }
+        spilledElements += count;
+        return new Run(file, count);
+    }
+
+    private RunReader open(Run run) throws IOException {
+        RunReader reader = new RunReader(run);
+        openReaders.add(reader);
+        return reader;
+    }
+
+    // The first spill creates this sorter's temp directory
+    private Path directory() throws IOException {
+        if (directories.isEmpty()) {
+            directories.add(Files.createTempDirectory(options.tempDirectory(), "external-sort-"));
+        }
+        return directories.get(0);
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Sorter is closed");
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Only read-only files are closed here; their deletion reports real problems
+        }
+    }
+
+    /**
+     * Reads a run file sequentially through a buffered channel stream.
+     */
+    private final class RunReader implements Iterator<T>, Closeable {
+        private final DataInputStream in;
+        private long remaining;
+
+        RunReader(Run run) throws IOException {
+            FileChannel channel = FileChannel.open(run.file(), StandardOpenOption.READ);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), IO_BUFFER_BYTES));
+            this.remaining = run.count();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            if (remaining == 0) throw new NoSuchElementException();
+            remaining--;
+            try {
+                return codec.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * A k-way merge: a priority queue holds the next element of each source. Ties go to the source
+     * with the lower index, i.e. the earlier run.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private static final class Head<T> {
+            final Iterator<T> source;
+            final int index;
+            T element;
+
+            Head(Iterator<T> source, int index) {
+                this.source = source;
+                this.index = index;
+            }
+        }
+
+        private final PriorityQueue<Head<T>> queue;
+
+        MergingIterator(List<Iterator<T>> sources, Comparator<? super T> comparator) {
+            Comparator<Head<T>> byElement = (a, b) -> comparator.compare(a.element, b.element);
+            this.queue = new PriorityQueue<>(Math.max(1, sources.size()),
+                    byElement.thenComparingInt(head -> head.index));
+            for (int i = 0; i < sources.size(); i++) {
+                Head<T> head = new Head<>(sources.get(i), i);
+                if (head.source.hasNext()) {
+                    head.element = head.source.next();
+                    queue.add(head);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = queue.poll();
+            if (head == null) throw new NoSuchElementException();
+            T result = head.element;
+            if (head.source.hasNext()) {
+                head.element = head.source.next();
+                queue.add(head);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package modernfeatures.streams.external;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Settings for disk-backed sorting and grouping.
+ *
+ * @param memoryBudgetBytes the estimated heap that buffered elements may use before they are
+ *                          written to a run file; shared by all accumulators of one collector
+ * @param tempDirectory where run files are created (in a fresh subdirectory per sorter)
+ * @param mergeFanIn the maximum number of runs merged at once; with more runs, groups of runs are
+ *                   first merged into longer ones, so the number of open files stays bounded
+ */
+public record SpillOptions(long memoryBudgetBytes, Path tempDirectory, int mergeFanIn) {
+
+    /** Default memory budget: 64 MB. */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /** Default number of runs merged at once. */
+    public static final int DEFAULT_MERGE_FAN_IN = 64;
+
+    /**
+     * Validates the settings.
+     */
+    public SpillOptions {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudgetBytes);
+        }
+        Objects.requireNonNull(tempDirectory, "tempDirectory");
+        if (mergeFanIn < 2) {
+            throw new IllegalArgumentException("Merge fan-in must be at least 2: " + mergeFanIn);
+        }
+    }
+
+    /**
+     * Returns the defaults: 64 MB, the system temp directory ({@code java.io.tmpdir}) and a fan-in of 64.
+     */
+    public static SpillOptions defaults() {
+        return new SpillOptions(DEFAULT_MEMORY_BUDGET, Path.of(System.getProperty("java.io.tmpdir")),
+                DEFAULT_MERGE_FAN_IN);
+    }
+
+    /**
+     * Returns a copy with another memory budget.
+     *
+     * @param bytes the budget in bytes
+     * @return the new options
+     */
+    public SpillOptions withMemoryBudget(long bytes) {
+        return new SpillOptions(bytes, tempDirectory, mergeFanIn);
+    }
+
+    /**
+     * Returns a copy with another temp directory.
+     *
+     * @param directory an existing directory
+     * @return the new options
+     */
+    public SpillOptions withTempDirectory(Path directory) {
+        return new SpillOptions(memoryBudgetBytes, directory, mergeFanIn);
+    }
+
+    /**
+     * Returns a copy with another merge fan-in.
+     *
+     * @param fanIn the maximum number of runs merged at once
+     * @return the new options
+     */
+    public SpillOptions withMergeFanIn(int fanIn) {
+        return new SpillOptions(memoryBudgetBytes, tempDirectory, fanIn);
+    }
+}
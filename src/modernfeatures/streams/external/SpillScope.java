@@ -0,0 +1,110 @@
+package modernfeatures.streams.external;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A temporary directory that owns every run file spilled within it, deleted by {@link #close()} whether
+ * the work succeeded or failed.
+ * <p>
+ * A sorter deletes its own runs when it is closed, but when the stream feeding a collector throws, the
+ * sorters of its splits are never handed to the caller and their runs stay behind. Giving the collectors
+ * a scope puts all of those runs under one directory that the caller closes:
+ * <pre>{@code
+ * try (SpillScope scope = SpillScope.open(options);
+ *      ExternalSorter<String> sorter = lines.collect(
+ *              ExternalCollectors.sorting(scope, comparator, Codec.strings()))) {
+ *     sorter.stream().forEach(System.out::println);
+ * }
+ * }</pre>
+ * Results collected in a scope must be used before the scope is closed.
+ */
+public final class SpillScope implements AutoCloseable {
+
+    // Splits of a failed parallel stream may still be writing a run when the scope is closed
+    private static final int DELETE_ATTEMPTS = 5;
+    private static final long DELETE_RETRY_MILLIS = 20;
+
+    private final Path directory;
+    private final SpillOptions options;
+    private boolean closed;
+
+    private SpillScope(Path directory, SpillOptions options) {
+        this.directory = directory;
+        this.options = options.withTempDirectory(directory);
+    }
+
+    /**
+     * Creates a fresh directory in {@code options.tempDirectory()} for the runs of this scope.
+     *
+     * @param options memory budget, parent temp directory and merge fan-in
+     * @return the scope
+     * @throws IOException if the directory cannot be created
+     */
+    public static SpillScope open(SpillOptions options) throws IOException {
+        return new SpillScope(Files.createTempDirectory(options.tempDirectory(), "spill-scope-"), options);
+    }
+
+    /** Returns the directory of this scope. */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Returns the options with this scope's directory as the temp directory, so that sorters created
+     * with them spill inside the scope.
+     *
+     * @return the options for sorters in this scope
+     */
+    public SpillOptions options() {
+        if (closed) throw new IllegalStateException("Spill scope is closed");
+        return options;
+    }
+
+    /**
+     * Deletes the directory and everything in it.
+     *
+     * @throws UncheckedIOException if it cannot be deleted
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                deleteTree();
+                return;
+            } catch (IOException e) {
+                if (attempt == DELETE_ATTEMPTS) throw new UncheckedIOException(e);
+            }
+            try {
+                Thread.sleep(DELETE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Interrupted while deleting " + directory));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillScope(" + directory + (closed ? ", closed)" : ")");
+    }
+
+    // Deepest paths first, so every directory is empty when it is deleted
+    private void deleteTree() throws IOException {
+        if (Files.notExists(directory)) return;
+        List<Path> paths;
+        try (Stream<Path> tree = Files.walk(directory)) {
+            paths = tree.sorted(Comparator.reverseOrder()).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,373 @@
+package modernfeatures.streams.sorting;
+
+import modernfeatures.java7.SplitPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel radix sorts on the Fork/Join framework, for large arrays of short keys.
+ * <p>
+ * Comparison sorts such as {@code Arrays.parallelSort} need {@code n log2 n} comparisons; for strings each
+ * comparison re-reads the common prefix of both keys. Radix sorts instead distribute the keys into 256
+ * buckets by one byte at a time:
+ * <ul>
+ *   <li><b>LSD</b> ({@code int[]}, {@code long[]}): one counting pass and one stable scatter per byte,
+ *       least significant byte first, 4 or 8 passes in total. Each pass is split into blocks
+ *       (sized by {@link SplitPolicy}) that count and scatter in parallel, every block writing to its
+ *       own precomputed offsets. Passes where all keys share the byte are skipped.</li>
+ *   <li><b>MSD</b> ({@code String[]}, {@code byte[][]}): the keys are distributed by their first
+ *       character, then each bucket is sorted recursively by the next one, as its own fork/join task when
+ *       it is large. Keys that share a prefix cost one counting pass per shared character, and small
+ *       buckets finish with an insertion sort. The first distribution runs in parallel blocks like LSD.</li>
+ * </ul>
+ * Strings are sorted in {@link String#compareTo} order. Characters of up to {@code ÿ} (ASCII and
+ * Latin-1) are radix-sorted; a bucket of keys with a wider character at the current position is finished
+ * with {@code Arrays.sort}. Byte arrays are sorted in {@link Arrays#compareUnsigned(byte[], byte[])} order,
+ * which for UTF-8 encoded text is code point order. Arrays shorter than a few thousand elements are
+ * handed to {@code Arrays.sort}, which is faster there.
+ */
+public final class RadixSort {
+
+    // Below this size the radix sorts lose to Arrays.sort
+    private static final int RADIX_THRESHOLD = 1 << 12;
+
+    // MSD buckets at most this large are sorted by insertion sort
+    private static final int INSERTION_THRESHOLD = 32;
+
+    // MSD buckets larger than this are sorted in their own task
+    private static final int FORK_THRESHOLD = 1 << 13;
+
+    // MSD digits: 0 = key ended, 1..256 = byte or char 0..255, 257 = wider char
+    private static final int MSD_BUCKETS = 258;
+    private static final int WIDE = MSD_BUCKETS - 1;
+
+    private RadixSort() {
+        // Utility class, no instances
+    }
+
+    /**
+     * Sorts an {@code int} array into ascending order with a parallel LSD radix sort.
+     *
+     * @param a the array to sort
+     */
+    public static void sort(int[] a) {
+        int n = a.length;
+        if (n < RADIX_THRESHOLD) {
+            Arrays.sort(a);
+            return;
+        }
+        int blockSize = blockSize(n);
+        int blocks = (n + blockSize - 1) / blockSize;
+        int[][] counts = new int[blocks][256];
+        int[] src = a, dst = new int[n];
+        for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+            // Flipping the sign bit orders negative numbers before positive ones
+            int flip = shift == Integer.SIZE - 8 ? 0x80 : 0;
+            int s = shift;
+            int[] from = src, to = dst;
+            forEachBlock(blocks, b -> {
+                int[] count = counts[b];
+                Arrays.fill(count, 0);
+                for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                    count[(from[i] >>> s & 0xFF) ^ flip]++;
+                }
+            });
+            if (!toOffsets(counts, n)) continue;
+            forEachBlock(blocks, b -> {
+                int[] offset = counts[b];
+                for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                    int value = from[i];
+                    to[offset[(value >>> s & 0xFF) ^ flip]++] = value;
+                }
+            });
+            src = to;
+            dst = from;
+        }
+        if (src != a) System.arraycopy(src, 0, a, 0, n);
+    }
+
+    /**
+     * Sorts a {@code long} array into ascending order with a parallel LSD radix sort.
+     *
+     * @param a the array to sort
+     */
+    public static void sort(long[] a) {
+        int n = a.length;
+        if (n < RADIX_THRESHOLD) {
+            Arrays.sort(a);
+            return;
+        }
+        int blockSize = blockSize(n);
+        int blocks = (n + blockSize - 1) / blockSize;
+        int[][] counts = new int[blocks][256];
+        long[] src = a, dst = new long[n];
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            int flip = shift == Long.SIZE - 8 ? 0x80 : 0;
+            int s = shift;
+            long[] from = src, to = dst;
+            forEachBlock(blocks, b -> {
+                int[] count = counts[b];
+                Arrays.fill(count, 0);
+                for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                    count[(int) (from[i] >>> s & 0xFF) ^ flip]++;
+                }
+            });
+            if (!toOffsets(counts, n)) continue;
+            forEachBlock(blocks, b -> {
+                int[] offset = counts[b];
+                for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                    long value = from[i];
+                    to[offset[(int) (value >>> s & 0xFF) ^ flip]++] = value;
+                }
+            });
+            src = to;
+            dst = from;
+        }
+        if (src != a) System.arraycopy(src, 0, a, 0, n);
+    }
+
+    /**
+     * Sorts strings into {@link String#compareTo} order with a parallel MSD radix sort.
+     *
+     * @param a the array to sort; must not contain {@code null}
+     */
+    public static void sort(String[] a) {
+        if (a.length < RADIX_THRESHOLD) {
+            Arrays.sort(a);
+            return;
+        }
+        new MsdSorter<>(a, Comparator.naturalOrder()) {
+            @Override
+            int digit(String key, int depth) {
+                if (depth >= key.length()) return 0;
+                char c = key.charAt(depth);
+                return c < 256 ? c + 1 : WIDE;
+            }
+        }.sort();
+    }
+
+    /**
+     * Sorts byte arrays into unsigned lexicographic order ({@link Arrays#compareUnsigned(byte[], byte[])})
+     * with a parallel MSD radix sort.
+     *
+     * @param a the array to sort; must not contain {@code null}
+     */
+    public static void sort(byte[][] a) {
+        if (a.length < RADIX_THRESHOLD) {
+            Arrays.sort(a, Arrays::compareUnsigned);
+            return;
+        }
+        new MsdSorter<byte[]>(a, Arrays::compareUnsigned) {
+            @Override
+            int digit(byte[] key, int depth) {
+                return depth < key.length ? (key[depth] & 0xFF) + 1 : 0;
+            }
+        }.sort();
+    }
+
+    /**
+     * Turns per-block digit counts into per-block start offsets in place: for each digit, the blocks'
+     * regions follow each other in block order, which keeps the scatter stable.
+     *
+     * @return {@code false} if all {@code n} keys have the same digit, so the pass can be skipped
+     */
+    private static boolean toOffsets(int[][] counts, int n) {
+        int running = 0;
+        for (int digit = 0; digit < counts[0].length; digit++) {
+            int total = 0;
+            for (int[] count : counts) total += count[digit];
+            if (total == n) return false;
+            for (int[] count : counts) {
+                int c = count[digit];
+                count[digit] = running;
+                running += c;
+            }
+        }
+        return true;
+    }
+
+    // A few blocks per core, but never so small that task overhead dominates
+    private static int blockSize(int length) {
+        return SplitPolicy.adaptive(ForkJoinPool.commonPool(), length).maxLeafSize();
+    }
+
+    /**
+     * Runs {@code body} for every block index in {@code [0, blocks)} in parallel.
+     */
+    private static void forEachBlock(int blocks, IntConsumer body) {
+        invoke(new BlockAction(0, blocks, body));
+    }
+
+    // Runs a task in the current pool when called from a worker (e.g. a parallel stream), else in the common pool
+    private static void invoke(ForkJoinTask<?> task) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * Splits a range of block indexes in halves until each task handles a single block.
+     */
+    private static final class BlockAction extends RecursiveAction {
+        private final int lo, hi;
+        private final IntConsumer body;
+
+        BlockAction(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.accept(lo);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BlockAction(lo, mid, body), new BlockAction(mid, hi, body));
+            }
+        }
+    }
+
+    /**
+     * MSD radix sort over keys whose digits {@link #digit} returns: 0 once the key has ended, then
+     * 1..256, or {@link #WIDE} for a digit that does not fit (sorted with the comparator instead).
+     */
+    private abstract static class MsdSorter<K> {
+        private final K[] a;
+        private final K[] aux;
+        // The digit of a[i] at the current depth, computed once per counting pass and reused to scatter
+        private final short[] digits;
+        private final Comparator<? super K> order;
+
+        MsdSorter(K[] a, Comparator<? super K> order) {
+            this.a = a;
+            this.aux = a.clone();
+            this.digits = new short[a.length];
+            this.order = order;
+        }
+
+        abstract int digit(K key, int depth);
+
+        void sort() {
+            int n = a.length;
+            // The first distribution covers the whole array, so it runs in parallel blocks
+            int blockSize = blockSize(n);
+            int blocks = (n + blockSize - 1) / blockSize;
+            int[][] counts = new int[blocks][MSD_BUCKETS];
+            forEachBlock(blocks, b -> {
+                int[] count = counts[b];
+                for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                    int d = digit(a[i], 0);
+                    digits[i] = (short) d;
+                    count[d]++;
+                }
+            });
+            int[] starts = new int[MSD_BUCKETS + 1];
+            for (int d = 0; d < MSD_BUCKETS; d++) {
+                for (int[] count : counts) starts[d + 1] += count[d];
+                starts[d + 1] += starts[d];
+            }
+            if (toOffsets(counts, n)) {
+                forEachBlock(blocks, b -> {
+                    int[] offset = counts[b];
+                    for (int i = b * blockSize, hi = Math.min(n, i + blockSize); i < hi; i++) {
+                        aux[offset[digits[i]]++] = a[i];
+                    }
+                });
+                forEachBlock(blocks, b -> {
+                    int lo = b * blockSize;
+                    System.arraycopy(aux, lo, a, lo, Math.min(n, lo + blockSize) - lo);
+                });
+            }
+            invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    sortBuckets(starts, 0);
+                }
+            });
+        }
+
+        // Sorts a[lo, hi), whose keys share their first `depth` digits
+        private void sortRange(int lo, int hi, int depth) {
+            while (true) {
+                int n = hi - lo;
+                if (n <= INSERTION_THRESHOLD) {
+                    insertionSort(lo, hi);
+                    return;
+                }
+                int[] starts = new int[MSD_BUCKETS + 1];
+                for (int i = lo; i < hi; i++) {
+                    int d = digit(a[i], depth);
+                    digits[i] = (short) d;
+                    starts[d + 1]++;
+                }
+                // One digit for the whole range: a shared prefix, go straight to the next digit
+                int single = -1;
+                for (int d = 0; d < MSD_BUCKETS; d++) {
+                    if (starts[d + 1] == n) single = d;
+                }
+                if (single == 0) return;
+                if (single == WIDE) {
+                    Arrays.sort(a, lo, hi, order);
+                    return;
+                }
+                if (single > 0) {
+                    depth++;
+                    continue;
+                }
+                starts[0] = lo;
+                for (int d = 0; d < MSD_BUCKETS; d++) starts[d + 1] += starts[d];
+                int[] next = Arrays.copyOf(starts, MSD_BUCKETS);
+                for (int i = lo; i < hi; i++) aux[next[digits[i]]++] = a[i];
+                System.arraycopy(aux, lo, a, lo, n);
+                sortBuckets(starts, depth);
+                return;
+            }
+        }
+
+        // Sorts each bucket [starts[d], starts[d + 1]) by the digit after `depth`, forking the large ones
+        private void sortBuckets(int[] starts, int depth) {
+            List<ForkJoinTask<?>> forked = new ArrayList<>();
+            // Bucket 0 holds the keys that ended, which are all equal
+            for (int d = 1; d < MSD_BUCKETS; d++) {
+                int lo = starts[d], hi = starts[d + 1];
+                if (hi - lo < 2) continue;
+                if (d == WIDE) {
+                    Arrays.sort(a, lo, hi, order);
+                } else if (hi - lo > FORK_THRESHOLD) {
+                    forked.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            sortRange(lo, hi, depth + 1);
+                        }
+                    }.fork());
+                } else {
+                    sortRange(lo, hi, depth + 1);
+                }
+            }
+            for (ForkJoinTask<?> task : forked) task.join();
+        }
+
+        private void insertionSort(int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                K key = a[i];
+                int j = i - 1;
+                while (j >= lo && order.compare(a[j], key) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package modernfeatures.streams.sorting;
+
+import modernfeatures.streams.collectors.PrimitiveCollectors.ToCharFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A sort order built from key extractors, like a {@link Comparator} chain, that sorts by extracting
+ * every key once (decorate-sort-undecorate).
+ * <p>
+ * {@code list.sort(Comparator.comparingInt(String::length).thenComparing(...))} calls the key functions
+ * twice per comparison, about {@code 2 n log2 n} times in total: 40 million calls for a million elements.
+ * {@code SortKey} calls each key function once per element, stores the keys in arrays, sorts element
+ * indices by those arrays and then reorders the elements:
+ * <ul>
+ *   <li>Primitive keys ({@code int}, {@code long}, {@code char}, {@code double}) are stored as unsigned
+ *       bit patterns that sort in the key's order. If a whole chain fits in 64 bits, e.g. an {@code int}
+ *       then a {@code char}, its keys are packed into one {@code long} per element.</li>
+ *   <li>If the packed key and the element index fit in 64 bits together, the sort is a single
+ *       {@code Arrays.sort(long[])} with no comparator at all.</li>
+ *   <li>Otherwise indices are merge-sorted comparing the key arrays; object keys ({@link #comparing})
+ *       are kept in an {@code Object[]} column and compared with their comparator.</li>
+ * </ul>
+ * The result is the same as sorting with {@link #comparator()}, and like {@code List.sort} the sort is
+ * stable. It pays off when key extraction is expensive compared to a comparison; for cheap keys such as
+ * a field read the extra arrays can make it slower than a plain {@code List.sort}.
+ * <pre>{@code
+ * SortKey<String> byLengthThenLastChar = SortKey.<String>comparingInt(String::length)
+ *         .thenComparingChar(name -> name.charAt(name.length() - 1));
+ * List<String> sorted = byLengthThenLastChar.sortedCopy(names);
+ * }</pre>
+ *
+ * @param <T> the element type
+ */
+public final class SortKey<T> {
+
+    // One step of the chain: either a primitive key as order-preserving bits, or an object key
+    private sealed interface Part<T> permits BitsPart, ObjectPart {
+        Part<T> reversed();
+    }
+
+    // bits(element) returns the key in the low `width` bits, unsigned, in ascending key order
+    private record BitsPart<T>(ToLongFunction<? super T> bits, int width, boolean descending) implements Part<T> {
+        long extract(T element) {
+            long value = bits.applyAsLong(element);
+            return descending ? ~value & mask(width) : value;
+        }
+
+        @Override
+        public Part<T> reversed() {
+            return new BitsPart<>(bits, width, !descending);
+        }
+    }
+
+    private record ObjectPart<T>(Function<? super T, ?> key, Comparator<Object> order) implements Part<T> {
+        @Override
+        public Part<T> reversed() {
+            return new ObjectPart<>(key, order.reversed());
+        }
+    }
+
+    private final List<Part<T>> parts;
+
+    private SortKey(List<Part<T>> parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Sorts by an {@code int} key.
+     *
+     * @param key the key extractor
+     * @param <T> the element type
+     * @return the sort key
+     */
+    public static <T> SortKey<T> comparingInt(ToIntFunction<? super T> key) {
+        return new SortKey<T>(List.of()).thenComparingInt(key);
+    }
+
+    /**
+     * Sorts by a {@code long} key.
+     *
+     * @param key the key extractor
+     * @param <T> the element type
+     * @return the sort key
+     */
+    public static <T> SortKey<T> comparingLong(ToLongFunction<? super T> key) {
+        return new SortKey<T>(List.of()).thenComparingLong(key);
+    }
+
+    /**
+     * Sorts by a {@code char} key, which takes only 16 bits of a packed key.
+     *
+     * @param key the key extractor
+     * @param <T> the element type
+     * @return the sort key
+     */
+    public static <T> SortKey<T> comparingChar(ToCharFunction<? super T> key) {
+        return new SortKey<T>(List.of()).thenComparingChar(key);
+    }
+
+    /**
+     * Sorts by a {@code double} key, in the order of {@link Double#compare}.
+     *
+     * @param key the key extractor
+     * @param <T> the element type
+     * @return the sort key
+     */
+    public static <T> SortKey<T> comparingDouble(ToDoubleFunction<? super T> key) {
+        return new SortKey<T>(List.of()).thenComparingDouble(key);
+    }
+
+    /**
+     * Sorts by a {@link Comparable} key.
+     *
+     * @param key the key extractor
+     * @param <T> the element type
+     * @param <U> the key type
+     * @return the sort key
+     */
+    public static <T, U extends Comparable<? super U>> SortKey<T> comparing(Function<? super T, ? extends U> key) {
+        return new SortKey<T>(List.of()).thenComparing(key);
+    }
+
+    /**
+     * Sorts by a key in the order of a comparator.
+     *
+     * @param key the key extractor
+     * @param keyComparator the key order
+     * @param <T> the element type
+     * @param <U> the key type
+     * @return the sort key
+     */
+    public static <T, U> SortKey<T> comparing(Function<? super T, ? extends U> key,
+                                              Comparator<? super U> keyComparator) {
+        return new SortKey<T>(List.of()).thenComparing(key, keyComparator);
+    }
+
+    /**
+     * Breaks ties with an {@code int} key.
+     *
+     * @param key the key extractor
+     * @return a new sort key
+     */
+    public SortKey<T> thenComparingInt(ToIntFunction<? super T> key) {
+        // Flipping the sign bit makes the unsigned order of the bits the signed order of the ints
+        return then(new BitsPart<T>(element -> (key.applyAsInt(element) ^ Integer.MIN_VALUE) & 0xFFFF_FFFFL,
+                32, false));
+    }
+
+    /**
+     * Breaks ties with a {@code long} key.
+     *
+     * @param key the key extractor
+     * @return a new sort key
+     */
+    public SortKey<T> thenComparingLong(ToLongFunction<? super T> key) {
+        return then(new BitsPart<T>(element -> key.applyAsLong(element) ^ Long.MIN_VALUE, 64, false));
+    }
+
+    /**
+     * Breaks ties with a {@code char} key.
+     *
+     * @param key the key extractor
+     * @return a new sort key
+     */
+    public SortKey<T> thenComparingChar(ToCharFunction<? super T> key) {
+        return then(new BitsPart<T>(key::applyAsChar, 16, false));
+    }
+
+    /**
+     * Breaks ties with a {@code double} key, in the order of {@link Double#compare}.
+     *
+     * @param key the key extractor
+     * @return a new sort key
+     */
+    public SortKey<T> thenComparingDouble(ToDoubleFunction<? super T> key) {
+        return then(new BitsPart<T>(element -> {
+            // Negative numbers have all bits flipped (larger magnitude sorts first), positive ones the sign bit
+            long bits = Double.doubleToLongBits(key.applyAsDouble(element));
+            return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }, 64, false));
+    }
+
+    /**
+     * Breaks ties with a {@link Comparable} key.
+     *
+     * @param key the key extractor
+     * @param <U> the key type
+     * @return a new sort key
+     */
+    public <U extends Comparable<? super U>> SortKey<T> thenComparing(Function<? super T, ? extends U> key) {
+        return thenComparing(key, Comparator.<U>naturalOrder());
+    }
+
+    /**
+     * Breaks ties with a key in the order of a comparator.
+     *
+     * @param key the key extractor
+     * @param keyComparator the key order
+     * @param <U> the key type
+     * @return a new sort key
+     */
+    @SuppressWarnings("unchecked")
+    public <U> SortKey<T> thenComparing(Function<? super T, ? extends U> key, Comparator<? super U> keyComparator) {
+        return then(new ObjectPart<>(key, (Comparator<Object>) keyComparator));
+    }
+
+    /**
+     * Returns the reverse order, like {@link Comparator#reversed()}: every key of the chain is reversed,
+     * ties keep their original order.
+     *
+     * @return a new sort key
+     */
+    public SortKey<T> reversed() {
+        List<Part<T>> reversed = new ArrayList<>(parts.size());
+        for (Part<T> part : parts) reversed.add(part.reversed());
+        return new SortKey<>(Collections.unmodifiableList(reversed));
+    }
+
+    /**
+     * Returns a comparator with the same order, which extracts the keys on every comparison.
+     *
+     * @return the comparator
+     */
+    public Comparator<T> comparator() {
+        Comparator<T> result = (a, b) -> 0;
+        for (Part<T> part : parts) {
+            Comparator<T> next = switch (part) {
+                case BitsPart<T> bits -> (a, b) -> Long.compareUnsigned(bits.extract(a), bits.extract(b));
+                case ObjectPart<T> object -> (a, b) -> object.order().compare(object.key().apply(a),
+                        object.key().apply(b));
+            };
+            result = result.thenComparing(next);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a sorted copy of a list.
+     *
+     * @param elements the elements to sort
+     * @return a new modifiable list in this order
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> sortedCopy(List<? extends T> elements) {
+        Object[] sorted = elements.toArray();
+        sort((T[]) sorted);
+        return new ArrayList<>((List<T>) Arrays.asList(sorted));
+    }
+
+    /**
+     * Sorts a list in place, like {@link List#sort}.
+     *
+     * @param elements the list to sort
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(List<T> elements) {
+        Object[] sorted = elements.toArray();
+        sort((T[]) sorted);
+        ListIterator<T> it = elements.listIterator();
+        for (Object element : sorted) {
+            it.next();
+            it.set((T) element);
+        }
+    }
+
+    /**
+     * Sorts an array in place.
+     *
+     * @param elements the array to sort
+     */
+    public void sort(T[] elements) {
+        int n = elements.length;
+        if (n < 2 || parts.isEmpty()) return;
+        int[] order = sortedIndices(elements);
+        T[] original = elements.clone();
+        for (int i = 0; i < n; i++) elements[i] = original[order[i]];
+    }
+
+    // Returns the element indices in sorted order, extracting each key once
+    @SuppressWarnings("unchecked")
+    private int[] sortedIndices(T[] elements) {
+        int n = elements.length;
+        int packedWidth = 0;
+        boolean packable = true;
+        for (Part<T> part : parts) {
+            if (part instanceof BitsPart<T> bits) packedWidth += bits.width();
+            else packable = false;
+        }
+        if (packable && packedWidth <= 64) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                long key = 0;
+                for (Part<T> part : parts) {
+                    BitsPart<T> bits = (BitsPart<T>) part;
+                    key = (bits.width() == 64 ? 0 : key << bits.width()) | bits.extract(elements[i]);
+                }
+                keys[i] = key;
+            }
+            int indexBits = 32 - Integer.numberOfLeadingZeros(n - 1);
+            if (packedWidth + indexBits <= 64) return sortPackedWithIndex(keys, indexBits);
+            return mergeSortIndices(n, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+        }
+
+        // One array per key: long[] for primitive keys, Object[] and its comparator for the others
+        int keyCount = parts.size();
+        long[][] longColumns = new long[keyCount][];
+        Object[][] objectColumns = new Object[keyCount][];
+        Comparator<Object>[] orders = (Comparator<Object>[]) new Comparator<?>[keyCount];
+        for (int p = 0; p < keyCount; p++) {
+            switch (parts.get(p)) {
+                case BitsPart<T> bits -> {
+                    long[] column = new long[n];
+                    for (int i = 0; i < n; i++) column[i] = bits.extract(elements[i]);
+                    longColumns[p] = column;
+                }
+                case ObjectPart<T> object -> {
+                    Object[] column = new Object[n];
+                    for (int i = 0; i < n; i++) column[i] = object.key().apply(elements[i]);
+                    objectColumns[p] = column;
+                    orders[p] = object.order();
+                }
+            }
+        }
+        return mergeSortIndices(n, (a, b) -> {
+            for (int p = 0; p < keyCount; p++) {
+                long[] longs = longColumns[p];
+                int c = longs != null
+                        ? Long.compareUnsigned(longs[a], longs[b])
+                        : orders[p].compare(objectColumns[p][a], objectColumns[p][b]);
+                if (c != 0) return c;
+            }
+            return 0;
+        });
+    }
+
+    // key << indexBits | index sorts by key, then by index (which makes it stable), with one primitive sort.
+    // The sign bit is flipped so that the signed sort orders the unsigned keys.
+    private static int[] sortPackedWithIndex(long[] keys, int indexBits) {
+        int n = keys.length;
+        for (int i = 0; i < n; i++) keys[i] = (keys[i] << indexBits | i) ^ Long.MIN_VALUE;
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        long indexMask = mask(indexBits);
+        for (int i = 0; i < n; i++) order[i] = (int) (keys[i] & indexMask);
+        return order;
+    }
+
+    @FunctionalInterface
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    // Stable merge sort of 0..n-1 by cmp
+    private static int[] mergeSortIndices(int n, IndexComparator cmp) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        mergeSort(order, order.clone(), 0, n, cmp);
+        return order;
+    }
+
+    // Sorts a[lo, hi) using tmp, which holds the same values on entry
+    private static void mergeSort(int[] a, int[] tmp, int lo, int hi, IndexComparator cmp) {
+        if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+            for (int i = lo + 1; i < hi; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= lo && cmp.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        // Sort both halves into tmp, then merge them back into a
+        mergeSort(tmp, a, lo, mid, cmp);
+        mergeSort(tmp, a, mid, hi, cmp);
+        if (cmp.compare(tmp[mid - 1], tmp[mid]) <= 0) {
+            System.arraycopy(tmp, lo, a, lo, hi - lo);
+            return;
+        }
+        for (int i = lo, l = lo, r = mid; i < hi; i++) {
+            a[i] = r >= hi || (l < mid && cmp.compare(tmp[l], tmp[r]) <= 0) ? tmp[l++] : tmp[r++];
+        }
+    }
+
+    private SortKey<T> then(Part<T> part) {
+        List<Part<T>> chain = new ArrayList<>(parts);
+        chain.add(part);
+        return new SortKey<>(Collections.unmodifiableList(chain));
+    }
+
+    private static long mask(int width) {
+        return width == 64 ? -1L : (1L << width) - 1;
+    }
+}
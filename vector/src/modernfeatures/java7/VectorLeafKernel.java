@@ -0,0 +1,69 @@
+package modernfeatures.java7;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link LeafKernel} on the {@code jdk.incubator.vector} API: the leaf adds whole vectors of the platform's
+ * preferred width ({@code SPECIES_PREFERRED}, 256 bits with AVX2, 512 with AVX-512) per instruction instead
+ * of relying on C2 to vectorize a scalar loop.
+ * <p>
+ * {@code int} elements are widened to {@code long} lanes before they are added, so the sum cannot overflow,
+ * as with the other kernels. The elements left over after the last full vector are added one by one.
+ * <p>
+ * This class lives in the {@code vector} module, compiled with {@code --add-modules jdk.incubator.vector},
+ * so that the rest of the project does not need the incubator module. {@link LeafKernel#vector()} loads it
+ * reflectively, and only when the running JVM has the module, e.g.:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out/production/Java8Plus:out/production/vector \
+ *      -Dmodernfeatures.leafKernel=vector modernfeatures.java7.LeafKernelBenchmark
+ * </pre>
+ */
+public final class VectorLeafKernel implements LeafKernel {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /** Creates the kernel; called reflectively by {@link LeafKernel#vector()}. */
+    public VectorLeafKernel() {
+    }
+
+    @Override
+    public long sum(int[] arr, int from, int to) {
+        // One int vector holds twice as many lanes as a long vector of the same width: widen both halves
+        LongVector low = LongVector.zero(LONGS);
+        LongVector high = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            IntVector v = IntVector.fromArray(INTS, arr, i);
+            low = low.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, 0));
+            high = high.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, 1));
+        }
+        long s = low.add(high).reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) s += arr[i];
+        return s;
+    }
+
+    @Override
+    public long sum(long[] arr, int from, int to) {
+        // Two accumulators, so consecutive adds do not wait for each other
+        LongVector s0 = LongVector.zero(LONGS);
+        LongVector s1 = LongVector.zero(LONGS);
+        int step = LONGS.length();
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from) - step; i < bound; i += 2 * step) {
+            s0 = s0.add(LongVector.fromArray(LONGS, arr, i));
+            s1 = s1.add(LongVector.fromArray(LONGS, arr, i + step));
+        }
+        long s = s0.add(s1).reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) s += arr[i];
+        return s;
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+}